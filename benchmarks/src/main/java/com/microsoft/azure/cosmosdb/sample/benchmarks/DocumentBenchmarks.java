@@ -0,0 +1,87 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.bulk.JsonDocumentFiles;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+
+// Document creation as IndexManager.CreateDocument does it: parse the JSON into a Document,
+// create it and wait for the single response. Ids are unique per invocation and the store
+// is replaced every iteration so that it does not grow without bound.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentBenchmarks {
+    private static final String SMALL_DOCUMENT = "{'order':'001','contact':'email','id':'";
+    // A workshop customer document, roughly 1KB once serialized.
+    private static final String CUSTOMER_FILE = "workshop-documents/Sample Data/customer_data/"
+            + "09d2bb28e9c54bc581492d542789f2ad.json";
+
+    private String customerJson;
+    private InMemoryDocumentStore store;
+    private long nextId;
+
+    @Setup
+    public void readSample() {
+        Document customer = JsonDocumentFiles.read(SampleData.resolve(CUSTOMER_FILE));
+        customer.setId(null);
+        customerJson = customer.toJson();
+    }
+
+    @Setup(Level.Iteration)
+    public void newStore() {
+        store = new InMemoryDocumentStore();
+    }
+
+    @Benchmark
+    public StoreResponse<Document> createSmallDocument() {
+        Document document = new Document(SMALL_DOCUMENT + nextId++ + "'}");
+        return store.createDocument(SampleData.COLLECTION_LINK, document, null).toBlocking().single();
+    }
+
+    @Benchmark
+    public StoreResponse<Document> createCustomerDocument() {
+        Document document = new Document(customerJson);
+        document.setId(Long.toString(nextId++));
+        return store.createDocument(SampleData.COLLECTION_LINK, document, null).toBlocking().single();
+    }
+}
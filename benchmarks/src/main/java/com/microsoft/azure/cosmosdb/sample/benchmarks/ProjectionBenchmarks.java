@@ -0,0 +1,105 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.projection.LazyDocument;
+import com.microsoft.azure.cosmosdb.sample.projection.Projection;
+import com.microsoft.azure.cosmosdb.sample.projection.Projections;
+
+// Turning the customer documents a query returned into what the caller reads: a POJO via
+// the SDK's Document.toObject, the same POJO via Projections.as, one field via
+// Projections.field, and one field of a LazyDocument. Each invocation handles the 50
+// customers of workshop-documents/Sample Data/customer_data once.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmarks {
+    private List<Document> customers;
+    private Projection<Customer> customerProjection;
+    private Projection<String> nameProjection;
+    private Projection<LazyDocument> lazyProjection;
+
+    @Setup
+    public void setUp() {
+        customers = SampleData.readDirectory("workshop-documents/Sample Data/customer_data");
+        customerProjection = Projections.as(Customer.class);
+        nameProjection = Projections.field(String.class, "name");
+        lazyProjection = Projections.lazy();
+    }
+
+    @Benchmark
+    public void toObject(Blackhole blackhole) {
+        for (Document document : customers) {
+            blackhole.consume(document.toObject(Customer.class));
+        }
+    }
+
+    @Benchmark
+    public void projectToPojo(Blackhole blackhole) {
+        for (Document document : customers) {
+            blackhole.consume(customerProjection.project(document));
+        }
+    }
+
+    @Benchmark
+    public void projectField(Blackhole blackhole) {
+        for (Document document : customers) {
+            blackhole.consume(nameProjection.project(document));
+        }
+    }
+
+    @Benchmark
+    public void lazyField(Blackhole blackhole) {
+        for (Document document : customers) {
+            blackhole.consume(lazyProjection.project(document).get(String.class, "name"));
+        }
+    }
+
+    // The fields of a customer document the benchmarks read; the rest are ignored.
+    public static class Customer {
+        public String id;
+        public String name;
+        public String balance;
+        public String registered;
+        public boolean isActive;
+    }
+}
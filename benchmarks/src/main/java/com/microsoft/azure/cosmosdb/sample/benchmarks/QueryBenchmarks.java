@@ -0,0 +1,120 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.query.StreamingQueryExecutor;
+import com.microsoft.azure.cosmosdb.sample.query.StreamingQueryOptions;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.telemetry.RequestChargeTelemetry;
+
+// The view-request-charges queries (exercise 1.1) over workshop-documents/Sample Data/customer_data,
+// run through the same streaming executor, page buffering and telemetry that QueryManager
+// uses. Each invocation is one complete query: subscription, every page and its telemetry.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmarks {
+    static final String ONE_FILTER = "SELECT * FROM c WHERE c.name = 'Dorothy Romero'";
+    static final String TWO_FILTERS = "SELECT * FROM c WHERE c.name = 'Dorothy Romero' OR c.balance = '$1,444.96'";
+    static final String RANGE = "SELECT * FROM c WHERE c.registered >= '2017-02-18T05:49:33 +4:00'";
+    static final String SINGLE_JOIN = "SELECT f.id FROM customers f JOIN c IN f.companies";
+    static final String DOUBLE_JOIN = "SELECT f.name AS customer, c.companyName AS company, p.location AS location "
+            + "FROM customers f JOIN c IN f.companies JOIN p IN c.locations";
+
+    // How many times the 50 sample customers are loaded.
+    @Param({ "1", "100" })
+    public int copies;
+
+    // Small pages make page handling, rather than evaluation, dominate.
+    @Param({ "500", "10" })
+    public int maxItemCount;
+
+    private StreamingQueryExecutor executor;
+    private StreamingQueryOptions options;
+    private RequestChargeTelemetry telemetry;
+
+    @Setup
+    public void setUp() {
+        executor = new StreamingQueryExecutor(SampleData.load(
+                SampleData.readDirectory("workshop-documents/Sample Data/customer_data"), copies));
+        options = new StreamingQueryOptions();
+        options.setMaxItemCount(maxItemCount);
+        options.setEnableCrossPartitionQuery(true);
+        options.setMaxBufferedPages(2);
+        telemetry = new RequestChargeTelemetry();
+    }
+
+    @Benchmark
+    public void queryWithOneFilter(Blackhole blackhole) {
+        run("QueryWithOneFilter", ONE_FILTER, blackhole);
+    }
+
+    @Benchmark
+    public void queryWithTwoFilters(Blackhole blackhole) {
+        run("QueryWithTwoFilters", TWO_FILTERS, blackhole);
+    }
+
+    @Benchmark
+    public void queryWithRangeOperator(Blackhole blackhole) {
+        run("QueryWithRangeOperator", RANGE, blackhole);
+    }
+
+    @Benchmark
+    public void queryWithSingleJoin(Blackhole blackhole) {
+        run("QueryWithSingleJoin", SINGLE_JOIN, blackhole);
+    }
+
+    @Benchmark
+    public void queryWithDoubleJoin(Blackhole blackhole) {
+        run("QueryWithDoubleJoin", DOUBLE_JOIN, blackhole);
+    }
+
+    private void run(String operation, String queryText, Blackhole blackhole) {
+        for (FeedPage<Document> page : executor.queryPages(SampleData.COLLECTION_LINK, queryText, options)
+                .compose(telemetry.instrument(operation, queryText)).toBlocking().toIterable()) {
+            for (Document document : page.getResults()) {
+                blackhole.consume(document);
+            }
+            blackhole.consume(page.getRequestCharge());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.bulk.JsonDocumentFiles;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+
+// Locates the sample data bundled with the exercises and loads it into an in-memory store.
+// Paths are relative to the repository root, which defaults to the parent of the
+// benchmarks directory and can be overridden with -Dsamples.root=<path>.
+final class SampleData {
+    static final String COLLECTION_LINK = "dbs/benchmarks/colls/samples";
+
+    private SampleData() {
+    }
+
+    static Path resolve(String relativePath) {
+        return Paths.get(System.getProperty("samples.root", "..")).resolve(relativePath);
+    }
+
+    static List<Document> readDirectory(String relativePath) {
+        return JsonDocumentFiles.fromDirectory(resolve(relativePath)).toList().toBlocking().single();
+    }
+
+    static String readText(String relativePath) {
+        try {
+            return new String(Files.readAllBytes(resolve(relativePath)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Loads copies of every document, giving each copy after the first its own id, into a
+    // store that neither throttles nor delays so that only client-side work is measured.
+    static InMemoryDocumentStore load(List<Document> documents, int copies) {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        for (int copy = 0; copy < copies; copy++) {
+            for (Document document : documents) {
+                Document stored = new Document(document.toJson());
+                if (copy > 0) {
+                    stored.setId(document.getId() + "-" + copy);
+                }
+                store.createDocument(COLLECTION_LINK, stored, null).toBlocking().single();
+            }
+        }
+        return store;
+    }
+}
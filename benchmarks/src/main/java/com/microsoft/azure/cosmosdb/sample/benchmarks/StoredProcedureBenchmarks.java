@@ -0,0 +1,74 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.SimpleScriptProcedure;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+
+// ScriptManager.RunSimpleScript: execute JS/SimpleScript.js with "Hello, " against the
+// family documents in server-side-scripts. The script itself runs as its Java twin.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoredProcedureBenchmarks {
+    private static final String SCRIPT_FILE = "server-side-scripts/src/main/resources/JS/SimpleScript.js";
+    private static final Object[] PARAMS = new Object[] { "Hello, " };
+
+    private InMemoryDocumentStore store;
+    private String sprocLink;
+
+    @Setup
+    public void setUp() {
+        store = SampleData.load(SampleData.readDirectory("server-side-scripts/src/main/resources/Data"), 1);
+        store.registerStoredProcedureHandler("SimpleScript", new SimpleScriptProcedure());
+
+        StoredProcedure storedProcedure = new StoredProcedure();
+        storedProcedure.setId("SimpleScript");
+        storedProcedure.setBody(SampleData.readText(SCRIPT_FILE));
+        store.createStoredProcedure(SampleData.COLLECTION_LINK, storedProcedure, null).toBlocking().single();
+        sprocLink = SampleData.COLLECTION_LINK + "/sprocs/SimpleScript";
+    }
+
+    @Benchmark
+    public StoreResponse<String> runSimpleScript() {
+        return store.executeStoredProcedure(sprocLink, null, PARAMS).toBlocking().single();
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+// Picks how many documents to send per stored procedure call. Each completed call updates
+// moving averages of RU and bytes per document; the next batch is sized to land near the
+// target charge without exceeding the payload limit. When the script reports that it only
+// got through part of a batch, the batch shrinks to what it managed.
+public class AdaptiveBatchSizer {
+    // Weight given to the most recent call in the moving averages.
+    private static final double SMOOTHING = 0.3;
+
+    private int minBatchSize = 1;
+    private int maxBatchSize = 1000;
+    private double targetRequestCharge = 500;
+    private long maxBatchBytes = 1024 * 1024;
+
+    private int batchSize = 25;
+    private double requestChargePerDocument;
+    private double bytesPerDocument;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setInitialBatchSize(int batchSize) {
+        this.batchSize = clamp(batchSize);
+    }
+
+    public int getMinBatchSize() {
+        return minBatchSize;
+    }
+
+    public void setMinBatchSize(int minBatchSize) {
+        if (minBatchSize < 1) {
+            throw new IllegalArgumentException("minBatchSize must be at least 1");
+        }
+        this.minBatchSize = minBatchSize;
+        this.batchSize = clamp(batchSize);
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = clamp(batchSize);
+    }
+
+    // RU a single call should aim to spend; keep it below the script's execution bound.
+    public double getTargetRequestCharge() {
+        return targetRequestCharge;
+    }
+
+    public void setTargetRequestCharge(double targetRequestCharge) {
+        this.targetRequestCharge = targetRequestCharge;
+    }
+
+    // Upper bound on the serialized documents sent in one call (the service caps requests at 2MB).
+    public long getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public void setMaxBatchBytes(long maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public void onBatchCompleted(int sent, int acknowledged, long bytesSent, double requestCharge) {
+        if (sent == 0) {
+            return;
+        }
+        bytesPerDocument = average(bytesPerDocument, (double) bytesSent / sent);
+        if (acknowledged == 0) {
+            batchSize = clamp(batchSize / 2);
+            return;
+        }
+        requestChargePerDocument = average(requestChargePerDocument, requestCharge / acknowledged);
+
+        double next = Math.min(targetRequestCharge / requestChargePerDocument, maxBatchBytes / bytesPerDocument);
+        if (acknowledged < sent) {
+            // The script hit its execution bound; this is how much fits in one call.
+            next = Math.min(next, acknowledged);
+        } else {
+            // Grow gradually so one cheap batch does not overshoot the bound.
+            next = Math.min(next, batchSize * 2.0);
+        }
+        batchSize = clamp((int) next);
+    }
+
+    private static double average(double current, double sample) {
+        return current == 0 ? sample : current + SMOOTHING * (sample - current);
+    }
+
+    private int clamp(int size) {
+        return Math.max(minBatchSize, Math.min(maxBatchSize, size));
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+public class BulkLoadResult {
+    private final long documentsLoaded;
+    private final long documentsFailed;
+    private final long throttledRequests;
+    private final double totalRequestCharge;
+    private final long elapsedMillis;
+
+    public BulkLoadResult(long documentsLoaded, long documentsFailed, long throttledRequests,
+            double totalRequestCharge, long elapsedMillis) {
+        this.documentsLoaded = documentsLoaded;
+        this.documentsFailed = documentsFailed;
+        this.throttledRequests = throttledRequests;
+        this.totalRequestCharge = totalRequestCharge;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getDocumentsLoaded() {
+        return documentsLoaded;
+    }
+
+    public long getDocumentsFailed() {
+        return documentsFailed;
+    }
+
+    public long getThrottledRequests() {
+        return throttledRequests;
+    }
+
+    public double getTotalRequestCharge() {
+        return totalRequestCharge;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getDocumentsPerSecond() {
+        return elapsedMillis == 0 ? documentsLoaded : documentsLoaded * 1000.0 / elapsedMillis;
+    }
+
+    public double getRequestChargePerSecond() {
+        return elapsedMillis == 0 ? totalRequestCharge : totalRequestCharge * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d document(s) loaded, %d failed, %d throttled request(s) in %d ms "
+                + "(%.1f docs/sec), total request charge %.2f RU (%.1f RU/s)",
+                documentsLoaded, documentsFailed, throttledRequests, elapsedMillis,
+                getDocumentsPerSecond(), totalRequestCharge, getRequestChargePerSecond());
+    }
+}
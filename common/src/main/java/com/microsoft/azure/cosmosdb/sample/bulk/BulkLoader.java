@@ -0,0 +1,101 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+
+// Writes a stream of documents through DocumentStore.createDocument with at most
+// maxConcurrency requests in flight. The source is only pulled as writes complete, so
+// arbitrarily large inputs are loaded with bounded memory. Throttled writes are retried
+// after the retry-after interval the service asked for.
+public class BulkLoader {
+    private final DocumentStore store;
+    private final BulkLoadOptions options;
+
+    public BulkLoader(DocumentStore store) {
+        this(store, new BulkLoadOptions());
+    }
+
+    public BulkLoader(DocumentStore store, BulkLoadOptions options) {
+        this.store = store;
+        this.options = options;
+    }
+
+    public Observable<BulkLoadResult> loadDirectory(String collectionLink, Path directory) {
+        return load(collectionLink, JsonDocumentFiles.fromDirectory(directory));
+    }
+
+    public Observable<BulkLoadResult> load(String collectionLink, Observable<Document> documents) {
+        return Observable.defer(() -> {
+            LongAdder loaded = new LongAdder();
+            LongAdder failed = new LongAdder();
+            LongAdder throttled = new LongAdder();
+            DoubleAdder requestCharge = new DoubleAdder();
+            long startNanos = System.nanoTime();
+
+            return documents
+                    .flatMap(document -> createWithRetry(collectionLink, document, throttled)
+                            .doOnNext(response -> {
+                                loaded.increment();
+                                requestCharge.add(response.getRequestCharge());
+                            })
+                            .onErrorResumeNext(error -> {
+                                failed.increment();
+                                System.err.println("an error occurred while loading document "
+                                        + document.getId() + ": actual cause: " + error.getMessage());
+                                return Observable.empty();
+                            }), options.getMaxConcurrency())
+                    .count()
+                    .map(ignored -> new BulkLoadResult(loaded.sum(), failed.sum(), throttled.sum(),
+                            requestCharge.sum(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+        });
+    }
+
+    private Observable<StoreResponse<Document>> createWithRetry(String collectionLink, Document document,
+            LongAdder throttled) {
+        AtomicInteger retries = new AtomicInteger();
+        return Observable.defer(() -> store.createDocument(collectionLink, document, null))
+                .retryWhen(errors -> errors.flatMap(error -> {
+                    if (!Throttling.isThrottled(error)
+                            || retries.incrementAndGet() > options.getMaxThrottleRetries()) {
+                        return Observable.error(error);
+                    }
+                    throttled.increment();
+                    return Observable.timer(
+                            Throttling.getRetryAfterInMillis(error, options.getDefaultRetryAfterMillis()),
+                            TimeUnit.MILLISECONDS);
+                }));
+    }
+}
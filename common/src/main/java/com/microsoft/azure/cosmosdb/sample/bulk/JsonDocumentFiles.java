@@ -0,0 +1,133 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.microsoft.azure.cosmosdb.Document;
+
+import rx.Observable;
+import rx.observables.SyncOnSubscribe;
+
+public final class JsonDocumentFiles {
+    private JsonDocumentFiles() {
+    }
+
+    // Streams every *.json file in a directory as one Document per file. Files are listed
+    // and read lazily as the subscriber requests them, so only the documents currently in
+    // flight are held in memory.
+    public static Observable<Document> fromDirectory(Path directory) {
+        return Observable.using(
+                () -> {
+                    try {
+                        return Files.newDirectoryStream(directory, "*.json");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                },
+                files -> Observable.from(files).map(JsonDocumentFiles::read),
+                JsonDocumentFiles::closeQuietly);
+    }
+
+    // A directory is read as one document per file, a file as a stream of documents.
+    public static Observable<Document> fromPath(Path path) {
+        return Files.isDirectory(path) ? fromDirectory(path) : fromFile(path);
+    }
+
+    // Streams the documents of a JSON array or NDJSON file; see JsonDocumentReader. The
+    // next document is only parsed when the subscriber requests it.
+    public static Observable<Document> fromFile(Path file) {
+        return Observable.create(SyncOnSubscribe.<JsonDocumentReader, Document>createStateful(
+                () -> open(file),
+                (reader, observer) -> {
+                    try {
+                        Document document = reader.nextDocument();
+                        if (document == null) {
+                            observer.onCompleted();
+                        } else {
+                            observer.onNext(document);
+                        }
+                    } catch (IOException e) {
+                        observer.onError(e);
+                    }
+                    return reader;
+                },
+                JsonDocumentFiles::closeQuietly));
+    }
+
+    // Like fromFile, for callers that work on the parsed JSON rather than Documents.
+    public static Observable<JsonNode> nodesFromFile(Path file) {
+        return Observable.create(SyncOnSubscribe.<JsonDocumentReader, JsonNode>createStateful(
+                () -> open(file),
+                (reader, observer) -> {
+                    try {
+                        JsonNode node = reader.nextNode();
+                        if (node == null) {
+                            observer.onCompleted();
+                        } else {
+                            observer.onNext(node);
+                        }
+                    } catch (IOException e) {
+                        observer.onError(e);
+                    }
+                    return reader;
+                },
+                JsonDocumentFiles::closeQuietly));
+    }
+
+    private static JsonDocumentReader open(Path file) {
+        try {
+            return new JsonDocumentReader(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Document read(Path file) {
+        try {
+            String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            // Some of the sample files were saved with a byte order mark.
+            if (!json.isEmpty() && json.charAt(0) == '\uFEFF') {
+                json = json.substring(1);
+            }
+            return new Document(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to read from it either way.
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.cosmosdb.Document;
+
+// Reads the documents of a JSON file one at a time with Jackson's streaming parser, so a
+// file of any size is read with memory for one document. The file may hold a single top
+// level array of objects (like the workshop's profileData.json) or one object after another
+// (NDJSON, one per line); which one is decided by its first character. A UTF-8 byte order
+// mark is skipped.
+//
+// nextNode hands out the parsed tree and never builds the document's text. nextDocument
+// copies the document's tokens into a reused text buffer, since a Document can only be
+// created from its JSON text.
+public class JsonDocumentReader implements Closeable {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final JsonParser parser;
+    private final boolean array;
+    private final ReusableStringWriter text = new ReusableStringWriter();
+    private final JsonGenerator generator;
+    private boolean finished;
+    private long documentCount;
+
+    public JsonDocumentReader(Path file) throws IOException {
+        JsonFactory factory = mapper.getFactory();
+        parser = factory.createParser(new MappedFileInputStream(file));
+        try {
+            JsonToken first = parser.nextToken();
+            array = first == JsonToken.START_ARRAY;
+            finished = first == null;
+            if (!array && !finished && first != JsonToken.START_OBJECT) {
+                throw notAnObject();
+            }
+            generator = factory.createGenerator(text);
+            generator.setRootValueSeparator(null);
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    // The next document as a tree, or null at the end of the file.
+    public JsonNode nextNode() throws IOException {
+        if (!advance()) {
+            return null;
+        }
+        return parser.readValueAsTree();
+    }
+
+    // The next document, or null at the end of the file.
+    public Document nextDocument() throws IOException {
+        if (!advance()) {
+            return null;
+        }
+        text.reset();
+        generator.copyCurrentStructure(parser);
+        generator.flush();
+        return new Document(text.toString());
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            generator.close();
+        } finally {
+            parser.close();
+        }
+    }
+
+    // Leaves the parser on the START_OBJECT of the next document.
+    private boolean advance() throws IOException {
+        if (finished) {
+            return false;
+        }
+        // The first document's START_OBJECT was already read by the constructor when the
+        // file is not an array.
+        JsonToken token = documentCount == 0 && !array ? parser.getCurrentToken() : parser.nextToken();
+        if (token == null || (array && token == JsonToken.END_ARRAY)) {
+            finished = true;
+            return false;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw notAnObject();
+        }
+        documentCount++;
+        return true;
+    }
+
+    private JsonParseException notAnObject() {
+        return new JsonParseException(parser, "Expected a JSON object for document " + (documentCount + 1)
+                + " but found " + parser.getCurrentToken());
+    }
+
+    // A Writer over a StringBuilder that can be emptied and reused, unlike StringWriter's
+    // synchronized StringBuffer.
+    private static final class ReusableStringWriter extends Writer {
+        private final StringBuilder builder = new StringBuilder(4096);
+
+        void reset() {
+            builder.setLength(0);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            builder.append(buffer, offset, length);
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+            builder.append(string, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+}
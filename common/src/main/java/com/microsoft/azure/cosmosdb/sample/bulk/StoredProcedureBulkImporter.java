@@ -0,0 +1,143 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+
+// Imports documents by sending them in batches to a bulk import stored procedure (see
+// JS/BulkImport.js), which returns how many documents of the batch it created before
+// reaching its execution bound. The unacknowledged tail of each batch is resent at the
+// head of the next one, so every document is written exactly once.
+public class StoredProcedureBulkImporter {
+    private final DocumentStore store;
+    private final AdaptiveBatchSizer batchSizer;
+    private final BulkLoadOptions options;
+
+    public StoredProcedureBulkImporter(DocumentStore store) {
+        this(store, new AdaptiveBatchSizer(), new BulkLoadOptions());
+    }
+
+    public StoredProcedureBulkImporter(DocumentStore store, AdaptiveBatchSizer batchSizer, BulkLoadOptions options) {
+        this.store = store;
+        this.batchSizer = batchSizer;
+        this.options = options;
+    }
+
+    public AdaptiveBatchSizer getBatchSizer() {
+        return batchSizer;
+    }
+
+    // Calls are issued one at a time: a stored procedure runs against a single partition,
+    // so concurrent calls to the same one would only contend with each other.
+    public Observable<BulkLoadResult> importDocuments(String storedProcedureLink, Observable<Document> documents,
+            RequestOptions requestOptions) {
+        return Observable.fromCallable(() -> {
+            long startNanos = System.nanoTime();
+            long loaded = 0;
+            long failed = 0;
+            long throttled = 0;
+            double requestCharge = 0;
+
+            Iterator<Document> source = documents.toBlocking().getIterator();
+            Deque<String> pending = new ArrayDeque<>();
+            int consecutiveEmptyBatches = 0;
+            int consecutiveThrottles = 0;
+
+            while (source.hasNext() || !pending.isEmpty()) {
+                // Top up the pending documents to the next batch size, respecting the byte limit.
+                int batchSize = batchSizer.getBatchSize();
+                while (pending.size() < batchSize && source.hasNext()) {
+                    pending.addLast(source.next().toJson());
+                }
+                StringBuilder batch = new StringBuilder("[");
+                int sent = 0;
+                long bytes = 0;
+                for (String json : pending) {
+                    long documentBytes = json.getBytes(StandardCharsets.UTF_8).length;
+                    if (sent == batchSize || (sent > 0 && bytes + documentBytes > batchSizer.getMaxBatchBytes())) {
+                        break;
+                    }
+                    batch.append(sent == 0 ? "" : ",").append(json);
+                    bytes += documentBytes;
+                    sent++;
+                }
+                batch.append(']');
+
+                StoreResponse<String> response;
+                try {
+                    response = store.executeStoredProcedure(storedProcedureLink, requestOptions,
+                            new Object[] { batch.toString() }).toBlocking().single();
+                } catch (RuntimeException e) {
+                    if (Throttling.isThrottled(e) && ++consecutiveThrottles <= options.getMaxThrottleRetries()) {
+                        throttled++;
+                        TimeUnit.MILLISECONDS.sleep(
+                                Throttling.getRetryAfterInMillis(e, options.getDefaultRetryAfterMillis()));
+                        continue;
+                    }
+                    throw e;
+                }
+                consecutiveThrottles = 0;
+
+                int acknowledged = parseCount(response.getResource());
+                requestCharge += response.getRequestCharge();
+                batchSizer.onBatchCompleted(sent, acknowledged, bytes, response.getRequestCharge());
+                for (int i = 0; i < acknowledged; i++) {
+                    pending.removeFirst();
+                }
+                loaded += acknowledged;
+
+                if (acknowledged > 0) {
+                    consecutiveEmptyBatches = 0;
+                } else if (sent == 1 && ++consecutiveEmptyBatches > options.getMaxThrottleRetries()) {
+                    // Even a batch of one does not fit in a single execution; skip it.
+                    System.err.println("a document could not be imported within one script execution and was skipped");
+                    pending.removeFirst();
+                    failed++;
+                    consecutiveEmptyBatches = 0;
+                }
+            }
+
+            return new BulkLoadResult(loaded, failed, throttled, requestCharge,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        });
+    }
+
+    private static int parseCount(String body) {
+        if (body == null || body.trim().isEmpty()) {
+            return 0;
+        }
+        return Integer.parseInt(body.trim().replace("\"", ""));
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.microsoft.azure.cosmosdb.sample.telemetry.HistogramSummary;
+import com.microsoft.azure.cosmosdb.sample.telemetry.LogLinearHistogram;
+
+// What a WriteBehindQueue has done: writes accepted, coalesced into a queued write of the
+// same document, written and failed; batches by what flushed them; the queue depth seen by
+// each write; how long writes waited in the queue and batches took to write; and how long
+// producers were held back by a full queue.
+public class WriteBehindMetrics {
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder sizeFlushes = new LongAdder();
+    private final LongAdder bytesFlushes = new LongAdder();
+    private final LongAdder timeFlushes = new LongAdder();
+    private final LongAdder explicitFlushes = new LongAdder();
+    private final DoubleAdder requestCharge = new DoubleAdder();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final LogLinearHistogram queueDepth = new LogLinearHistogram(1);
+    private final LogLinearHistogram batchSize = new LogLinearHistogram(1);
+    private final LogLinearHistogram queueWaitMillis = new LogLinearHistogram(0.01);
+    private final LogLinearHistogram flushMillis = new LogLinearHistogram(0.01);
+    private final LogLinearHistogram blockedMillis = new LogLinearHistogram(0.01);
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getBatchCount() {
+        return sizeFlushes.sum() + bytesFlushes.sum() + timeFlushes.sum() + explicitFlushes.sum();
+    }
+
+    public double getRequestCharge() {
+        return requestCharge.sum();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    // The number of writes queued when each write was accepted, itself included.
+    public HistogramSummary getQueueDepth() {
+        return queueDepth.summarize();
+    }
+
+    public HistogramSummary getBatchSize() {
+        return batchSize.summarize();
+    }
+
+    // From a write being queued to its batch being sent.
+    public HistogramSummary getQueueWaitMillis() {
+        return queueWaitMillis.summarize();
+    }
+
+    // From a batch being sent to its last write completing.
+    public HistogramSummary getFlushMillis() {
+        return flushMillis.summarize();
+    }
+
+    // How long the producers that found the queue full waited for room.
+    public HistogramSummary getBlockedMillis() {
+        return blockedMillis.summarize();
+    }
+
+    void onAccepted(int depth) {
+        accepted.increment();
+        queueDepth.record(depth);
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    void onCoalesced() {
+        accepted.increment();
+        coalesced.increment();
+    }
+
+    void onBlocked(double millis) {
+        blockedMillis.record(millis);
+    }
+
+    void onFlush(WriteBehindQueue.FlushTrigger trigger, int size) {
+        switch (trigger) {
+        case SIZE:
+            sizeFlushes.increment();
+            break;
+        case BYTES:
+            bytesFlushes.increment();
+            break;
+        case TIME:
+            timeFlushes.increment();
+            break;
+        default:
+            explicitFlushes.increment();
+            break;
+        }
+        batchSize.record(size);
+    }
+
+    void onQueueWait(double millis) {
+        queueWaitMillis.record(millis);
+    }
+
+    void onWritten(double charge) {
+        written.increment();
+        requestCharge.add(charge);
+    }
+
+    void onFailed() {
+        failed.increment();
+    }
+
+    void onBatchWritten(double millis) {
+        flushMillis.record(millis);
+    }
+
+    @Override
+    public String toString() {
+        HistogramSummary depth = queueDepth.summarize();
+        HistogramSummary size = batchSize.summarize();
+        HistogramSummary wait = queueWaitMillis.summarize();
+        HistogramSummary flush = flushMillis.summarize();
+        HistogramSummary blocked = blockedMillis.summarize();
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("writes: %d accepted, %d coalesced, %d written, %d failed, %.2f RU%n",
+                getAcceptedCount(), getCoalescedCount(), getWrittenCount(), getFailedCount(), getRequestCharge()));
+        report.append(String.format("batches: %d (%d full, %d by bytes, %d on time, %d flushed), mean size %.1f%n",
+                getBatchCount(), sizeFlushes.sum(), bytesFlushes.sum(), timeFlushes.sum(), explicitFlushes.sum(),
+                size.getMean()));
+        report.append(String.format("%-22s %9s %9s %9s %9s%n", "", "p50", "p95", "p99", "max"));
+        report.append(String.format("%-22s %9.0f %9.0f %9.0f %9.0f%n", "queue depth", depth.getP50(), depth.getP95(),
+                depth.getP99(), depth.getMax()));
+        report.append(String.format("%-22s %9.2f %9.2f %9.2f %9.2f%n", "queue wait ms", wait.getP50(), wait.getP95(),
+                wait.getP99(), wait.getMax()));
+        report.append(String.format("%-22s %9.2f %9.2f %9.2f %9.2f%n", "flush ms", flush.getP50(), flush.getP95(),
+                flush.getP99(), flush.getMax()));
+        report.append(String.format("%-22s %9.2f %9.2f %9.2f %9.2f%n", "producer blocked ms (" + blocked.getCount()
+                + ")", blocked.getP50(), blocked.getP95(), blocked.getP99(), blocked.getMax()));
+        return report.toString();
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+// When a WriteBehindQueue flushes and how much it holds. A batch is flushed as soon as it
+// is full by count or by bytes, or once its oldest write has waited maxDelayMillis.
+public class WriteBehindOptions {
+    private int maxBatchSize = 100;
+    private long maxBatchBytes = 256 * 1024;
+    private long maxDelayMillis = 50;
+    private int maxInFlightBatches = 2;
+    private int maxQueuedDocuments = 10000;
+
+    // Upper bound on the writes flushed together in one batch.
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    // Upper bound on the size of a batch's documents as UTF-8 encoded JSON. A larger document
+    // goes in a batch of its own.
+    public long getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public void setMaxBatchBytes(long maxBatchBytes) {
+        if (maxBatchBytes < 1) {
+            throw new IllegalArgumentException("maxBatchBytes must be at least 1");
+        }
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    // How long a write may wait for its batch to fill before it is flushed anyway.
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public void setMaxDelayMillis(long maxDelayMillis) {
+        if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("maxDelayMillis cannot be negative");
+        }
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    // Upper bound on the batches being written at once. Further batches wait in the queue.
+    public int getMaxInFlightBatches() {
+        return maxInFlightBatches;
+    }
+
+    public void setMaxInFlightBatches(int maxInFlightBatches) {
+        if (maxInFlightBatches < 1) {
+            throw new IllegalArgumentException("maxInFlightBatches must be at least 1");
+        }
+        this.maxInFlightBatches = maxInFlightBatches;
+    }
+
+    // Writes waiting to be flushed beyond which producers are blocked until a batch leaves.
+    public int getMaxQueuedDocuments() {
+        return maxQueuedDocuments;
+    }
+
+    public void setMaxQueuedDocuments(int maxQueuedDocuments) {
+        if (maxQueuedDocuments < 1) {
+            throw new IllegalArgumentException("maxQueuedDocuments must be at least 1");
+        }
+        this.maxQueuedDocuments = maxQueuedDocuments;
+    }
+}
@@ -0,0 +1,369 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.ResourceLinks;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+import rx.subjects.AsyncSubject;
+
+// Write-behind for document creates and upserts. Writes are queued and sent in batches: a
+// batch leaves once it holds maxBatchSize writes or maxBatchBytes of JSON, or once its
+// oldest write has waited maxDelayMillis, and at most maxInFlightBatches are being written
+// at a time. A burst of writes thus reaches the store at the rate it can take instead of
+// all at once. Run the queue over a RateLimitedDocumentStore to keep the batches under the
+// collection's throughput too.
+//
+// An upsert of a document whose upsert is still queued (same collection, id and request
+// options) replaces the queued one instead of being sent as well, and both callers get the
+// response of the one write. Any other write to a queued document sends the queue first:
+// a second create must still get its 409, and each write keeps its own options. Writes to
+// a document that is being written wait for that write, so they reach the store in order.
+//
+// Producers are blocked while maxQueuedDocuments writes are waiting. Writes are sent whether
+// or not their observable is subscribed to; it emits the response once the write completes.
+public class WriteBehindQueue implements AutoCloseable {
+    enum FlushTrigger {
+        SIZE, BYTES, TIME, EXPLICIT
+    }
+
+    private final DocumentStore store;
+    private final WriteBehindOptions options;
+    private final WriteBehindMetrics metrics = new WriteBehindMetrics();
+    private final ScheduledExecutorService timer;
+    // Writes waiting to be sent, oldest first, by collection and document id. Guarded by this.
+    private final LinkedHashMap<Object, QueuedWrite> queued = new LinkedHashMap<>();
+    private final Set<Object> inFlightKeys = new HashSet<>();
+    private long queuedBytes;
+    private int inFlightBatches;
+    private int flushRequests;
+    private ScheduledFuture<?> timerTask;
+    private boolean closed;
+
+    public WriteBehindQueue(DocumentStore store) {
+        this(store, new WriteBehindOptions());
+    }
+
+    public WriteBehindQueue(DocumentStore store, WriteBehindOptions options) {
+        this.store = store;
+        this.options = options;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public WriteBehindMetrics getMetrics() {
+        return metrics;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queued.size();
+    }
+
+    public synchronized int getInFlightBatchCount() {
+        return inFlightBatches;
+    }
+
+    // Blocks while the queue is full.
+    public Observable<StoreResponse<Document>> create(String collectionLink, Document document,
+            RequestOptions requestOptions) throws InterruptedException {
+        return enqueue(collectionLink, document, requestOptions, false);
+    }
+
+    // Blocks while the queue is full.
+    public Observable<StoreResponse<Document>> upsert(String collectionLink, Document document,
+            RequestOptions requestOptions) throws InterruptedException {
+        return enqueue(collectionLink, document, requestOptions, true);
+    }
+
+    // Sends every queued write and waits until none is queued or being written, e.g. before
+    // querying for the documents.
+    public void flush() throws InterruptedException {
+        synchronized (this) {
+            flushRequests++;
+            try {
+                drain();
+                while (!queued.isEmpty() || inFlightBatches > 0) {
+                    wait();
+                }
+            } finally {
+                flushRequests--;
+            }
+        }
+    }
+
+    // Refuses further writes, then waits for the queued ones to be written. If the caller is
+    // interrupted, the queued writes are still sent but close returns without waiting for
+    // them, with the interrupt flag set again.
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            timer.shutdown();
+        }
+    }
+
+    private Observable<StoreResponse<Document>> enqueue(String collectionLink, Document document,
+            RequestOptions requestOptions, boolean upsert) throws InterruptedException {
+        // Documents without an id get one from the store, so they are never coalesced.
+        Object key = document.getId() == null ? new Object()
+                : ResourceLinks.normalize(collectionLink) + "/docs/" + document.getId();
+        long bytes = document.toJson().getBytes(StandardCharsets.UTF_8).length;
+        synchronized (this) {
+            long blockedSinceNanos = 0;
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("The write-behind queue is closed");
+                }
+                QueuedWrite current = queued.get(key);
+                if (current != null && current.upsert && upsert && sameOptions(current.requestOptions, requestOptions)) {
+                    queuedBytes += bytes - current.bytes;
+                    current.document = document;
+                    current.bytes = bytes;
+                    metrics.onCoalesced();
+                    drain();
+                    return current.result.asObservable();
+                }
+                if (current != null) {
+                    flushRequests++;
+                    try {
+                        drain();
+                        while (queued.get(key) == current) {
+                            wait();
+                        }
+                    } finally {
+                        flushRequests--;
+                    }
+                    continue;
+                }
+                if (queued.size() < options.getMaxQueuedDocuments()) {
+                    break;
+                }
+                if (blockedSinceNanos == 0) {
+                    blockedSinceNanos = System.nanoTime();
+                }
+                wait();
+            }
+            if (blockedSinceNanos != 0) {
+                metrics.onBlocked(millisSince(blockedSinceNanos));
+            }
+            QueuedWrite write = new QueuedWrite(key, collectionLink, document, bytes, requestOptions, upsert);
+            queued.put(key, write);
+            queuedBytes += bytes;
+            metrics.onAccepted(queued.size());
+            drain();
+            armTimer();
+            return write.result.asObservable();
+        }
+    }
+
+    // Sends batches for as long as one is due and another may be in flight.
+    private void drain() {
+        while (inFlightBatches < options.getMaxInFlightBatches() && !queued.isEmpty()) {
+            FlushTrigger trigger = dueTrigger();
+            if (trigger == null) {
+                return;
+            }
+            List<QueuedWrite> batch = takeBatch();
+            if (batch.isEmpty()) {
+                // Everything queued waits for a write of the same document.
+                return;
+            }
+            inFlightBatches++;
+            metrics.onFlush(trigger, batch.size());
+            send(batch);
+            notifyAll();
+        }
+    }
+
+    private FlushTrigger dueTrigger() {
+        if (queued.size() >= options.getMaxBatchSize()) {
+            return FlushTrigger.SIZE;
+        }
+        if (queuedBytes >= options.getMaxBatchBytes()) {
+            return FlushTrigger.BYTES;
+        }
+        if (flushRequests > 0 || closed) {
+            return FlushTrigger.EXPLICIT;
+        }
+        QueuedWrite oldest = queued.values().iterator().next();
+        return millisSince(oldest.queuedNanos) >= options.getMaxDelayMillis() ? FlushTrigger.TIME : null;
+    }
+
+    private List<QueuedWrite> takeBatch() {
+        List<QueuedWrite> batch = new ArrayList<>();
+        long batchBytes = 0;
+        long nowNanos = System.nanoTime();
+        for (Iterator<QueuedWrite> writes = queued.values().iterator(); writes.hasNext()
+                && batch.size() < options.getMaxBatchSize();) {
+            QueuedWrite write = writes.next();
+            if (inFlightKeys.contains(write.key)) {
+                continue;
+            }
+            if (!batch.isEmpty() && batchBytes + write.bytes > options.getMaxBatchBytes()) {
+                break;
+            }
+            writes.remove();
+            queuedBytes -= write.bytes;
+            batchBytes += write.bytes;
+            inFlightKeys.add(write.key);
+            metrics.onQueueWait((nowNanos - write.queuedNanos) / 1e6);
+            batch.add(write);
+        }
+        return batch;
+    }
+
+    // Wakes the queue up when its oldest write is due. An overdue write is waiting for a
+    // batch in flight, and goes when that batch completes.
+    private void armTimer() {
+        if (timerTask != null || queued.isEmpty()) {
+            return;
+        }
+        long dueNanos = queued.values().iterator().next().queuedNanos
+                + TimeUnit.MILLISECONDS.toNanos(options.getMaxDelayMillis());
+        long delayNanos = dueNanos - System.nanoTime();
+        if (delayNanos > 0) {
+            timerTask = timer.schedule(this::onTimer, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized void onTimer() {
+        timerTask = null;
+        drain();
+        armTimer();
+    }
+
+    private void send(List<QueuedWrite> batch) {
+        long startNanos = System.nanoTime();
+        Observable.from(batch)
+                .flatMap(this::write, batch.size())
+                .subscribeOn(Schedulers.io())
+                .subscribe(response -> {
+                }, error -> onBatchWritten(batch, startNanos), () -> onBatchWritten(batch, startNanos));
+    }
+
+    private Observable<StoreResponse<Document>> write(QueuedWrite write) {
+        Observable<StoreResponse<Document>> response = write.upsert
+                ? store.upsertDocument(write.collectionLink, write.document, write.requestOptions)
+                : store.createDocument(write.collectionLink, write.document, write.requestOptions);
+        return response
+                .doOnNext(written -> {
+                    metrics.onWritten(written.getRequestCharge());
+                    write.result.onNext(written);
+                })
+                .doOnCompleted(write.result::onCompleted)
+                .onErrorResumeNext(error -> {
+                    metrics.onFailed();
+                    write.result.onError(error);
+                    return Observable.empty();
+                });
+    }
+
+    private synchronized void onBatchWritten(List<QueuedWrite> batch, long startNanos) {
+        metrics.onBatchWritten(millisSince(startNanos));
+        inFlightBatches--;
+        for (QueuedWrite write : batch) {
+            inFlightKeys.remove(write.key);
+        }
+        drain();
+        armTimer();
+        notifyAll();
+    }
+
+    // The options that change what an upsert does. RequestOptions has no equals of its own.
+    private static boolean sameOptions(RequestOptions left, RequestOptions right) {
+        if (left == right) {
+            return true;
+        }
+        if (left == null || right == null) {
+            return false;
+        }
+        return Objects.equals(String.valueOf(left.getPartitionKey()), String.valueOf(right.getPartitionKey()))
+                && sameCondition(left, right)
+                && left.getIndexingDirective() == right.getIndexingDirective()
+                && left.getConsistencyLevel() == right.getConsistencyLevel()
+                && Objects.equals(left.getSessionToken(), right.getSessionToken())
+                && Objects.equals(left.getPreTriggerInclude(), right.getPreTriggerInclude())
+                && Objects.equals(left.getPostTriggerInclude(), right.getPostTriggerInclude());
+    }
+
+    private static boolean sameCondition(RequestOptions left, RequestOptions right) {
+        if (left.getAccessCondition() == null || right.getAccessCondition() == null) {
+            return left.getAccessCondition() == right.getAccessCondition();
+        }
+        return left.getAccessCondition().getType() == right.getAccessCondition().getType()
+                && Objects.equals(left.getAccessCondition().getCondition(), right.getAccessCondition().getCondition());
+    }
+
+    private static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+
+    private static final class QueuedWrite {
+        final Object key;
+        final String collectionLink;
+        final long queuedNanos = System.nanoTime();
+        final AsyncSubject<StoreResponse<Document>> result = AsyncSubject.create();
+        final RequestOptions requestOptions;
+        final boolean upsert;
+        Document document;
+        long bytes;
+
+        QueuedWrite(Object key, String collectionLink, Document document, long bytes,
+                RequestOptions requestOptions, boolean upsert) {
+            this.key = key;
+            this.collectionLink = collectionLink;
+            this.document = document;
+            this.bytes = bytes;
+            this.requestOptions = requestOptions;
+            this.upsert = upsert;
+        }
+    }
+}
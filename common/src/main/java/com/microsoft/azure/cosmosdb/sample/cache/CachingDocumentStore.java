@@ -0,0 +1,295 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import com.microsoft.azure.cosmosdb.ChangeFeedOptions;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.SqlParameter;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.sample.codec.CompactDocument;
+import com.microsoft.azure.cosmosdb.sample.codec.FieldDictionary;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.ResourceLinks;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+
+import rx.Observable;
+
+// A DocumentStore that answers repeated queries from memory. Pages are cached as they pass
+// through, keyed by query text, parameters, page size, partition key and continuation, so
+// a full result set is cached once it has been read to the end and a partially read one
+// still serves its first pages. A page served from the cache reports a request charge of 0.
+//
+// Writes through this store (document creates and stored procedure executions) invalidate
+// the cached pages of their collection whenever the session token they return has moved
+// on. Writes made by other clients are only picked up once entries expire; see
+// QueryCacheOptions.setTimeToLiveMillis. Cached documents are shared between callers and
+// must not be modified, unless QueryCacheOptions.setCompactEncoding is on: pages are then
+// held as CompactDocuments with a field dictionary shared by the whole cache, and every hit
+// hands out freshly decoded Documents.
+public class CachingDocumentStore implements DocumentStore {
+    // Rough per-document overhead of the parsed representation on top of its JSON text.
+    private static final int DOCUMENT_OVERHEAD_BYTES = 64;
+
+    private final DocumentStore store;
+    private final QueryCacheOptions options;
+    private final QueryResultCache cache;
+    private final FieldDictionary dictionary = new FieldDictionary();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final DoubleAdder savedRequestCharge = new DoubleAdder();
+
+    public CachingDocumentStore(DocumentStore store) {
+        this(store, new QueryCacheOptions());
+    }
+
+    public CachingDocumentStore(DocumentStore store, QueryCacheOptions options) {
+        this.store = store;
+        this.options = options;
+        this.cache = new QueryResultCache(options.getMaxBytes());
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> createDocument(String collectionLink, Document document,
+            RequestOptions requestOptions) {
+        return store.createDocument(collectionLink, document, requestOptions)
+                .doOnNext(response -> onWrite(collectionLink, response.getSessionToken()));
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> upsertDocument(String collectionLink, Document document,
+            RequestOptions requestOptions) {
+        return store.upsertDocument(collectionLink, document, requestOptions)
+                .doOnNext(response -> onWrite(collectionLink, response.getSessionToken()));
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions requestOptions) {
+        return store.readDocument(documentLink, requestOptions);
+    }
+
+    @Override
+    public Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions feedOptions) {
+        return Observable.defer(() -> {
+            String continuation = feedOptions == null ? null : feedOptions.getRequestContinuation();
+            return pages(collectionLink, querySpec, feedOptions, keyOf(collectionLink, querySpec, feedOptions),
+                    continuation);
+        });
+    }
+
+    private Observable<FeedPage<Document>> pages(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions feedOptions, QueryPageKey firstKey, String continuation) {
+        return Observable.defer(() -> {
+            QueryPageKey key = firstKey.withContinuation(continuation);
+            FeedPage<?> cached = cache.get(key, System.nanoTime());
+            if (cached != null) {
+                hits.incrementAndGet();
+                savedRequestCharge.add(cached.getRequestCharge());
+                Observable<FeedPage<Document>> current = Observable.just(new FeedPage<>(documentsOf(cached), 0,
+                        cached.getResponseContinuation(), cached.getSessionToken(), null, null));
+                if (cached.getResponseContinuation() == null) {
+                    return current;
+                }
+                return current.concatWith(pages(collectionLink, querySpec, feedOptions, firstKey,
+                        cached.getResponseContinuation()));
+            }
+
+            // Everything from here on comes from the service; cache each page under the
+            // continuation it was fetched with.
+            misses.incrementAndGet();
+            long generation = cache.getGeneration(key.collectionLink);
+            QueryPageKey[] pageKey = { key };
+            return store.queryDocuments(collectionLink, querySpec, withContinuation(feedOptions, continuation))
+                    .doOnNext(page -> {
+                        if (options.isCompactEncoding()) {
+                            FeedPage<CompactDocument> compact = encode(page);
+                            long bytes = compactSizeOf(compact);
+                            if (bytes <= options.getMaxEntryBytes()) {
+                                cache.put(pageKey[0], compact, bytes, generation, expiresAt());
+                            }
+                        } else {
+                            long bytes = sizeOf(page);
+                            if (bytes <= options.getMaxEntryBytes()) {
+                                cache.put(pageKey[0], page, bytes, generation, expiresAt());
+                            }
+                        }
+                        pageKey[0] = firstKey.withContinuation(page.getResponseContinuation());
+                    });
+        });
+    }
+
+    // Change feed reads are never cached: their whole point is to see what has changed.
+    @Override
+    public Observable<FeedPage<Document>> readChangeFeed(String collectionLink, ChangeFeedOptions options) {
+        return store.readChangeFeed(collectionLink, options);
+    }
+
+    @Override
+    public Observable<List<String>> readPartitionKeyRangeIds(String collectionLink) {
+        return store.readPartitionKeyRangeIds(collectionLink);
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> createStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions requestOptions) {
+        return store.createStoredProcedure(collectionLink, storedProcedure, requestOptions);
+    }
+
+    // A script may write, so its response is treated like a write to its collection.
+    @Override
+    public Observable<StoreResponse<String>> executeStoredProcedure(String storedProcedureLink,
+            RequestOptions requestOptions, Object[] procedureParams) {
+        String collectionLink = ResourceLinks.collectionOf(storedProcedureLink);
+        return store.executeStoredProcedure(storedProcedureLink, requestOptions, procedureParams)
+                .doOnNext(response -> onWrite(collectionLink, response.getSessionToken()));
+    }
+
+    public void invalidate(String collectionLink) {
+        cache.invalidate(ResourceLinks.normalize(collectionLink));
+        invalidations.incrementAndGet();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    // The RU the cached pages cost when they were read, summed over every time they were served.
+    public double getSavedRequestCharge() {
+        return savedRequestCharge.sum();
+    }
+
+    public long getCachedBytes() {
+        return cache.getBytes();
+    }
+
+    public int getCachedPageCount() {
+        return cache.size();
+    }
+
+    private void onWrite(String collectionLink, String sessionToken) {
+        if (cache.onWrite(ResourceLinks.normalize(collectionLink), sessionToken)) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    private long expiresAt() {
+        long timeToLiveMillis = options.getTimeToLiveMillis();
+        return timeToLiveMillis == 0 ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+    }
+
+    private static QueryPageKey keyOf(String collectionLink, SqlQuerySpec querySpec, FeedOptions feedOptions) {
+        String parameters = null;
+        if (querySpec.getParameters() != null && !querySpec.getParameters().isEmpty()) {
+            StringBuilder builder = new StringBuilder();
+            for (SqlParameter parameter : querySpec.getParameters()) {
+                builder.append(parameter.toJson()).append(',');
+            }
+            parameters = builder.toString();
+        }
+        String partition = null;
+        if (feedOptions != null && feedOptions.getPartitionKey() != null) {
+            partition = feedOptions.getPartitionKey().toString();
+        } else if (feedOptions != null && feedOptions.getPartitionKeyRangeIdInternal() != null) {
+            partition = "range:" + feedOptions.getPartitionKeyRangeIdInternal();
+        }
+        return new QueryPageKey(ResourceLinks.normalize(collectionLink), querySpec.getQueryText(), parameters,
+                partition, feedOptions == null ? null : feedOptions.getMaxItemCount(), null);
+    }
+
+    // The caller's options are passed through untouched unless the scan resumes at a page
+    // after the ones served from the cache.
+    private static FeedOptions withContinuation(FeedOptions feedOptions, String continuation) {
+        String requested = feedOptions == null ? null : feedOptions.getRequestContinuation();
+        if (continuation == null ? requested == null : continuation.equals(requested)) {
+            return feedOptions;
+        }
+        FeedOptions resumed = feedOptions == null ? new FeedOptions() : new FeedOptions(feedOptions);
+        resumed.setRequestContinuation(continuation);
+        return resumed;
+    }
+
+    private FeedPage<CompactDocument> encode(FeedPage<Document> page) {
+        List<CompactDocument> documents = new ArrayList<>(page.getResults().size());
+        for (Document document : page.getResults()) {
+            documents.add(CompactDocument.encode(document, dictionary));
+        }
+        return new FeedPage<>(documents, page.getRequestCharge(), page.getResponseContinuation(),
+                page.getSessionToken(), null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Document> documentsOf(FeedPage<?> page) {
+        List<?> results = page.getResults();
+        if (results.isEmpty() || !(results.get(0) instanceof CompactDocument)) {
+            return (List<Document>) results;
+        }
+        List<Document> documents = new ArrayList<>(results.size());
+        for (Object document : results) {
+            documents.add(((CompactDocument) document).toDocument());
+        }
+        return documents;
+    }
+
+    private static long compactSizeOf(FeedPage<CompactDocument> page) {
+        long bytes = DOCUMENT_OVERHEAD_BYTES;
+        for (CompactDocument document : page.getResults()) {
+            bytes += document.getRetainedBytes();
+        }
+        return bytes;
+    }
+
+    private static long sizeOf(FeedPage<Document> page) {
+        long bytes = DOCUMENT_OVERHEAD_BYTES;
+        for (Document document : page.getResults()) {
+            bytes += DOCUMENT_OVERHEAD_BYTES + 2L * document.toJson().length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.cache;
+
+public class QueryCacheOptions {
+    private long maxBytes = 64L * 1024 * 1024;
+    private long maxEntryBytes = 4L * 1024 * 1024;
+    private long timeToLiveMillis = 60000;
+    private boolean compactEncoding;
+
+    // Upper bound on the estimated size of all cached pages together.
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    // Pages larger than this are passed through without being cached.
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public void setMaxEntryBytes(long maxEntryBytes) {
+        if (maxEntryBytes < 1) {
+            throw new IllegalArgumentException("maxEntryBytes must be at least 1");
+        }
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    // Bounds how stale a page can be when the write that changed it came from another client,
+    // which this cache cannot see. Zero keeps pages until they are evicted or invalidated.
+    public long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    public void setTimeToLiveMillis(long timeToLiveMillis) {
+        if (timeToLiveMillis < 0) {
+            throw new IllegalArgumentException("timeToLiveMillis must not be negative");
+        }
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    // Holds cached documents as CompactDocuments instead of parsed Documents, so the same
+    // maxBytes keeps several times as many pages. A hit then decodes its page again.
+    public boolean isCompactEncoding() {
+        return compactEncoding;
+    }
+
+    public void setCompactEncoding(boolean compactEncoding) {
+        this.compactEncoding = compactEncoding;
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.cache;
+
+import java.util.Objects;
+
+// Identifies one page of a query: the collection, the query and its parameters, the page
+// size and partition key that shape the pages, and the continuation the page was requested with.
+final class QueryPageKey {
+    final String collectionLink;
+    private final String queryText;
+    private final String parameters;
+    private final String partitionKey;
+    private final Integer maxItemCount;
+    private final String continuation;
+    private final int hashCode;
+
+    QueryPageKey(String collectionLink, String queryText, String parameters, String partitionKey,
+            Integer maxItemCount, String continuation) {
+        this.collectionLink = collectionLink;
+        this.queryText = queryText;
+        this.parameters = parameters;
+        this.partitionKey = partitionKey;
+        this.maxItemCount = maxItemCount;
+        this.continuation = continuation;
+        this.hashCode = Objects.hash(collectionLink, queryText, parameters, partitionKey, maxItemCount,
+                continuation);
+    }
+
+    QueryPageKey withContinuation(String continuation) {
+        return new QueryPageKey(collectionLink, queryText, parameters, partitionKey, maxItemCount, continuation);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof QueryPageKey)) {
+            return false;
+        }
+        QueryPageKey other = (QueryPageKey) obj;
+        return hashCode == other.hashCode && collectionLink.equals(other.collectionLink)
+                && queryText.equals(other.queryText) && Objects.equals(parameters, other.parameters)
+                && Objects.equals(partitionKey, other.partitionKey)
+                && Objects.equals(maxItemCount, other.maxItemCount)
+                && Objects.equals(continuation, other.continuation);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.cache;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+
+// A byte-bounded cache of query pages with GreedyDual-Size eviction: each entry's priority
+// is the cache's current inflation plus the RU it cost per KB it occupies, and the lowest
+// priority entry is evicted first, raising the inflation to its priority. Expensive pages
+// therefore outlive cheap ones of the same size, while entries that stop being read age
+// out as the inflation overtakes them. A hit restores an entry's priority.
+//
+// Every collection has a generation that invalidation bumps; a page read under an older
+// generation is dropped instead of cached, so a query racing a write cannot reinstate
+// results from before it. Pages are held in whatever form CachingDocumentStore chose for
+// them: parsed Documents or CompactDocuments.
+final class QueryResultCache {
+    private final long maxBytes;
+    private final Map<QueryPageKey, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byPriority = new TreeSet<>(
+            Comparator.comparingDouble((Entry entry) -> entry.priority).thenComparingLong(entry -> entry.sequence));
+    private final Map<String, CollectionState> collections = new HashMap<>();
+    private double inflation;
+    private long bytes;
+    private long sequence;
+    private long evictions;
+
+    QueryResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized FeedPage<?> get(QueryPageKey key, long nowNanos) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtNanos != 0 && nowNanos - entry.expiresAtNanos >= 0) {
+            remove(entry);
+            return null;
+        }
+        byPriority.remove(entry);
+        entry.priority = priorityOf(entry.page.getRequestCharge(), entry.bytes);
+        entry.sequence = sequence++;
+        byPriority.add(entry);
+        return entry.page;
+    }
+
+    synchronized long getGeneration(String collectionLink) {
+        CollectionState state = collections.get(collectionLink);
+        return state == null ? 0 : state.generation;
+    }
+
+    synchronized boolean put(QueryPageKey key, FeedPage<?> page, long pageBytes, long generation,
+            long expiresAtNanos) {
+        if (pageBytes > maxBytes || getGeneration(key.collectionLink) != generation) {
+            return false;
+        }
+        Entry previous = entries.get(key);
+        if (previous != null) {
+            remove(previous);
+        }
+        while (bytes + pageBytes > maxBytes && !byPriority.isEmpty()) {
+            Entry victim = byPriority.first();
+            inflation = victim.priority;
+            remove(victim);
+            evictions++;
+        }
+
+        Entry entry = new Entry(key, page, pageBytes, expiresAtNanos);
+        entry.priority = priorityOf(page.getRequestCharge(), pageBytes);
+        entry.sequence = sequence++;
+        entries.put(key, entry);
+        byPriority.add(entry);
+        collections.computeIfAbsent(key.collectionLink, link -> new CollectionState()).keys.add(key);
+        bytes += pageBytes;
+        return true;
+    }
+
+    // Invalidates the collection unless sessionToken is the one last seen for it, i.e. the
+    // write did not advance the collection. Returns whether it invalidated.
+    synchronized boolean onWrite(String collectionLink, String sessionToken) {
+        CollectionState state = collections.computeIfAbsent(collectionLink, link -> new CollectionState());
+        if (sessionToken != null && sessionToken.equals(state.sessionToken)) {
+            return false;
+        }
+        state.sessionToken = sessionToken;
+        invalidate(state);
+        return true;
+    }
+
+    synchronized void invalidate(String collectionLink) {
+        invalidate(collections.computeIfAbsent(collectionLink, link -> new CollectionState()));
+    }
+
+    synchronized void clear() {
+        for (CollectionState state : collections.values()) {
+            state.generation++;
+            state.keys.clear();
+        }
+        entries.clear();
+        byPriority.clear();
+        bytes = 0;
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    private void invalidate(CollectionState state) {
+        state.generation++;
+        for (QueryPageKey key : state.keys) {
+            Entry entry = entries.remove(key);
+            byPriority.remove(entry);
+            bytes -= entry.bytes;
+        }
+        state.keys.clear();
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.key);
+        byPriority.remove(entry);
+        bytes -= entry.bytes;
+        CollectionState state = collections.get(entry.key.collectionLink);
+        if (state != null) {
+            state.keys.remove(entry.key);
+        }
+    }
+
+    private double priorityOf(double requestCharge, long pageBytes) {
+        return inflation + requestCharge * 1024 / Math.max(1, pageBytes);
+    }
+
+    private static final class Entry {
+        final QueryPageKey key;
+        final FeedPage<?> page;
+        final long bytes;
+        final long expiresAtNanos;
+        double priority;
+        long sequence;
+
+        Entry(QueryPageKey key, FeedPage<?> page, long bytes, long expiresAtNanos) {
+            this.key = key;
+            this.page = page;
+            this.bytes = bytes;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private static final class CollectionState {
+        final Set<QueryPageKey> keys = new HashSet<>();
+        long generation;
+        String sessionToken;
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.changefeed;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.microsoft.azure.cosmosdb.Document;
+
+// The changes of one partition key range from one change feed page.
+public class ChangeFeedBatch {
+    private final String partitionKeyRangeId;
+    private final List<Document> documents;
+    private final double requestCharge;
+    private final String continuation;
+
+    public ChangeFeedBatch(String partitionKeyRangeId, List<Document> documents, double requestCharge,
+            String continuation) {
+        this.partitionKeyRangeId = partitionKeyRangeId;
+        this.documents = Collections.unmodifiableList(documents);
+        this.requestCharge = requestCharge;
+        this.continuation = continuation;
+    }
+
+    public String getPartitionKeyRangeId() {
+        return partitionKeyRangeId;
+    }
+
+    // The latest version of each changed document, in the order they were changed.
+    public List<Document> getDocuments() {
+        return documents;
+    }
+
+    public double getRequestCharge() {
+        return requestCharge;
+    }
+
+    // The token that is checkpointed once the handler has returned.
+    public String getContinuation() {
+        return continuation;
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.changefeed;
+
+// Receives the changes read by a ChangeFeedProcessor. Batches of one partition key range
+// arrive one at a time and in order; batches of different ranges may arrive concurrently.
+// A batch is only checkpointed once handle returns, so after a failure or a lease moving
+// to another processor the same changes may be handled again.
+public interface ChangeFeedHandler {
+
+    // Throwing makes the processor read and deliver the batch again after the poll delay.
+    void handle(ChangeFeedBatch batch) throws Exception;
+
+    // Called for every failed read or handler call; the processor carries on regardless.
+    default void onError(String partitionKeyRangeId, Throwable error) {
+    }
+}
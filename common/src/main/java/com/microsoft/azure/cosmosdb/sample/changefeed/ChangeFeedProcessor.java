@@ -0,0 +1,317 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.changefeed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import com.microsoft.azure.cosmosdb.ChangeFeedOptions;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+// Reads a collection's change feed one partition key range at a time and hands the
+// changes to a ChangeFeedHandler, checkpointing the continuation of every range in a
+// LeaseStore once its batch has been handled. A restarted processor picks up where the
+// checkpoints left off instead of rescanning the collection.
+//
+// Processors sharing a lease store split the ranges between them: each takes on expired
+// or unowned leases until it holds its share (the ranges divided by the processors with
+// live leases), and takes one lease at a time from a processor holding more than its
+// share. Leases are renewed in the background; a processor that finds a lease renewed or
+// taken by someone else stops reading that range.
+public class ChangeFeedProcessor {
+    private final DocumentStore store;
+    private final String collectionLink;
+    private final LeaseStore leaseStore;
+    private final ChangeFeedProcessorOptions options;
+    private final ChangeFeedHandler handler;
+    private final ConcurrentMap<String, PartitionWorker> workers = new ConcurrentHashMap<>();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong documents = new AtomicLong();
+    private final DoubleAdder requestCharge = new DoubleAdder();
+
+    private ScheduledExecutorService leaseExecutor;
+    private ScheduledThreadPoolExecutor workerExecutor;
+
+    public ChangeFeedProcessor(DocumentStore store, String collectionLink, LeaseStore leaseStore,
+            ChangeFeedProcessorOptions options, ChangeFeedHandler handler) {
+        this.store = store;
+        this.collectionLink = collectionLink;
+        this.leaseStore = leaseStore;
+        this.options = options;
+        this.handler = handler;
+    }
+
+    public synchronized void start() {
+        if (leaseExecutor != null) {
+            throw new IllegalStateException("The processor has already been started");
+        }
+        leaseExecutor = Executors.newSingleThreadScheduledExecutor(threads(options.getInstanceName() + "-leases"));
+        workerExecutor = new ScheduledThreadPoolExecutor(options.getWorkerThreads(),
+                threads(options.getInstanceName() + "-worker"));
+        // Reads waiting out their poll delay are dropped on stop; only batches in hand finish.
+        workerExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        leaseExecutor.scheduleWithFixedDelay(this::balance, 0, options.getLeaseAcquireIntervalMillis(),
+                TimeUnit.MILLISECONDS);
+        leaseExecutor.scheduleWithFixedDelay(this::renew, options.getLeaseRenewIntervalMillis(),
+                options.getLeaseRenewIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Stops reading, lets the batches being handled finish and checkpoint, then releases
+    // the leases so other processors can take over the ranges straight away instead of
+    // waiting for them to expire.
+    public synchronized void stop() throws InterruptedException {
+        if (leaseExecutor == null) {
+            return;
+        }
+        leaseExecutor.shutdownNow();
+        leaseExecutor.awaitTermination(options.getLeaseDurationMillis(), TimeUnit.MILLISECONDS);
+        for (PartitionWorker worker : workers.values()) {
+            worker.draining = true;
+        }
+        workerExecutor.shutdown();
+        workerExecutor.awaitTermination(options.getLeaseDurationMillis(), TimeUnit.MILLISECONDS);
+        for (PartitionWorker worker : workers.values()) {
+            worker.stopped = true;
+            worker.release();
+        }
+        workers.clear();
+        leaseExecutor = null;
+        workerExecutor = null;
+    }
+
+    public Set<String> getOwnedPartitionKeyRangeIds() {
+        return Collections.unmodifiableSet(new TreeSet<>(workers.keySet()));
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getDocumentCount() {
+        return documents.get();
+    }
+
+    public double getRequestCharge() {
+        return requestCharge.sum();
+    }
+
+    private void balance() {
+        try {
+            List<Lease> leases = leaseStore.list();
+            Set<String> known = new HashSet<>();
+            for (Lease lease : leases) {
+                known.add(lease.getPartitionKeyRangeId());
+            }
+            // Ranges that appear after a split get a lease of their own.
+            for (String rangeId : store.readPartitionKeyRangeIds(collectionLink).toBlocking().single()) {
+                if (!known.contains(rangeId)) {
+                    leases.add(leaseStore.createIfAbsent(rangeId));
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            String self = options.getInstanceName();
+            Map<String, List<Lease>> byOwner = new HashMap<>();
+            byOwner.put(self, new ArrayList<>());
+            List<Lease> available = new ArrayList<>();
+            for (Lease lease : leases) {
+                if (lease.isHeld(now)) {
+                    byOwner.computeIfAbsent(lease.getOwner(), owner -> new ArrayList<>()).add(lease);
+                } else {
+                    available.add(lease);
+                }
+            }
+            int share = (leases.size() + byOwner.size() - 1) / byOwner.size();
+            int wanted = share - byOwner.get(self).size();
+            if (wanted <= 0) {
+                return;
+            }
+
+            // Shuffled so that processors starting together don't all race for the same leases.
+            Collections.shuffle(available);
+            for (Lease lease : available) {
+                if (wanted > 0 && acquire(lease, now)) {
+                    wanted--;
+                }
+            }
+            if (wanted > 0) {
+                List<Lease> busiest = Collections.emptyList();
+                for (Map.Entry<String, List<Lease>> owner : byOwner.entrySet()) {
+                    if (!owner.getKey().equals(self) && owner.getValue().size() > busiest.size()) {
+                        busiest = owner.getValue();
+                    }
+                }
+                if (busiest.size() > share) {
+                    acquire(busiest.get(0), now);
+                }
+            }
+        } catch (Exception e) {
+            handler.onError(null, e);
+        }
+    }
+
+    private boolean acquire(Lease lease, long now) throws Exception {
+        Lease acquired = leaseStore.replace(lease,
+                lease.withOwner(options.getInstanceName(), now + options.getLeaseDurationMillis()));
+        if (acquired == null) {
+            return false;
+        }
+        PartitionWorker worker = new PartitionWorker(acquired);
+        PartitionWorker previous = workers.put(acquired.getPartitionKeyRangeId(), worker);
+        if (previous != null) {
+            previous.stopped = true;
+        }
+        workerExecutor.execute(worker);
+        return true;
+    }
+
+    private void renew() {
+        for (PartitionWorker worker : workers.values()) {
+            try {
+                worker.renew();
+            } catch (Exception e) {
+                handler.onError(worker.rangeId, e);
+            }
+        }
+    }
+
+    private static ThreadFactory threads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Reads and handles one range's changes. Each run reads a page, hands it over and
+    // checkpoints it, then schedules the next run: straight away after a page of changes,
+    // after the poll delay once the range has caught up. Lease updates from the worker and
+    // the renewal thread are serialized on the worker. A draining worker reads no more
+    // pages but still checkpoints the one in hand; a stopped one no longer owns its lease.
+    private final class PartitionWorker implements Runnable {
+        final String rangeId;
+        volatile Lease lease;
+        volatile boolean draining;
+        volatile boolean stopped;
+
+        PartitionWorker(Lease lease) {
+            this.rangeId = lease.getPartitionKeyRangeId();
+            this.lease = lease;
+        }
+
+        @Override
+        public void run() {
+            if (stopped || draining) {
+                return;
+            }
+            long delayMillis = options.getFeedPollDelayMillis();
+            try {
+                FeedPage<Document> page = store.readChangeFeed(collectionLink, feedOptions()).first()
+                        .toBlocking().single();
+                requestCharge.add(page.getRequestCharge());
+                if (!page.getResults().isEmpty()) {
+                    handler.handle(new ChangeFeedBatch(rangeId, page.getResults(), page.getRequestCharge(),
+                            page.getResponseContinuation()));
+                    batches.incrementAndGet();
+                    documents.addAndGet(page.getResults().size());
+                    delayMillis = 0;
+                }
+                // Empty pages are checkpointed too, so a range that started at "now" keeps
+                // that starting point.
+                checkpoint(page.getResponseContinuation());
+            } catch (Exception e) {
+                if (Throttling.isThrottled(e)) {
+                    delayMillis = Throttling.getRetryAfterInMillis(e, options.getDefaultRetryAfterMillis());
+                } else {
+                    handler.onError(rangeId, e);
+                }
+            }
+            if (!stopped && !draining) {
+                workerExecutor.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private ChangeFeedOptions feedOptions() {
+            ChangeFeedOptions feedOptions = new ChangeFeedOptions();
+            feedOptions.setPartitionKeyRangeId(rangeId);
+            feedOptions.setMaxItemCount(options.getMaxItemCount());
+            feedOptions.setStartFromBeginning(options.isStartFromBeginning());
+            feedOptions.setRequestContinuation(lease.getContinuation());
+            return feedOptions;
+        }
+
+        synchronized void checkpoint(String continuation) throws Exception {
+            if (stopped || continuation == null || continuation.equals(lease.getContinuation())) {
+                return;
+            }
+            update(lease.withContinuation(continuation)
+                    .withOwner(options.getInstanceName(), System.currentTimeMillis() + options.getLeaseDurationMillis()));
+        }
+
+        synchronized void renew() throws Exception {
+            if (!stopped) {
+                update(lease.withOwner(options.getInstanceName(),
+                        System.currentTimeMillis() + options.getLeaseDurationMillis()));
+            }
+        }
+
+        synchronized void release() {
+            try {
+                update(lease.withOwner(null, 0));
+            } catch (Exception e) {
+                handler.onError(rangeId, e);
+            }
+        }
+
+        // A lease someone else has changed has been taken over, so the range is given up.
+        private void update(Lease next) throws Exception {
+            Lease updated = leaseStore.replace(lease, next);
+            if (updated == null) {
+                stopped = true;
+                workers.remove(rangeId, this);
+                return;
+            }
+            lease = updated;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.changefeed;
+
+import java.util.UUID;
+
+public class ChangeFeedProcessorOptions {
+    private String instanceName = "processor-" + UUID.randomUUID().toString().substring(0, 8);
+    private int workerThreads = Runtime.getRuntime().availableProcessors();
+    private int maxItemCount = 100;
+    private boolean startFromBeginning;
+    private long feedPollDelayMillis = 1000;
+    private long leaseDurationMillis = 10000;
+    private long leaseRenewIntervalMillis = 3000;
+    private long leaseAcquireIntervalMillis = 5000;
+    private long defaultRetryAfterMillis = 100;
+
+    // Identifies this processor in the leases it owns; must be unique among the processors
+    // sharing a lease store.
+    public String getInstanceName() {
+        return instanceName;
+    }
+
+    public void setInstanceName(String instanceName) {
+        if (instanceName == null || instanceName.isEmpty()) {
+            throw new IllegalArgumentException("instanceName is required");
+        }
+        this.instanceName = instanceName;
+    }
+
+    // Threads reading and handling the owned ranges. A thread serves its ranges in turn, so
+    // fewer threads than ranges is fine when the handler is quick.
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("workerThreads must be at least 1");
+        }
+        this.workerThreads = workerThreads;
+    }
+
+    // Documents per change feed page, and so per batch.
+    public int getMaxItemCount() {
+        return maxItemCount;
+    }
+
+    public void setMaxItemCount(int maxItemCount) {
+        if (maxItemCount < 1) {
+            throw new IllegalArgumentException("maxItemCount must be at least 1");
+        }
+        this.maxItemCount = maxItemCount;
+    }
+
+    // Where a range without a checkpoint starts: at the first change still in the feed, or
+    // (by default) at changes made from now on.
+    public boolean isStartFromBeginning() {
+        return startFromBeginning;
+    }
+
+    public void setStartFromBeginning(boolean startFromBeginning) {
+        this.startFromBeginning = startFromBeginning;
+    }
+
+    // How long a range waits before polling again after a read found no changes.
+    public long getFeedPollDelayMillis() {
+        return feedPollDelayMillis;
+    }
+
+    public void setFeedPollDelayMillis(long feedPollDelayMillis) {
+        if (feedPollDelayMillis < 0) {
+            throw new IllegalArgumentException("feedPollDelayMillis must not be negative");
+        }
+        this.feedPollDelayMillis = feedPollDelayMillis;
+    }
+
+    // How long a lease stays with its owner without being renewed. A processor that stops
+    // without releasing its leases holds up its ranges for this long.
+    public long getLeaseDurationMillis() {
+        return leaseDurationMillis;
+    }
+
+    public void setLeaseDurationMillis(long leaseDurationMillis) {
+        if (leaseDurationMillis < 1) {
+            throw new IllegalArgumentException("leaseDurationMillis must be at least 1");
+        }
+        this.leaseDurationMillis = leaseDurationMillis;
+    }
+
+    public long getLeaseRenewIntervalMillis() {
+        return leaseRenewIntervalMillis;
+    }
+
+    public void setLeaseRenewIntervalMillis(long leaseRenewIntervalMillis) {
+        if (leaseRenewIntervalMillis < 1) {
+            throw new IllegalArgumentException("leaseRenewIntervalMillis must be at least 1");
+        }
+        this.leaseRenewIntervalMillis = leaseRenewIntervalMillis;
+    }
+
+    // How often the processor looks for ranges to take on, from expired leases or from
+    // processors holding more than their share.
+    public long getLeaseAcquireIntervalMillis() {
+        return leaseAcquireIntervalMillis;
+    }
+
+    public void setLeaseAcquireIntervalMillis(long leaseAcquireIntervalMillis) {
+        if (leaseAcquireIntervalMillis < 1) {
+            throw new IllegalArgumentException("leaseAcquireIntervalMillis must be at least 1");
+        }
+        this.leaseAcquireIntervalMillis = leaseAcquireIntervalMillis;
+    }
+
+    public long getDefaultRetryAfterMillis() {
+        return defaultRetryAfterMillis;
+    }
+
+    public void setDefaultRetryAfterMillis(long defaultRetryAfterMillis) {
+        if (defaultRetryAfterMillis < 0) {
+            throw new IllegalArgumentException("defaultRetryAfterMillis must not be negative");
+        }
+        this.defaultRetryAfterMillis = defaultRetryAfterMillis;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.changefeed;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps one JSON file per lease in a local directory, which processes on the same machine
+// (or sharing the directory) can use together. Changes take an exclusive lock on a lock
+// file in the directory and write a temporary file that is moved into place, so readers
+// never see a half written lease. Processors in one process share a single instance.
+public class FileLeaseStore implements LeaseStore {
+    private static final String SUFFIX = ".lease.json";
+
+    private final Path directory;
+
+    public FileLeaseStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public synchronized Lease createIfAbsent(String partitionKeyRangeId) throws IOException {
+        try (FileChannel channel = openLockFile()) {
+            FileLock lock = channel.lock();
+            try {
+                Lease stored = read(fileOf(partitionKeyRangeId));
+                if (stored != null) {
+                    return stored;
+                }
+                Lease created = Lease.create(partitionKeyRangeId);
+                write(created);
+                return created;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    @Override
+    public List<Lease> list() throws IOException {
+        List<Lease> leases = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                Lease lease = read(file);
+                if (lease != null) {
+                    leases.add(lease);
+                }
+            }
+        }
+        return leases;
+    }
+
+    @Override
+    public synchronized Lease replace(Lease current, Lease next) throws IOException {
+        try (FileChannel channel = openLockFile()) {
+            FileLock lock = channel.lock();
+            try {
+                Lease stored = read(fileOf(current.getPartitionKeyRangeId()));
+                if (stored == null || stored.getVersion() != current.getVersion()) {
+                    return null;
+                }
+                Lease replaced = next.withVersion(current.getVersion() + 1);
+                write(replaced);
+                return replaced;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    // File locks are held per process, so threads of this process are kept apart by the
+    // synchronized methods.
+    private FileChannel openLockFile() throws IOException {
+        return FileChannel.open(directory.resolve("leases.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private Path fileOf(String partitionKeyRangeId) {
+        return directory.resolve(partitionKeyRangeId + SUFFIX);
+    }
+
+    private static Lease read(Path file) throws IOException {
+        try {
+            return Lease.fromJson(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void write(Lease lease) throws IOException {
+        Path file = fileOf(lease.getPartitionKeyRangeId());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, lease.toJson().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.changefeed;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// Who is reading one partition key range's change feed, until when, and how far they got.
+// Leases are immutable; every change produces a new lease with the next version, and a
+// LeaseStore only accepts it if nobody else has replaced the version it was made from.
+public final class Lease {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final String partitionKeyRangeId;
+    private final String owner;
+    private final String continuation;
+    private final long expiresAtMillis;
+    private final long version;
+
+    public Lease(String partitionKeyRangeId, String owner, String continuation, long expiresAtMillis, long version) {
+        this.partitionKeyRangeId = partitionKeyRangeId;
+        this.owner = owner;
+        this.continuation = continuation;
+        this.expiresAtMillis = expiresAtMillis;
+        this.version = version;
+    }
+
+    // An unowned lease that starts wherever the processor's options say.
+    public static Lease create(String partitionKeyRangeId) {
+        return new Lease(partitionKeyRangeId, null, null, 0, 0);
+    }
+
+    public String getPartitionKeyRangeId() {
+        return partitionKeyRangeId;
+    }
+
+    // Null while nobody holds the lease.
+    public String getOwner() {
+        return owner;
+    }
+
+    // The change feed continuation token the next read of the range resumes from.
+    public String getContinuation() {
+        return continuation;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Held by someone who has renewed it in time.
+    public boolean isHeld(long nowMillis) {
+        return owner != null && expiresAtMillis > nowMillis;
+    }
+
+    public boolean isHeldBy(String instanceName, long nowMillis) {
+        return isHeld(nowMillis) && owner.equals(instanceName);
+    }
+
+    public Lease withOwner(String owner, long expiresAtMillis) {
+        return new Lease(partitionKeyRangeId, owner, continuation, expiresAtMillis, version);
+    }
+
+    public Lease withContinuation(String continuation) {
+        return new Lease(partitionKeyRangeId, owner, continuation, expiresAtMillis, version);
+    }
+
+    public Lease withVersion(long version) {
+        return new Lease(partitionKeyRangeId, owner, continuation, expiresAtMillis, version);
+    }
+
+    public String toJson() {
+        ObjectNode json = mapper.createObjectNode();
+        json.put("partitionKeyRangeId", partitionKeyRangeId);
+        json.put("owner", owner);
+        json.put("continuation", continuation);
+        json.put("expiresAtMillis", expiresAtMillis);
+        json.put("version", version);
+        return json.toString();
+    }
+
+    public static Lease fromJson(String text) throws IOException {
+        JsonNode json = mapper.readTree(text);
+        return new Lease(json.path("partitionKeyRangeId").asText(), textOrNull(json.path("owner")),
+                textOrNull(json.path("continuation")), json.path("expiresAtMillis").asLong(),
+                json.path("version").asLong());
+    }
+
+    private static String textOrNull(JsonNode value) {
+        return value.isTextual() ? value.asText() : null;
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.client;
+
+import com.microsoft.azure.cosmosdb.ConsistencyLevel;
+import com.microsoft.azure.cosmosdb.sample.store.AccountStore;
+import com.microsoft.azure.cosmosdb.sample.store.AsyncClientDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.BulkImportProcedure;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.SimpleScriptProcedure;
+
+// Picks the account the exercises run against. ACCOUNT_HOST=inmemory runs them against a
+// process-wide InMemoryDocumentStore, so they work without an Azure subscription or the
+// emulator; anything else is a real account reached through the shared DocumentClientPool.
+// The in-memory account is sized by EMULATOR_THROUGHPUT (RU/s, 0 for unthrottled, the
+// default), EMULATOR_LATENCY_MS and EMULATOR_PARTITIONS, read like ClientSettings reads its
+// overrides, and runs the exercises' SimpleScript and BulkImport scripts as Java stand-ins.
+public final class AccountStores {
+    public static final String IN_MEMORY_HOST = "inmemory";
+
+    private static volatile InMemoryDocumentStore inMemory;
+
+    private AccountStores() {
+    }
+
+    public static AccountStore fromEnvironment(String host, String masterKey) {
+        if (isInMemory(host)) {
+            return inMemory();
+        }
+        return new AsyncClientDocumentStore(
+                DocumentClientPool.getDefault().acquire(ClientSettings.fromEnvironment(host, masterKey)));
+    }
+
+    // The same account read at another consistency level, which may not be stronger than the
+    // account's. Queries take no per-request level, so a real account gets a client of its
+    // own for the level, and the in-memory account a view reading at it.
+    public static DocumentStore fromEnvironment(String host, String masterKey, ConsistencyLevel consistencyLevel) {
+        if (isInMemory(host)) {
+            return inMemory().withConsistencyLevel(consistencyLevel);
+        }
+        ClientSettings settings = ClientSettings.fromEnvironment(host, masterKey);
+        settings.setConsistencyLevel(consistencyLevel);
+        return new AsyncClientDocumentStore(DocumentClientPool.getDefault().acquire(settings));
+    }
+
+    // Hands back a store from fromEnvironment once its user is done, closing the client
+    // when no other store in the process shares it. The in-memory account lives as long as
+    // the process, so its stores need no release.
+    public static void release(DocumentStore store) {
+        if (store instanceof AsyncClientDocumentStore) {
+            DocumentClientPool.getDefault().release(((AsyncClientDocumentStore) store).getClient());
+        }
+    }
+
+    public static boolean isInMemory(String host) {
+        return host != null && IN_MEMORY_HOST.equalsIgnoreCase(host.trim());
+    }
+
+    private static InMemoryDocumentStore inMemory() {
+        InMemoryDocumentStore store = inMemory;
+        if (store == null) {
+            synchronized (AccountStores.class) {
+                store = inMemory;
+                if (store == null) {
+                    String throughput = setting("EMULATOR_THROUGHPUT");
+                    String latencyMillis = setting("EMULATOR_LATENCY_MS");
+                    store = new InMemoryDocumentStore(throughput == null ? 0 : Double.parseDouble(throughput),
+                            latencyMillis == null ? 0 : Long.parseLong(latencyMillis));
+                    String partitions = setting("EMULATOR_PARTITIONS");
+                    if (partitions != null) {
+                        store.setPartitionCount(Integer.parseInt(partitions));
+                    }
+                    store.registerStoredProcedureHandler("SimpleScript", new SimpleScriptProcedure());
+                    store.registerStoredProcedureHandler("BulkImport", new BulkImportProcedure());
+                    inMemory = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    private static String setting(String name) {
+        String value = System.getProperty(name, System.getenv(name));
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.microsoft.azure.cosmosdb.ConnectionMode;
+import com.microsoft.azure.cosmosdb.ConnectionPolicy;
+import com.microsoft.azure.cosmosdb.ConsistencyLevel;
+
+// Everything that determines how an AsyncDocumentClient is built. Two settings objects
+// with the same values share one client in DocumentClientPool. Defaults are the SDK's own,
+// except for Session consistency which the exercises use throughout.
+public class ClientSettings {
+    private final String serviceEndpoint;
+    private final String masterKey;
+    private ConsistencyLevel consistencyLevel = ConsistencyLevel.Session;
+    private ConnectionMode connectionMode;
+    private int maxPoolSize;
+    private int idleConnectionTimeoutInMillis;
+    private int requestTimeoutInMillis;
+    private String userAgentSuffix;
+    private List<String> preferredLocations = Collections.emptyList();
+
+    public ClientSettings(String serviceEndpoint, String masterKey) {
+        this.serviceEndpoint = Objects.requireNonNull(serviceEndpoint, "serviceEndpoint");
+        this.masterKey = Objects.requireNonNull(masterKey, "masterKey");
+        ConnectionPolicy defaults = ConnectionPolicy.GetDefault();
+        this.connectionMode = defaults.getConnectionMode();
+        this.maxPoolSize = defaults.getMaxPoolSize();
+        this.idleConnectionTimeoutInMillis = defaults.getIdleConnectionTimeoutInMillis();
+        this.requestTimeoutInMillis = defaults.getRequestTimeoutInMillis();
+        this.userAgentSuffix = defaults.getUserAgentSuffix();
+    }
+
+    // Reads overrides the same way AccountSettings reads the account: a system property,
+    // else an environment variable of the same name. Recognized names are CONSISTENCY_LEVEL,
+    // CONNECTION_MODE (Gateway or Direct), MAX_POOL_SIZE, IDLE_CONNECTION_TIMEOUT_MS,
+    // REQUEST_TIMEOUT_MS and PREFERRED_LOCATIONS (comma separated region names).
+    public static ClientSettings fromEnvironment(String serviceEndpoint, String masterKey) {
+        ClientSettings settings = new ClientSettings(serviceEndpoint, masterKey);
+        String consistencyLevel = setting("CONSISTENCY_LEVEL");
+        if (consistencyLevel != null) {
+            settings.setConsistencyLevel(ConsistencyLevel.valueOf(consistencyLevel));
+        }
+        String connectionMode = setting("CONNECTION_MODE");
+        if (connectionMode != null) {
+            settings.setConnectionMode(ConnectionMode.valueOf(connectionMode));
+        }
+        String maxPoolSize = setting("MAX_POOL_SIZE");
+        if (maxPoolSize != null) {
+            settings.setMaxPoolSize(Integer.parseInt(maxPoolSize));
+        }
+        String idleConnectionTimeout = setting("IDLE_CONNECTION_TIMEOUT_MS");
+        if (idleConnectionTimeout != null) {
+            settings.setIdleConnectionTimeoutInMillis(Integer.parseInt(idleConnectionTimeout));
+        }
+        String requestTimeout = setting("REQUEST_TIMEOUT_MS");
+        if (requestTimeout != null) {
+            settings.setRequestTimeoutInMillis(Integer.parseInt(requestTimeout));
+        }
+        String preferredLocations = setting("PREFERRED_LOCATIONS");
+        if (preferredLocations != null) {
+            List<String> locations = new ArrayList<>();
+            for (String location : preferredLocations.split(",")) {
+                if (!location.trim().isEmpty()) {
+                    locations.add(location.trim());
+                }
+            }
+            settings.setPreferredLocations(locations);
+        }
+        return settings;
+    }
+
+    private static String setting(String name) {
+        String value = System.getProperty(name, System.getenv(name));
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    public String getServiceEndpoint() {
+        return serviceEndpoint;
+    }
+
+    public String getMasterKey() {
+        return masterKey;
+    }
+
+    public ConsistencyLevel getConsistencyLevel() {
+        return consistencyLevel;
+    }
+
+    public void setConsistencyLevel(ConsistencyLevel consistencyLevel) {
+        this.consistencyLevel = Objects.requireNonNull(consistencyLevel, "consistencyLevel");
+    }
+
+    public ConnectionMode getConnectionMode() {
+        return connectionMode;
+    }
+
+    public void setConnectionMode(ConnectionMode connectionMode) {
+        this.connectionMode = Objects.requireNonNull(connectionMode, "connectionMode");
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        if (maxPoolSize < 1) {
+            throw new IllegalArgumentException("maxPoolSize must be at least 1");
+        }
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public int getIdleConnectionTimeoutInMillis() {
+        return idleConnectionTimeoutInMillis;
+    }
+
+    public void setIdleConnectionTimeoutInMillis(int idleConnectionTimeoutInMillis) {
+        if (idleConnectionTimeoutInMillis < 0) {
+            throw new IllegalArgumentException("idleConnectionTimeoutInMillis must not be negative");
+        }
+        this.idleConnectionTimeoutInMillis = idleConnectionTimeoutInMillis;
+    }
+
+    public int getRequestTimeoutInMillis() {
+        return requestTimeoutInMillis;
+    }
+
+    public void setRequestTimeoutInMillis(int requestTimeoutInMillis) {
+        if (requestTimeoutInMillis < 1) {
+            throw new IllegalArgumentException("requestTimeoutInMillis must be at least 1");
+        }
+        this.requestTimeoutInMillis = requestTimeoutInMillis;
+    }
+
+    public String getUserAgentSuffix() {
+        return userAgentSuffix;
+    }
+
+    public void setUserAgentSuffix(String userAgentSuffix) {
+        this.userAgentSuffix = userAgentSuffix;
+    }
+
+    // The regions the SDK reads from, best first, e.g. RegionRouter.getPreferredRegions().
+    // Empty, the default, reads from the write region.
+    public List<String> getPreferredLocations() {
+        return preferredLocations;
+    }
+
+    public void setPreferredLocations(List<String> preferredLocations) {
+        this.preferredLocations = Collections.unmodifiableList(new ArrayList<>(
+                Objects.requireNonNull(preferredLocations, "preferredLocations")));
+    }
+
+    public void setPreferredLocations(String... preferredLocations) {
+        setPreferredLocations(Arrays.asList(preferredLocations));
+    }
+
+    public ConnectionPolicy toConnectionPolicy() {
+        ConnectionPolicy connectionPolicy = new ConnectionPolicy();
+        connectionPolicy.setConnectionMode(connectionMode);
+        connectionPolicy.setMaxPoolSize(maxPoolSize);
+        connectionPolicy.setIdleConnectionTimeoutInMillis(idleConnectionTimeoutInMillis);
+        connectionPolicy.setRequestTimeoutInMillis(requestTimeoutInMillis);
+        if (userAgentSuffix != null) {
+            connectionPolicy.setUserAgentSuffix(userAgentSuffix);
+        }
+        if (!preferredLocations.isEmpty()) {
+            connectionPolicy.setEnableEndpointDiscovery(true);
+            connectionPolicy.setPreferredLocations(preferredLocations);
+        }
+        return connectionPolicy;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ClientSettings)) {
+            return false;
+        }
+        ClientSettings other = (ClientSettings) obj;
+        return serviceEndpoint.equals(other.serviceEndpoint) && masterKey.equals(other.masterKey)
+                && consistencyLevel == other.consistencyLevel && connectionMode == other.connectionMode
+                && maxPoolSize == other.maxPoolSize
+                && idleConnectionTimeoutInMillis == other.idleConnectionTimeoutInMillis
+                && requestTimeoutInMillis == other.requestTimeoutInMillis
+                && Objects.equals(userAgentSuffix, other.userAgentSuffix)
+                && preferredLocations.equals(other.preferredLocations);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(serviceEndpoint, masterKey, consistencyLevel, connectionMode, maxPoolSize,
+                idleConnectionTimeoutInMillis, requestTimeoutInMillis, userAgentSuffix, preferredLocations);
+    }
+
+    // Never includes the key.
+    @Override
+    public String toString() {
+        return String.format("%s (%s, %s, maxPoolSize=%d, idleTimeout=%dms, requestTimeout=%dms, preferredLocations=%s)",
+                serviceEndpoint, consistencyLevel, connectionMode, maxPoolSize, idleConnectionTimeoutInMillis,
+                requestTimeoutInMillis, preferredLocations);
+    }
+}
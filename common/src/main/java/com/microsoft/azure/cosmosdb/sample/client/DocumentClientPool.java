@@ -0,0 +1,139 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.client;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.microsoft.azure.cosmosdb.rx.AsyncDocumentClient;
+
+// Builds one AsyncDocumentClient, and so one set of connection pools, per distinct
+// ClientSettings and hands the same instance to everyone asking for those settings.
+// Clients are reference counted: release closes a client once its last user is done, and
+// close shuts every remaining client down. The default pool does that on JVM exit.
+public class DocumentClientPool implements AutoCloseable {
+    private static volatile DocumentClientPool defaultPool;
+
+    private final Map<ClientSettings, Entry> entries = new HashMap<>();
+    private final Map<AsyncDocumentClient, Entry> entriesByClient = new IdentityHashMap<>();
+    private boolean closed;
+
+    public static DocumentClientPool getDefault() {
+        DocumentClientPool pool = defaultPool;
+        if (pool == null) {
+            synchronized (DocumentClientPool.class) {
+                pool = defaultPool;
+                if (pool == null) {
+                    pool = new DocumentClientPool();
+                    Runtime.getRuntime().addShutdownHook(new Thread(pool::close, "document-client-pool-shutdown"));
+                    defaultPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    public synchronized AsyncDocumentClient acquire(ClientSettings settings) {
+        if (closed) {
+            throw new IllegalStateException("The client pool has been closed");
+        }
+        Entry entry = entries.get(settings);
+        if (entry == null) {
+            // Key on a snapshot so later changes to the caller's settings object don't
+            // make the entry unreachable.
+            ClientSettings key = copyOf(settings);
+            entry = new Entry(key, build(key));
+            entries.put(key, entry);
+            entriesByClient.put(entry.client, entry);
+        }
+        entry.references++;
+        return entry.client;
+    }
+
+    public synchronized void release(AsyncDocumentClient client) {
+        Entry entry = entriesByClient.get(client);
+        if (entry == null) {
+            throw new IllegalArgumentException("The client was not acquired from this pool");
+        }
+        if (--entry.references == 0) {
+            entries.remove(entry.settings);
+            entriesByClient.remove(client);
+            closeQuietly(client);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Entry entry : entries.values()) {
+            closeQuietly(entry.client);
+        }
+        entries.clear();
+        entriesByClient.clear();
+    }
+
+    protected AsyncDocumentClient build(ClientSettings settings) {
+        return new AsyncDocumentClient.Builder()
+        .withServiceEndpoint(settings.getServiceEndpoint())
+        .withMasterKeyOrResourceToken(settings.getMasterKey())
+        .withConnectionPolicy(settings.toConnectionPolicy())
+        .withConsistencyLevel(settings.getConsistencyLevel())
+        .build();
+    }
+
+    private static ClientSettings copyOf(ClientSettings settings) {
+        ClientSettings copy = new ClientSettings(settings.getServiceEndpoint(), settings.getMasterKey());
+        copy.setConsistencyLevel(settings.getConsistencyLevel());
+        copy.setConnectionMode(settings.getConnectionMode());
+        copy.setMaxPoolSize(settings.getMaxPoolSize());
+        copy.setIdleConnectionTimeoutInMillis(settings.getIdleConnectionTimeoutInMillis());
+        copy.setRequestTimeoutInMillis(settings.getRequestTimeoutInMillis());
+        copy.setUserAgentSuffix(settings.getUserAgentSuffix());
+        copy.setPreferredLocations(settings.getPreferredLocations());
+        return copy;
+    }
+
+    private static void closeQuietly(AsyncDocumentClient client) {
+        try {
+            client.close();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to close a document client: " + e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+        final ClientSettings settings;
+        final AsyncDocumentClient client;
+        int references;
+
+        Entry(ClientSettings settings, AsyncDocumentClient client) {
+            this.settings = settings;
+            this.client = client;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.Document;
+
+// A document packed into a byte array for holding client-side, in caches and buffers.
+// Field names are replaced by their number in a shared FieldDictionary, and values are
+// written in a tagged binary layout: integers as variable-length zigzag numbers, doubles
+// as eight bytes, strings as UTF-8 with a length, and objects and arrays with their entry
+// count and byte length up front. The lengths let get skip over the fields it is not
+// looking for, so reading one field decodes only that field. A family document from
+// Data/*.json encodes to about half of its compact JSON text, and holds about a tenth of
+// the heap of the parsed Document.
+//
+// Documents are immutable, and safe to share between threads along with their dictionary.
+public final class CompactDocument {
+    // Exact, so a decimal keeps the scale it was written with.
+    private static final JsonNodeFactory NODES = JsonNodeFactory.withExactBigDecimals(true);
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final byte ARRAY = 6;
+    private static final byte OBJECT = 7;
+    // Numbers that do not fit a long or a double exactly, kept as their JSON text.
+    private static final byte DECIMAL = 8;
+
+    // Object header cost and array header cost of the byte array, for getRetainedBytes.
+    private static final int OBJECT_OVERHEAD_BYTES = 16 + 16 + 16;
+
+    private final FieldDictionary dictionary;
+    private final byte[] data;
+
+    private CompactDocument(FieldDictionary dictionary, byte[] data) {
+        this.dictionary = dictionary;
+        this.data = data;
+    }
+
+    public static CompactDocument encode(Document document, FieldDictionary dictionary) {
+        return encode(DocumentTrees.treeOf(document), dictionary);
+    }
+
+    public static CompactDocument encode(ObjectNode document, FieldDictionary dictionary) {
+        Writer writer = new Writer(dictionary);
+        writer.write(document);
+        return new CompactDocument(dictionary, writer.toByteArray());
+    }
+
+    // Wraps bytes produced by toBytes, which must be read with the same dictionary.
+    public static CompactDocument fromBytes(byte[] data, FieldDictionary dictionary) {
+        if (data.length == 0 || data[0] != OBJECT) {
+            throw new IllegalArgumentException("Not an encoded document");
+        }
+        return new CompactDocument(dictionary, data.clone());
+    }
+
+    public byte[] toBytes() {
+        return data.clone();
+    }
+
+    public FieldDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int getEncodedSize() {
+        return data.length;
+    }
+
+    // An estimate of the heap the document occupies, the dictionary not included.
+    public long getRetainedBytes() {
+        return OBJECT_OVERHEAD_BYTES + data.length;
+    }
+
+    // The value at the path of field names, decoded on its own; null if there is none.
+    public JsonNode get(String... path) {
+        int position = find(path);
+        return position < 0 ? null : new Reader(data, dictionary, position).read();
+    }
+
+    // The string at the path, without decoding anything else; null if it is missing or not a string.
+    public String getString(String... path) {
+        int position = find(path);
+        if (position < 0 || data[position] != STRING) {
+            return null;
+        }
+        Reader reader = new Reader(data, dictionary, position + 1);
+        return reader.readString();
+    }
+
+    public String getId() {
+        return getString("id");
+    }
+
+    public ObjectNode toJson() {
+        return (ObjectNode) new Reader(data, dictionary, 0).read();
+    }
+
+    public Document toDocument() {
+        return new Document(toJson().toString());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CompactDocument)) {
+            return false;
+        }
+        CompactDocument other = (CompactDocument) obj;
+        return dictionary == other.dictionary && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        return toJson().toString();
+    }
+
+    // The position of the tag of the value at the path, or -1.
+    private int find(String[] path) {
+        int position = 0;
+        for (String name : path) {
+            if (data[position] != OBJECT) {
+                return -1;
+            }
+            Reader reader = new Reader(data, dictionary, position + 1);
+            position = reader.findField(name, dictionary.find(name));
+            if (position < 0) {
+                return -1;
+            }
+        }
+        return position;
+    }
+
+    private static final class Writer {
+        private final FieldDictionary dictionary;
+        private byte[] buffer = new byte[256];
+        private int size;
+
+        Writer(FieldDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        void write(JsonNode value) {
+            switch (value.getNodeType()) {
+            case OBJECT:
+                writeByte(OBJECT);
+                writeVarint(value.size());
+                int objectStart = reserveLength();
+                Iterator<Map.Entry<String, JsonNode>> fields = value.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    int id = dictionary.idOf(field.getKey());
+                    if (id < 0) {
+                        writeVarint(0);
+                        writeString(field.getKey());
+                    } else {
+                        writeVarint(id + 1);
+                    }
+                    write(field.getValue());
+                }
+                fillLength(objectStart);
+                break;
+            case ARRAY:
+                writeByte(ARRAY);
+                writeVarint(value.size());
+                int arrayStart = reserveLength();
+                for (JsonNode element : value) {
+                    write(element);
+                }
+                fillLength(arrayStart);
+                break;
+            case STRING:
+                writeByte(STRING);
+                writeString(value.textValue());
+                break;
+            case NUMBER:
+                if (value.isIntegralNumber() && value.canConvertToLong()) {
+                    writeByte(INTEGER);
+                    long number = value.longValue();
+                    writeVarint((number << 1) ^ (number >> 63));
+                } else if (value.isDouble() || value.isFloat()) {
+                    writeByte(DOUBLE);
+                    long bits = Double.doubleToRawLongBits(value.doubleValue());
+                    for (int shift = 56; shift >= 0; shift -= 8) {
+                        writeByte((byte) (bits >>> shift));
+                    }
+                } else {
+                    writeByte(DECIMAL);
+                    writeString(value.asText());
+                }
+                break;
+            case BOOLEAN:
+                writeByte(value.booleanValue() ? TRUE : FALSE);
+                break;
+            default:
+                writeByte(NULL);
+                break;
+            }
+        }
+
+        private void writeString(String text) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        // Container lengths are written as a fixed four bytes, so the body can be written
+        // in place and its length filled in afterwards.
+        private int reserveLength() {
+            ensure(4);
+            size += 4;
+            return size;
+        }
+
+        private void fillLength(int bodyStart) {
+            int length = size - bodyStart;
+            buffer[bodyStart - 4] = (byte) (length >>> 24);
+            buffer[bodyStart - 3] = (byte) (length >>> 16);
+            buffer[bodyStart - 2] = (byte) (length >>> 8);
+            buffer[bodyStart - 1] = (byte) length;
+        }
+
+        private void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeByte(byte value) {
+            ensure(1);
+            buffer[size++] = value;
+        }
+
+        private void ensure(int bytes) {
+            if (size + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private final FieldDictionary dictionary;
+        private int position;
+
+        Reader(byte[] data, FieldDictionary dictionary, int position) {
+            this.data = data;
+            this.dictionary = dictionary;
+            this.position = position;
+        }
+
+        JsonNode read() {
+            byte tag = data[position++];
+            switch (tag) {
+            case NULL:
+                return NODES.nullNode();
+            case FALSE:
+                return NODES.booleanNode(false);
+            case TRUE:
+                return NODES.booleanNode(true);
+            case INTEGER:
+                long zigzag = readVarint();
+                long number = (zigzag >>> 1) ^ -(zigzag & 1);
+                return number == (int) number ? NODES.numberNode((int) number) : NODES.numberNode(number);
+            case DOUBLE:
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | (data[position++] & 0xFF);
+                }
+                return NODES.numberNode(Double.longBitsToDouble(bits));
+            case STRING:
+                return NODES.textNode(readString());
+            case DECIMAL:
+                String decimal = readString();
+                return decimal.indexOf('.') < 0 && decimal.indexOf('e') < 0 && decimal.indexOf('E') < 0
+                        ? NODES.numberNode(new BigInteger(decimal)) : NODES.numberNode(new BigDecimal(decimal));
+            case ARRAY:
+                int elements = (int) readVarint();
+                position += 4;
+                ArrayNode array = NODES.arrayNode(elements);
+                for (int i = 0; i < elements; i++) {
+                    array.add(read());
+                }
+                return array;
+            case OBJECT:
+                int fields = (int) readVarint();
+                position += 4;
+                ObjectNode object = NODES.objectNode();
+                for (int i = 0; i < fields; i++) {
+                    String name = readFieldName();
+                    object.set(name, read());
+                }
+                return object;
+            default:
+                throw new IllegalStateException("Corrupt encoded document: tag " + tag);
+            }
+        }
+
+        // Positioned after an object's tag; returns the position of the named field's value
+        // or -1. id is the name's dictionary number, or -1 if it has none and can only have
+        // been written out in full.
+        int findField(String name, int id) {
+            int fields = (int) readVarint();
+            position += 4;
+            for (int i = 0; i < fields; i++) {
+                int fieldId = (int) readVarint();
+                boolean matches;
+                if (fieldId == 0) {
+                    matches = name.equals(readString());
+                } else {
+                    matches = fieldId - 1 == id;
+                }
+                if (matches) {
+                    return position;
+                }
+                skip();
+            }
+            return -1;
+        }
+
+        String readString() {
+            int length = (int) readVarint();
+            String text = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return text;
+        }
+
+        private String readFieldName() {
+            int id = (int) readVarint();
+            return id == 0 ? readString() : dictionary.nameOf(id - 1);
+        }
+
+        private void skip() {
+            byte tag = data[position++];
+            switch (tag) {
+            case INTEGER:
+                readVarint();
+                break;
+            case DOUBLE:
+                position += 8;
+                break;
+            case STRING:
+            case DECIMAL:
+                int textLength = (int) readVarint();
+                position += textLength;
+                break;
+            case ARRAY:
+            case OBJECT:
+                readVarint();
+                int length = ((data[position] & 0xFF) << 24) | ((data[position + 1] & 0xFF) << 16)
+                        | ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
+                position += 4 + length;
+                break;
+            default:
+                break;
+            }
+        }
+
+        private long readVarint() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.codec;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.JsonSerializable;
+
+// Read access to the Jackson tree a Document keeps its body in. Document only hands its
+// body out as JSON text or one converted field at a time, so binding it to another type
+// through toJson serializes and re-parses every document. The tree is read from the
+// Document's property bag instead, and only parsed from toJson if the field can't be
+// reached. The tree belongs to the document and must not be modified.
+public final class DocumentTrees {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Field PROPERTY_BAG = propertyBagField();
+
+    private DocumentTrees() {
+    }
+
+    public static ObjectNode treeOf(Document document) {
+        if (PROPERTY_BAG != null) {
+            try {
+                Object tree = PROPERTY_BAG.get(document);
+                if (tree instanceof ObjectNode) {
+                    return (ObjectNode) tree;
+                }
+            } catch (IllegalAccessException e) {
+                // Parsed from the JSON text below.
+            }
+        }
+        try {
+            return (ObjectNode) MAPPER.readTree(document.toJson());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Not a JSON document", e);
+        }
+    }
+
+    // The node at the path of field names, or null if there is none.
+    public static JsonNode find(JsonNode node, String... path) {
+        for (String name : path) {
+            if (node == null || !node.isObject()) {
+                return null;
+            }
+            node = node.get(name);
+        }
+        return node;
+    }
+
+    private static Field propertyBagField() {
+        try {
+            Field field = JsonSerializable.class.getDeclaredField("propertyBag");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
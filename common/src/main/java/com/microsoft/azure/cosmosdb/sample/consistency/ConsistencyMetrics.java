@@ -0,0 +1,80 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.consistency;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.microsoft.azure.cosmosdb.ConsistencyLevel;
+import com.microsoft.azure.cosmosdb.sample.telemetry.HistogramSummary;
+import com.microsoft.azure.cosmosdb.sample.telemetry.LogLinearHistogram;
+import com.microsoft.azure.cosmosdb.sample.throttle.OperationType;
+
+// RU and latency of the requests a ConsistencyRouter sent, by consistency level and
+// operation type. Every page of a query is a request of its own. Requests left at the
+// client's level are reported under "Default".
+public class ConsistencyMetrics {
+    private static final String DEFAULT_LEVEL = "Default";
+
+    private final Map<String, Stats> stats = new ConcurrentSkipListMap<>();
+
+    public HistogramSummary getRequestCharge(ConsistencyLevel level, OperationType type) {
+        Stats entry = stats.get(keyOf(level, type));
+        return entry == null ? new LogLinearHistogram(0.01).summarize() : entry.requestCharge.summarize();
+    }
+
+    public HistogramSummary getLatencyMillis(ConsistencyLevel level, OperationType type) {
+        Stats entry = stats.get(keyOf(level, type));
+        return entry == null ? new LogLinearHistogram(0.01).summarize() : entry.latencyMillis.summarize();
+    }
+
+    void record(ConsistencyLevel level, OperationType type, double requestCharge, double latencyMillis) {
+        Stats entry = stats.computeIfAbsent(keyOf(level, type), key -> new Stats());
+        entry.requestCharge.record(requestCharge);
+        entry.latencyMillis.record(latencyMillis);
+    }
+
+    private static String keyOf(ConsistencyLevel level, OperationType type) {
+        return (level == null ? DEFAULT_LEVEL : level.name()) + " " + type.name();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-32s %9s %9s %9s %11s %9s %9s%n", "level and operation", "requests",
+                "mean RU", "p50 RU", "total RU", "p50 ms", "p99 ms"));
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            HistogramSummary charge = entry.getValue().requestCharge.summarize();
+            HistogramSummary latency = entry.getValue().latencyMillis.summarize();
+            report.append(String.format("%-32s %9d %9.2f %9.2f %11.2f %9.2f %9.2f%n", entry.getKey(),
+                    charge.getCount(), charge.getMean(), charge.getP50(), charge.getSum(), latency.getP50(),
+                    latency.getP99()));
+        }
+        return report.toString();
+    }
+
+    private static final class Stats {
+        final LogLinearHistogram requestCharge = new LogLinearHistogram(0.01);
+        final LogLinearHistogram latencyMillis = new LogLinearHistogram(0.01);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.consistency;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.microsoft.azure.cosmosdb.ConsistencyLevel;
+
+// The consistency level each operation reads at. Operations are named by their callers, e.g.
+// after the manager method that issues them ("QueryWithRangeOperator"). Operations without
+// a level of their own use the default level; a null default leaves them at the level the
+// client (or account) was set up with.
+public class ConsistencyPolicy {
+    private final ConcurrentMap<String, ConsistencyLevel> levels = new ConcurrentHashMap<>();
+    private volatile ConsistencyLevel defaultLevel;
+
+    public ConsistencyLevel getDefaultLevel() {
+        return defaultLevel;
+    }
+
+    public void setDefaultLevel(ConsistencyLevel defaultLevel) {
+        this.defaultLevel = defaultLevel;
+    }
+
+    public ConsistencyLevel getLevel(String operation) {
+        ConsistencyLevel level = operation == null ? null : levels.get(operation);
+        return level != null ? level : defaultLevel;
+    }
+
+    public boolean hasLevel(String operation) {
+        return operation != null && levels.containsKey(operation);
+    }
+
+    // A null level puts the operation back on the default level.
+    public void setLevel(String operation, ConsistencyLevel level) {
+        if (level == null) {
+            levels.remove(operation);
+        } else {
+            levels.put(operation, level);
+        }
+    }
+
+    // The operations with a level of their own, by name.
+    public Map<String, ConsistencyLevel> getLevels() {
+        return new TreeMap<>(levels);
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.consistency;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import com.microsoft.azure.cosmosdb.ChangeFeedOptions;
+import com.microsoft.azure.cosmosdb.ConsistencyLevel;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.ResourceLinks;
+import com.microsoft.azure.cosmosdb.sample.store.SessionTokens;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.throttle.OperationType;
+
+import rx.Observable;
+import rx.functions.Func0;
+
+// Sends each operation's reads at the consistency level the ConsistencyPolicy gives it. A
+// read at Eventual or ConsistentPrefix is served by a single replica, so it costs about half
+// the RU of one at Strong or BoundedStaleness and doesn't wait for a quorum: the right level
+// for reads that can be a little stale, like a listing or a range query. Reads that must see
+// the user's own writes stay at Session, which is just as cheap but carries a session token.
+//
+// The SDK only takes a consistency level per request for point reads; queries run at the
+// level of the client. So the router reads through one store per level, created by
+// storeForLevel on first use (a client of its own, or a view of the in-memory store), and
+// sends writes and the operations left at the default level to the default store.
+//
+// Session tokens are kept in a SessionTokenStore per scope, a logical user, instead of
+// per client: forOperation(operation, scope) returns a store that records the tokens of the
+// scope's responses and sends them with its Session reads. The RU and latency of every
+// request are recorded in getMetrics by level.
+public class ConsistencyRouter {
+    private final DocumentStore defaultStore;
+    private final Function<ConsistencyLevel, DocumentStore> storeForLevel;
+    private final ConcurrentMap<ConsistencyLevel, DocumentStore> stores = new ConcurrentHashMap<>();
+    private final ConsistencyPolicy policy;
+    private final SessionTokenStore sessionTokens;
+    private final ConsistencyMetrics metrics = new ConsistencyMetrics();
+
+    public ConsistencyRouter(DocumentStore defaultStore, Function<ConsistencyLevel, DocumentStore> storeForLevel) {
+        this(defaultStore, storeForLevel, new ConsistencyPolicy(), new SessionTokenStore());
+    }
+
+    public ConsistencyRouter(DocumentStore defaultStore, Function<ConsistencyLevel, DocumentStore> storeForLevel,
+            ConsistencyPolicy policy, SessionTokenStore sessionTokens) {
+        this.defaultStore = Objects.requireNonNull(defaultStore, "defaultStore");
+        this.storeForLevel = Objects.requireNonNull(storeForLevel, "storeForLevel");
+        this.policy = Objects.requireNonNull(policy, "policy");
+        this.sessionTokens = Objects.requireNonNull(sessionTokens, "sessionTokens");
+    }
+
+    public ConsistencyPolicy getPolicy() {
+        return policy;
+    }
+
+    public SessionTokenStore getSessionTokens() {
+        return sessionTokens;
+    }
+
+    public ConsistencyMetrics getMetrics() {
+        return metrics;
+    }
+
+    // The store to issue the operation's requests through on behalf of the scope. The level
+    // is looked up per request, so policy changes apply to stores already handed out. A null
+    // scope shares no session tokens: Session reads then get the client's own.
+    public DocumentStore forOperation(String operation, String scope) {
+        return new OperationStore(operation, scope);
+    }
+
+    private DocumentStore storeFor(ConsistencyLevel level) {
+        return level == null ? defaultStore : stores.computeIfAbsent(level, storeForLevel);
+    }
+
+    private static boolean isSession(ConsistencyLevel level) {
+        return level == null || level == ConsistencyLevel.Session;
+    }
+
+    private static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+
+    private final class OperationStore implements DocumentStore {
+        private final String operation;
+        private final String scope;
+
+        OperationStore(String operation, String scope) {
+            this.operation = operation;
+            this.scope = scope;
+        }
+
+        @Override
+        public Observable<StoreResponse<Document>> createDocument(String collectionLink, Document document,
+                RequestOptions options) {
+            return recorded(null, OperationType.WRITE, collectionLink,
+                    () -> defaultStore.createDocument(collectionLink, document, options));
+        }
+
+        @Override
+        public Observable<StoreResponse<Document>> upsertDocument(String collectionLink, Document document,
+                RequestOptions options) {
+            return recorded(null, OperationType.WRITE, collectionLink,
+                    () -> defaultStore.upsertDocument(collectionLink, document, options));
+        }
+
+        @Override
+        public Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions options) {
+            ConsistencyLevel level = levelOf(options);
+            String collectionLink = ResourceLinks.collectionOf(documentLink);
+            RequestOptions read = isSession(level)
+                    ? SessionTokens.withSessionToken(options, sessionToken(collectionLink)) : options;
+            return recorded(level, OperationType.READ, collectionLink,
+                    () -> storeFor(level).readDocument(documentLink, read));
+        }
+
+        @Override
+        public Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+                FeedOptions options) {
+            ConsistencyLevel level = policy.getLevel(operation);
+            FeedOptions query = isSession(level)
+                    ? SessionTokens.withSessionToken(options, sessionToken(collectionLink)) : options;
+            return Observable.defer(() -> {
+                long[] startNanos = { System.nanoTime() };
+                return storeFor(level).queryDocuments(collectionLink, querySpec, query)
+                        .doOnNext(page -> {
+                            // Each page is a request of its own; it ends when its page arrives.
+                            metrics.record(level, OperationType.QUERY, page.getRequestCharge(),
+                                    millisSince(startNanos[0]));
+                            startNanos[0] = System.nanoTime();
+                            updateSessionToken(collectionLink, page.getSessionToken());
+                        });
+            });
+        }
+
+        @Override
+        public Observable<FeedPage<Document>> readChangeFeed(String collectionLink, ChangeFeedOptions options) {
+            ConsistencyLevel level = policy.getLevel(operation);
+            return Observable.defer(() -> {
+                long[] startNanos = { System.nanoTime() };
+                return storeFor(level).readChangeFeed(collectionLink, options)
+                        .doOnNext(page -> {
+                            metrics.record(level, OperationType.READ, page.getRequestCharge(),
+                                    millisSince(startNanos[0]));
+                            startNanos[0] = System.nanoTime();
+                        });
+            });
+        }
+
+        @Override
+        public Observable<List<String>> readPartitionKeyRangeIds(String collectionLink) {
+            return defaultStore.readPartitionKeyRangeIds(collectionLink);
+        }
+
+        @Override
+        public Observable<StoreResponse<StoredProcedure>> createStoredProcedure(String collectionLink,
+                StoredProcedure storedProcedure, RequestOptions options) {
+            return defaultStore.createStoredProcedure(collectionLink, storedProcedure, options);
+        }
+
+        @Override
+        public Observable<StoreResponse<String>> executeStoredProcedure(String storedProcedureLink,
+                RequestOptions options, Object[] procedureParams) {
+            // Scripts run on the primary replica whatever the level, and may write.
+            return recorded(null, OperationType.EXECUTE_SCRIPT, ResourceLinks.collectionOf(storedProcedureLink),
+                    () -> defaultStore.executeStoredProcedure(storedProcedureLink, options, procedureParams));
+        }
+
+        // A level set on the request itself wins over the policy's.
+        private ConsistencyLevel levelOf(RequestOptions options) {
+            return options != null && options.getConsistencyLevel() != null ? options.getConsistencyLevel()
+                    : policy.getLevel(operation);
+        }
+
+        private <T> Observable<StoreResponse<T>> recorded(ConsistencyLevel level, OperationType type,
+                String collectionLink, Func0<Observable<StoreResponse<T>>> request) {
+            return Observable.defer(() -> {
+                long startNanos = System.nanoTime();
+                return request.call().doOnNext(response -> {
+                    metrics.record(level, type, response.getRequestCharge(), millisSince(startNanos));
+                    updateSessionToken(collectionLink, response.getSessionToken());
+                });
+            });
+        }
+
+        private String sessionToken(String collectionLink) {
+            return scope == null ? null : sessionTokens.get(scope, collectionLink);
+        }
+
+        private void updateSessionToken(String collectionLink, String sessionToken) {
+            if (scope != null) {
+                sessionTokens.update(scope, collectionLink, sessionToken);
+            }
+        }
+    }
+}
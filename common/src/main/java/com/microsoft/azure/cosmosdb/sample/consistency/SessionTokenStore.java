@@ -0,0 +1,63 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.consistency;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.microsoft.azure.cosmosdb.sample.store.ResourceLinks;
+import com.microsoft.azure.cosmosdb.sample.store.SessionTokens;
+
+// Session tokens kept per logical user (the scope) and collection rather than per client.
+// A client's own session covers every write made through it, so a client shared by many
+// users makes each user's session reads wait for everybody's writes to replicate. Keeping
+// the tokens per scope, a user's reads only wait for the writes that user made, through
+// whichever client. Each token is the merge of every one recorded for the scope and
+// collection; see SessionTokens.
+public class SessionTokenStore {
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> tokens = new ConcurrentHashMap<>();
+
+    // The token a session read of the collection has to carry for the scope, or null if the
+    // scope has neither written to nor read from it.
+    public String get(String scope, String collectionLink) {
+        ConcurrentMap<String, String> scopeTokens = tokens.get(scope);
+        return scopeTokens == null ? null : scopeTokens.get(ResourceLinks.normalize(collectionLink));
+    }
+
+    public void update(String scope, String collectionLink, String sessionToken) {
+        if (sessionToken == null || sessionToken.isEmpty()) {
+            return;
+        }
+        tokens.computeIfAbsent(scope, key -> new ConcurrentHashMap<>())
+                .merge(ResourceLinks.normalize(collectionLink), sessionToken, SessionTokens::merge);
+    }
+
+    // Forgets the scope's tokens, e.g. when the user signs out.
+    public void remove(String scope) {
+        tokens.remove(scope);
+    }
+
+    public int getScopeCount() {
+        return tokens.size();
+    }
+}
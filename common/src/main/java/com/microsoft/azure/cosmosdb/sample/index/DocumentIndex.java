@@ -0,0 +1,251 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.DataType;
+
+// A secondary index over the documents of one collection, kept the way its indexing
+// policy asks for. Every number and string value at a path the policy indexes for that
+// type is recorded under the path, with "[]" for array elements like IndexingPolicyRules,
+// so a filter on a JOIN alias (c.Grade where c IN f.Children) is served from the same
+// terms as one on a top-level property. The id is always indexed. Booleans and nulls are
+// not, so filters on them are left to the scan.
+//
+// Each indexed version of a document gets the next ordinal. Lookups (see IndexPlan) return
+// the ordinals of the current versions as a BitSet, and document(ordinal) returns the
+// version indexed under an ordinal, or null once it has been replaced or removed. When
+// the ordinals run out of room and at least half of them belong to replaced or removed
+// versions, the index is compacted instead of grown: the current versions are renumbered
+// from 0 in the same order, the terms of the others are dropped and the generation goes
+// up. A query that stopped at an ordinal maps it through resumeOrdinal, so it can resume
+// while writes go on.
+public final class DocumentIndex {
+    private static final String ID = "id";
+
+    private final IndexingPolicyRules rules;
+    private final PathNode root;
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private BitSet live = new BitSet();
+    private ObjectNode[] documents = new ObjectNode[64];
+    private int ordinalCount;
+    private int generation;
+    // For each ordinal of the previous generation, its ordinal in this one (see resumeOrdinal).
+    private int[] renumbered;
+
+    public DocumentIndex(IndexingPolicyRules rules) {
+        this.rules = rules;
+        this.root = new PathNode(Collections.<String>emptyList());
+    }
+
+    public IndexingPolicyRules getRules() {
+        return rules;
+    }
+
+    // Replaces the document's previous version, if it was indexed.
+    public synchronized void add(ObjectNode document) {
+        String id = document.path(ID).asText();
+        remove(id);
+        if (ordinalCount == documents.length) {
+            if (ordinalCount - ordinalsById.size() >= ordinalCount / 2) {
+                compact();
+            } else {
+                documents = Arrays.copyOf(documents, ordinalCount * 2);
+            }
+        }
+        int ordinal = ordinalCount++;
+        documents[ordinal] = document;
+        live.set(ordinal);
+        ordinalsById.put(id, ordinal);
+        addValues(root, document, ordinal);
+    }
+
+    public synchronized void remove(String id) {
+        Integer ordinal = ordinalsById.remove(id);
+        if (ordinal != null) {
+            documents[ordinal] = null;
+            live.clear(ordinal);
+        }
+    }
+
+    public synchronized ObjectNode document(int ordinal) {
+        return ordinal < ordinalCount ? documents[ordinal] : null;
+    }
+
+    public synchronized int size() {
+        return ordinalsById.size();
+    }
+
+    // Goes up each time the index is compacted; ordinals are only comparable within one generation.
+    public synchronized int getGeneration() {
+        return generation;
+    }
+
+    // Where a lookup that stopped at an ordinal of the given generation resumes: the
+    // ordinal the document has now or, if compacting the index dropped it, -(the ordinal of
+    // the next document kept) - 1, like Arrays.binarySearch. Positions from before the
+    // previous compaction cannot be mapped.
+    public synchronized int resumeOrdinal(int generation, int ordinal) {
+        if (generation == this.generation) {
+            return ordinal;
+        }
+        if (generation != this.generation - 1 || ordinal < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Ordinal %d of generation %d cannot be resumed at generation %d", ordinal, generation,
+                    this.generation));
+        }
+        return renumbered[Math.min(ordinal, renumbered.length - 1)];
+    }
+
+    // Runs a lookup against a consistent view of the index; only current versions are returned.
+    synchronized BitSet lookup(Function<DocumentIndex, BitSet> lookup) {
+        BitSet ordinals = lookup.apply(this);
+        ordinals.and(live);
+        return ordinals;
+    }
+
+    // The terms kept at a path; null if no document has had an indexed value there.
+    NumberTerms numbersAt(List<String> path) {
+        PathNode node = nodeAt(path);
+        return node == null ? null : node.numbers;
+    }
+
+    StringTerms stringsAt(List<String> path) {
+        PathNode node = nodeAt(path);
+        return node == null ? null : node.strings;
+    }
+
+    private PathNode nodeAt(List<String> path) {
+        PathNode node = root;
+        for (Iterator<String> segments = path.iterator(); node != null && segments.hasNext();) {
+            node = node.children.get(segments.next());
+        }
+        return node;
+    }
+
+    private void compact() {
+        int[] renumbered = new int[ordinalCount + 1];
+        int kept = 0;
+        for (int ordinal = 0; ordinal < ordinalCount; ordinal++) {
+            if (live.get(ordinal)) {
+                documents[kept] = documents[ordinal];
+                renumbered[ordinal] = kept++;
+            }
+        }
+        Arrays.fill(documents, kept, ordinalCount, null);
+        int next = -kept - 1;
+        renumbered[ordinalCount] = next;
+        for (int ordinal = ordinalCount - 1; ordinal >= 0; ordinal--) {
+            if (live.get(ordinal)) {
+                next = -renumbered[ordinal] - 1;
+            } else {
+                renumbered[ordinal] = next;
+            }
+        }
+        ordinalsById.replaceAll((id, ordinal) -> renumbered[ordinal]);
+        renumberValues(root, renumbered);
+        live = new BitSet(kept);
+        live.set(0, kept);
+        ordinalCount = kept;
+        generation++;
+        this.renumbered = renumbered;
+    }
+
+    private static void renumberValues(PathNode node, int[] renumbered) {
+        if (node.numbers != null) {
+            node.numbers.renumber(renumbered);
+        }
+        if (node.strings != null) {
+            node.strings.renumber(renumbered);
+        }
+        for (PathNode child : node.children.values()) {
+            renumberValues(child, renumbered);
+        }
+    }
+
+    private void addValues(PathNode node, JsonNode value, int ordinal) {
+        if (value.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = value.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                addValues(node.child(field.getKey()), field.getValue(), ordinal);
+            }
+        } else if (value.isArray()) {
+            PathNode elements = node.child("[]");
+            for (JsonNode element : value) {
+                addValues(elements, element, ordinal);
+            }
+        } else if (value.isNumber() && node.indexesNumbers) {
+            if (node.numbers == null) {
+                node.numbers = new NumberTerms();
+            }
+            node.numbers.add(value.doubleValue(), ordinal, live);
+        } else if (value.isTextual() && node.indexesStrings) {
+            if (node.strings == null) {
+                node.strings = new StringTerms();
+            }
+            node.strings.add(value.textValue(), ordinal, live);
+        }
+    }
+
+    // One document path. Whether the policy indexes numbers and strings at the path is
+    // resolved once, when the path is first seen.
+    private final class PathNode {
+        final List<String> path;
+        final boolean indexesNumbers;
+        final boolean indexesStrings;
+        final Map<String, PathNode> children = new HashMap<>();
+        NumberTerms numbers;
+        StringTerms strings;
+
+        PathNode(List<String> path) {
+            this.path = path;
+            boolean id = path.size() == 1 && path.get(0).equals(ID);
+            this.indexesNumbers = id || rules.getIndex(path, DataType.Number) != null;
+            this.indexesStrings = id || rules.getIndex(path, DataType.String) != null;
+        }
+
+        PathNode child(String segment) {
+            PathNode child = children.get(segment);
+            if (child == null) {
+                List<String> childPath = new ArrayList<>(path.size() + 1);
+                childPath.addAll(path);
+                childPath.add(segment);
+                child = new PathNode(childPath);
+                children.put(segment, child);
+            }
+            return child;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.microsoft.azure.cosmosdb.DataType;
+import com.microsoft.azure.cosmosdb.IndexKind;
+import com.microsoft.azure.cosmosdb.IndexingMode;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlExpression;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+
+// How a query's WHERE clause is answered from a DocumentIndex. Comparisons, IN,
+// STARTSWITH and ARRAY_CONTAINS against a literal or parameter on a path the policy
+// serves become lookups, combined along the clause's AND and OR; anything else (NOT, !=,
+// comparisons between paths, functions, paths with array positions) is left to the WHERE
+// clause itself, which still runs over every document the lookups return. An AND is
+// planned as soon as one side is; an OR needs both. A plan without lookups is a scan.
+public final class IndexPlan {
+    private static final IndexPlan SCAN = new IndexPlan(null, 0);
+
+    private final Node root;
+    private final int lookupCount;
+
+    private IndexPlan(Node root, int lookupCount) {
+        this.root = root;
+        this.lookupCount = lookupCount;
+    }
+
+    public static IndexPlan of(SqlQuery query, Map<String, JsonNode> parameters, IndexingPolicyRules rules) {
+        if (query.getWhere() == null || rules.getIndexingMode() == IndexingMode.None) {
+            return SCAN;
+        }
+        Node root = plan(query.getWhere(), IndexRequirement.aliasPaths(query), parameters, rules);
+        return root == null ? SCAN : new IndexPlan(root, root.lookupCount());
+    }
+
+    public boolean isScan() {
+        return root == null;
+    }
+
+    public int getLookupCount() {
+        return lookupCount;
+    }
+
+    // The ordinals of the documents that may match; only valid for a plan that is not a scan.
+    public BitSet candidates(DocumentIndex index) {
+        if (root == null) {
+            throw new IllegalStateException("A scan has no index candidates");
+        }
+        return index.lookup(root::evaluate);
+    }
+
+    @Override
+    public String toString() {
+        return root == null ? "scan" : root.toString();
+    }
+
+    private static Node plan(SqlExpression expression, Map<String, List<String>> aliases,
+            Map<String, JsonNode> parameters, IndexingPolicyRules rules) {
+        if (expression instanceof SqlExpression.And) {
+            SqlExpression.And and = (SqlExpression.And) expression;
+            Node left = plan(and.getLeft(), aliases, parameters, rules);
+            Node right = plan(and.getRight(), aliases, parameters, rules);
+            return left == null ? right : right == null ? left : new Combination(false, left, right);
+        }
+        if (expression instanceof SqlExpression.Or) {
+            SqlExpression.Or or = (SqlExpression.Or) expression;
+            Node left = plan(or.getLeft(), aliases, parameters, rules);
+            Node right = plan(or.getRight(), aliases, parameters, rules);
+            return left == null || right == null ? null : new Combination(true, left, right);
+        }
+        if (expression instanceof SqlExpression.Comparison) {
+            SqlExpression.Comparison comparison = (SqlExpression.Comparison) expression;
+            List<String> path = pathOf(comparison.getLeft(), aliases);
+            JsonNode value = valueOf(comparison.getRight(), parameters);
+            SqlExpression.Operator operator = comparison.getOperator();
+            if (path == null) {
+                path = pathOf(comparison.getRight(), aliases);
+                value = valueOf(comparison.getLeft(), parameters);
+                operator = flip(operator);
+            }
+            return path == null || value == null ? null : lookup(path, operator, value, rules);
+        }
+        if (expression instanceof SqlExpression.In) {
+            SqlExpression.In in = (SqlExpression.In) expression;
+            List<String> path = pathOf(in.getOperand(), aliases);
+            if (path == null || in.getCandidates().isEmpty()) {
+                return null;
+            }
+            Node union = null;
+            for (SqlExpression candidate : in.getCandidates()) {
+                JsonNode value = valueOf(candidate, parameters);
+                Node equality = value == null ? null : lookup(path, SqlExpression.Operator.EQUAL, value, rules);
+                if (equality == null) {
+                    return null;
+                }
+                union = union == null ? equality : new Combination(true, union, equality);
+            }
+            return union;
+        }
+        if (expression instanceof SqlExpression.FunctionCall) {
+            SqlExpression.FunctionCall call = (SqlExpression.FunctionCall) expression;
+            List<SqlExpression> arguments = call.getArguments();
+            if (call.getName().equals("STARTSWITH")) {
+                List<String> path = pathOf(arguments.get(0), aliases);
+                JsonNode prefix = valueOf(arguments.get(1), parameters);
+                if (path != null && prefix != null && prefix.isTextual()
+                        && rules.supports(path, DataType.String, IndexKind.Range)) {
+                    return new StringLookup(path, prefix.textValue(), true, null, false, true);
+                }
+            } else if (call.getName().equals("ARRAY_CONTAINS")) {
+                List<String> path = pathOf(arguments.get(0), aliases);
+                JsonNode value = valueOf(arguments.get(1), parameters);
+                if (path != null && value != null) {
+                    path.add("[]");
+                    return lookup(path, SqlExpression.Operator.EQUAL, value, rules);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Node lookup(List<String> path, SqlExpression.Operator operator, JsonNode value,
+            IndexingPolicyRules rules) {
+        if (operator == SqlExpression.Operator.NOT_EQUAL) {
+            return null;
+        }
+        IndexKind kind = operator == SqlExpression.Operator.EQUAL ? IndexKind.Hash : IndexKind.Range;
+        if (value.isNumber() && rules.supports(path, DataType.Number, kind)) {
+            double number = value.doubleValue();
+            switch (operator) {
+            case EQUAL:
+                return new NumberLookup(path, number, true, number, true);
+            case LESS:
+                return new NumberLookup(path, Double.NEGATIVE_INFINITY, true, number, false);
+            case LESS_OR_EQUAL:
+                return new NumberLookup(path, Double.NEGATIVE_INFINITY, true, number, true);
+            case GREATER:
+                return new NumberLookup(path, number, false, Double.POSITIVE_INFINITY, true);
+            default:
+                return new NumberLookup(path, number, true, Double.POSITIVE_INFINITY, true);
+            }
+        }
+        if (value.isTextual() && rules.supports(path, DataType.String, kind)) {
+            String text = value.textValue();
+            switch (operator) {
+            case EQUAL:
+                return new StringLookup(path, text, true, text, true, false);
+            case LESS:
+                return new StringLookup(path, null, true, text, false, false);
+            case LESS_OR_EQUAL:
+                return new StringLookup(path, null, true, text, true, false);
+            case GREATER:
+                return new StringLookup(path, text, false, null, true, false);
+            default:
+                return new StringLookup(path, text, true, null, true, false);
+            }
+        }
+        return null;
+    }
+
+    private static SqlExpression.Operator flip(SqlExpression.Operator operator) {
+        switch (operator) {
+        case LESS:
+            return SqlExpression.Operator.GREATER;
+        case LESS_OR_EQUAL:
+            return SqlExpression.Operator.GREATER_OR_EQUAL;
+        case GREATER:
+            return SqlExpression.Operator.LESS;
+        case GREATER_OR_EQUAL:
+            return SqlExpression.Operator.LESS_OR_EQUAL;
+        default:
+            return operator;
+        }
+    }
+
+    // Array positions (f.Children[0]) are not kept in the index, which only knows "[]".
+    private static List<String> pathOf(SqlExpression expression, Map<String, List<String>> aliases) {
+        List<String> path = IndexRequirement.pathOf(expression, aliases);
+        if (path != null) {
+            for (String segment : path) {
+                if (!segment.isEmpty() && segment.chars().allMatch(Character::isDigit)) {
+                    return null;
+                }
+            }
+        }
+        return path;
+    }
+
+    private static JsonNode valueOf(SqlExpression expression, Map<String, JsonNode> parameters) {
+        if (expression instanceof SqlExpression.Literal) {
+            return ((SqlExpression.Literal) expression).getValue();
+        }
+        if (expression instanceof SqlExpression.Parameter) {
+            return parameters.get(((SqlExpression.Parameter) expression).getName());
+        }
+        return null;
+    }
+
+    private abstract static class Node {
+        abstract BitSet evaluate(DocumentIndex index);
+
+        abstract int lookupCount();
+    }
+
+    private static final class NumberLookup extends Node {
+        private final List<String> path;
+        private final double low;
+        private final boolean lowInclusive;
+        private final double high;
+        private final boolean highInclusive;
+
+        NumberLookup(List<String> path, double low, boolean lowInclusive, double high, boolean highInclusive) {
+            this.path = path;
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+        }
+
+        @Override
+        BitSet evaluate(DocumentIndex index) {
+            BitSet ordinals = new BitSet();
+            NumberTerms terms = index.numbersAt(path);
+            if (terms != null) {
+                terms.collect(low, lowInclusive, high, highInclusive, ordinals);
+            }
+            return ordinals;
+        }
+
+        @Override
+        int lookupCount() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            String scalarPath = IndexingPolicyRules.scalarPathOf(path);
+            if (low == high) {
+                return scalarPath + " = " + format(low);
+            }
+            return scalarPath + " in " + (lowInclusive ? "[" : "(")
+                    + (low == Double.NEGATIVE_INFINITY ? "" : format(low)) + ", "
+                    + (high == Double.POSITIVE_INFINITY ? "" : format(high)) + (highInclusive ? "]" : ")");
+        }
+
+        private static String format(double value) {
+            return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value)
+                    : Double.toString(value);
+        }
+    }
+
+    private static final class StringLookup extends Node {
+        private final List<String> path;
+        private final String low;
+        private final boolean lowInclusive;
+        private final String high;
+        private final boolean highInclusive;
+        private final boolean prefix;
+
+        StringLookup(List<String> path, String low, boolean lowInclusive, String high, boolean highInclusive,
+                boolean prefix) {
+            this.path = path;
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+            this.prefix = prefix;
+        }
+
+        @Override
+        BitSet evaluate(DocumentIndex index) {
+            BitSet ordinals = new BitSet();
+            StringTerms terms = index.stringsAt(path);
+            if (terms != null) {
+                if (prefix) {
+                    terms.collectPrefix(low, ordinals);
+                } else {
+                    terms.collect(low, lowInclusive, high, highInclusive, ordinals);
+                }
+            }
+            return ordinals;
+        }
+
+        @Override
+        int lookupCount() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            String scalarPath = IndexingPolicyRules.scalarPathOf(path);
+            if (prefix) {
+                return scalarPath + " starts with \"" + low + "\"";
+            }
+            if (low != null && low.equals(high)) {
+                return scalarPath + " = \"" + low + "\"";
+            }
+            return scalarPath + " in " + (lowInclusive ? "[" : "(") + (low == null ? "" : "\"" + low + "\"") + ", "
+                    + (high == null ? "" : "\"" + high + "\"") + (highInclusive ? "]" : ")");
+        }
+    }
+
+    private static final class Combination extends Node {
+        private final boolean union;
+        private final Node left;
+        private final Node right;
+
+        Combination(boolean union, Node left, Node right) {
+            this.union = union;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        BitSet evaluate(DocumentIndex index) {
+            BitSet ordinals = left.evaluate(index);
+            if (union) {
+                ordinals.or(right.evaluate(index));
+            } else if (!ordinals.isEmpty()) {
+                ordinals.and(right.evaluate(index));
+            }
+            return ordinals;
+        }
+
+        @Override
+        int lookupCount() {
+            return left.lookupCount() + right.lookupCount();
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + (union ? " OR " : " AND ") + right + ")";
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.microsoft.azure.cosmosdb.DataType;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlExpression;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+
+// One way a query uses a document path, and so an index it needs to be served without a
+// scan: an equality filter, a range filter, an ORDER BY, or any other use of the path in
+// the WHERE clause (functions, bare boolean properties), which only needs it indexed.
+public final class IndexRequirement {
+    public enum Use {
+        EQUALITY, RANGE, ORDER_BY, ANY
+    }
+
+    private final List<String> path;
+    private final Use use;
+    private final DataType dataType;
+
+    public IndexRequirement(List<String> path, Use use, DataType dataType) {
+        this.path = Collections.unmodifiableList(path);
+        this.use = use;
+        this.dataType = dataType;
+    }
+
+    // Document path segments, with "[]" for array elements reached through a JOIN.
+    public List<String> getPath() {
+        return path;
+    }
+
+    public Use getUse() {
+        return use;
+    }
+
+    // The type of the value compared against, or null when it is not a string or number
+    // (booleans, null) or not known from the query (ORDER BY).
+    public DataType getDataType() {
+        return dataType;
+    }
+
+    @Override
+    public String toString() {
+        return use + " " + IndexingPolicyRules.scalarPathOf(path) + (dataType == null ? "" : " (" + dataType + ")");
+    }
+
+    public static List<IndexRequirement> of(SqlQuery query, Map<String, JsonNode> parameters) {
+        Map<String, List<String>> aliases = aliasPaths(query);
+        List<IndexRequirement> requirements = new ArrayList<>();
+        if (query.getWhere() != null) {
+            collect(query.getWhere(), aliases, parameters, requirements);
+        }
+        for (SqlQuery.OrderByItem item : query.getOrderBy()) {
+            List<String> path = pathOf(item.getExpression(), aliases);
+            if (path != null) {
+                requirements.add(new IndexRequirement(path, Use.ORDER_BY, null));
+            }
+        }
+        return requirements;
+    }
+
+    private static void collect(SqlExpression expression, Map<String, List<String>> aliases,
+            Map<String, JsonNode> parameters, List<IndexRequirement> output) {
+        if (expression instanceof SqlExpression.And) {
+            collect(((SqlExpression.And) expression).getLeft(), aliases, parameters, output);
+            collect(((SqlExpression.And) expression).getRight(), aliases, parameters, output);
+        } else if (expression instanceof SqlExpression.Or) {
+            collect(((SqlExpression.Or) expression).getLeft(), aliases, parameters, output);
+            collect(((SqlExpression.Or) expression).getRight(), aliases, parameters, output);
+        } else if (expression instanceof SqlExpression.Not) {
+            collect(((SqlExpression.Not) expression).getOperand(), aliases, parameters, output);
+        } else if (expression instanceof SqlExpression.Comparison) {
+            SqlExpression.Comparison comparison = (SqlExpression.Comparison) expression;
+            Use use = comparison.getOperator() == SqlExpression.Operator.EQUAL ? Use.EQUALITY : Use.RANGE;
+            List<String> left = pathOf(comparison.getLeft(), aliases);
+            List<String> right = pathOf(comparison.getRight(), aliases);
+            if (left != null && right == null) {
+                output.add(new IndexRequirement(left, use, dataTypeOf(comparison.getRight(), parameters)));
+            } else if (right != null && left == null) {
+                output.add(new IndexRequirement(right, use, dataTypeOf(comparison.getLeft(), parameters)));
+            } else {
+                collectPaths(comparison.getLeft(), aliases, output);
+                collectPaths(comparison.getRight(), aliases, output);
+            }
+        } else if (expression instanceof SqlExpression.In) {
+            SqlExpression.In in = (SqlExpression.In) expression;
+            List<String> path = pathOf(in.getOperand(), aliases);
+            if (path != null && !in.getCandidates().isEmpty()) {
+                output.add(new IndexRequirement(path, Use.EQUALITY,
+                        dataTypeOf(in.getCandidates().get(0), parameters)));
+            } else {
+                collectPaths(expression, aliases, output);
+            }
+        } else if (expression instanceof SqlExpression.FunctionCall) {
+            SqlExpression.FunctionCall call = (SqlExpression.FunctionCall) expression;
+            List<String> path = call.getArguments().isEmpty() ? null : pathOf(call.getArguments().get(0), aliases);
+            if (call.getName().equals("STARTSWITH") && path != null) {
+                // A prefix match is a range scan over a string index.
+                output.add(new IndexRequirement(path, Use.RANGE, DataType.String));
+            } else {
+                collectPaths(expression, aliases, output);
+            }
+        } else {
+            collectPaths(expression, aliases, output);
+        }
+    }
+
+    private static void collectPaths(SqlExpression expression, Map<String, List<String>> aliases,
+            List<IndexRequirement> output) {
+        List<String> path = pathOf(expression, aliases);
+        if (path != null) {
+            output.add(new IndexRequirement(path, Use.ANY, null));
+        } else if (expression instanceof SqlExpression.FunctionCall) {
+            for (SqlExpression argument : ((SqlExpression.FunctionCall) expression).getArguments()) {
+                collectPaths(argument, aliases, output);
+            }
+        } else if (expression instanceof SqlExpression.In) {
+            collectPaths(((SqlExpression.In) expression).getOperand(), aliases, output);
+        } else if (expression instanceof SqlExpression.Comparison) {
+            collectPaths(((SqlExpression.Comparison) expression).getLeft(), aliases, output);
+            collectPaths(((SqlExpression.Comparison) expression).getRight(), aliases, output);
+        }
+    }
+
+    // The document path each FROM and JOIN alias stands for: [] for the root, and the
+    // source path plus "[]" for a JOIN over an array.
+    static Map<String, List<String>> aliasPaths(SqlQuery query) {
+        Map<String, List<String>> aliases = new HashMap<>();
+        aliases.put(query.getRootAlias(), Collections.<String>emptyList());
+        for (SqlQuery.Join join : query.getJoins()) {
+            List<String> source = pathOf(join.getSource(), aliases);
+            if (source != null) {
+                List<String> elements = new ArrayList<>(source);
+                elements.add("[]");
+                aliases.put(join.getAlias(), elements);
+            }
+        }
+        return aliases;
+    }
+
+    static List<String> pathOf(SqlExpression expression, Map<String, List<String>> aliases) {
+        if (!(expression instanceof SqlExpression.PropertyPath)) {
+            return null;
+        }
+        SqlExpression.PropertyPath propertyPath = (SqlExpression.PropertyPath) expression;
+        List<String> base = aliases.get(propertyPath.getAlias());
+        if (base == null) {
+            return null;
+        }
+        List<String> path = new ArrayList<>(base);
+        path.addAll(propertyPath.getSegments());
+        return path;
+    }
+
+    private static DataType dataTypeOf(SqlExpression expression, Map<String, JsonNode> parameters) {
+        JsonNode value = null;
+        if (expression instanceof SqlExpression.Literal) {
+            value = ((SqlExpression.Literal) expression).getValue();
+        } else if (expression instanceof SqlExpression.Parameter) {
+            value = parameters.get(((SqlExpression.Parameter) expression).getName());
+        }
+        if (value == null) {
+            return null;
+        }
+        if (value.isTextual()) {
+            return DataType.String;
+        }
+        return value.isNumber() ? DataType.Number : null;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// The evaluation of every candidate policy and the recommended one: the cheapest in total
+// RU among those that serve every query of the workload.
+public class IndexingAdvice {
+    private final List<PolicyEvaluation> evaluations;
+    private final PolicyEvaluation recommendation;
+
+    IndexingAdvice(List<PolicyEvaluation> evaluations, PolicyEvaluation recommendation) {
+        this.evaluations = Collections.unmodifiableList(evaluations);
+        this.recommendation = recommendation;
+    }
+
+    public List<PolicyEvaluation> getEvaluations() {
+        return evaluations;
+    }
+
+    // Null if no candidate serves every query.
+    public PolicyEvaluation getRecommendation() {
+        return recommendation;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-28s %12s %14s %14s %14s %12s  %s%n", "policy", "write RU/doc",
+                "write RU", "query RU", "total RU", "index KB", "serves"));
+        for (PolicyEvaluation evaluation : evaluations) {
+            report.append(String.format("%-28s %12.2f %14.1f %14.1f %14.1f %12d  %s%n", evaluation.getName(),
+                    evaluation.getWriteChargePerDocument(), evaluation.getTotalWriteCharge(),
+                    evaluation.getTotalQueryCharge(), evaluation.getTotalCharge(),
+                    evaluation.getIndexBytes() / 1024,
+                    evaluation.servesAllQueries() ? (evaluation.isEventuallyConsistent() ? "all (lazy)" : "all")
+                            : evaluation.getUnservedQueries().size() + " unserved"));
+        }
+        for (PolicyEvaluation evaluation : evaluations) {
+            for (Map.Entry<String, String> unserved : evaluation.getUnservedQueries().entrySet()) {
+                report.append(String.format("%s cannot serve %s: %s%n", evaluation.getName(), unserved.getKey(),
+                        unserved.getValue()));
+            }
+        }
+        if (recommendation == null) {
+            report.append("No candidate serves every query.");
+        } else {
+            report.append("Recommended: ").append(recommendation.getName()).append(System.lineSeparator())
+                    .append(recommendation.getPolicy().toJson());
+        }
+        return report.toString();
+    }
+}
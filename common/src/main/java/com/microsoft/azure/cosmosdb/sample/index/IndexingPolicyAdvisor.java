@@ -0,0 +1,427 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.DataType;
+import com.microsoft.azure.cosmosdb.ExcludedPath;
+import com.microsoft.azure.cosmosdb.HashIndex;
+import com.microsoft.azure.cosmosdb.Index;
+import com.microsoft.azure.cosmosdb.IncludedPath;
+import com.microsoft.azure.cosmosdb.IndexKind;
+import com.microsoft.azure.cosmosdb.IndexingMode;
+import com.microsoft.azure.cosmosdb.IndexingPolicy;
+import com.microsoft.azure.cosmosdb.RangeIndex;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+
+// Compares candidate indexing policies on a recorded workload and a sample of the
+// collection's documents, and recommends the cheapest one that serves every query from the
+// index. The estimates follow how the service charges: writes pay per KB plus per index
+// term maintained, indexed queries pay per lookup and per document loaded, and a query
+// with no filter scans the collection.
+public class IndexingPolicyAdvisor {
+    private static final double WRITE_CHARGE_PER_KB = 2.0;
+    private static final double INDEX_TERM_CHARGE = 0.25;
+    private static final double QUERY_BASE_CHARGE = 2.3;
+    private static final double INDEX_LOOKUP_CHARGE = 0.2;
+    private static final double DOCUMENT_LOAD_CHARGE = 0.01;
+    private static final double CANDIDATE_ROW_CHARGE = 0.02;
+    private static final double OUTPUT_CHARGE_PER_KB = 0.3;
+    private static final int TERM_PATH_BYTES = 4;
+
+    private final Map<String, IndexingPolicy> candidates = new LinkedHashMap<>();
+    private long collectionDocumentCount;
+    private boolean allowLazyIndexing;
+
+    public void addCandidate(String name, IndexingPolicy policy) {
+        candidates.put(name, policy);
+    }
+
+    // Adds the service default, range indexes everywhere, and a policy indexing only the
+    // paths the workload filters and sorts on (consistent, and lazy if allowed).
+    public void addWorkloadCandidates(IndexingWorkload workload, List<JsonNode> samples) {
+        addCandidate("default", new IndexingPolicy());
+        addCandidate("range everything", rangeEverything());
+
+        IndexingPolicy workloadPaths = workloadPaths(workload, samples);
+        addCandidate("workload paths", workloadPaths);
+        if (allowLazyIndexing) {
+            IndexingPolicy lazy = new IndexingPolicy(workloadPaths.toJson());
+            lazy.setIndexingMode(IndexingMode.Lazy);
+            addCandidate("workload paths, lazy", lazy);
+        }
+    }
+
+    // 0 (the default) takes the sample as the whole collection; otherwise sample statistics
+    // are scaled up to this many documents.
+    public void setCollectionDocumentCount(long collectionDocumentCount) {
+        if (collectionDocumentCount < 0) {
+            throw new IllegalArgumentException("collectionDocumentCount must not be negative");
+        }
+        this.collectionDocumentCount = collectionDocumentCount;
+    }
+
+    // Lazy indexing makes writes cheaper but queries may miss recent writes, so it is only
+    // recommended when the application can live with that.
+    public void setAllowLazyIndexing(boolean allowLazyIndexing) {
+        this.allowLazyIndexing = allowLazyIndexing;
+    }
+
+    public IndexingAdvice evaluate(IndexingWorkload workload, List<JsonNode> samples) {
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("at least one sample document is required");
+        }
+        double scale = collectionDocumentCount == 0 ? 1 : (double) collectionDocumentCount / samples.size();
+        List<QueryProfile> profiles = new ArrayList<>();
+        for (IndexingWorkload.WorkloadQuery query : workload.getQueries()) {
+            profiles.add(new QueryProfile(query, samples, scale));
+        }
+
+        List<PolicyEvaluation> evaluations = new ArrayList<>();
+        PolicyEvaluation recommendation = null;
+        for (Map.Entry<String, IndexingPolicy> candidate : candidates.entrySet()) {
+            PolicyEvaluation evaluation = evaluate(candidate.getKey(), candidate.getValue(), workload, profiles,
+                    samples, scale);
+            evaluations.add(evaluation);
+            if (evaluation.servesAllQueries() && (allowLazyIndexing || !evaluation.isEventuallyConsistent())
+                    && (recommendation == null || evaluation.getTotalCharge() < recommendation.getTotalCharge()
+                            || (evaluation.getTotalCharge() == recommendation.getTotalCharge()
+                                    && evaluation.getIndexBytes() < recommendation.getIndexBytes()))) {
+                recommendation = evaluation;
+            }
+        }
+        return new IndexingAdvice(evaluations, recommendation);
+    }
+
+    private PolicyEvaluation evaluate(String name, IndexingPolicy policy, IndexingWorkload workload,
+            List<QueryProfile> profiles, List<JsonNode> samples, double scale) {
+        IndexingPolicyRules rules = IndexingPolicyRules.of(policy);
+        boolean maintained = rules.isAutomatic() && rules.getIndexingMode() != IndexingMode.None;
+
+        double writeCharge = 0;
+        double indexCharge = 0;
+        long indexBytes = 0;
+        for (JsonNode sample : samples) {
+            TermCount terms = new TermCount();
+            if (maintained) {
+                countTerms(sample, new ArrayList<String>(), rules, terms);
+            }
+            writeCharge += WRITE_CHARGE_PER_KB * Math.max(1, sizeOf(sample) / 1024.0);
+            indexCharge += INDEX_TERM_CHARGE * terms.terms;
+            indexBytes += terms.bytes;
+        }
+        boolean lazy = rules.getIndexingMode() == IndexingMode.Lazy;
+        double writeChargePerDocument = (writeCharge + (lazy ? 0 : indexCharge)) / samples.size();
+        double deferredIndexCharge = lazy ? indexCharge / samples.size() * workload.getWriteCount() : 0;
+
+        Map<String, Double> queryCharges = new LinkedHashMap<>();
+        Map<String, String> unserved = new LinkedHashMap<>();
+        double totalQueryCharge = 0;
+        for (QueryProfile profile : profiles) {
+            String reason = unservedReason(profile, rules, maintained);
+            if (reason != null) {
+                unserved.put(profile.queryText, reason);
+                continue;
+            }
+            queryCharges.put(profile.queryText, profile.charge);
+            totalQueryCharge += profile.charge * profile.executions;
+        }
+
+        return new PolicyEvaluation(name, policy, rules.getIndexingMode(), writeChargePerDocument,
+                writeChargePerDocument * workload.getWriteCount(), deferredIndexCharge,
+                Math.round(indexBytes * scale), queryCharges, unserved, totalQueryCharge);
+    }
+
+    private static String unservedReason(QueryProfile profile, IndexingPolicyRules rules, boolean maintained) {
+        for (IndexRequirement requirement : profile.requirements) {
+            List<String> path = requirement.getPath();
+            if (path.equals(Collections.singletonList("id"))) {
+                continue;
+            }
+            String scalarPath = IndexingPolicyRules.scalarPathOf(path);
+            if (!maintained) {
+                return "the policy does not maintain an index for " + requirement.getUse() + " on " + scalarPath;
+            }
+            switch (requirement.getUse()) {
+            case EQUALITY:
+            case RANGE:
+                IndexKind kind = requirement.getUse() == IndexRequirement.Use.RANGE ? IndexKind.Range : IndexKind.Hash;
+                if (requirement.getDataType() == null) {
+                    if (!rules.isIndexed(path)) {
+                        return scalarPath + " is excluded";
+                    }
+                } else if (!rules.supports(path, requirement.getDataType(), kind)) {
+                    return "needs a " + kind + " index on " + requirement.getDataType() + " at " + scalarPath;
+                }
+                break;
+            case ORDER_BY:
+                Set<DataType> types = profile.orderByTypes.get(path);
+                if (types == null || types.isEmpty()) {
+                    if (!rules.isIndexed(path)) {
+                        return scalarPath + " is excluded";
+                    }
+                }
+                for (DataType type : types == null ? Collections.<DataType>emptySet() : types) {
+                    if (!rules.supports(path, type, IndexKind.Range)) {
+                        return "ORDER BY needs a Range index on " + type + " at " + scalarPath;
+                    }
+                }
+                break;
+            default:
+                if (!rules.isIndexed(path)) {
+                    return scalarPath + " is excluded";
+                }
+                break;
+            }
+        }
+        return null;
+    }
+
+    private static void countTerms(JsonNode node, List<String> path, IndexingPolicyRules rules, TermCount count) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (path.isEmpty() && field.getKey().startsWith("_")) {
+                    continue;
+                }
+                path.add(field.getKey());
+                countTerms(field.getValue(), path, rules, count);
+                path.remove(path.size() - 1);
+            }
+        } else if (node.isArray()) {
+            path.add("[]");
+            for (JsonNode element : node) {
+                countTerms(element, path, rules, count);
+            }
+            path.remove(path.size() - 1);
+        } else if (node.isTextual() || node.isNumber()) {
+            DataType type = node.isTextual() ? DataType.String : DataType.Number;
+            IndexingPolicyRules.IndexSpec index = rules.getIndex(path, type);
+            if (index != null) {
+                count.terms++;
+                count.bytes += TERM_PATH_BYTES + termBytes(node, index);
+            } else if (path.size() == 1 && path.get(0).equals("id")) {
+                count.terms++;
+                count.bytes += TERM_PATH_BYTES + node.asText().length();
+            }
+        } else if (rules.isIndexed(path)) {
+            count.terms++;
+            count.bytes += TERM_PATH_BYTES + 1;
+        }
+    }
+
+    // Hash terms keep precision bytes of the hash; range terms keep the value itself (up
+    // to precision bytes for strings) or a full 8-byte number.
+    private static int termBytes(JsonNode value, IndexingPolicyRules.IndexSpec index) {
+        int precision = index.getPrecision();
+        if (index.getKind() == IndexKind.Hash) {
+            return precision < 0 ? 8 : precision;
+        }
+        if (value.isNumber()) {
+            return precision < 0 ? 8 : Math.min(precision, 8);
+        }
+        int length = value.asText().getBytes(StandardCharsets.UTF_8).length;
+        return precision < 0 ? length : Math.min(precision, length);
+    }
+
+    private static long sizeOf(JsonNode node) {
+        return node.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static IndexingPolicy rangeEverything() {
+        IndexingPolicy policy = new IndexingPolicy();
+        IncludedPath all = new IncludedPath();
+        all.setPath("/*");
+        all.setIndexes(rangeIndexes(EnumSet.of(DataType.String, DataType.Number)));
+        policy.setIncludedPaths(Collections.singletonList(all));
+        return policy;
+    }
+
+    // Excludes everything and includes each path the workload uses, with a Range index for
+    // the types it is range-filtered or sorted on and a Hash index otherwise.
+    private static IndexingPolicy workloadPaths(IndexingWorkload workload, List<JsonNode> samples) {
+        Map<List<String>, Map<DataType, IndexKind>> needed = new LinkedHashMap<>();
+        for (IndexingWorkload.WorkloadQuery query : workload.getQueries()) {
+            QueryProfile profile = new QueryProfile(query, samples, 1);
+            for (IndexRequirement requirement : profile.requirements) {
+                if (requirement.getPath().equals(Collections.singletonList("id"))) {
+                    continue;
+                }
+                Map<DataType, IndexKind> kinds = needed.get(requirement.getPath());
+                if (kinds == null) {
+                    kinds = new LinkedHashMap<>();
+                    needed.put(requirement.getPath(), kinds);
+                }
+                Set<DataType> types = new LinkedHashSet<>();
+                IndexKind kind;
+                if (requirement.getUse() == IndexRequirement.Use.ORDER_BY) {
+                    Set<DataType> observed = profile.orderByTypes.get(requirement.getPath());
+                    types.addAll(observed == null ? Collections.<DataType>emptySet() : observed);
+                    kind = IndexKind.Range;
+                } else if (requirement.getDataType() != null) {
+                    types.add(requirement.getDataType());
+                    kind = requirement.getUse() == IndexRequirement.Use.RANGE ? IndexKind.Range : IndexKind.Hash;
+                } else {
+                    continue;
+                }
+                for (DataType type : types) {
+                    if (kinds.get(type) != IndexKind.Range) {
+                        kinds.put(type, kind);
+                    }
+                }
+            }
+        }
+
+        List<IncludedPath> includedPaths = new ArrayList<>();
+        for (Map.Entry<List<String>, Map<DataType, IndexKind>> path : needed.entrySet()) {
+            IncludedPath included = new IncludedPath();
+            included.setPath(IndexingPolicyRules.scalarPathOf(path.getKey()));
+            List<Index> indexes = new ArrayList<>();
+            for (Map.Entry<DataType, IndexKind> index : path.getValue().entrySet()) {
+                indexes.add(index.getValue() == IndexKind.Range ? new RangeIndex(index.getKey(), -1)
+                        : new HashIndex(index.getKey(), 3));
+            }
+            included.setIndexes(indexes);
+            includedPaths.add(included);
+        }
+        ExcludedPath everything = new ExcludedPath();
+        everything.setPath("/*");
+
+        IndexingPolicy policy = new IndexingPolicy();
+        policy.setIncludedPaths(includedPaths);
+        policy.setExcludedPaths(Collections.singletonList(everything));
+        return policy;
+    }
+
+    private static List<Index> rangeIndexes(Set<DataType> types) {
+        List<Index> indexes = new ArrayList<>();
+        for (DataType type : types) {
+            indexes.add(new RangeIndex(type, -1));
+        }
+        return indexes;
+    }
+
+    private static void valuesAt(JsonNode node, List<String> path, int depth, List<JsonNode> output) {
+        if (node == null || node.isMissingNode()) {
+            return;
+        }
+        if (depth == path.size()) {
+            output.add(node);
+        } else if (path.get(depth).equals("[]")) {
+            if (node.isArray()) {
+                for (JsonNode element : (ArrayNode) node) {
+                    valuesAt(element, path, depth + 1, output);
+                }
+            }
+        } else if (node.isObject()) {
+            valuesAt(((ObjectNode) node).get(path.get(depth)), path, depth + 1, output);
+        }
+    }
+
+    private static final class TermCount {
+        long terms;
+        long bytes;
+    }
+
+    // What a query needs from the index, and what it costs when served, measured by running
+    // it over the sample.
+    private static final class QueryProfile {
+        final String queryText;
+        final long executions;
+        final List<IndexRequirement> requirements;
+        final Map<List<String>, Set<DataType>> orderByTypes = new LinkedHashMap<>();
+        final double charge;
+
+        QueryProfile(IndexingWorkload.WorkloadQuery query, List<JsonNode> samples, double scale) {
+            this.queryText = query.getQueryText();
+            this.executions = query.getExecutions();
+            SqlQuery parsed = SqlQuery.parse(queryText);
+            Map<String, JsonNode> parameters = Collections.emptyMap();
+            this.requirements = IndexRequirement.of(parsed, parameters);
+
+            for (IndexRequirement requirement : requirements) {
+                if (requirement.getUse() != IndexRequirement.Use.ORDER_BY) {
+                    continue;
+                }
+                Set<DataType> types = new LinkedHashSet<>();
+                for (JsonNode sample : samples) {
+                    List<JsonNode> values = new ArrayList<>();
+                    valuesAt(sample, requirement.getPath(), 0, values);
+                    for (JsonNode value : values) {
+                        if (value.isTextual()) {
+                            types.add(DataType.String);
+                        } else if (value.isNumber()) {
+                            types.add(DataType.Number);
+                        }
+                    }
+                }
+                orderByTypes.put(requirement.getPath(), types);
+            }
+
+            long matched = 0;
+            long candidateRows = 0;
+            long outputBytes = 0;
+            for (JsonNode sample : samples) {
+                List<SqlQuery.Row> rows = new ArrayList<>();
+                candidateRows += parsed.evaluate(sample, parameters, rows);
+                if (!rows.isEmpty()) {
+                    matched++;
+                }
+                for (SqlQuery.Row row : rows) {
+                    outputBytes += sizeOf(row.getValue());
+                }
+            }
+            // A filter matching at most one sample document is taken to select on a unique
+            // value, so it does not grow with the collection the way the sample fraction would.
+            boolean filtered = parsed.getWhere() != null && !requirements.isEmpty();
+            double resultScale = filtered && matched <= 1 ? 1 : scale;
+            double loaded = filtered ? matched * resultScale : samples.size() * scale;
+            double output = outputBytes * resultScale;
+            double rowsConsidered = filtered ? 0 : candidateRows * scale;
+            if (parsed.getTop() != null && matched > 0) {
+                // The index hands back documents in order, so TOP stops after that many.
+                double kept = Math.min(1, parsed.getTop() / (matched * resultScale));
+                loaded = Math.min(loaded, parsed.getTop());
+                output *= kept;
+                rowsConsidered *= kept;
+            }
+            this.charge = QUERY_BASE_CHARGE + INDEX_LOOKUP_CHARGE * requirements.size()
+                    + DOCUMENT_LOAD_CHARGE * loaded + CANDIDATE_ROW_CHARGE * rowsConsidered
+                    + OUTPUT_CHARGE_PER_KB * output / 1024;
+        }
+    }
+}
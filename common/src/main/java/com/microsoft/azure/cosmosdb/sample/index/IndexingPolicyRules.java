@@ -0,0 +1,269 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.cosmosdb.DataType;
+import com.microsoft.azure.cosmosdb.IndexKind;
+import com.microsoft.azure.cosmosdb.IndexingMode;
+import com.microsoft.azure.cosmosdb.IndexingPolicy;
+
+// An IndexingPolicy resolved into rules that answer "which indexes cover this path".
+//
+// Document paths are lists of property names, with "[]" standing for "any element of
+// this array", so /companies/[]/companyName/? is ["companies", "[]", "companyName"].
+// A path is governed by the most specific included or excluded path that matches it
+// (an exact "/a/b/?" beats a "/a/*" subtree, which beats "/*"); on a tie the exclusion
+// wins. Included paths that list no indexes get the service defaults: Hash on strings
+// (precision 3) and Range on numbers (precision -1).
+public final class IndexingPolicyRules {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final List<String> ID_PATH = Collections.singletonList("id");
+
+    private final boolean automatic;
+    private final IndexingMode indexingMode;
+    private final List<Rule> rules;
+
+    private IndexingPolicyRules(boolean automatic, IndexingMode indexingMode, List<Rule> rules) {
+        this.automatic = automatic;
+        this.indexingMode = indexingMode;
+        this.rules = rules;
+    }
+
+    public static IndexingPolicyRules of(IndexingPolicy policy) {
+        JsonNode json;
+        try {
+            json = mapper.readTree(policy.toJson());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        boolean automatic = !json.has("automatic") || json.get("automatic").asBoolean(true);
+        IndexingMode indexingMode = IndexingMode.Consistent;
+        if (json.hasNonNull("indexingMode")) {
+            for (IndexingMode mode : IndexingMode.values()) {
+                if (mode.name().equalsIgnoreCase(json.get("indexingMode").asText())) {
+                    indexingMode = mode;
+                }
+            }
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        JsonNode includedPaths = json.path("includedPaths");
+        if (includedPaths.size() == 0) {
+            rules.add(new Rule("/*", false, defaultIndexes()));
+        }
+        for (JsonNode includedPath : includedPaths) {
+            Map<DataType, IndexSpec> indexes = new EnumMap<>(DataType.class);
+            for (JsonNode index : includedPath.path("indexes")) {
+                DataType dataType = dataTypeOf(index.path("dataType").asText());
+                IndexKind kind = kindOf(index.path("kind").asText());
+                if (dataType != null && kind != null) {
+                    int precision = index.path("precision").asInt(kind == IndexKind.Hash ? 3 : -1);
+                    indexes.put(dataType, new IndexSpec(kind, precision));
+                }
+            }
+            rules.add(new Rule(includedPath.path("path").asText(), false,
+                    indexes.isEmpty() ? defaultIndexes() : indexes));
+        }
+        for (JsonNode excludedPath : json.path("excludedPaths")) {
+            rules.add(new Rule(excludedPath.path("path").asText(), true, null));
+        }
+        return new IndexingPolicyRules(automatic, indexingMode, rules);
+    }
+
+    public boolean isAutomatic() {
+        return automatic;
+    }
+
+    public IndexingMode getIndexingMode() {
+        return indexingMode;
+    }
+
+    // Whether the index covers the path at all (for any data type, and for booleans and nulls).
+    public boolean isIndexed(List<String> path) {
+        if (indexingMode == IndexingMode.None) {
+            return false;
+        }
+        Rule rule = governingRule(path);
+        return rule != null && !rule.excluded;
+    }
+
+    // The index kept for values of the given type at the path, or null if there is none.
+    public IndexSpec getIndex(List<String> path, DataType dataType) {
+        if (indexingMode == IndexingMode.None) {
+            return null;
+        }
+        Rule rule = governingRule(path);
+        return rule == null || rule.excluded ? null : rule.indexes.get(dataType);
+    }
+
+    // Equality needs a Hash or Range index, range comparisons and ORDER BY need Range. The
+    // id is always served.
+    public boolean supports(List<String> path, DataType dataType, IndexKind kind) {
+        if (path.equals(ID_PATH)) {
+            return true;
+        }
+        IndexSpec index = getIndex(path, dataType);
+        return index != null && (kind == IndexKind.Hash || index.getKind() == kind);
+    }
+
+    // Why the index cannot serve the requirement without a scan, or null if it can. Without
+    // a known data type any index at the path will do; ORDER BY needs a Range index on
+    // strings or numbers.
+    public String unservedReason(IndexRequirement requirement) {
+        List<String> path = requirement.getPath();
+        if (path.equals(ID_PATH)) {
+            return null;
+        }
+        String scalarPath = scalarPathOf(path);
+        if (!isIndexed(path)) {
+            return scalarPath + " is excluded";
+        }
+        switch (requirement.getUse()) {
+        case EQUALITY:
+        case RANGE:
+            IndexKind kind = requirement.getUse() == IndexRequirement.Use.RANGE ? IndexKind.Range : IndexKind.Hash;
+            if (requirement.getDataType() != null && !supports(path, requirement.getDataType(), kind)) {
+                return "needs a " + kind + " index on " + requirement.getDataType() + " at " + scalarPath;
+            }
+            return null;
+        case ORDER_BY:
+            if (!supports(path, DataType.String, IndexKind.Range) && !supports(path, DataType.Number, IndexKind.Range)) {
+                return "ORDER BY needs a Range index at " + scalarPath;
+            }
+            return null;
+        default:
+            return null;
+        }
+    }
+
+    private Rule governingRule(List<String> path) {
+        Rule best = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path) && (best == null || rule.specificity > best.specificity
+                    || (rule.specificity == best.specificity && rule.excluded))) {
+                best = rule;
+            }
+        }
+        return best;
+    }
+
+    private static Map<DataType, IndexSpec> defaultIndexes() {
+        Map<DataType, IndexSpec> indexes = new EnumMap<>(DataType.class);
+        indexes.put(DataType.String, new IndexSpec(IndexKind.Hash, 3));
+        indexes.put(DataType.Number, new IndexSpec(IndexKind.Range, -1));
+        return indexes;
+    }
+
+    private static DataType dataTypeOf(String name) {
+        for (DataType dataType : DataType.values()) {
+            if (dataType.name().equalsIgnoreCase(name)) {
+                return dataType;
+            }
+        }
+        return null;
+    }
+
+    private static IndexKind kindOf(String name) {
+        for (IndexKind kind : IndexKind.values()) {
+            if (kind.name().equalsIgnoreCase(name)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    // "/a/b/?" -> ["a", "b"]; the trailing "?" or "*" is not part of the segments.
+    public static List<String> segmentsOf(String policyPath) {
+        List<String> segments = new ArrayList<>(Arrays.asList(policyPath.split("/")));
+        segments.removeIf(String::isEmpty);
+        if (!segments.isEmpty()) {
+            String last = segments.get(segments.size() - 1);
+            if (last.equals("?") || last.equals("*")) {
+                segments.remove(segments.size() - 1);
+            }
+        }
+        return segments;
+    }
+
+    // ["a", "[]", "b"] -> "/a/[]/b/?"
+    public static String scalarPathOf(List<String> segments) {
+        StringBuilder path = new StringBuilder();
+        for (String segment : segments) {
+            path.append('/').append(segment);
+        }
+        return path.append("/?").toString();
+    }
+
+    public static final class IndexSpec {
+        private final IndexKind kind;
+        private final int precision;
+
+        IndexSpec(IndexKind kind, int precision) {
+            this.kind = kind;
+            this.precision = precision;
+        }
+
+        public IndexKind getKind() {
+            return kind;
+        }
+
+        // -1 for maximum precision.
+        public int getPrecision() {
+            return precision;
+        }
+    }
+
+    private static final class Rule {
+        final List<String> segments;
+        final boolean exact;
+        final boolean excluded;
+        final Map<DataType, IndexSpec> indexes;
+        final int specificity;
+
+        Rule(String path, boolean excluded, Map<DataType, IndexSpec> indexes) {
+            this.segments = segmentsOf(path);
+            this.exact = path.endsWith("?");
+            this.excluded = excluded;
+            this.indexes = indexes;
+            this.specificity = segments.size() * 2 + (exact ? 1 : 0);
+        }
+
+        boolean matches(List<String> path) {
+            if (exact) {
+                return path.equals(segments);
+            }
+            return path.size() >= segments.size() && path.subList(0, segments.size()).equals(segments);
+        }
+    }
+}
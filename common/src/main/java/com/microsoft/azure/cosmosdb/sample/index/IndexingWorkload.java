@@ -0,0 +1,100 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The queries an application runs against a collection, each with how often it ran, and
+// the number of documents written over the same period.
+public class IndexingWorkload {
+    private final List<WorkloadQuery> queries = new ArrayList<>();
+    private long writeCount;
+
+    // One query per line, optionally prefixed by its execution count and a tab:
+    //
+    //     # comments and blank lines are ignored
+    //     1200	SELECT * FROM c WHERE c.name = 'Dorothy Romero'
+    //     SELECT f.id FROM customers f JOIN c IN f.companies
+    public static IndexingWorkload fromFile(Path file) throws IOException {
+        IndexingWorkload workload = new IndexingWorkload();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            int tab = trimmed.indexOf('\t');
+            if (tab > 0 && trimmed.substring(0, tab).trim().matches("\\d+")) {
+                workload.addQuery(trimmed.substring(tab + 1).trim(), Long.parseLong(trimmed.substring(0, tab).trim()));
+            } else {
+                workload.addQuery(trimmed, 1);
+            }
+        }
+        return workload;
+    }
+
+    public void addQuery(String queryText, long executions) {
+        if (executions < 0) {
+            throw new IllegalArgumentException("executions must not be negative");
+        }
+        queries.add(new WorkloadQuery(queryText, executions));
+    }
+
+    public List<WorkloadQuery> getQueries() {
+        return Collections.unmodifiableList(queries);
+    }
+
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    public void setWriteCount(long writeCount) {
+        if (writeCount < 0) {
+            throw new IllegalArgumentException("writeCount must not be negative");
+        }
+        this.writeCount = writeCount;
+    }
+
+    public static final class WorkloadQuery {
+        private final String queryText;
+        private final long executions;
+
+        WorkloadQuery(String queryText, long executions) {
+            this.queryText = queryText;
+            this.executions = executions;
+        }
+
+        public String getQueryText() {
+            return queryText;
+        }
+
+        public long getExecutions() {
+            return executions;
+        }
+    }
+}
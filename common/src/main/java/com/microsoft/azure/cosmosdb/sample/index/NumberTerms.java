@@ -0,0 +1,182 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// The number values indexed at one path, as (value, document ordinal) pairs in parallel
+// primitive arrays. The front of the arrays is sorted by value and searched with a binary
+// search; recent additions are appended unsorted and checked one by one until there are
+// enough of them to be worth sorting and merging into the front. Entries of removed
+// documents are skipped through the live set and dropped at the next merge.
+final class NumberTerms {
+    private static final int MIN_PENDING = 256;
+
+    private double[] values = new double[16];
+    private int[] ordinals = new int[16];
+    private int sorted;
+    private int size;
+
+    void add(double value, int ordinal, BitSet live) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+        }
+        values[size] = value;
+        ordinals[size] = ordinal;
+        size++;
+        if (size - sorted > Math.max(MIN_PENDING, sorted >>> 3)) {
+            merge(live);
+        }
+    }
+
+    // Adds the ordinals of the values between low and high to output and returns how many
+    // entries matched. Values compare like JsonValues.compare compares numbers.
+    int collect(double low, boolean lowInclusive, double high, boolean highInclusive, BitSet output) {
+        int matched = 0;
+        for (int i = lowerBound(low, lowInclusive); i < sorted && below(values[i], high, highInclusive); i++) {
+            output.set(ordinals[i]);
+            matched++;
+        }
+        for (int i = sorted; i < size; i++) {
+            if (above(values[i], low, lowInclusive) && below(values[i], high, highInclusive)) {
+                output.set(ordinals[i]);
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private int lowerBound(double low, boolean inclusive) {
+        int from = 0;
+        int to = sorted;
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (above(values[middle], low, inclusive)) {
+                to = middle;
+            } else {
+                from = middle + 1;
+            }
+        }
+        return from;
+    }
+
+    private static boolean above(double value, double low, boolean inclusive) {
+        int order = Double.compare(value, low);
+        return inclusive ? order >= 0 : order > 0;
+    }
+
+    private static boolean below(double value, double high, boolean inclusive) {
+        int order = Double.compare(value, high);
+        return inclusive ? order <= 0 : order < 0;
+    }
+
+    // Drops the entries of documents the index dropped when it was compacted (a negative
+    // renumbered ordinal) and moves the others to their new ordinals, keeping their order.
+    void renumber(int[] renumbered) {
+        int count = 0;
+        int sortedCount = 0;
+        for (int i = 0; i < size; i++) {
+            int ordinal = renumbered[ordinals[i]];
+            if (ordinal >= 0) {
+                values[count] = values[i];
+                ordinals[count] = ordinal;
+                count++;
+            }
+            if (i + 1 == sorted) {
+                sortedCount = count;
+            }
+        }
+        sorted = sortedCount;
+        size = count;
+        if (size < values.length / 4 && values.length > 16) {
+            values = Arrays.copyOf(values, Math.max(16, size * 2));
+            ordinals = Arrays.copyOf(ordinals, values.length);
+        }
+    }
+
+    private void merge(BitSet live) {
+        sortPending();
+        int capacity = Math.max(16, size + (size >>> 1));
+        double[] mergedValues = new double[capacity];
+        int[] mergedOrdinals = new int[capacity];
+        int count = 0;
+        int left = 0;
+        int right = sorted;
+        while (left < sorted || right < size) {
+            int next = right == size || (left < sorted && Double.compare(values[left], values[right]) <= 0)
+                    ? left++ : right++;
+            if (live.get(ordinals[next])) {
+                mergedValues[count] = values[next];
+                mergedOrdinals[count] = ordinals[next];
+                count++;
+            }
+        }
+        values = mergedValues;
+        ordinals = mergedOrdinals;
+        sorted = size = count;
+    }
+
+    // Heap sort of the unsorted tail, in place and without boxing.
+    private void sortPending() {
+        int count = size - sorted;
+        for (int node = count / 2 - 1; node >= 0; node--) {
+            siftDown(node, count);
+        }
+        for (int end = count - 1; end > 0; end--) {
+            swap(sorted, sorted + end);
+            siftDown(0, end);
+        }
+    }
+
+    private void siftDown(int node, int count) {
+        while (true) {
+            int child = 2 * node + 1;
+            if (child >= count) {
+                return;
+            }
+            if (child + 1 < count && Double.compare(values[sorted + child + 1], values[sorted + child]) > 0) {
+                child++;
+            }
+            if (Double.compare(values[sorted + node], values[sorted + child]) >= 0) {
+                return;
+            }
+            swap(sorted + node, sorted + child);
+            node = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        int ordinal = ordinals[i];
+        ordinals[i] = ordinals[j];
+        ordinals[j] = ordinal;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.microsoft.azure.cosmosdb.IndexingMode;
+import com.microsoft.azure.cosmosdb.IndexingPolicy;
+
+// What one candidate policy costs on the workload. Request charges are estimates from
+// the advisor's cost model, scaled to the collection size; they are meant for comparing
+// policies with each other, not for predicting the bill to the cent.
+public class PolicyEvaluation {
+    private final String name;
+    private final IndexingPolicy policy;
+    private final IndexingMode indexingMode;
+    private final double writeChargePerDocument;
+    private final double totalWriteCharge;
+    private final double deferredIndexCharge;
+    private final long indexBytes;
+    private final Map<String, Double> queryCharges;
+    private final Map<String, String> unservedQueries;
+    private final double totalQueryCharge;
+
+    PolicyEvaluation(String name, IndexingPolicy policy, IndexingMode indexingMode, double writeChargePerDocument,
+            double totalWriteCharge, double deferredIndexCharge, long indexBytes, Map<String, Double> queryCharges,
+            Map<String, String> unservedQueries, double totalQueryCharge) {
+        this.name = name;
+        this.policy = policy;
+        this.indexingMode = indexingMode;
+        this.writeChargePerDocument = writeChargePerDocument;
+        this.totalWriteCharge = totalWriteCharge;
+        this.deferredIndexCharge = deferredIndexCharge;
+        this.indexBytes = indexBytes;
+        this.queryCharges = Collections.unmodifiableMap(new LinkedHashMap<>(queryCharges));
+        this.unservedQueries = Collections.unmodifiableMap(new LinkedHashMap<>(unservedQueries));
+        this.totalQueryCharge = totalQueryCharge;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public IndexingPolicy getPolicy() {
+        return policy;
+    }
+
+    public IndexingMode getIndexingMode() {
+        return indexingMode;
+    }
+
+    // Average RU to write one of the sample documents.
+    public double getWriteChargePerDocument() {
+        return writeChargePerDocument;
+    }
+
+    public double getTotalWriteCharge() {
+        return totalWriteCharge;
+    }
+
+    // With lazy indexing the index is maintained in the background from spare throughput
+    // rather than charged to the writes; this is that background cost.
+    public double getDeferredIndexCharge() {
+        return deferredIndexCharge;
+    }
+
+    // Estimated size of the index for the whole collection.
+    public long getIndexBytes() {
+        return indexBytes;
+    }
+
+    // RU of one execution of each served query, by query text.
+    public Map<String, Double> getQueryCharges() {
+        return queryCharges;
+    }
+
+    // Why each query the policy cannot serve without a scan fails, by query text.
+    public Map<String, String> getUnservedQueries() {
+        return unservedQueries;
+    }
+
+    public double getTotalQueryCharge() {
+        return totalQueryCharge;
+    }
+
+    public double getTotalCharge() {
+        return totalWriteCharge + totalQueryCharge;
+    }
+
+    public boolean servesAllQueries() {
+        return unservedQueries.isEmpty();
+    }
+
+    // Lazy indexing serves queries from an index that may lag behind recent writes.
+    public boolean isEventuallyConsistent() {
+        return indexingMode == IndexingMode.Lazy;
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// The string values indexed at one path; laid out and maintained like NumberTerms, with
+// the values in a String array ordered like JsonValues.compare orders strings. Besides
+// ranges it answers prefix lookups for STARTSWITH.
+final class StringTerms {
+    private static final int MIN_PENDING = 256;
+
+    private String[] values = new String[16];
+    private int[] ordinals = new int[16];
+    private int sorted;
+    private int size;
+
+    void add(String value, int ordinal, BitSet live) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+        }
+        values[size] = value;
+        ordinals[size] = ordinal;
+        size++;
+        if (size - sorted > Math.max(MIN_PENDING, sorted >>> 3)) {
+            merge(live);
+        }
+    }
+
+    // A null bound is unbounded.
+    int collect(String low, boolean lowInclusive, String high, boolean highInclusive, BitSet output) {
+        int matched = 0;
+        int first = low == null ? 0 : lowerBound(low, lowInclusive);
+        for (int i = first; i < sorted && below(values[i], high, highInclusive); i++) {
+            output.set(ordinals[i]);
+            matched++;
+        }
+        for (int i = sorted; i < size; i++) {
+            if (above(values[i], low, lowInclusive) && below(values[i], high, highInclusive)) {
+                output.set(ordinals[i]);
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    int collectPrefix(String prefix, BitSet output) {
+        int matched = 0;
+        for (int i = lowerBound(prefix, true); i < sorted && values[i].startsWith(prefix); i++) {
+            output.set(ordinals[i]);
+            matched++;
+        }
+        for (int i = sorted; i < size; i++) {
+            if (values[i].startsWith(prefix)) {
+                output.set(ordinals[i]);
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private int lowerBound(String low, boolean inclusive) {
+        int from = 0;
+        int to = sorted;
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (above(values[middle], low, inclusive)) {
+                to = middle;
+            } else {
+                from = middle + 1;
+            }
+        }
+        return from;
+    }
+
+    private static boolean above(String value, String low, boolean inclusive) {
+        if (low == null) {
+            return true;
+        }
+        int order = value.compareTo(low);
+        return inclusive ? order >= 0 : order > 0;
+    }
+
+    private static boolean below(String value, String high, boolean inclusive) {
+        if (high == null) {
+            return true;
+        }
+        int order = value.compareTo(high);
+        return inclusive ? order <= 0 : order < 0;
+    }
+
+    void renumber(int[] renumbered) {
+        int count = 0;
+        int sortedCount = 0;
+        for (int i = 0; i < size; i++) {
+            int ordinal = renumbered[ordinals[i]];
+            if (ordinal >= 0) {
+                values[count] = values[i];
+                ordinals[count] = ordinal;
+                count++;
+            }
+            if (i + 1 == sorted) {
+                sortedCount = count;
+            }
+        }
+        Arrays.fill(values, count, size, null);
+        sorted = sortedCount;
+        size = count;
+        if (size < values.length / 4 && values.length > 16) {
+            values = Arrays.copyOf(values, Math.max(16, size * 2));
+            ordinals = Arrays.copyOf(ordinals, values.length);
+        }
+    }
+
+    private void merge(BitSet live) {
+        sortPending();
+        int capacity = Math.max(16, size + (size >>> 1));
+        String[] mergedValues = new String[capacity];
+        int[] mergedOrdinals = new int[capacity];
+        int count = 0;
+        int left = 0;
+        int right = sorted;
+        while (left < sorted || right < size) {
+            int next = right == size || (left < sorted && values[left].compareTo(values[right]) <= 0)
+                    ? left++ : right++;
+            if (live.get(ordinals[next])) {
+                mergedValues[count] = values[next];
+                mergedOrdinals[count] = ordinals[next];
+                count++;
+            }
+        }
+        values = mergedValues;
+        ordinals = mergedOrdinals;
+        sorted = size = count;
+    }
+
+    private void sortPending() {
+        int count = size - sorted;
+        for (int node = count / 2 - 1; node >= 0; node--) {
+            siftDown(node, count);
+        }
+        for (int end = count - 1; end > 0; end--) {
+            swap(sorted, sorted + end);
+            siftDown(0, end);
+        }
+    }
+
+    private void siftDown(int node, int count) {
+        while (true) {
+            int child = 2 * node + 1;
+            if (child >= count) {
+                return;
+            }
+            if (child + 1 < count && values[sorted + child + 1].compareTo(values[sorted + child]) > 0) {
+                child++;
+            }
+            if (values[sorted + node].compareTo(values[sorted + child]) >= 0) {
+                return;
+            }
+            swap(sorted + node, sorted + child);
+            node = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        String value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        int ordinal = ordinals[i];
+        ordinals[i] = ordinals[j];
+        ordinals[j] = ordinal;
+    }
+
+    int size() {
+        return size;
+    }
+}
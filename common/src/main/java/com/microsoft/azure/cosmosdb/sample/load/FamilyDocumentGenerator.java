@@ -0,0 +1,122 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.load;
+
+import java.util.Random;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.Document;
+
+// Synthetic family documents shaped like the samples in Data/*.json: a FamilyId, a last
+// name, one or two parents, up to three children with a gender, grade and pets, an address
+// and a registration flag. Values are drawn from small fixed vocabularies, so queries on
+// them (see FamilyWorkload) match a predictable share of the documents. The same seed
+// produces the same documents.
+public class FamilyDocumentGenerator {
+    static final int FAMILY_ID_RANGE = 10000;
+    static final int GRADE_RANGE = 12;
+
+    private static final String[] LAST_NAMES = { "Andersen", "Wakefield", "Miller", "Johnson", "Smith", "Garcia",
+            "Nguyen", "Kowalski", "Okafor", "Tanaka", "Larsen", "Dubois", "Rossi", "Novak", "Silva", "Cohen" };
+    private static final String[] FIRST_NAMES = { "Thomas", "Mary Kay", "Robin", "Ben", "Jesse", "Lisa", "Henriette",
+            "Michelle", "John", "Maria", "Ahmed", "Yuki", "Olga", "Pierre", "Ana", "Noah", "Emma", "Liam" };
+    private static final String[] PET_NAMES = { "Fluffy", "Goofy", "Shadow", "Jake", "Rex", "Mittens", "Bubbles",
+            "Max", "Luna", "Coco" };
+    private static final String[][] ADDRESSES = { { "WA", "King", "Seattle" }, { "NY", "Manhattan", "NY" },
+            { "CA", "Los Angeles", "Los Angeles" }, { "TX", "Travis", "Austin" }, { "IL", "Cook", "Chicago" },
+            { "FL", "Miami-Dade", "Miami" }, { "OR", "Multnomah", "Portland" }, { "MA", "Suffolk", "Boston" } };
+
+    private final Random random;
+
+    public FamilyDocumentGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public Document next() {
+        return new Document(nextJson().toString());
+    }
+
+    public ObjectNode nextJson() {
+        ObjectNode family = JsonNodeFactory.instance.objectNode();
+        family.put("id", new UUID(random.nextLong(), random.nextLong()).toString());
+        family.put("FamilyId", random.nextInt(FAMILY_ID_RANGE));
+        String lastName = pick(LAST_NAMES);
+        family.put("LastName", lastName);
+
+        ArrayNode parents = family.putArray("Parents");
+        for (int i = 1 + random.nextInt(2); i > 0; i--) {
+            ObjectNode parent = parents.addObject();
+            parent.set("FamilyName", random.nextInt(4) == 0 ? JsonNodeFactory.instance.textNode(pick(LAST_NAMES))
+                    : JsonNodeFactory.instance.nullNode());
+            parent.put("FirstName", pick(FIRST_NAMES));
+        }
+
+        ArrayNode children = family.putArray("Children");
+        for (int i = random.nextInt(4); i > 0; i--) {
+            ObjectNode child = children.addObject();
+            child.putNull("FamilyName");
+            child.put("FirstName", pick(FIRST_NAMES));
+            child.put("Gender", random.nextBoolean() ? "female" : "male");
+            child.put("Grade", random.nextInt(GRADE_RANGE));
+            ArrayNode pets = child.putArray("Pets");
+            for (int j = random.nextInt(3); j > 0; j--) {
+                pets.addObject().put("GivenName", pick(PET_NAMES));
+            }
+        }
+
+        String[] address = ADDRESSES[random.nextInt(ADDRESSES.length)];
+        ObjectNode addressNode = family.putObject("Address");
+        addressNode.put("State", address[0]);
+        addressNode.put("County", address[1]);
+        addressNode.put("City", address[2]);
+        family.put("IsRegistered", random.nextBoolean());
+        return family;
+    }
+
+    public String randomLastName() {
+        return pick(LAST_NAMES);
+    }
+
+    public String randomState() {
+        return ADDRESSES[random.nextInt(ADDRESSES.length)][0];
+    }
+
+    public String randomPetName() {
+        return pick(PET_NAMES);
+    }
+
+    public int randomGrade() {
+        return random.nextInt(GRADE_RANGE);
+    }
+
+    public int randomFamilyId() {
+        return random.nextInt(FAMILY_ID_RANGE);
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.load;
+
+import java.util.Arrays;
+
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.SqlParameter;
+import com.microsoft.azure.cosmosdb.SqlParameterCollection;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+
+import rx.Observable;
+
+// The operations of the exercises, against a collection of family documents: the one
+// filter, two filter, range, single join and double join queries of view-request-charges,
+// the document creates of index-management and the SimpleScript execution of
+// server-side-scripts. Query values are drawn from the generator's vocabularies, so every
+// execution asks for something different but equally selective.
+public class FamilyWorkload {
+    public static final String QUERY_ONE_FILTER = "one-filter";
+    public static final String QUERY_TWO_FILTERS = "two-filters";
+    public static final String QUERY_RANGE = "range";
+    public static final String QUERY_SINGLE_JOIN = "single-join";
+    public static final String QUERY_DOUBLE_JOIN = "double-join";
+    public static final String CREATE_DOCUMENT = "create";
+    public static final String EXECUTE_SCRIPT = "script";
+
+    private static final int RANGE_WIDTH = 100;
+
+    private final DocumentStore store;
+    private final String collectionLink;
+    private final FamilyDocumentGenerator generator;
+    private final FeedOptions queryOptions = new FeedOptions();
+
+    public FamilyWorkload(DocumentStore store, String collectionLink, FamilyDocumentGenerator generator) {
+        this.store = store;
+        this.collectionLink = collectionLink;
+        this.generator = generator;
+        queryOptions.setMaxItemCount(100);
+        queryOptions.setEnableCrossPartitionQuery(true);
+    }
+
+    // The operation with the given name (one of the constants above); scriptLink is only
+    // needed for EXECUTE_SCRIPT.
+    public LoadOperation operation(String name, String scriptLink) {
+        switch (name) {
+        case QUERY_ONE_FILTER:
+            return () -> query("SELECT * FROM Families f WHERE f.LastName = @lastName",
+                    new SqlParameter("@lastName", generator.randomLastName()));
+        case QUERY_TWO_FILTERS:
+            return () -> query("SELECT * FROM Families f WHERE f.LastName = @lastName AND f.Address.State = @state",
+                    new SqlParameter("@lastName", generator.randomLastName()),
+                    new SqlParameter("@state", generator.randomState()));
+        case QUERY_RANGE:
+            return () -> {
+                int from = generator.randomFamilyId();
+                return query("SELECT * FROM Families f WHERE f.FamilyId >= @from AND f.FamilyId < @to",
+                        new SqlParameter("@from", from), new SqlParameter("@to", from + RANGE_WIDTH));
+            };
+        case QUERY_SINGLE_JOIN:
+            return () -> query("SELECT f.id, c.FirstName FROM Families f JOIN c IN f.Children WHERE c.Grade = @grade",
+                    new SqlParameter("@grade", generator.randomGrade()));
+        case QUERY_DOUBLE_JOIN:
+            return () -> query("SELECT f.id, c.FirstName, p.GivenName FROM Families f JOIN c IN f.Children "
+                    + "JOIN p IN c.Pets WHERE p.GivenName = @pet", new SqlParameter("@pet", generator.randomPetName()));
+        case CREATE_DOCUMENT:
+            return () -> Observable.defer(() -> store.createDocument(collectionLink, generator.next(), null))
+                    .map(response -> response.getRequestCharge());
+        case EXECUTE_SCRIPT:
+            if (scriptLink == null) {
+                throw new IllegalArgumentException("The " + EXECUTE_SCRIPT + " operation needs a stored procedure link");
+            }
+            return () -> store.executeStoredProcedure(scriptLink, null, new Object[] { "Hello, " })
+                    .map(response -> response.getRequestCharge());
+        default:
+            throw new IllegalArgumentException("Unknown operation " + name + "; expected one of "
+                    + Arrays.asList(QUERY_ONE_FILTER, QUERY_TWO_FILTERS, QUERY_RANGE, QUERY_SINGLE_JOIN,
+                            QUERY_DOUBLE_JOIN, CREATE_DOCUMENT, EXECUTE_SCRIPT));
+        }
+    }
+
+    private Observable<Double> query(String queryText, SqlParameter... parameters) {
+        SqlQuerySpec querySpec = new SqlQuerySpec(queryText, new SqlParameterCollection(parameters));
+        return store.queryDocuments(collectionLink, querySpec, queryOptions).map(page -> page.getRequestCharge());
+    }
+}
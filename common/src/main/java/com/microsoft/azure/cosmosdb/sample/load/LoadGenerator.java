@@ -0,0 +1,135 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.schedulers.Schedulers;
+
+// Drives a weighted mix of operations at a fixed rate. The schedule is open loop: the i-th
+// operation is due at start + i / rate whether or not earlier ones have finished, and its
+// latency is measured from that due time. A closed loop that waits for responses before
+// sending more would slow down exactly when the collection does and hide the queueing
+// that users would see (coordinated omission).
+//
+// Operations are subscribed to on I/O threads, so a store that answers on the calling
+// thread does not hold up the schedule. Throttled operations are not retried; they are
+// counted, since a 429 at the target rate means the collection needs more throughput.
+public class LoadGenerator {
+    private static final long LATE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LoadOptions options;
+    private final List<LoadOperation> operations = new ArrayList<>();
+    private final List<LoadOperationStats> stats = new ArrayList<>();
+    private double totalWeight;
+
+    public LoadGenerator(LoadOptions options) {
+        this.options = options;
+    }
+
+    // weight is the operation's share of the mix relative to the others.
+    public void addOperation(String name, double weight, LoadOperation operation) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+        operations.add(operation);
+        stats.add(new LoadOperationStats(name, weight));
+        totalWeight += weight;
+    }
+
+    // Blocks for the duration of the run and until every operation sent has finished.
+    public LoadReport run() throws InterruptedException {
+        if (operations.isEmpty()) {
+            throw new IllegalStateException("No operations to run");
+        }
+        Random random = new Random(options.getSeed());
+        Semaphore outstanding = new Semaphore(options.getMaxOutstandingOperations());
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getTargetOperationsPerSecond();
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+        long scheduled = 0;
+        long late = 0;
+
+        for (long i = 0;; i++) {
+            long dueNanos = startNanos + (long) (i * intervalNanos);
+            if (dueNanos >= endNanos) {
+                break;
+            }
+            long waitNanos;
+            while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            outstanding.acquire();
+            int index = pick(random.nextDouble() * totalWeight);
+            boolean measured = dueNanos >= measureFromNanos;
+            long sentNanos = System.nanoTime();
+            if (measured) {
+                scheduled++;
+                if (sentNanos - dueNanos > LATE_NANOS) {
+                    late++;
+                }
+            }
+            send(operations.get(index), measured ? stats.get(index) : null, dueNanos, sentNanos, outstanding);
+        }
+        outstanding.acquire(options.getMaxOutstandingOperations());
+        return new LoadReport(options.getTargetOperationsPerSecond(), options.getDurationSeconds(), scheduled, late,
+                new ArrayList<>(stats));
+    }
+
+    private static void send(LoadOperation operation, LoadOperationStats stats, long dueNanos, long sentNanos,
+            Semaphore outstanding) {
+        double[] charge = new double[1];
+        operation.execute()
+                .subscribeOn(Schedulers.io())
+                .subscribe(requestCharge -> charge[0] += requestCharge, error -> {
+                    if (stats != null) {
+                        stats.onError(Throttling.isThrottled(error));
+                    }
+                    outstanding.release();
+                }, () -> {
+                    if (stats != null) {
+                        stats.onSuccess(charge[0], dueNanos, sentNanos, System.nanoTime());
+                    }
+                    outstanding.release();
+                });
+    }
+
+    private int pick(double point) {
+        double cumulative = 0;
+        for (int i = 0; i < stats.size(); i++) {
+            cumulative += stats.get(i).getWeight();
+            if (point < cumulative) {
+                return i;
+            }
+        }
+        return stats.size() - 1;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.load;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.microsoft.azure.cosmosdb.sample.telemetry.HistogramSummary;
+import com.microsoft.azure.cosmosdb.sample.telemetry.LogLinearHistogram;
+
+// What one operation type did during the measured part of a run. Latency is measured from
+// the moment the schedule said the operation should start, so time spent queued behind
+// slow operations counts; service time is measured from when it was actually sent.
+public class LoadOperationStats {
+    private final String name;
+    private final double weight;
+    private final LogLinearHistogram latencyMillis = new LogLinearHistogram(0.01);
+    private final LogLinearHistogram serviceMillis = new LogLinearHistogram(0.01);
+    private final LogLinearHistogram requestCharge = new LogLinearHistogram(0.01);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    LoadOperationStats(String name, double weight) {
+        this.name = name;
+        this.weight = weight;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public HistogramSummary getLatencyMillis() {
+        return latencyMillis.summarize();
+    }
+
+    public HistogramSummary getServiceMillis() {
+        return serviceMillis.summarize();
+    }
+
+    // RU per successful operation, summed over all of its requests.
+    public HistogramSummary getRequestCharge() {
+        return requestCharge.summarize();
+    }
+
+    public long getSuccessCount() {
+        return latencyMillis.getCount();
+    }
+
+    // Failed operations, throttled ones included.
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    void onSuccess(double charge, long scheduledNanos, long sentNanos, long completedNanos) {
+        latencyMillis.record((completedNanos - scheduledNanos) / 1e6);
+        serviceMillis.record((completedNanos - sentNanos) / 1e6);
+        requestCharge.record(charge);
+    }
+
+    void onError(boolean wasThrottled) {
+        errors.increment();
+        if (wasThrottled) {
+            throttled.increment();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.load;
+
+public class LoadOptions {
+    private double targetOperationsPerSecond = 100;
+    private long durationSeconds = 60;
+    private long warmupSeconds = 5;
+    private int maxOutstandingOperations = 1000;
+    private long seed = 1;
+
+    // Operations are started on a fixed schedule at this rate, however long earlier ones take.
+    public double getTargetOperationsPerSecond() {
+        return targetOperationsPerSecond;
+    }
+
+    public void setTargetOperationsPerSecond(double targetOperationsPerSecond) {
+        if (!(targetOperationsPerSecond > 0)) {
+            throw new IllegalArgumentException("targetOperationsPerSecond must be positive");
+        }
+        this.targetOperationsPerSecond = targetOperationsPerSecond;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(long durationSeconds) {
+        if (durationSeconds < 1) {
+            throw new IllegalArgumentException("durationSeconds must be at least 1");
+        }
+        this.durationSeconds = durationSeconds;
+    }
+
+    // Operations scheduled in the first warmupSeconds of the run are sent but not recorded.
+    public long getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public void setWarmupSeconds(long warmupSeconds) {
+        if (warmupSeconds < 0) {
+            throw new IllegalArgumentException("warmupSeconds must not be negative");
+        }
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    // Operations in flight at once. Once reached, the next operation waits for one to finish,
+    // and the wait counts towards its latency, so an overloaded collection still shows up
+    // in the percentiles instead of the generator quietly slowing down.
+    public int getMaxOutstandingOperations() {
+        return maxOutstandingOperations;
+    }
+
+    public void setMaxOutstandingOperations(int maxOutstandingOperations) {
+        if (maxOutstandingOperations < 1) {
+            throw new IllegalArgumentException("maxOutstandingOperations must be at least 1");
+        }
+        this.maxOutstandingOperations = maxOutstandingOperations;
+    }
+
+    // Seeds the choice of operations, so two runs with the same mix send the same sequence.
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.load;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.microsoft.azure.cosmosdb.sample.telemetry.HistogramSummary;
+
+// The outcome of a load run, per operation type and in total. The RU/s figures are what
+// capacity planning needs: the throughput the measured operations actually consumed, and
+// the throughput the target rate needs given the mix and the mean charge of each operation.
+public class LoadReport {
+    private final double targetOperationsPerSecond;
+    private final double measuredSeconds;
+    private final long scheduledCount;
+    private final long lateCount;
+    private final List<LoadOperationStats> operations;
+
+    LoadReport(double targetOperationsPerSecond, double measuredSeconds, long scheduledCount, long lateCount,
+            List<LoadOperationStats> operations) {
+        this.targetOperationsPerSecond = targetOperationsPerSecond;
+        this.measuredSeconds = measuredSeconds;
+        this.scheduledCount = scheduledCount;
+        this.lateCount = lateCount;
+        this.operations = Collections.unmodifiableList(operations);
+    }
+
+    public double getTargetOperationsPerSecond() {
+        return targetOperationsPerSecond;
+    }
+
+    // The part of the run after the warmup.
+    public double getMeasuredSeconds() {
+        return measuredSeconds;
+    }
+
+    // Operations scheduled after the warmup.
+    public long getScheduledCount() {
+        return scheduledCount;
+    }
+
+    // Operations sent more than a millisecond after their scheduled time, because the
+    // generator could not keep up or too many operations were outstanding.
+    public long getLateCount() {
+        return lateCount;
+    }
+
+    public List<LoadOperationStats> getOperations() {
+        return operations;
+    }
+
+    public long getSuccessCount() {
+        long total = 0;
+        for (LoadOperationStats operation : operations) {
+            total += operation.getSuccessCount();
+        }
+        return total;
+    }
+
+    public double getAchievedOperationsPerSecond() {
+        return measuredSeconds == 0 ? 0 : getSuccessCount() / measuredSeconds;
+    }
+
+    public double getConsumedRequestUnitsPerSecond() {
+        double total = 0;
+        for (LoadOperationStats operation : operations) {
+            total += operation.getRequestCharge().getSum();
+        }
+        return measuredSeconds == 0 ? 0 : total / measuredSeconds;
+    }
+
+    // The mean charge of each operation, weighted by its share of the mix, times the target
+    // rate. Operation types that never succeeded are left out.
+    public double getRequiredRequestUnitsPerSecond() {
+        double totalWeight = 0;
+        double chargePerOperation = 0;
+        for (LoadOperationStats operation : operations) {
+            totalWeight += operation.getWeight();
+            chargePerOperation += operation.getWeight() * operation.getRequestCharge().getMean();
+        }
+        return totalWeight == 0 ? 0 : chargePerOperation / totalWeight * targetOperationsPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-14s %8s %7s %9s %8s %9s %9s %9s %9s %9s %9s%n", "operation", "ok",
+                "errors", "throttled", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "svc p99", "RU/op"));
+        for (LoadOperationStats operation : operations) {
+            HistogramSummary latency = operation.getLatencyMillis();
+            report.append(String.format("%-14s %8d %7d %9d %8.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.getName(), operation.getSuccessCount(), operation.getErrorCount(),
+                    operation.getThrottledCount(),
+                    measuredSeconds == 0 ? 0 : operation.getSuccessCount() / measuredSeconds, latency.getP50(),
+                    latency.getP95(), latency.getP99(), latency.getMax(), operation.getServiceMillis().getP99(),
+                    operation.getRequestCharge().getMean()));
+        }
+        report.append(String.format("%d operation(s) scheduled at %.1f/s over %.1f s, %.1f/s completed, %d sent late%n",
+                scheduledCount, targetOperationsPerSecond, measuredSeconds, getAchievedOperationsPerSecond(),
+                lateCount));
+        report.append(String.format("%.1f RU/s consumed, %.1f RU/s needed at the target rate",
+                getConsumedRequestUnitsPerSecond(), getRequiredRequestUnitsPerSecond()));
+        return report.toString();
+    }
+}
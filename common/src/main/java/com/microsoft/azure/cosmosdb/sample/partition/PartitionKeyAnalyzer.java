@@ -0,0 +1,204 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.partition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.microsoft.azure.cosmosdb.sample.index.IndexRequirement;
+import com.microsoft.azure.cosmosdb.sample.index.IndexingPolicyRules;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlSyntaxException;
+
+// Simulates hash-partitioning a document set on candidate partition keys and replays a
+// request log against each, to see how evenly storage and RU would spread before the
+// collection is created with one. Point reads and writes go to the partition of their
+// document; a query with an equality filter on the key goes to the partitions of the
+// documents it matches, and any other query visits every partition, paying a per-partition
+// charge on each one beyond the first.
+public class PartitionKeyAnalyzer {
+    private static final double PARTITION_QUERY_CHARGE = 2.3;
+
+    private int physicalPartitionCount = 10;
+    private double provisionedThroughput = 10000;
+
+    public int getPhysicalPartitionCount() {
+        return physicalPartitionCount;
+    }
+
+    public void setPhysicalPartitionCount(int physicalPartitionCount) {
+        if (physicalPartitionCount < 1) {
+            throw new IllegalArgumentException("physicalPartitionCount must be at least 1");
+        }
+        this.physicalPartitionCount = physicalPartitionCount;
+    }
+
+    public double getProvisionedThroughput() {
+        return provisionedThroughput;
+    }
+
+    // RU/s provisioned for the collection, split evenly over its physical partitions.
+    public void setProvisionedThroughput(double provisionedThroughput) {
+        if (provisionedThroughput <= 0) {
+            throw new IllegalArgumentException("provisionedThroughput must be positive");
+        }
+        this.provisionedThroughput = provisionedThroughput;
+    }
+
+    // One report per candidate, best first: the least RU skew, then the fewest cross-partition
+    // queries, then the least storage skew.
+    public List<PartitionKeyReport> analyze(List<String> partitionKeyPaths, List<JsonNode> documents,
+            RequestLog log) {
+        List<PartitionKeyReport> reports = new ArrayList<>();
+        for (String partitionKeyPath : partitionKeyPaths) {
+            reports.add(analyze(partitionKeyPath, documents, log));
+        }
+        Collections.sort(reports, Comparator.comparingDouble(PartitionKeyReport::getRequestChargeSkew)
+                .thenComparingDouble(PartitionKeyReport::getCrossPartitionQueryFraction)
+                .thenComparingDouble(PartitionKeyReport::getStorageSkew));
+        return reports;
+    }
+
+    public PartitionKeyReport analyze(String partitionKeyPath, List<JsonNode> documents, RequestLog log) {
+        List<String> segments = IndexingPolicyRules.segmentsOf(partitionKeyPath);
+        int partitionCount = physicalPartitionCount;
+        long[] documentCounts = new long[partitionCount];
+        long[] bytes = new long[partitionCount];
+        double[] requestCharges = new double[partitionCount];
+        List<Set<String>> keys = new ArrayList<>();
+        for (int i = 0; i < partitionCount; i++) {
+            keys.add(new HashSet<String>());
+        }
+
+        Map<String, Integer> partitionById = new HashMap<>();
+        int[] partitionByDocument = new int[documents.size()];
+        Map<String, Long> logicalPartitionBytes = new HashMap<>();
+        long documentsWithoutValue = 0;
+        for (int i = 0; i < documents.size(); i++) {
+            JsonNode document = documents.get(i);
+            JsonNode value = PartitionKeyHash.valueOf(document, segments);
+            String key = value.isMissingNode() ? "undefined" : value.toString();
+            if (value.isMissingNode()) {
+                documentsWithoutValue++;
+            }
+            int partition = PartitionKeyHash.partitionOf(value, partitionCount);
+            long size = document.toString().getBytes(StandardCharsets.UTF_8).length;
+
+            partitionByDocument[i] = partition;
+            documentCounts[partition]++;
+            bytes[partition] += size;
+            keys.get(partition).add(key);
+            logicalPartitionBytes.merge(key, size, Long::sum);
+            JsonNode id = document.get("id");
+            if (id != null) {
+                partitionById.put(id.asText(), partition);
+            }
+        }
+
+        long queryExecutions = 0;
+        long crossPartitionQueryExecutions = 0;
+        double unresolved = 0;
+        for (RequestLog.Entry entry : log.getEntries()) {
+            double charge = entry.getCount() * entry.getRequestCharge();
+            if (entry.getOperation() != RequestLog.Operation.QUERY) {
+                Integer partition = partitionById.get(entry.getTarget());
+                if (partition == null) {
+                    spread(requestCharges, charge);
+                    unresolved += charge;
+                } else {
+                    requestCharges[partition] += charge;
+                }
+                continue;
+            }
+
+            queryExecutions += entry.getCount();
+            SqlQuery query;
+            try {
+                query = SqlQuery.parse(entry.getTarget());
+            } catch (SqlSyntaxException e) {
+                spread(requestCharges, charge);
+                unresolved += charge;
+                crossPartitionQueryExecutions += entry.getCount();
+                continue;
+            }
+            boolean singlePartition = false;
+            for (IndexRequirement requirement : IndexRequirement.of(query, Collections.<String, JsonNode>emptyMap())) {
+                if (requirement.getUse() == IndexRequirement.Use.EQUALITY && requirement.getPath().equals(segments)) {
+                    singlePartition = true;
+                }
+            }
+            if (!singlePartition) {
+                crossPartitionQueryExecutions += entry.getCount();
+                spread(requestCharges, entry.getCount() * PARTITION_QUERY_CHARGE * (partitionCount - 1));
+            }
+
+            long[] matched = new long[partitionCount];
+            long totalMatched = 0;
+            List<SqlQuery.Row> rows = new ArrayList<>();
+            for (int i = 0; i < documents.size(); i++) {
+                rows.clear();
+                query.evaluate(documents.get(i), Collections.<String, JsonNode>emptyMap(), rows);
+                matched[partitionByDocument[i]] += rows.size();
+                totalMatched += rows.size();
+            }
+            if (totalMatched == 0) {
+                spread(requestCharges, charge);
+                unresolved += charge;
+            } else {
+                for (int i = 0; i < partitionCount; i++) {
+                    requestCharges[i] += charge * matched[i] / totalMatched;
+                }
+            }
+        }
+
+        List<PartitionLoad> partitions = new ArrayList<>();
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new PartitionLoad(i, documentCounts[i], bytes[i], keys.get(i).size(), requestCharges[i]));
+        }
+        String largest = null;
+        long largestBytes = 0;
+        for (Map.Entry<String, Long> logicalPartition : logicalPartitionBytes.entrySet()) {
+            if (logicalPartition.getValue() > largestBytes) {
+                largest = logicalPartition.getKey();
+                largestBytes = logicalPartition.getValue();
+            }
+        }
+        return new PartitionKeyReport(partitionKeyPath, partitions, logicalPartitionBytes.size(),
+                documentsWithoutValue, largest, largestBytes, queryExecutions, crossPartitionQueryExecutions,
+                unresolved, log.getDurationSeconds(), provisionedThroughput);
+    }
+
+    private static void spread(double[] requestCharges, double charge) {
+        for (int i = 0; i < requestCharges.length; i++) {
+            requestCharges[i] += charge / requestCharges.length;
+        }
+    }
+}
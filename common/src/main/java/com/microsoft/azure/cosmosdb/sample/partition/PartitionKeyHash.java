@@ -0,0 +1,150 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.partition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.microsoft.azure.cosmosdb.sample.index.IndexingPolicyRules;
+
+// Places partition key values on physical partitions the way a hash-partitioned collection
+// does: the value is hashed (MurmurHash3, 32 bit) together with its type, and the hash range
+// is split evenly between the physical partitions. The hash is the service's version 1
+// partition key hash: the type byte, then a number as a little-endian double or a string
+// cut to its first 100 characters as UTF-8 followed by a 0 byte. A real account splits its
+// hash range where its partitions happened to split, so a value may still sit on another
+// partition there, but the distribution over many values is the same.
+public final class PartitionKeyHash {
+    private static final byte UNDEFINED = 0;
+    private static final byte NULL = 1;
+    private static final byte FALSE = 2;
+    private static final byte TRUE = 3;
+    private static final byte NUMBER = 5;
+    private static final byte STRING = 8;
+    private static final int MAX_STRING_CHARS = 100;
+
+    private PartitionKeyHash() {
+    }
+
+    // The partition key value of a document: the value at the key path ("/Address/State"),
+    // or a MissingNode when the document doesn't have one. Documents without a value all
+    // share one logical partition.
+    public static JsonNode valueOf(JsonNode document, String partitionKeyPath) {
+        return valueOf(document, IndexingPolicyRules.segmentsOf(partitionKeyPath));
+    }
+
+    public static JsonNode valueOf(JsonNode document, List<String> partitionKeySegments) {
+        JsonNode node = document;
+        for (String segment : partitionKeySegments) {
+            if (node == null || !node.isObject()) {
+                return MissingNode.getInstance();
+            }
+            node = node.get(segment);
+        }
+        return node == null ? MissingNode.getInstance() : node;
+    }
+
+    // Which of partitionCount physical partitions holds the value.
+    public static int partitionOf(JsonNode value, int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount must be at least 1");
+        }
+        return (int) (((hash(value) & 0xFFFFFFFFL) * partitionCount) >>> 32);
+    }
+
+    public static int hash(JsonNode value) {
+        byte[] encoded;
+        if (value == null || value.isMissingNode()) {
+            encoded = new byte[] { UNDEFINED };
+        } else if (value.isNull()) {
+            encoded = new byte[] { NULL };
+        } else if (value.isBoolean()) {
+            encoded = new byte[] { value.booleanValue() ? TRUE : FALSE };
+        } else if (value.isNumber()) {
+            long bits = Double.doubleToLongBits(value.doubleValue());
+            encoded = new byte[9];
+            encoded[0] = NUMBER;
+            for (int i = 0; i < 8; i++) {
+                encoded[i + 1] = (byte) (bits >>> (8 * i));
+            }
+        } else {
+            String text = value.isTextual() ? value.textValue() : value.toString();
+            if (text.length() > MAX_STRING_CHARS) {
+                text = text.substring(0, MAX_STRING_CHARS);
+            }
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            encoded = new byte[utf8.length + 2];
+            encoded[0] = STRING;
+            System.arraycopy(utf8, 0, encoded, 1, utf8.length);
+        }
+        return murmur3(encoded, 0);
+    }
+
+    // The tail bytes are mixed in by falling through from the longest tail to the shortest.
+    @SuppressWarnings("fallthrough")
+    static int murmur3(byte[] data, int seed) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+        int h = seed;
+        int blocks = data.length / 4;
+        for (int i = 0; i < blocks; i++) {
+            int offset = i * 4;
+            int k = (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 | (data[offset + 2] & 0xFF) << 16
+                    | (data[offset + 3] & 0xFF) << 24;
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            h ^= k;
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xe6546b64;
+        }
+        int tail = blocks * 4;
+        int k = 0;
+        switch (data.length & 3) {
+        case 3:
+            k ^= (data[tail + 2] & 0xFF) << 16;
+            // fall through
+        case 2:
+            k ^= (data[tail + 1] & 0xFF) << 8;
+            // fall through
+        case 1:
+            k ^= data[tail] & 0xFF;
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            h ^= k;
+            break;
+        default:
+            break;
+        }
+        h ^= data.length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.partition;
+
+import java.util.Collections;
+import java.util.List;
+
+// How a collection partitioned on one candidate key would spread storage and request load
+// over its physical partitions. Throughput is provisioned evenly per partition, so the
+// partition with the most RU/s is the one that throttles first, however idle the others are.
+public final class PartitionKeyReport {
+    private final String partitionKeyPath;
+    private final List<PartitionLoad> partitions;
+    private final long distinctValues;
+    private final long documentsWithoutValue;
+    private final String largestLogicalPartition;
+    private final long largestLogicalPartitionBytes;
+    private final long queryExecutions;
+    private final long crossPartitionQueryExecutions;
+    private final double unresolvedRequestCharge;
+    private final double durationSeconds;
+    private final double provisionedThroughput;
+
+    PartitionKeyReport(String partitionKeyPath, List<PartitionLoad> partitions, long distinctValues,
+            long documentsWithoutValue, String largestLogicalPartition, long largestLogicalPartitionBytes,
+            long queryExecutions, long crossPartitionQueryExecutions, double unresolvedRequestCharge,
+            double durationSeconds, double provisionedThroughput) {
+        this.partitionKeyPath = partitionKeyPath;
+        this.partitions = Collections.unmodifiableList(partitions);
+        this.distinctValues = distinctValues;
+        this.documentsWithoutValue = documentsWithoutValue;
+        this.largestLogicalPartition = largestLogicalPartition;
+        this.largestLogicalPartitionBytes = largestLogicalPartitionBytes;
+        this.queryExecutions = queryExecutions;
+        this.crossPartitionQueryExecutions = crossPartitionQueryExecutions;
+        this.unresolvedRequestCharge = unresolvedRequestCharge;
+        this.durationSeconds = durationSeconds;
+        this.provisionedThroughput = provisionedThroughput;
+    }
+
+    public String getPartitionKeyPath() {
+        return partitionKeyPath;
+    }
+
+    public List<PartitionLoad> getPartitions() {
+        return partitions;
+    }
+
+    public long getDistinctValues() {
+        return distinctValues;
+    }
+
+    public long getDocumentsWithoutValue() {
+        return documentsWithoutValue;
+    }
+
+    // The partition key value (as JSON) with the most data. A logical partition can't be
+    // split, so it bounds how far the collection can scale out.
+    public String getLargestLogicalPartition() {
+        return largestLogicalPartition;
+    }
+
+    public long getLargestLogicalPartitionBytes() {
+        return largestLogicalPartitionBytes;
+    }
+
+    public long getQueryExecutions() {
+        return queryExecutions;
+    }
+
+    // Query executions without an equality filter on the key, which visit every partition.
+    public long getCrossPartitionQueryExecutions() {
+        return crossPartitionQueryExecutions;
+    }
+
+    // RU of requests whose partition couldn't be determined from the documents (ids or
+    // query results not in the set); it is spread evenly over the partitions.
+    public double getUnresolvedRequestCharge() {
+        return unresolvedRequestCharge;
+    }
+
+    public PartitionLoad getHottestPartition() {
+        PartitionLoad hottest = partitions.get(0);
+        for (PartitionLoad partition : partitions) {
+            if (partition.getRequestCharge() > hottest.getRequestCharge()) {
+                hottest = partition;
+            }
+        }
+        return hottest;
+    }
+
+    public double getTotalRequestCharge() {
+        double total = 0;
+        for (PartitionLoad partition : partitions) {
+            total += partition.getRequestCharge();
+        }
+        return total;
+    }
+
+    // RU/s the hottest partition needs on average over the log.
+    public double getHottestPartitionThroughput() {
+        return getHottestPartition().getRequestCharge() / durationSeconds;
+    }
+
+    public double getThroughputPerPartition() {
+        return provisionedThroughput / partitions.size();
+    }
+
+    public boolean isHottestPartitionThrottled() {
+        return getHottestPartitionThroughput() > getThroughputPerPartition();
+    }
+
+    // The hottest partition's RU over the mean; 1 is perfectly even.
+    public double getRequestChargeSkew() {
+        double mean = getTotalRequestCharge() / partitions.size();
+        return mean == 0 ? 1 : getHottestPartition().getRequestCharge() / mean;
+    }
+
+    // The largest partition's storage over the mean; 1 is perfectly even.
+    public double getStorageSkew() {
+        long total = 0;
+        long largest = 0;
+        for (PartitionLoad partition : partitions) {
+            total += partition.getBytes();
+            largest = Math.max(largest, partition.getBytes());
+        }
+        return total == 0 ? 1 : largest / ((double) total / partitions.size());
+    }
+
+    public double getCrossPartitionQueryFraction() {
+        return queryExecutions == 0 ? 0 : (double) crossPartitionQueryExecutions / queryExecutions;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%s: %d distinct value(s), %d document(s) without one, largest logical partition %s (%d bytes)%n",
+                partitionKeyPath, distinctValues, documentsWithoutValue, largestLogicalPartition,
+                largestLogicalPartitionBytes));
+        report.append(String.format("  %9s %10s %12s %8s %14s %8s%n", "partition", "documents", "bytes", "keys",
+                "RU", "RU/s"));
+        for (PartitionLoad partition : partitions) {
+            report.append(String.format("  %9d %10d %12d %8d %14.1f %8.1f%n", partition.getPartition(),
+                    partition.getDocuments(), partition.getBytes(), partition.getLogicalPartitions(),
+                    partition.getRequestCharge(), partition.getRequestCharge() / durationSeconds));
+        }
+        PartitionLoad hottest = getHottestPartition();
+        report.append(String.format("  RU skew %.2f, storage skew %.2f, %.0f%% of query executions cross-partition%n",
+                getRequestChargeSkew(), getStorageSkew(), getCrossPartitionQueryFraction() * 100));
+        report.append(String.format("  hottest partition %d needs %.1f RU/s of the %.1f RU/s it gets%s",
+                hottest.getPartition(), getHottestPartitionThroughput(), getThroughputPerPartition(),
+                isHottestPartitionThrottled() ? ": it will throttle" : ""));
+        return report.toString();
+    }
+}
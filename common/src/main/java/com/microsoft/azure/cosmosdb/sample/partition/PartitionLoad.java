@@ -0,0 +1,62 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.partition;
+
+// What one physical partition would hold and serve under a candidate partition key.
+public final class PartitionLoad {
+    private final int partition;
+    private final long documents;
+    private final long bytes;
+    private final int logicalPartitions;
+    private final double requestCharge;
+
+    PartitionLoad(int partition, long documents, long bytes, int logicalPartitions, double requestCharge) {
+        this.partition = partition;
+        this.documents = documents;
+        this.bytes = bytes;
+        this.logicalPartitions = logicalPartitions;
+        this.requestCharge = requestCharge;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    // Distinct partition key values on this partition.
+    public int getLogicalPartitions() {
+        return logicalPartitions;
+    }
+
+    // RU of the logged requests this partition serves, over the whole log.
+    public double getRequestCharge() {
+        return requestCharge;
+    }
+}
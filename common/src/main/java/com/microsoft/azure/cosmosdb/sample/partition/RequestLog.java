@@ -0,0 +1,122 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.partition;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Requests recorded against a collection over some period: point reads and writes by
+// document id, and queries by text, each with how often it ran and what it charged.
+public class RequestLog {
+    public enum Operation {
+        READ, WRITE, QUERY
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private double durationSeconds = 3600;
+
+    // One request per line, tab separated: operation, count, request charge of one
+    // execution, then the document id (READ, WRITE) or query text (QUERY).
+    //
+    //     # comments and blank lines are ignored
+    //     READ	1200	1	a79c0efd3640458e890cffe2d13ed253
+    //     QUERY	300	2.9	SELECT * FROM c WHERE c.Address.State = 'WA'
+    public static RequestLog fromFile(Path file) throws IOException {
+        RequestLog log = new RequestLog();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split("\t", 4);
+            if (fields.length != 4) {
+                throw new IllegalArgumentException(file + ":" + lineNumber
+                        + ": expected operation, count, request charge and target separated by tabs");
+            }
+            log.add(Operation.valueOf(fields[0].trim().toUpperCase()), fields[3].trim(),
+                    Long.parseLong(fields[1].trim()), Double.parseDouble(fields[2].trim()));
+        }
+        return log;
+    }
+
+    public void add(Operation operation, String target, long count, double requestCharge) {
+        if (count < 0 || requestCharge < 0) {
+            throw new IllegalArgumentException("count and requestCharge must not be negative");
+        }
+        entries.add(new Entry(operation, target, count, requestCharge));
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    // The period the requests were recorded over, to turn their RU into RU/s.
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(double durationSeconds) {
+        if (durationSeconds <= 0) {
+            throw new IllegalArgumentException("durationSeconds must be positive");
+        }
+        this.durationSeconds = durationSeconds;
+    }
+
+    public static final class Entry {
+        private final Operation operation;
+        private final String target;
+        private final long count;
+        private final double requestCharge;
+
+        Entry(Operation operation, String target, long count, double requestCharge) {
+            this.operation = operation;
+            this.target = target;
+            this.count = count;
+            this.requestCharge = requestCharge;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        // The document id, or the query text.
+        public String getTarget() {
+            return target;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getRequestCharge() {
+            return requestCharge;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.projection;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.codec.DocumentTrees;
+
+// A query result that is only bound to Java types as it is read. get reads a single value
+// without touching the rest of the document, and as binds the whole document once per
+// type, keeping the last result for the calls after it. Results that are counted, skipped
+// or only partly read therefore cost no more than the Document the store returned.
+public final class LazyDocument {
+    private final Document document;
+    private Class<?> boundType;
+    private Object bound;
+
+    public LazyDocument(Document document) {
+        this.document = document;
+    }
+
+    public Document getDocument() {
+        return document;
+    }
+
+    public String getId() {
+        return document.getId();
+    }
+
+    // The value at the path of field names as a T, or null if there is none.
+    public <T> T get(Class<T> type, String... path) {
+        return Projections.value(Projections.readerFor(type), type,
+                DocumentTrees.find(DocumentTrees.treeOf(document), path));
+    }
+
+    public synchronized <T> T as(Class<T> type) {
+        if (boundType != type) {
+            bound = Projections.bind(Projections.readerFor(type), DocumentTrees.treeOf(document));
+            boundType = type;
+        }
+        return type.cast(bound);
+    }
+
+    @Override
+    public String toString() {
+        return document.toJson();
+    }
+}
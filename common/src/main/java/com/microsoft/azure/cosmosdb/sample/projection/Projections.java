@@ -0,0 +1,129 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.projection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.microsoft.azure.cosmosdb.sample.codec.DocumentTrees;
+
+// Projections that bind query results with Jackson straight from each Document's tree (see
+// DocumentTrees), instead of through Document.toObject, which writes the document out as
+// JSON and parses it again. There is one ObjectReader per target type, built on first use
+// and shared after that: building it introspects the type, which costs far more than
+// binding a document with it. Properties the type does not declare are ignored, so a POJO
+// only needs the fields the caller reads.
+public final class Projections {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final ConcurrentMap<JavaType, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    private Projections() {
+    }
+
+    // The whole document as a T.
+    public static <T> Projection<T> as(Class<T> type) {
+        ObjectReader reader = readerFor(type);
+        return document -> bind(reader, DocumentTrees.treeOf(document));
+    }
+
+    public static <T> Projection<T> as(TypeReference<T> type) {
+        ObjectReader reader = readerFor(MAPPER.getTypeFactory().constructType(type));
+        return document -> bind(reader, DocumentTrees.treeOf(document));
+    }
+
+    // The value at the path of field names as a T, or null where the document has none or
+    // it is null. Strings, numbers and booleans are read off the tree without binding.
+    public static <T> Projection<T> field(Class<T> type, String... path) {
+        String[] fieldPath = path.clone();
+        ObjectReader reader = readerFor(type);
+        return document -> value(reader, type, DocumentTrees.find(DocumentTrees.treeOf(document), fieldPath));
+    }
+
+    // Each result wrapped in a LazyDocument, which binds only what is read from it.
+    public static Projection<LazyDocument> lazy() {
+        return LazyDocument::new;
+    }
+
+    static ObjectReader readerFor(JavaType type) {
+        return READERS.computeIfAbsent(type, MAPPER::readerFor);
+    }
+
+    static ObjectReader readerFor(Class<?> type) {
+        return readerFor(MAPPER.constructType(type));
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T value(ObjectReader reader, Class<T> type, JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return null;
+        }
+        boolean any = type == Object.class;
+        if (node.isTextual() && (any || type == String.class)) {
+            return (T) node.textValue();
+        }
+        if (node.isBoolean() && (any || type == Boolean.class || type == boolean.class)) {
+            return (T) Boolean.valueOf(node.booleanValue());
+        }
+        if (node.isIntegralNumber()) {
+            // Checked here, since Jackson binds an integer node to a narrower type by
+            // truncating it.
+            if (type == Integer.class || type == int.class) {
+                if (!node.canConvertToInt()) {
+                    throw outOfRange(node, type);
+                }
+                return (T) Integer.valueOf(node.intValue());
+            }
+            if (type == Long.class || type == long.class) {
+                if (!node.canConvertToLong()) {
+                    throw outOfRange(node, type);
+                }
+                return (T) Long.valueOf(node.longValue());
+            }
+        }
+        if (node.isNumber() && (type == Double.class || type == double.class)) {
+            return (T) Double.valueOf(node.doubleValue());
+        }
+        return bind(reader, node);
+    }
+
+    private static IllegalArgumentException outOfRange(JsonNode node, Class<?> type) {
+        return new IllegalArgumentException("Value " + node + " is out of range for " + type.getSimpleName());
+    }
+
+    static <T> T bind(ObjectReader reader, JsonNode node) {
+        try {
+            return reader.readValue(node);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.provision;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.exceptions.CompositeException;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+
+// Sets up resources as a graph of stages instead of a fixed sequence with sleeps in
+// between. A stage starts as soon as every stage it depends on has completed (on the
+// actual response, not after a guessed delay), stages that don't depend on each other run
+// at the same time, and the run reports when each stage started and how long it took.
+//
+//     ProvisioningPipeline pipeline = new ProvisioningPipeline();
+//     pipeline.addStage("database", () -> client.createDatabase(database, null));
+//     pipeline.addStage("collection", () -> client.createCollection(databaseLink, collection, null), "database");
+//     pipeline.addStage("scripts", () -> client.upsertStoredProcedure(collectionLink, sproc, null), "collection");
+//     pipeline.addStage("seed", () -> loader.loadDirectory(collectionLink, dataDirectory), "collection");
+//     System.out.println(pipeline.run().toBlocking().single());
+public class ProvisioningPipeline {
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    // The stage completes when the observable returned by action completes, and fails the
+    // run if it fails. Dependencies must have been added before the stage, which also
+    // rules out cycles.
+    public void addStage(String name, Func0<? extends Observable<?>> action, String... dependsOn) {
+        if (name == null || action == null) {
+            throw new IllegalArgumentException("name and action are required");
+        }
+        if (stages.containsKey(name)) {
+            throw new IllegalArgumentException("stage " + name + " is already defined");
+        }
+        for (String dependency : dependsOn) {
+            if (!stages.containsKey(dependency)) {
+                throw new IllegalArgumentException("stage " + name + " depends on unknown stage " + dependency);
+            }
+        }
+        stages.put(name, new Stage(name, action, Arrays.asList(dependsOn)));
+    }
+
+    // Runs every stage once per subscription. If a stage fails the run fails with its
+    // error, and stages that depend on it never start.
+    public Observable<ProvisioningReport> run() {
+        return Observable.defer(() -> {
+            long started = System.nanoTime();
+            Map<String, Observable<StageTiming>> running = new LinkedHashMap<>();
+            for (Stage stage : stages.values()) {
+                List<Observable<StageTiming>> dependencies = new ArrayList<>();
+                for (String dependency : stage.dependsOn) {
+                    dependencies.add(running.get(dependency));
+                }
+                running.put(stage.name, Observable.merge(dependencies).toList()
+                        .flatMap(completed -> execute(stage, started))
+                        .cache());
+            }
+            return Observable.merge(running.values()).toList().map(timings -> {
+                List<StageTiming> ordered = new ArrayList<>(timings);
+                Collections.sort(ordered, Comparator.comparingLong(StageTiming::getStartOffsetMillis));
+                return new ProvisioningReport(ordered, elapsedMillis(started));
+            }).onErrorResumeNext(error -> Observable.error(unwrap(error)));
+        });
+    }
+
+    private static Observable<StageTiming> execute(Stage stage, long pipelineStarted) {
+        // Subscribed on the io scheduler so a stage that blocks (reading seed files, a
+        // synchronous store) doesn't hold up the stages running beside it.
+        return Observable.defer(() -> {
+            long started = System.nanoTime();
+            return stage.action.call()
+                    .lastOrDefault(null)
+                    .map(response -> new StageTiming(stage.name, stage.dependsOn,
+                            TimeUnit.NANOSECONDS.toMillis(started - pipelineStarted), elapsedMillis(started)))
+                    .onErrorResumeNext(error -> Observable.error(
+                            new IllegalStateException("provisioning stage " + stage.name + " failed", error)));
+        }).subscribeOn(Schedulers.io());
+    }
+
+    // A failed stage reaches the run once directly and once through each stage waiting on
+    // it, which merge reports as a CompositeException of the one error.
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompositeException && ((CompositeException) error).getExceptions().size() == 1) {
+            return ((CompositeException) error).getExceptions().get(0);
+        }
+        return error;
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    private static final class Stage {
+        final String name;
+        final Func0<? extends Observable<?>> action;
+        final List<String> dependsOn;
+
+        Stage(String name, Func0<? extends Observable<?>> action, List<String> dependsOn) {
+            this.name = name;
+            this.action = action;
+            this.dependsOn = dependsOn;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.provision;
+
+import java.util.Collections;
+import java.util.List;
+
+// The outcome of a provisioning run: every stage in the order it started, and the wall
+// time of the whole run. Comparing the wall time with the sum of the stage durations shows
+// how much running independent stages side by side saved.
+public final class ProvisioningReport {
+    private final List<StageTiming> stages;
+    private final long wallTimeMillis;
+
+    ProvisioningReport(List<StageTiming> stages, long wallTimeMillis) {
+        this.stages = Collections.unmodifiableList(stages);
+        this.wallTimeMillis = wallTimeMillis;
+    }
+
+    public List<StageTiming> getStages() {
+        return stages;
+    }
+
+    public long getWallTimeMillis() {
+        return wallTimeMillis;
+    }
+
+    public long getTotalStageMillis() {
+        long total = 0;
+        for (StageTiming stage : stages) {
+            total += stage.getDurationMillis();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-24s %9s %11s%n", "stage", "start", "duration"));
+        for (StageTiming stage : stages) {
+            report.append(stage).append(System.lineSeparator());
+        }
+        return report.append(String.format("%d stage(s) in %d ms wall time (%d ms if run one after another)",
+                stages.size(), wallTimeMillis, getTotalStageMillis())).toString();
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.provision;
+
+import java.util.Collections;
+import java.util.List;
+
+// When one stage of a provisioning run started, relative to the start of the run, and how
+// long it took from its first request to the response that completed it.
+public final class StageTiming {
+    private final String name;
+    private final List<String> dependsOn;
+    private final long startOffsetMillis;
+    private final long durationMillis;
+
+    StageTiming(String name, List<String> dependsOn, long startOffsetMillis, long durationMillis) {
+        this.name = name;
+        this.dependsOn = Collections.unmodifiableList(dependsOn);
+        this.startOffsetMillis = startOffsetMillis;
+        this.durationMillis = durationMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getDependsOn() {
+        return dependsOn;
+    }
+
+    public long getStartOffsetMillis() {
+        return startOffsetMillis;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-24s +%6d ms %8d ms%s", name, startOffsetMillis, durationMillis,
+                dependsOn.isEmpty() ? "" : "  after " + String.join(", ", dependsOn));
+    }
+}
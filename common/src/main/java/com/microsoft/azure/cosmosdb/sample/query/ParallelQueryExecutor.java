@@ -0,0 +1,495 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.sql.Bindings;
+import com.microsoft.azure.cosmosdb.sample.sql.JsonValues;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlExpression;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlSyntaxException;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Notification;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.observables.SyncOnSubscribe;
+import rx.schedulers.Schedulers;
+
+// Runs a cross-partition query as one query per partition key range, with up to
+// maxDegreeOfParallelism page requests in flight at once, instead of letting the SDK walk
+// the ranges one after another. Each range is read page by page like StreamingQueryExecutor
+// does, fetching ahead into a buffer sized from maxBufferedItemCount.
+//
+// Without ORDER BY documents are passed on in whatever order the partitions return them.
+// With ORDER BY every range is opened and their already sorted results are merged one
+// document at a time, so the first results arrive before any range has been read to the
+// end. TOP is applied to the merged result, so at most TOP documents are returned even
+// though each range may have fetched up to TOP of its own.
+public class ParallelQueryExecutor {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static volatile ExecutorService sharedPool;
+
+    private final DocumentStore store;
+    private final Executor executor;
+
+    public ParallelQueryExecutor(DocumentStore store) {
+        this(store, sharedPool());
+    }
+
+    // Page requests run on the given executor, at most maxDegreeOfParallelism of a query's
+    // at a time. They block while a page is fetched.
+    public ParallelQueryExecutor(DocumentStore store, Executor executor) {
+        this.store = store;
+        this.executor = executor;
+    }
+
+    public Observable<Document> query(String collectionLink, String queryText, ParallelQueryOptions options,
+            ParallelQueryMetrics metrics) {
+        return query(collectionLink, new SqlQuerySpec(queryText), options, metrics);
+    }
+
+    public Observable<Document> query(String collectionLink, SqlQuerySpec querySpec, ParallelQueryOptions options,
+            ParallelQueryMetrics metrics) {
+        return Observable.defer(() -> {
+            SqlQuery parsed = parse(querySpec.getQueryText());
+            boolean ordered = options.getMergeStrategy() == ParallelQueryOptions.MergeStrategy.ORDERED
+                    || (options.getMergeStrategy() == ParallelQueryOptions.MergeStrategy.AUTO && parsed != null
+                            && !parsed.getOrderBy().isEmpty());
+            SortKeys sortKeys = ordered ? SortKeys.of(parsed) : null;
+            Scheduler fetchScheduler = fetchScheduler(options.getMaxDegreeOfParallelism());
+
+            // concatMap passes the subscriber's demand through; flatMap would ask the merged
+            // stream for 128 documents up front.
+            return store.readPartitionKeyRangeIds(collectionLink).concatMap(rangeIds -> {
+                metrics.start(rangeIds);
+                // An ordered merge holds every range open; otherwise only the ranges being
+                // read share the buffer.
+                int open = Math.max(1, ordered ? rangeIds.size()
+                        : Math.min(options.getMaxDegreeOfParallelism(), rangeIds.size()));
+                int bufferedPages = Math.max(1, options.getMaxBufferedItemCount() / (open * options.getMaxItemCount()));
+
+                List<Observable<Document>> partitions = new ArrayList<>(rangeIds.size());
+                for (String rangeId : rangeIds) {
+                    partitions.add(partition(collectionLink, querySpec, options, rangeId, fetchScheduler,
+                            bufferedPages, metrics.getPartition(rangeId)));
+                }
+                Observable<Document> results = ordered ? mergeSorted(partitions, rangeIds, sortKeys, metrics)
+                        : Observable.merge(partitions, options.getMaxDegreeOfParallelism());
+                if (parsed != null && parsed.getTop() != null) {
+                    results = results.take(parsed.getTop());
+                }
+                return results;
+            })
+            .doOnNext(document -> metrics.onResult())
+            .doOnTerminate(metrics::complete);
+        });
+    }
+
+    // Queries the executor cannot parse still run unordered; the service is the judge of
+    // whether they are valid.
+    private static SqlQuery parse(String queryText) {
+        try {
+            return SqlQuery.parse(queryText);
+        } catch (SqlSyntaxException e) {
+            return null;
+        }
+    }
+
+    // Every query shares one pool of daemon threads; idle threads exit on their own, so it
+    // needs no shutdown.
+    private static ExecutorService sharedPool() {
+        ExecutorService pool = sharedPool;
+        if (pool == null) {
+            synchronized (ParallelQueryExecutor.class) {
+                pool = sharedPool;
+                if (pool == null) {
+                    AtomicInteger threads = new AtomicInteger();
+                    pool = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "parallel-query-" + threads.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    sharedPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    // The page requests of one query, limited to maxDegreeOfParallelism running at once
+    // however many threads the executor has.
+    private Scheduler fetchScheduler(int maxDegreeOfParallelism) {
+        return Schedulers.from(new LimitedExecutor(executor, maxDegreeOfParallelism));
+    }
+
+    private Observable<Document> partition(String collectionLink, SqlQuerySpec querySpec,
+            ParallelQueryOptions options, String rangeId, Scheduler fetchScheduler, int bufferedPages,
+            ParallelQueryMetrics.PartitionMetrics partitionMetrics) {
+        Observable<FeedPage<Document>> pages = Observable.create(SyncOnSubscribe.<Cursor, FeedPage<Document>>createStateful(
+                Cursor::new,
+                (cursor, observer) -> {
+                    if (cursor.finished) {
+                        observer.onCompleted();
+                        return cursor;
+                    }
+                    try {
+                        long started = System.nanoTime();
+                        FeedPage<Document> page = fetchPage(collectionLink, querySpec, options, rangeId,
+                                cursor.continuation);
+                        partitionMetrics.onPage(page.getResults().size(), page.getRequestCharge(),
+                                System.nanoTime() - started);
+                        cursor.continuation = page.getResponseContinuation();
+                        cursor.finished = cursor.continuation == null;
+                        observer.onNext(page);
+                    } catch (Exception e) {
+                        observer.onError(e);
+                    }
+                    return cursor;
+                }));
+
+        // Pages are unpacked one at a time, so no more than bufferedPages are fetched ahead.
+        return pages.subscribeOn(fetchScheduler)
+                .observeOn(Schedulers.computation(), bufferedPages)
+                .flatMapIterable(FeedPage::getResults, 1);
+    }
+
+    private FeedPage<Document> fetchPage(String collectionLink, SqlQuerySpec querySpec,
+            ParallelQueryOptions options, String rangeId, String continuation) throws InterruptedException {
+        FeedOptions feedOptions = new FeedOptions();
+        feedOptions.setPartitionKeyRangeIdInternal(rangeId);
+        feedOptions.setMaxItemCount(options.getMaxItemCount());
+        feedOptions.setRequestContinuation(continuation);
+        for (int retries = 0;; retries++) {
+            try {
+                return store.queryDocuments(collectionLink, querySpec, feedOptions).first().toBlocking().single();
+            } catch (RuntimeException e) {
+                if (!Throttling.isThrottled(e) || retries >= options.getMaxThrottleRetries()) {
+                    throw e;
+                }
+                TimeUnit.MILLISECONDS.sleep(Throttling.getRetryAfterInMillis(e, options.getDefaultRetryAfterMillis()));
+            }
+        }
+    }
+
+    // A k-way merge over the partitions' sorted streams: the smallest head is emitted and
+    // replaced by the next document of its partition. Ties go to the lower range so the
+    // order is the same from run to run.
+    private static Observable<Document> mergeSorted(List<Observable<Document>> partitions, List<String> rangeIds,
+            SortKeys sortKeys, ParallelQueryMetrics metrics) {
+        Observable<Document> merged = Observable.create(SyncOnSubscribe.<MergeState, Document>createStateful(
+                () -> {
+                    MergeState state = new MergeState(sortKeys);
+                    for (Observable<Document> partition : partitions) {
+                        PartitionIterator source = new PartitionIterator();
+                        state.sources.add(source);
+                        partition.subscribe(source);
+                    }
+                    for (int i = 0; i < partitions.size(); i++) {
+                        state.advance(i, metrics.getPartition(rangeIds.get(i)));
+                    }
+                    return state;
+                },
+                (state, observer) -> {
+                    Head head = state.heads.poll();
+                    if (head == null) {
+                        observer.onCompleted();
+                        return state;
+                    }
+                    try {
+                        observer.onNext(head.document);
+                        state.advance(head.partition, metrics.getPartition(rangeIds.get(head.partition)));
+                    } catch (Exception e) {
+                        observer.onError(e);
+                    }
+                    return state;
+                },
+                MergeState::close));
+        // Waiting on the partitions blocks, so the merge gets a thread of its own.
+        return merged.subscribeOn(Schedulers.io());
+    }
+
+    private static class Cursor {
+        String continuation;
+        boolean finished;
+    }
+
+    private static final class Head {
+        final Document document;
+        final JsonNode[] keys;
+        final int partition;
+
+        Head(Document document, JsonNode[] keys, int partition) {
+            this.document = document;
+            this.keys = keys;
+            this.partition = partition;
+        }
+    }
+
+    // Takes a partition's documents one at a time, asking for the next only once the
+    // merge has taken the last. The partition's page buffer is then all that is read ahead,
+    // where a blocking iterator would ask for 128 documents at once.
+    private static final class PartitionIterator extends Subscriber<Document> implements Iterator<Document> {
+        private final BlockingQueue<Notification<Document>> notifications = new LinkedBlockingQueue<>();
+        private Notification<Document> next;
+
+        @Override
+        public void onStart() {
+            request(1);
+        }
+
+        @Override
+        public void onNext(Document document) {
+            notifications.add(Notification.createOnNext(document));
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            notifications.add(Notification.createOnError(error));
+        }
+
+        @Override
+        public void onCompleted() {
+            notifications.add(Notification.createOnCompleted());
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = notifications.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (next.isOnError()) {
+                throw Exceptions.propagate(next.getThrowable());
+            }
+            return next.isOnNext();
+        }
+
+        @Override
+        public Document next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Document document = next.getValue();
+            next = null;
+            request(1);
+            return document;
+        }
+    }
+
+    // Runs at most limit tasks at a time on another executor, queueing the rest.
+    private static final class LimitedExecutor implements Executor {
+        private final Executor executor;
+        private final int limit;
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private int running;
+
+        LimitedExecutor(Executor executor, int limit) {
+            this.executor = executor;
+            this.limit = limit;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (this) {
+                if (running >= limit) {
+                    pending.add(task);
+                    return;
+                }
+                running++;
+            }
+            submit(task);
+        }
+
+        private void submit(Runnable task) {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    Runnable next;
+                    synchronized (this) {
+                        next = pending.poll();
+                        if (next == null) {
+                            running--;
+                        }
+                    }
+                    if (next != null) {
+                        submit(next);
+                    }
+                }
+            });
+        }
+    }
+
+    private static final class MergeState {
+        final List<PartitionIterator> sources = new ArrayList<>();
+        final PriorityQueue<Head> heads;
+        final SortKeys sortKeys;
+
+        MergeState(SortKeys sortKeys) {
+            this.sortKeys = sortKeys;
+            Comparator<Head> byKeys = (left, right) -> sortKeys.compare(left.keys, right.keys);
+            this.heads = new PriorityQueue<>(byKeys.thenComparingInt(head -> head.partition));
+        }
+
+        void advance(int partition, ParallelQueryMetrics.PartitionMetrics partitionMetrics) {
+            Iterator<Document> source = sources.get(partition);
+            long started = System.nanoTime();
+            boolean hasNext = source.hasNext();
+            partitionMetrics.onWait(System.nanoTime() - started);
+            if (hasNext) {
+                Document document = source.next();
+                heads.add(new Head(document, sortKeys.of(document), partition));
+            }
+        }
+
+        // The iterators are subscribers; stopping early must release them.
+        void close() {
+            for (PartitionIterator source : sources) {
+                source.unsubscribe();
+            }
+        }
+    }
+
+    // Reads the ORDER BY values back out of a result document. That works for SELECT * and
+    // for ORDER BY expressions that are also selected, either as they are or through a
+    // selected object that contains them.
+    private static final class SortKeys {
+        private final SqlQuery query;
+        private final List<KeyReader> readers;
+
+        private SortKeys(SqlQuery query, List<KeyReader> readers) {
+            this.query = query;
+            this.readers = readers;
+        }
+
+        static SortKeys of(SqlQuery query) {
+            if (query == null) {
+                throw new IllegalArgumentException("An ordered merge needs a query the executor can parse");
+            }
+            if (!query.getJoins().isEmpty() && query.isSelectAll()) {
+                throw new IllegalArgumentException("An ordered merge needs a projection when the query has a JOIN");
+            }
+            List<KeyReader> readers = new ArrayList<>();
+            for (SqlQuery.OrderByItem item : query.getOrderBy()) {
+                readers.add(readerOf(query, item.getExpression()));
+            }
+            return new SortKeys(query, readers);
+        }
+
+        private static KeyReader readerOf(SqlQuery query, SqlExpression expression) {
+            if (query.isSelectAll()) {
+                return document -> evaluate(expression, query.getRootAlias(), document);
+            }
+            for (SqlQuery.SelectItem item : query.getSelectItems()) {
+                if (item.getExpression().toString().equals(expression.toString())) {
+                    String name = item.getName();
+                    return document -> document.path(name);
+                }
+            }
+            if (expression instanceof SqlExpression.PropertyPath) {
+                SqlExpression.PropertyPath path = (SqlExpression.PropertyPath) expression;
+                for (SqlQuery.SelectItem item : query.getSelectItems()) {
+                    if (!(item.getExpression() instanceof SqlExpression.PropertyPath)) {
+                        continue;
+                    }
+                    SqlExpression.PropertyPath selected = (SqlExpression.PropertyPath) item.getExpression();
+                    List<String> segments = path.getSegments();
+                    List<String> prefix = selected.getSegments();
+                    if (selected.getAlias().equals(path.getAlias()) && segments.size() > prefix.size()
+                            && segments.subList(0, prefix.size()).equals(prefix)) {
+                        SqlExpression remainder = new SqlExpression.PropertyPath(item.getName(),
+                                segments.subList(prefix.size(), segments.size()));
+                        return document -> evaluate(remainder, item.getName(), document.path(item.getName()));
+                    }
+                }
+            }
+            throw new IllegalArgumentException("ORDER BY " + expression + " must be selected for an ordered merge");
+        }
+
+        private static JsonNode evaluate(SqlExpression expression, String alias, JsonNode value) {
+            Bindings bindings = new Bindings(Collections.<String, JsonNode>emptyMap());
+            bindings.put(alias, value);
+            return expression.evaluate(bindings);
+        }
+
+        JsonNode[] of(Document document) {
+            JsonNode json;
+            try {
+                json = MAPPER.readTree(document.toJson());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            JsonNode[] keys = new JsonNode[readers.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = readers.get(i).read(json);
+            }
+            return keys;
+        }
+
+        int compare(JsonNode[] left, JsonNode[] right) {
+            for (int i = 0; i < left.length; i++) {
+                int order = JsonValues.compareForSort(left[i], right[i]);
+                if (order != 0) {
+                    return query.getOrderBy().get(i).isDescending() ? -order : order;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private interface KeyReader {
+        JsonNode read(JsonNode document);
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+// Where the time of one parallel query went, per partition key range: how long its page
+// requests took, and how long the merge sat waiting for it to produce its next document.
+// A partition with a high wait time is the one holding an ordered merge back.
+public class ParallelQueryMetrics {
+    private final Map<String, PartitionMetrics> partitions = new ConcurrentHashMap<>();
+    private volatile long startNanos;
+    private volatile long firstResultNanos;
+    private volatile long completedNanos;
+
+    public Collection<PartitionMetrics> getPartitions() {
+        List<PartitionMetrics> ordered = new ArrayList<>(partitions.values());
+        Collections.sort(ordered, (left, right) -> compareRangeIds(left.rangeId, right.rangeId));
+        return ordered;
+    }
+
+    public PartitionMetrics getPartition(String rangeId) {
+        return partitions.get(rangeId);
+    }
+
+    public long getTimeToFirstResultMillis() {
+        return firstResultNanos == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(firstResultNanos - startNanos);
+    }
+
+    public long getElapsedMillis() {
+        long end = completedNanos == 0 ? System.nanoTime() : completedNanos;
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    public double getTotalRequestCharge() {
+        double total = 0;
+        for (PartitionMetrics partition : partitions.values()) {
+            total += partition.getRequestCharge();
+        }
+        return total;
+    }
+
+    public long getDocumentCount() {
+        long total = 0;
+        for (PartitionMetrics partition : partitions.values()) {
+            total += partition.getDocuments();
+        }
+        return total;
+    }
+
+    void start(List<String> rangeIds) {
+        startNanos = System.nanoTime();
+        for (String rangeId : rangeIds) {
+            partitions.put(rangeId, new PartitionMetrics(rangeId));
+        }
+    }
+
+    void onResult() {
+        if (firstResultNanos == 0) {
+            firstResultNanos = System.nanoTime();
+        }
+    }
+
+    void complete() {
+        completedNanos = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-8s %6s %10s %12s %12s %10s%n", "range", "pages", "documents", "request ms",
+                "waited ms", "RU"));
+        for (PartitionMetrics partition : getPartitions()) {
+            report.append(String.format("%-8s %6d %10d %12d %12d %10.2f%n", partition.rangeId,
+                    partition.getPages(), partition.getDocuments(), partition.getRequestMillis(),
+                    partition.getWaitMillis(), partition.getRequestCharge()));
+        }
+        return report.append(String.format("%d document(s) fetched, %.2f RU, first result after %d ms, %d ms in total",
+                getDocumentCount(), getTotalRequestCharge(), getTimeToFirstResultMillis(), getElapsedMillis()))
+                .toString();
+    }
+
+    private static int compareRangeIds(String left, String right) {
+        try {
+            return Long.compare(Long.parseLong(left), Long.parseLong(right));
+        } catch (NumberFormatException e) {
+            return left.compareTo(right);
+        }
+    }
+
+    public static final class PartitionMetrics {
+        private final String rangeId;
+        private final AtomicLong pages = new AtomicLong();
+        private final AtomicLong documents = new AtomicLong();
+        private final AtomicLong requestNanos = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final DoubleAdder requestCharge = new DoubleAdder();
+
+        PartitionMetrics(String rangeId) {
+            this.rangeId = rangeId;
+        }
+
+        public String getRangeId() {
+            return rangeId;
+        }
+
+        public long getPages() {
+            return pages.get();
+        }
+
+        public long getDocuments() {
+            return documents.get();
+        }
+
+        public double getRequestCharge() {
+            return requestCharge.sum();
+        }
+
+        // Time spent in this partition's page requests, retries included.
+        public long getRequestMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(requestNanos.get());
+        }
+
+        // Time an ordered merge was blocked waiting for this partition's next document.
+        public long getWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+        }
+
+        void onPage(int documentCount, double charge, long elapsedNanos) {
+            pages.incrementAndGet();
+            documents.addAndGet(documentCount);
+            requestCharge.add(charge);
+            requestNanos.addAndGet(elapsedNanos);
+        }
+
+        void onWait(long elapsedNanos) {
+            waitNanos.addAndGet(elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+public class ParallelQueryOptions {
+    public enum MergeStrategy {
+        // ORDERED for queries with ORDER BY, UNORDERED otherwise.
+        AUTO,
+        // Documents are passed on as soon as any partition returns them.
+        UNORDERED,
+        // A streaming k-way merge of the partitions' sorted results.
+        ORDERED
+    }
+
+    private int maxDegreeOfParallelism = 4;
+    private int maxBufferedItemCount = 1000;
+    private int maxItemCount = 100;
+    private MergeStrategy mergeStrategy = MergeStrategy.AUTO;
+    private int maxThrottleRetries = 9;
+    private long defaultRetryAfterMillis = 100;
+
+    // How many page requests may be in flight at once across all partitions.
+    public int getMaxDegreeOfParallelism() {
+        return maxDegreeOfParallelism;
+    }
+
+    public void setMaxDegreeOfParallelism(int maxDegreeOfParallelism) {
+        if (maxDegreeOfParallelism < 1) {
+            throw new IllegalArgumentException("maxDegreeOfParallelism must be at least 1");
+        }
+        this.maxDegreeOfParallelism = maxDegreeOfParallelism;
+    }
+
+    // Documents fetched ahead of the subscriber, shared between the partitions being read.
+    // Each partition buffers at least one page whatever this is set to.
+    public int getMaxBufferedItemCount() {
+        return maxBufferedItemCount;
+    }
+
+    public void setMaxBufferedItemCount(int maxBufferedItemCount) {
+        if (maxBufferedItemCount < 0) {
+            throw new IllegalArgumentException("maxBufferedItemCount must not be negative");
+        }
+        this.maxBufferedItemCount = maxBufferedItemCount;
+    }
+
+    // Documents per page of each partition's query.
+    public int getMaxItemCount() {
+        return maxItemCount;
+    }
+
+    public void setMaxItemCount(int maxItemCount) {
+        if (maxItemCount < 1) {
+            throw new IllegalArgumentException("maxItemCount must be at least 1");
+        }
+        this.maxItemCount = maxItemCount;
+    }
+
+    public MergeStrategy getMergeStrategy() {
+        return mergeStrategy;
+    }
+
+    public void setMergeStrategy(MergeStrategy mergeStrategy) {
+        if (mergeStrategy == null) {
+            throw new IllegalArgumentException("mergeStrategy is required");
+        }
+        this.mergeStrategy = mergeStrategy;
+    }
+
+    // How many times a throttled page request is retried before the query fails.
+    public int getMaxThrottleRetries() {
+        return maxThrottleRetries;
+    }
+
+    public void setMaxThrottleRetries(int maxThrottleRetries) {
+        if (maxThrottleRetries < 0) {
+            throw new IllegalArgumentException("maxThrottleRetries must not be negative");
+        }
+        this.maxThrottleRetries = maxThrottleRetries;
+    }
+
+    public long getDefaultRetryAfterMillis() {
+        return defaultRetryAfterMillis;
+    }
+
+    public void setDefaultRetryAfterMillis(long defaultRetryAfterMillis) {
+        if (defaultRetryAfterMillis < 0) {
+            throw new IllegalArgumentException("defaultRetryAfterMillis must not be negative");
+        }
+        this.defaultRetryAfterMillis = defaultRetryAfterMillis;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+public class PointReadOptions {
+    private int maxConcurrency = 32;
+    private int maxThrottleRetries = 9;
+    private long defaultRetryAfterMillis = 100;
+
+    // How many reads of a multi-get are in flight at once.
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    // How many times a throttled read is retried before it fails.
+    public int getMaxThrottleRetries() {
+        return maxThrottleRetries;
+    }
+
+    public void setMaxThrottleRetries(int maxThrottleRetries) {
+        if (maxThrottleRetries < 0) {
+            throw new IllegalArgumentException("maxThrottleRetries must not be negative");
+        }
+        this.maxThrottleRetries = maxThrottleRetries;
+    }
+
+    // Wait used when a throttled response carries no retry-after hint.
+    public long getDefaultRetryAfterMillis() {
+        return defaultRetryAfterMillis;
+    }
+
+    public void setDefaultRetryAfterMillis(long defaultRetryAfterMillis) {
+        if (defaultRetryAfterMillis < 0) {
+            throw new IllegalArgumentException("defaultRetryAfterMillis must not be negative");
+        }
+        this.defaultRetryAfterMillis = defaultRetryAfterMillis;
+    }
+}
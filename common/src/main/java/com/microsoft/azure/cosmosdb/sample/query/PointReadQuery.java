@@ -0,0 +1,190 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.PartitionKey;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.sql.QueryParameters;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlExpression;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlSyntaxException;
+
+// A query whose WHERE clause requires the root document's id to equal a string, so it can
+// only ever match one document: SELECT * FROM root r WHERE r.id = @id, optionally ANDed
+// with more conditions. Such a query is answered by reading that document and evaluating
+// the query against it locally, which gives the same rows (including projections, joins
+// and the remaining conditions) for the cost of a point read.
+final class PointReadQuery {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final SqlQuery query;
+    private final Map<String, JsonNode> parameters;
+    private final String id;
+    private final PartitionKey partitionKey;
+
+    private PointReadQuery(SqlQuery query, Map<String, JsonNode> parameters, String id, PartitionKey partitionKey) {
+        this.query = query;
+        this.parameters = parameters;
+        this.id = id;
+        this.partitionKey = partitionKey;
+    }
+
+    // Returns null if the query is not a point lookup. For a partitioned collection
+    // (partitionKeyPath set) the partition key must come either from the options or from
+    // an equality condition on that path.
+    static PointReadQuery detect(SqlQuerySpec querySpec, PartitionKey partitionKey, String partitionKeyPath) {
+        SqlQuery query;
+        Map<String, JsonNode> parameters;
+        try {
+            query = SqlQuery.parse(querySpec.getQueryText());
+            parameters = QueryParameters.of(querySpec);
+        } catch (SqlSyntaxException | IOException e) {
+            // Leave it to the service to accept or reject.
+            return null;
+        }
+        if (query.getWhere() == null || (query.getTop() != null && query.getTop() < 1)) {
+            return null;
+        }
+
+        List<SqlExpression> conditions = new ArrayList<>();
+        conjuncts(query.getWhere(), conditions);
+        JsonNode id = equalityValue(conditions, query.getRootAlias(), Arrays.asList("id"), parameters);
+        if (id == null || !id.isTextual() || !PointReader.isAddressable(id.asText())) {
+            return null;
+        }
+        if (partitionKey == null && partitionKeyPath != null) {
+            JsonNode value = equalityValue(conditions, query.getRootAlias(), pathSegments(partitionKeyPath),
+                    parameters);
+            partitionKey = toPartitionKey(value);
+            if (partitionKey == null) {
+                return null;
+            }
+        }
+        return new PointReadQuery(query, parameters, id.asText(), partitionKey);
+    }
+
+    String getId() {
+        return id;
+    }
+
+    PartitionKey getPartitionKey() {
+        return partitionKey;
+    }
+
+    // The query's result rows for the document, which is the whole result of the query.
+    List<Document> evaluate(Document document) throws IOException {
+        List<SqlQuery.Row> rows = new ArrayList<>();
+        query.evaluate(mapper.readTree(document.toJson()), parameters, rows);
+        if (!query.getOrderBy().isEmpty()) {
+            rows.sort(query::compareRows);
+        }
+        int count = query.getTop() == null ? rows.size() : Math.min(rows.size(), query.getTop());
+        List<Document> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(new Document(rows.get(i).getValue().toString()));
+        }
+        return results;
+    }
+
+    private static void conjuncts(SqlExpression expression, List<SqlExpression> output) {
+        if (expression instanceof SqlExpression.And) {
+            conjuncts(((SqlExpression.And) expression).getLeft(), output);
+            conjuncts(((SqlExpression.And) expression).getRight(), output);
+        } else {
+            output.add(expression);
+        }
+    }
+
+    // The constant that one of the conditions requires alias.<path> to equal, or null.
+    private static JsonNode equalityValue(List<SqlExpression> conditions, String alias, List<String> path,
+            Map<String, JsonNode> parameters) {
+        for (SqlExpression condition : conditions) {
+            if (!(condition instanceof SqlExpression.Comparison)) {
+                continue;
+            }
+            SqlExpression.Comparison comparison = (SqlExpression.Comparison) condition;
+            if (comparison.getOperator() != SqlExpression.Operator.EQUAL) {
+                continue;
+            }
+            JsonNode value = null;
+            if (isPath(comparison.getLeft(), alias, path)) {
+                value = constant(comparison.getRight(), parameters);
+            } else if (isPath(comparison.getRight(), alias, path)) {
+                value = constant(comparison.getLeft(), parameters);
+            }
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPath(SqlExpression expression, String alias, List<String> path) {
+        if (!(expression instanceof SqlExpression.PropertyPath)) {
+            return false;
+        }
+        SqlExpression.PropertyPath propertyPath = (SqlExpression.PropertyPath) expression;
+        return propertyPath.getAlias().equals(alias) && propertyPath.getSegments().equals(path);
+    }
+
+    private static JsonNode constant(SqlExpression expression, Map<String, JsonNode> parameters) {
+        if (expression instanceof SqlExpression.Literal) {
+            return ((SqlExpression.Literal) expression).getValue();
+        }
+        if (expression instanceof SqlExpression.Parameter) {
+            JsonNode value = parameters.get(((SqlExpression.Parameter) expression).getName());
+            return value == null || value.isMissingNode() ? null : value;
+        }
+        return null;
+    }
+
+    private static List<String> pathSegments(String partitionKeyPath) {
+        String path = partitionKeyPath.startsWith("/") ? partitionKeyPath.substring(1) : partitionKeyPath;
+        return Arrays.asList(path.split("/"));
+    }
+
+    private static PartitionKey toPartitionKey(JsonNode value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.isTextual()) {
+            return new PartitionKey(value.asText());
+        }
+        if (value.isNumber()) {
+            return new PartitionKey(value.numberValue());
+        }
+        if (value.isBoolean()) {
+            return new PartitionKey(value.booleanValue());
+        }
+        return null;
+    }
+}
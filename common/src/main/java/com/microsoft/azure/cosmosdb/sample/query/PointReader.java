@@ -0,0 +1,113 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.PartitionKey;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+
+// Reads documents by id. A read of a missing document completes empty instead of failing,
+// and throttled reads are retried after the service's retry-after hint.
+public class PointReader {
+    private final DocumentStore store;
+    private final PointReadOptions options;
+
+    public PointReader(DocumentStore store) {
+        this(store, new PointReadOptions());
+    }
+
+    public PointReader(DocumentStore store, PointReadOptions options) {
+        this.store = store;
+        this.options = options;
+    }
+
+    // partitionKey may be null for an unpartitioned collection.
+    public Observable<StoreResponse<Document>> read(String collectionLink, String id, PartitionKey partitionKey) {
+        RequestOptions requestOptions = null;
+        if (partitionKey != null) {
+            requestOptions = new RequestOptions();
+            requestOptions.setPartitionKey(partitionKey);
+        }
+        String documentLink = documentLink(collectionLink, id);
+        RequestOptions readOptions = requestOptions;
+        AtomicInteger retries = new AtomicInteger();
+        return Observable.defer(() -> store.readDocument(documentLink, readOptions))
+                .retryWhen(errors -> errors.flatMap(error -> {
+                    if (!Throttling.isThrottled(error) || retries.incrementAndGet() > options.getMaxThrottleRetries()) {
+                        return Observable.error(error);
+                    }
+                    return Observable.timer(
+                            Throttling.getRetryAfterInMillis(error, options.getDefaultRetryAfterMillis()),
+                            TimeUnit.MILLISECONDS);
+                }))
+                .onErrorResumeNext(error -> {
+                    DocumentClientException clientException = Throttling.findClientException(error);
+                    if (clientException != null && clientException.getStatusCode() == 404) {
+                        return Observable.empty();
+                    }
+                    return Observable.error(error);
+                });
+    }
+
+    // Multi-get: reads every id with up to maxConcurrency reads in flight and emits the
+    // documents found in the order of ids. Ids that do not exist are skipped.
+    public Observable<StoreResponse<Document>> readMany(String collectionLink, List<String> ids) {
+        return readMany(collectionLink, ids, null);
+    }
+
+    // partitionKeys, if not null, holds the partition key of the document at the same index in ids.
+    public Observable<StoreResponse<Document>> readMany(String collectionLink, List<String> ids,
+            List<PartitionKey> partitionKeys) {
+        if (partitionKeys != null && partitionKeys.size() != ids.size()) {
+            throw new IllegalArgumentException("ids and partitionKeys must have the same size");
+        }
+        return Observable.range(0, ids.size())
+                .concatMapEager(index -> read(collectionLink, ids.get(index),
+                        partitionKeys == null ? null : partitionKeys.get(index)),
+                        options.getMaxConcurrency(), options.getMaxConcurrency());
+    }
+
+    // Ids containing these characters cannot be addressed by link.
+    static boolean isAddressable(String id) {
+        return !id.isEmpty() && id.indexOf('/') < 0 && id.indexOf('\\') < 0 && id.indexOf('?') < 0
+                && id.indexOf('#') < 0;
+    }
+
+    static String documentLink(String collectionLink, String id) {
+        if (!isAddressable(id)) {
+            throw new IllegalArgumentException("The id cannot be used in a document link: " + id);
+        }
+        String link = collectionLink.endsWith("/") ? collectionLink : collectionLink + "/";
+        return link + "docs/" + id;
+    }
+}
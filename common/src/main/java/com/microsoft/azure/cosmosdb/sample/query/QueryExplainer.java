@@ -0,0 +1,221 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.IndexingPolicy;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.index.DocumentIndex;
+import com.microsoft.azure.cosmosdb.sample.index.IndexPlan;
+import com.microsoft.azure.cosmosdb.sample.index.IndexRequirement;
+import com.microsoft.azure.cosmosdb.sample.index.IndexingPolicyRules;
+import com.microsoft.azure.cosmosdb.sample.sql.QueryParameters;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.ServerQueryMetrics;
+
+import rx.Observable;
+
+// Explains what a query costs. The query is parsed and planned against the collection's
+// indexing policy, the documents it loads and returns are estimated by running the plan
+// over a sample of the collection, and then the query is run for real with query metrics
+// turned on, page by page, so the estimates can be compared with what the service did.
+//
+// The explainer has no way to read the collection's indexing policy through a
+// DocumentStore, so it must be given the one the collection was created with; the
+// default is the service default.
+public class QueryExplainer {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SAMPLE_QUERY = "SELECT * FROM c";
+
+    private final DocumentStore store;
+    private IndexingPolicy indexingPolicy = new IndexingPolicy();
+    private int sampleSize = 1000;
+    private long collectionDocumentCount;
+
+    public QueryExplainer(DocumentStore store) {
+        this.store = store;
+    }
+
+    public IndexingPolicy getIndexingPolicy() {
+        return indexingPolicy;
+    }
+
+    public void setIndexingPolicy(IndexingPolicy indexingPolicy) {
+        if (indexingPolicy == null) {
+            throw new IllegalArgumentException("indexingPolicy must not be null");
+        }
+        this.indexingPolicy = indexingPolicy;
+    }
+
+    // How many documents are read to estimate the query's selectivity.
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public void setSampleSize(int sampleSize) {
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("sampleSize must be at least 1");
+        }
+        this.sampleSize = sampleSize;
+    }
+
+    // 0 (the default) takes the sample as the whole collection, which it is whenever the
+    // collection holds no more than sampleSize documents; otherwise the estimates are
+    // scaled up to this many documents.
+    public long getCollectionDocumentCount() {
+        return collectionDocumentCount;
+    }
+
+    public void setCollectionDocumentCount(long collectionDocumentCount) {
+        if (collectionDocumentCount < 0) {
+            throw new IllegalArgumentException("collectionDocumentCount must not be negative");
+        }
+        this.collectionDocumentCount = collectionDocumentCount;
+    }
+
+    public Observable<QueryExplanation> explain(String collectionLink, String queryText, FeedOptions options) {
+        return explain(collectionLink, new SqlQuerySpec(queryText), options);
+    }
+
+    // Fails with a SqlSyntaxException for a query outside the SQL subset SqlQuery parses. A
+    // query the service rejects is still explained, with the service's message as its error.
+    public Observable<QueryExplanation> explain(String collectionLink, SqlQuerySpec querySpec, FeedOptions options) {
+        return Observable.defer(() -> {
+            SqlQuery query = SqlQuery.parse(querySpec.getQueryText());
+            Map<String, JsonNode> parameters;
+            try {
+                parameters = QueryParameters.of(querySpec);
+            } catch (IOException e) {
+                return Observable.error(e);
+            }
+            IndexingPolicyRules rules = IndexingPolicyRules.of(indexingPolicy);
+            IndexPlan plan = IndexPlan.of(query, parameters, rules);
+            Map<IndexRequirement, String> requirements = new LinkedHashMap<>();
+            for (IndexRequirement requirement : IndexRequirement.of(query, parameters)) {
+                requirements.put(requirement, rules.unservedReason(requirement));
+            }
+
+            double[] sampleCharge = new double[1];
+            return store.queryDocuments(collectionLink, new SqlQuerySpec(SAMPLE_QUERY), sampleOptions())
+                    .doOnNext(page -> sampleCharge[0] += page.getRequestCharge())
+                    .concatMapIterable(FeedPage::getResults)
+                    .take(sampleSize)
+                    .toList()
+                    .map(sample -> estimate(querySpec.getQueryText(), query, parameters, rules, plan, requirements,
+                            sample, sampleCharge[0]))
+                    .concatMap(explanation -> execute(collectionLink, querySpec, options, explanation));
+        });
+    }
+
+    private QueryExplanation estimate(String queryText, SqlQuery query, Map<String, JsonNode> parameters,
+            IndexingPolicyRules rules, IndexPlan plan, Map<IndexRequirement, String> requirements,
+            List<Document> sample, double sampleCharge) {
+        DocumentIndex index = new DocumentIndex(rules);
+        List<ObjectNode> documents = new ArrayList<>(sample.size());
+        for (Document document : sample) {
+            try {
+                ObjectNode json = (ObjectNode) MAPPER.readTree(document.toJson());
+                documents.add(json);
+                index.add(json);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read a sample document", e);
+            }
+        }
+
+        long retrieved;
+        List<SqlQuery.Row> rows = new ArrayList<>();
+        if (plan.isScan()) {
+            retrieved = documents.size();
+            for (ObjectNode document : documents) {
+                query.evaluate(document, parameters, rows);
+            }
+        } else {
+            BitSet candidates = plan.candidates(index);
+            retrieved = candidates.cardinality();
+            for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+                query.evaluate(index.document(ordinal), parameters, rows);
+            }
+        }
+        double scale = collectionDocumentCount == 0 || documents.isEmpty() ? 1
+                : (double) collectionDocumentCount / documents.size();
+        long output = Math.round(rows.size() * scale);
+        if (query.getTop() != null) {
+            output = Math.min(output, query.getTop());
+        }
+        return new QueryExplanation(queryText, query, requirements, plan, documents.size(), sampleCharge,
+                Math.round(retrieved * scale), output);
+    }
+
+    private Observable<QueryExplanation> execute(String collectionLink, SqlQuerySpec querySpec, FeedOptions options,
+            QueryExplanation explanation) {
+        long[] lastNanos = new long[1];
+        return store.queryDocuments(collectionLink, querySpec, metricsOptions(options))
+                .doOnSubscribe(() -> lastNanos[0] = System.nanoTime())
+                .doOnNext(page -> {
+                    long now = System.nanoTime();
+                    explanation.addPage(page.getResults().size(), page.getRequestCharge(),
+                            TimeUnit.NANOSECONDS.toMillis(now - lastNanos[0]),
+                            ServerQueryMetrics.fromHeaders(page.getResponseHeaders()));
+                    lastNanos[0] = now;
+                })
+                .count()
+                .map(pages -> explanation)
+                .onErrorResumeNext(error -> {
+                    if (!(error instanceof DocumentClientException)) {
+                        return Observable.error(error);
+                    }
+                    explanation.setError(error.getMessage());
+                    return Observable.just(explanation);
+                });
+    }
+
+    // The whole collection is sampled, whatever the query's partition key.
+    private FeedOptions sampleOptions() {
+        FeedOptions sampleOptions = new FeedOptions();
+        sampleOptions.setMaxItemCount(Math.min(sampleSize, 1000));
+        sampleOptions.setEnableCrossPartitionQuery(true);
+        sampleOptions.setEnableScanInQuery(true);
+        return sampleOptions;
+    }
+
+    private static FeedOptions metricsOptions(FeedOptions options) {
+        FeedOptions metricsOptions = options == null ? new FeedOptions() : new FeedOptions(options);
+        metricsOptions.setPopulateQueryMetrics(true);
+        return metricsOptions;
+    }
+}
@@ -0,0 +1,268 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.microsoft.azure.cosmosdb.sample.index.IndexPlan;
+import com.microsoft.azure.cosmosdb.sample.index.IndexRequirement;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlExpression;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+import com.microsoft.azure.cosmosdb.sample.store.ServerQueryMetrics;
+
+// What QueryExplainer found out about one query: how it was parsed, which of the paths it
+// filters and sorts on the indexing policy serves, how many documents it was expected to
+// load and return, and what each page of the real execution loaded, returned and cost.
+public class QueryExplanation {
+    private final String queryText;
+    private final SqlQuery query;
+    private final Map<IndexRequirement, String> requirements;
+    private final IndexPlan indexPlan;
+    private final int sampleSize;
+    private final double sampleRequestCharge;
+    private final long estimatedRetrievedDocumentCount;
+    private final long estimatedOutputDocumentCount;
+    private final List<PageExplanation> pages = new ArrayList<>();
+    private String error;
+
+    QueryExplanation(String queryText, SqlQuery query, Map<IndexRequirement, String> requirements,
+            IndexPlan indexPlan, int sampleSize, double sampleRequestCharge, long estimatedRetrievedDocumentCount,
+            long estimatedOutputDocumentCount) {
+        this.queryText = queryText;
+        this.query = query;
+        this.requirements = Collections.unmodifiableMap(new LinkedHashMap<>(requirements));
+        this.indexPlan = indexPlan;
+        this.sampleSize = sampleSize;
+        this.sampleRequestCharge = sampleRequestCharge;
+        this.estimatedRetrievedDocumentCount = estimatedRetrievedDocumentCount;
+        this.estimatedOutputDocumentCount = estimatedOutputDocumentCount;
+    }
+
+    public String getQueryText() {
+        return queryText;
+    }
+
+    public SqlQuery getQuery() {
+        return query;
+    }
+
+    // Every way the query uses a path, mapped to why the policy cannot serve it from the
+    // index, or to null if it can.
+    public Map<IndexRequirement, String> getIndexRequirements() {
+        return requirements;
+    }
+
+    // True when no filter or ORDER BY needs a scan.
+    public boolean isIndexServed() {
+        for (String reason : requirements.values()) {
+            if (reason != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The index lookups the filter turns into; a scan when there are none.
+    public IndexPlan getIndexPlan() {
+        return indexPlan;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    // What reading the sample cost; not part of the query's own charge.
+    public double getSampleRequestCharge() {
+        return sampleRequestCharge;
+    }
+
+    public long getEstimatedRetrievedDocumentCount() {
+        return estimatedRetrievedDocumentCount;
+    }
+
+    public long getEstimatedOutputDocumentCount() {
+        return estimatedOutputDocumentCount;
+    }
+
+    public List<PageExplanation> getPages() {
+        return Collections.unmodifiableList(pages);
+    }
+
+    // The service's message if the query failed, in which case the pages stop short.
+    public String getError() {
+        return error;
+    }
+
+    public double getRequestCharge() {
+        double total = 0;
+        for (PageExplanation page : pages) {
+            total += page.requestCharge;
+        }
+        return total;
+    }
+
+    public long getOutputDocumentCount() {
+        long total = 0;
+        for (PageExplanation page : pages) {
+            total += page.documents;
+        }
+        return total;
+    }
+
+    // The query metrics of every page added up; null if the service reported none.
+    public ServerQueryMetrics getQueryMetrics() {
+        ServerQueryMetrics total = null;
+        for (PageExplanation page : pages) {
+            if (page.metrics != null) {
+                total = total == null ? page.metrics : total.plus(page.metrics);
+            }
+        }
+        return total;
+    }
+
+    void addPage(int documents, double requestCharge, long elapsedMillis, ServerQueryMetrics metrics) {
+        pages.add(new PageExplanation(pages.size() + 1, documents, requestCharge, elapsedMillis, metrics));
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append("Query: ").append(queryText).append(String.format("%n%nPlan:%n"));
+        report.append(String.format("  FROM %s %s%n", query.getCollectionName(), query.getRootAlias()));
+        appendFilters(report, 0);
+        for (int i = 0; i < query.getJoins().size(); i++) {
+            SqlQuery.Join join = query.getJoins().get(i);
+            report.append(String.format("  JOIN %s IN %s%n", join.getAlias(), join.getSource()));
+            appendFilters(report, i + 1);
+        }
+        report.append("  SELECT ");
+        if (query.getTop() != null) {
+            report.append("TOP ").append(query.getTop()).append(' ');
+        }
+        if (query.isSelectAll()) {
+            report.append('*');
+        } else {
+            for (int i = 0; i < query.getSelectItems().size(); i++) {
+                SqlQuery.SelectItem item = query.getSelectItems().get(i);
+                report.append(i == 0 ? "" : ", ").append(item.getExpression()).append(" AS ").append(item.getName());
+            }
+        }
+        report.append(System.lineSeparator());
+        for (SqlQuery.OrderByItem item : query.getOrderBy()) {
+            report.append(String.format("  ORDER BY %s %s%n", item.getExpression(),
+                    item.isDescending() ? "DESC" : "ASC"));
+        }
+
+        report.append(String.format("%nIndex:%n"));
+        for (Map.Entry<IndexRequirement, String> requirement : requirements.entrySet()) {
+            report.append(String.format("  %-8s %s%s%n", requirement.getValue() == null ? "served" : "scanned",
+                    requirement.getKey(), requirement.getValue() == null ? "" : ": " + requirement.getValue()));
+        }
+        report.append(indexPlan.isScan() ? String.format("  no index lookups, every document is loaded%n")
+                : String.format("  %d lookup(s): %s%n", indexPlan.getLookupCount(), indexPlan));
+
+        ServerQueryMetrics metrics = getQueryMetrics();
+        report.append(String.format("%n%-22s %12s %12s%n", "documents", "estimated", "actual"));
+        report.append(String.format("%-22s %12d %12s%n", "loaded", estimatedRetrievedDocumentCount,
+                metrics == null ? "n/a" : Long.toString(metrics.getRetrievedDocumentCount())));
+        report.append(String.format("%-22s %12d %12d%n", "returned", estimatedOutputDocumentCount,
+                getOutputDocumentCount()));
+        report.append(String.format("(estimated from a sample of %d document(s), read for %.2f RU)%n", sampleSize,
+                sampleRequestCharge));
+
+        report.append(String.format("%n%6s %10s %10s %8s %10s %10s %10s%n", "page", "documents", "RU", "ms",
+                "loaded", "matched", "hit ratio"));
+        for (PageExplanation page : pages) {
+            if (page.metrics == null) {
+                report.append(String.format("%6d %10d %10.2f %8d %10s %10s %10s%n", page.number, page.documents,
+                        page.requestCharge, page.elapsedMillis, "n/a", "n/a", "n/a"));
+            } else {
+                report.append(String.format("%6d %10d %10.2f %8d %10d %10d %10.2f%n", page.number, page.documents,
+                        page.requestCharge, page.elapsedMillis, page.metrics.getRetrievedDocumentCount(),
+                        page.metrics.getIndexHitDocumentCount(), page.metrics.getIndexHitRatio()));
+            }
+        }
+        report.append(String.format("%d page(s), %d document(s), %.2f RU", pages.size(), getOutputDocumentCount(),
+                getRequestCharge()));
+        if (metrics != null) {
+            report.append(System.lineSeparator()).append("Server: ").append(metrics);
+        }
+        if (error != null) {
+            report.append(System.lineSeparator()).append("Failed: ").append(error);
+        }
+        return report.toString();
+    }
+
+    private void appendFilters(StringBuilder report, int joinCount) {
+        for (SqlExpression filter : query.getFilters(joinCount)) {
+            report.append(String.format("    WHERE %s%n", filter));
+        }
+    }
+
+    public static final class PageExplanation {
+        private final int number;
+        private final int documents;
+        private final double requestCharge;
+        private final long elapsedMillis;
+        private final ServerQueryMetrics metrics;
+
+        PageExplanation(int number, int documents, double requestCharge, long elapsedMillis,
+                ServerQueryMetrics metrics) {
+            this.number = number;
+            this.documents = documents;
+            this.requestCharge = requestCharge;
+            this.elapsedMillis = elapsedMillis;
+            this.metrics = metrics;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public int getDocuments() {
+            return documents;
+        }
+
+        public double getRequestCharge() {
+            return requestCharge;
+        }
+
+        // From the request for the page until the page arrived, throttling waits included.
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        // Null when the service did not report query metrics for the page.
+        public ServerQueryMetrics getMetrics() {
+            return metrics;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.projection.Projection;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+import rx.observables.SyncOnSubscribe;
+import rx.schedulers.Schedulers;
+
+// Runs a query one page at a time. A page is only requested from the service when the
+// subscriber (through a buffer of maxBufferedPages) asks for it, and every page carries
+// the continuation token that resumes the scan after it. Each page is fetched with its own
+// request, so a throttled page is retried on its own instead of failing the whole scan.
+// With point reads enabled, queries that can only match one document by id skip the query
+// engine and are answered with a single point read; see PointReadQuery.
+public class StreamingQueryExecutor {
+    private final DocumentStore store;
+
+    public StreamingQueryExecutor(DocumentStore store) {
+        this.store = store;
+    }
+
+    public Observable<FeedPage<Document>> queryPages(String collectionLink, String queryText,
+            StreamingQueryOptions options) {
+        return queryPages(collectionLink, new SqlQuerySpec(queryText), options);
+    }
+
+    public Observable<FeedPage<Document>> queryPages(String collectionLink, SqlQuerySpec querySpec,
+            StreamingQueryOptions options) {
+        return queryPagesFrom(collectionLink, querySpec, options, options.getRequestContinuation());
+    }
+
+    // The same pages with every result projected, e.g. with Projections.as(type) to bind
+    // the results to a POJO or Projections.lazy() to bind only what is read.
+    public <T> Observable<FeedPage<T>> queryPages(String collectionLink, String queryText,
+            StreamingQueryOptions options, Projection<T> projection) {
+        return queryPages(collectionLink, new SqlQuerySpec(queryText), options, projection);
+    }
+
+    public <T> Observable<FeedPage<T>> queryPages(String collectionLink, SqlQuerySpec querySpec,
+            StreamingQueryOptions options, Projection<T> projection) {
+        return queryPages(collectionLink, querySpec, options).map(page -> page.map(projection::project));
+    }
+
+    private Observable<FeedPage<Document>> queryPagesFrom(String collectionLink, SqlQuerySpec querySpec,
+            StreamingQueryOptions options, String startContinuation) {
+        if (startContinuation == null && options.getEnablePointReads()) {
+            PointReadQuery pointRead = PointReadQuery.detect(querySpec, options.getPartitionKey(),
+                    options.getPartitionKeyPath());
+            if (pointRead != null) {
+                return pointRead(collectionLink, querySpec, options, pointRead);
+            }
+        }
+
+        Observable<FeedPage<Document>> pages = Observable.create(SyncOnSubscribe.<Cursor, FeedPage<Document>>createStateful(
+                () -> new Cursor(startContinuation),
+                (cursor, observer) -> {
+                    if (cursor.finished) {
+                        observer.onCompleted();
+                        return cursor;
+                    }
+                    try {
+                        FeedPage<Document> page = fetchPage(collectionLink, querySpec, options, cursor.continuation);
+                        cursor.continuation = page.getResponseContinuation();
+                        cursor.finished = cursor.continuation == null;
+                        observer.onNext(page);
+                    } catch (Exception e) {
+                        observer.onError(e);
+                    }
+                    return cursor;
+                }));
+
+        // Page requests block the thread they run on, so keep them off the caller's thread;
+        // observeOn's buffer is what bounds how far ahead of the subscriber the scan runs.
+        return pages.subscribeOn(Schedulers.io())
+                .observeOn(Schedulers.computation(), options.getMaxBufferedPages());
+    }
+
+    // Runs the scan from the checkpoint's last token, saving the token only after the
+    // handler has finished with each page and clearing it when the scan completes.
+    public Observable<FeedPage<Document>> queryPages(String collectionLink, SqlQuerySpec querySpec,
+            StreamingQueryOptions options, ContinuationCheckpoint checkpoint, PageHandler handler) {
+        return Observable.defer(() -> {
+            String startContinuation;
+            try {
+                startContinuation = checkpoint.load();
+            } catch (Exception e) {
+                return Observable.error(e);
+            }
+            return queryPagesFrom(collectionLink, querySpec, options, startContinuation)
+                    .doOnNext(page -> {
+                        try {
+                            handler.handle(page);
+                            if (page.getResponseContinuation() != null) {
+                                checkpoint.save(page.getResponseContinuation());
+                            }
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    })
+                    .doOnCompleted(() -> {
+                        try {
+                            checkpoint.clear();
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    });
+        });
+    }
+
+    // The whole result in one page. If the read is rejected as a bad request (typically a
+    // partitioned collection without a partition key) the query runs as usual instead.
+    private Observable<FeedPage<Document>> pointRead(String collectionLink, SqlQuerySpec querySpec,
+            StreamingQueryOptions options, PointReadQuery pointRead) {
+        PointReadOptions readOptions = new PointReadOptions();
+        readOptions.setMaxThrottleRetries(options.getMaxThrottleRetries());
+        readOptions.setDefaultRetryAfterMillis(options.getDefaultRetryAfterMillis());
+        return new PointReader(store, readOptions).read(collectionLink, pointRead.getId(), pointRead.getPartitionKey())
+                .map(response -> {
+                    try {
+                        return new FeedPage<>(pointRead.evaluate(response.getResource()),
+                                response.getRequestCharge(), null, response.getSessionToken(),
+                                response.getActivityId(), null);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .defaultIfEmpty(new FeedPage<>(Collections.<Document>emptyList(), 0, null, null, null, null))
+                .onErrorResumeNext(error -> {
+                    DocumentClientException clientException = Throttling.findClientException(error);
+                    if (clientException != null && clientException.getStatusCode() == 400) {
+                        return queryPagesFrom(collectionLink, querySpec, withoutPointReads(options), null);
+                    }
+                    return Observable.error(error);
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    private static StreamingQueryOptions withoutPointReads(StreamingQueryOptions options) {
+        StreamingQueryOptions fallback = new StreamingQueryOptions(options);
+        fallback.setEnablePointReads(false);
+        return fallback;
+    }
+
+    private FeedPage<Document> fetchPage(String collectionLink, SqlQuerySpec querySpec,
+            StreamingQueryOptions options, String continuation) throws InterruptedException {
+        for (int retries = 0;; retries++) {
+            try {
+                // first() unsubscribes once the page arrives, so nothing beyond it is fetched.
+                return store.queryDocuments(collectionLink, querySpec, options.toFeedOptions(continuation))
+                        .first().toBlocking().single();
+            } catch (RuntimeException e) {
+                if (!Throttling.isThrottled(e) || retries >= options.getMaxThrottleRetries()) {
+                    throw e;
+                }
+                TimeUnit.MILLISECONDS.sleep(Throttling.getRetryAfterInMillis(e, options.getDefaultRetryAfterMillis()));
+            }
+        }
+    }
+
+    public interface PageHandler {
+        void handle(FeedPage<Document> page) throws Exception;
+    }
+
+    private static class Cursor {
+        String continuation;
+        boolean finished;
+
+        Cursor(String continuation) {
+            this.continuation = continuation;
+        }
+    }
+}
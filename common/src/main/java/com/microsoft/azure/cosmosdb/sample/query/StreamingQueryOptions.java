@@ -0,0 +1,155 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.PartitionKey;
+
+public class StreamingQueryOptions {
+    private int maxItemCount = 500;
+    private int maxBufferedPages = 2;
+    private boolean enableCrossPartitionQuery = true;
+    private PartitionKey partitionKey;
+    private String requestContinuation;
+    private int maxThrottleRetries = 9;
+    private long defaultRetryAfterMillis = 100;
+    private boolean enablePointReads;
+    private String partitionKeyPath;
+
+    public StreamingQueryOptions() {
+    }
+
+    public StreamingQueryOptions(StreamingQueryOptions options) {
+        this.maxItemCount = options.maxItemCount;
+        this.maxBufferedPages = options.maxBufferedPages;
+        this.enableCrossPartitionQuery = options.enableCrossPartitionQuery;
+        this.partitionKey = options.partitionKey;
+        this.requestContinuation = options.requestContinuation;
+        this.maxThrottleRetries = options.maxThrottleRetries;
+        this.defaultRetryAfterMillis = options.defaultRetryAfterMillis;
+        this.enablePointReads = options.enablePointReads;
+        this.partitionKeyPath = options.partitionKeyPath;
+    }
+
+    // Documents per page, passed to the service as the max item count.
+    public int getMaxItemCount() {
+        return maxItemCount;
+    }
+
+    public void setMaxItemCount(int maxItemCount) {
+        this.maxItemCount = maxItemCount;
+    }
+
+    // Pages fetched ahead of the subscriber. Memory held by a scan is bounded by
+    // maxBufferedPages * maxItemCount documents no matter how large the result is.
+    public int getMaxBufferedPages() {
+        return maxBufferedPages;
+    }
+
+    public void setMaxBufferedPages(int maxBufferedPages) {
+        if (maxBufferedPages < 1) {
+            throw new IllegalArgumentException("maxBufferedPages must be at least 1");
+        }
+        this.maxBufferedPages = maxBufferedPages;
+    }
+
+    public boolean getEnableCrossPartitionQuery() {
+        return enableCrossPartitionQuery;
+    }
+
+    public void setEnableCrossPartitionQuery(boolean enableCrossPartitionQuery) {
+        this.enableCrossPartitionQuery = enableCrossPartitionQuery;
+    }
+
+    public PartitionKey getPartitionKey() {
+        return partitionKey;
+    }
+
+    public void setPartitionKey(PartitionKey partitionKey) {
+        this.partitionKey = partitionKey;
+    }
+
+    // A continuation token saved from an earlier scan; the scan resumes after that page.
+    public String getRequestContinuation() {
+        return requestContinuation;
+    }
+
+    public void setRequestContinuation(String requestContinuation) {
+        this.requestContinuation = requestContinuation;
+    }
+
+    // How many times a throttled page request is retried before the scan fails.
+    public int getMaxThrottleRetries() {
+        return maxThrottleRetries;
+    }
+
+    public void setMaxThrottleRetries(int maxThrottleRetries) {
+        this.maxThrottleRetries = maxThrottleRetries;
+    }
+
+    public long getDefaultRetryAfterMillis() {
+        return defaultRetryAfterMillis;
+    }
+
+    public void setDefaultRetryAfterMillis(long defaultRetryAfterMillis) {
+        this.defaultRetryAfterMillis = defaultRetryAfterMillis;
+    }
+
+    // Whether queries that can only match one document by id are served with a point read.
+    // Off by default: a read is only addressable when the partition key is known, so turn it
+    // on for an unpartitioned collection or together with partitionKey or partitionKeyPath.
+    // Otherwise every such query on a partitioned collection pays for a rejected read first.
+    public boolean getEnablePointReads() {
+        return enablePointReads;
+    }
+
+    public void setEnablePointReads(boolean enablePointReads) {
+        this.enablePointReads = enablePointReads;
+    }
+
+    // The collection's partition key path, e.g. "/zip", so an equality predicate on it can
+    // supply the partition key of a point read. Leave null for unpartitioned collections.
+    public String getPartitionKeyPath() {
+        return partitionKeyPath;
+    }
+
+    public void setPartitionKeyPath(String partitionKeyPath) {
+        this.partitionKeyPath = partitionKeyPath;
+    }
+
+    // The options a single query request is sent with, e.g. to explain the query.
+    public FeedOptions toFeedOptions() {
+        return toFeedOptions(null);
+    }
+
+    FeedOptions toFeedOptions(String continuation) {
+        FeedOptions feedOptions = new FeedOptions();
+        feedOptions.setMaxItemCount(maxItemCount);
+        feedOptions.setEnableCrossPartitionQuery(enableCrossPartitionQuery);
+        if (partitionKey != null) {
+            feedOptions.setPartitionKey(partitionKey);
+        }
+        feedOptions.setRequestContinuation(continuation);
+        return feedOptions;
+    }
+}
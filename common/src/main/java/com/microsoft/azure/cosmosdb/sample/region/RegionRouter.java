@@ -0,0 +1,346 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.region;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.microsoft.azure.cosmosdb.ChangeFeedOptions;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.ResourceLinks;
+import com.microsoft.azure.cosmosdb.sample.store.SessionTokens;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+// A DocumentStore over the regions of one geo-replicated account, each reached through a
+// DocumentStore of its own. Writes go to the write region. Reads go to the region with the
+// lowest moving average of request and probe latency among those that are up; regions
+// that haven't answered yet follow in the order they were given, and regions that are down
+// come last. A read that fails with a timeout, a 503, 408 or 410 counts against its region
+// and is sent to the next region in the ranking; a region that fails failureThreshold
+// times in a row is taken out of the ranking for unavailableMillis.
+//
+// With session consistency, every read carries the merged session token of the responses
+// this router has seen for the collection, unless the caller passed one. A region that
+// hasn't caught up with the token turns the read away (404, substatus 1002) and it is sent
+// on to the next region, which ends with the write region at the latest. Queries and change
+// feed reads are routed a page at a time, so a scan fails over between pages.
+public class RegionRouter implements DocumentStore, AutoCloseable {
+    private static final int READ_SESSION_NOT_AVAILABLE = 1002;
+
+    private final String writeRegion;
+    private final Map<String, DocumentStore> stores = new LinkedHashMap<>();
+    private final Map<String, RegionStats> stats = new LinkedHashMap<>();
+    private final RegionRoutingOptions options;
+    private final ConcurrentMap<String, String> sessionTokens = new ConcurrentHashMap<>();
+    private Subscription probes;
+
+    // regions is in order of preference for regions without a latency measurement yet.
+    public RegionRouter(String writeRegion, Map<String, ? extends DocumentStore> regions,
+            RegionRoutingOptions options) {
+        if (!regions.containsKey(writeRegion)) {
+            throw new IllegalArgumentException("The write region " + writeRegion + " is not one of the regions");
+        }
+        this.writeRegion = writeRegion;
+        this.options = options;
+        for (Map.Entry<String, ? extends DocumentStore> region : regions.entrySet()) {
+            stores.put(region.getKey(), region.getValue());
+            stats.put(region.getKey(), new RegionStats(region.getKey(), region.getKey().equals(writeRegion),
+                    stats.size()));
+        }
+    }
+
+    // Probes every region at the probe interval, if the options name a probe collection.
+    public synchronized void start() {
+        if (probes != null || options.getProbeCollectionLink() == null) {
+            return;
+        }
+        probes = Observable.interval(0, options.getProbeIntervalMillis(), TimeUnit.MILLISECONDS)
+                .onBackpressureDrop()
+                .concatMap(tick -> Observable.from(stores.keySet()).flatMap(this::probe).ignoreElements())
+                .subscribe(ignored -> {
+                }, error -> System.err.println("Region probes stopped: " + error.getMessage()));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (probes != null) {
+            probes.unsubscribe();
+            probes = null;
+        }
+    }
+
+    // The regions reads are sent to, best first; ConnectionPolicy.setPreferredLocations
+    // takes the same list.
+    public List<String> getPreferredRegions() {
+        List<String> names = new ArrayList<>();
+        for (RegionStats region : ranking()) {
+            names.add(region.getName());
+        }
+        return names;
+    }
+
+    public String getWriteRegion() {
+        return writeRegion;
+    }
+
+    // Every region's statistics, in the order of getPreferredRegions.
+    public List<RegionStats> getStats() {
+        return ranking();
+    }
+
+    public RegionStats getStats(String region) {
+        return stats.get(region);
+    }
+
+    // The merged session token of the responses seen for the collection, or null.
+    public String getSessionToken(String collectionLink) {
+        return sessionTokens.get(ResourceLinks.normalize(collectionLink));
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> createDocument(String collectionLink, Document document,
+            RequestOptions requestOptions) {
+        return write(collectionLink, store -> store.createDocument(collectionLink, document, requestOptions));
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> upsertDocument(String collectionLink, Document document,
+            RequestOptions requestOptions) {
+        return write(collectionLink, store -> store.upsertDocument(collectionLink, document, requestOptions));
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions requestOptions) {
+        String collectionLink = ResourceLinks.collectionOf(documentLink);
+        return read(collectionLink, ranking(), 0, (store, sessionToken) -> store.readDocument(documentLink,
+                SessionTokens.withSessionToken(requestOptions, sessionToken)), StoreResponse::getSessionToken);
+    }
+
+    @Override
+    public Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions feedOptions) {
+        return pages(collectionLink, querySpec, feedOptions,
+                feedOptions == null ? null : feedOptions.getRequestContinuation());
+    }
+
+    private Observable<FeedPage<Document>> pages(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions feedOptions, String continuation) {
+        return read(collectionLink, ranking(), 0, (store, sessionToken) -> store.queryDocuments(collectionLink,
+                querySpec, forPage(feedOptions, continuation, sessionToken)).first(), FeedPage::getSessionToken)
+                .concatMap(page -> page.getResponseContinuation() == null ? Observable.just(page)
+                        : Observable.just(page).concatWith(
+                                pages(collectionLink, querySpec, feedOptions, page.getResponseContinuation())));
+    }
+
+    // Change feed reads take no session token, so they are only routed by latency and health.
+    @Override
+    public Observable<FeedPage<Document>> readChangeFeed(String collectionLink, ChangeFeedOptions changeFeedOptions) {
+        return read(collectionLink, ranking(), 0,
+                (store, sessionToken) -> store.readChangeFeed(collectionLink, changeFeedOptions).first(),
+                page -> null)
+                .concatMap(page -> page.getResults().isEmpty() ? Observable.just(page)
+                        : Observable.just(page).concatWith(readChangeFeed(collectionLink,
+                                resumedAt(changeFeedOptions, page.getResponseContinuation()))));
+    }
+
+    @Override
+    public Observable<List<String>> readPartitionKeyRangeIds(String collectionLink) {
+        return read(collectionLink, ranking(), 0,
+                (store, sessionToken) -> store.readPartitionKeyRangeIds(collectionLink), ranges -> null);
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> createStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions requestOptions) {
+        return write(collectionLink, store -> store.createStoredProcedure(collectionLink, storedProcedure,
+                requestOptions));
+    }
+
+    @Override
+    public Observable<StoreResponse<String>> executeStoredProcedure(String storedProcedureLink,
+            RequestOptions requestOptions, Object[] procedureParams) {
+        return write(ResourceLinks.collectionOf(storedProcedureLink),
+                store -> store.executeStoredProcedure(storedProcedureLink, requestOptions, procedureParams));
+    }
+
+    // There is a single write region, so a failed write is not sent anywhere else.
+    private <T> Observable<StoreResponse<T>> write(String collectionLink,
+            Func1<DocumentStore, Observable<StoreResponse<T>>> request) {
+        RegionStats region = stats.get(writeRegion);
+        return Observable.defer(() -> {
+            long startNanos = System.nanoTime();
+            return request.call(stores.get(writeRegion))
+                    .doOnNext(response -> {
+                        region.onSuccess(millisSince(startNanos), options.getLatencySmoothing(), false);
+                        onSessionToken(collectionLink, response.getSessionToken());
+                    })
+                    .doOnError(error -> {
+                        if (isRegionFailure(error)) {
+                            region.onFailure(options, false);
+                        }
+                    });
+        });
+    }
+
+    private <T> Observable<T> read(String collectionLink, List<RegionStats> candidates, int index,
+            RegionRequest<T> request, Func1<T, String> sessionTokenOf) {
+        return Observable.defer(() -> {
+            RegionStats region = candidates.get(index);
+            String sessionToken = options.getSessionConsistency() ? getSessionToken(collectionLink) : null;
+            long startNanos = System.nanoTime();
+            Observable<T> response = request.call(stores.get(region.getName()), sessionToken);
+            if (options.getRequestTimeoutMillis() > 0) {
+                response = response.timeout(options.getRequestTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+            return response
+                    .doOnNext(result -> {
+                        region.onSuccess(millisSince(startNanos), options.getLatencySmoothing(), false);
+                        onSessionToken(collectionLink, sessionTokenOf.call(result));
+                    })
+                    .onErrorResumeNext(error -> {
+                        boolean last = index + 1 >= candidates.size();
+                        if (isSessionNotAvailable(error)) {
+                            region.onSessionRetry();
+                            if (!last) {
+                                return read(collectionLink, candidates, index + 1, request, sessionTokenOf);
+                            }
+                        } else if (isRegionFailure(error)) {
+                            region.onFailure(options, false);
+                            if (!last) {
+                                region.onFailover();
+                                return read(collectionLink, candidates, index + 1, request, sessionTokenOf);
+                            }
+                        }
+                        return Observable.error(error);
+                    });
+        });
+    }
+
+    private Observable<Object> probe(String regionName) {
+        RegionStats region = stats.get(regionName);
+        return Observable.defer(() -> {
+            long startNanos = System.nanoTime();
+            Observable<List<String>> response = stores.get(regionName)
+                    .readPartitionKeyRangeIds(options.getProbeCollectionLink());
+            if (options.getRequestTimeoutMillis() > 0) {
+                response = response.timeout(options.getRequestTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+            return response.<Object>map(ranges -> {
+                region.onSuccess(millisSince(startNanos), options.getLatencySmoothing(), true);
+                return ranges;
+            }).onErrorResumeNext(error -> {
+                region.onFailure(options, true);
+                return Observable.empty();
+            });
+        }).subscribeOn(Schedulers.io());
+    }
+
+    private List<RegionStats> ranking() {
+        long nowNanos = System.nanoTime();
+        List<RegionStats> ranked = new ArrayList<>(stats.values());
+        ranked.sort(Comparator.comparing((RegionStats region) -> !region.isAvailable(nowNanos))
+                .thenComparingDouble(region -> {
+                    double latency = region.getSmoothedLatencyMillis();
+                    return Double.isNaN(latency) ? Double.MAX_VALUE : latency;
+                })
+                .thenComparingInt(RegionStats::getOrder));
+        return ranked;
+    }
+
+    private void onSessionToken(String collectionLink, String sessionToken) {
+        if (sessionToken != null) {
+            sessionTokens.merge(ResourceLinks.normalize(collectionLink), sessionToken, SessionTokens::merge);
+        }
+    }
+
+    private static boolean isSessionNotAvailable(Throwable error) {
+        DocumentClientException clientException = Throttling.findClientException(error);
+        return clientException != null && clientException.getStatusCode() == 404
+                && clientException.getSubStatusCode() == READ_SESSION_NOT_AVAILABLE;
+    }
+
+    // Errors that say something about the region rather than the request. Anything that
+    // isn't a DocumentClientException, such as a connection failure, counts as well.
+    private static boolean isRegionFailure(Throwable error) {
+        if (error instanceof TimeoutException) {
+            return true;
+        }
+        DocumentClientException clientException = Throttling.findClientException(error);
+        if (clientException == null) {
+            return true;
+        }
+        int statusCode = clientException.getStatusCode();
+        return statusCode == 503 || statusCode == 408 || statusCode == 410;
+    }
+
+    private static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+
+    private static FeedOptions forPage(FeedOptions feedOptions, String continuation, String sessionToken) {
+        FeedOptions page = feedOptions == null ? new FeedOptions() : new FeedOptions(feedOptions);
+        page.setRequestContinuation(continuation);
+        return SessionTokens.withSessionToken(page, sessionToken);
+    }
+
+    private static ChangeFeedOptions resumedAt(ChangeFeedOptions changeFeedOptions, String continuation) {
+        ChangeFeedOptions resumed = new ChangeFeedOptions(changeFeedOptions);
+        resumed.setRequestContinuation(continuation);
+        return resumed;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-20s %5s %9s %8s %8s %8s %8s %8s %8s %8s%n", "region", "role", "state",
+                "avg ms", "requests", "p50 ms", "p99 ms", "failures", "failover", "session"));
+        for (RegionStats region : ranking()) {
+            report.append(region).append(String.format("%n"));
+        }
+        return report.toString();
+    }
+
+    private interface RegionRequest<T> {
+        Observable<T> call(DocumentStore store, String sessionToken);
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.region;
+
+public class RegionRoutingOptions {
+    private String probeCollectionLink;
+    private long probeIntervalMillis = 5000;
+    private double latencySmoothing = 0.2;
+    private int failureThreshold = 3;
+    private long unavailableMillis = 30000;
+    private long requestTimeoutMillis;
+    private boolean sessionConsistency = true;
+
+    // The collection whose partition key ranges are read to probe every region's latency.
+    // Without one, regions are only ranked by the latency of the requests routed to them.
+    public String getProbeCollectionLink() {
+        return probeCollectionLink;
+    }
+
+    public void setProbeCollectionLink(String probeCollectionLink) {
+        this.probeCollectionLink = probeCollectionLink;
+    }
+
+    public long getProbeIntervalMillis() {
+        return probeIntervalMillis;
+    }
+
+    public void setProbeIntervalMillis(long probeIntervalMillis) {
+        if (probeIntervalMillis < 1) {
+            throw new IllegalArgumentException("probeIntervalMillis must be at least 1");
+        }
+        this.probeIntervalMillis = probeIntervalMillis;
+    }
+
+    // The weight of each new latency sample in a region's moving average. Higher values
+    // follow changes faster and let a single slow request reorder the regions more easily.
+    public double getLatencySmoothing() {
+        return latencySmoothing;
+    }
+
+    public void setLatencySmoothing(double latencySmoothing) {
+        if (latencySmoothing <= 0 || latencySmoothing > 1) {
+            throw new IllegalArgumentException("latencySmoothing must be greater than 0 and at most 1");
+        }
+        this.latencySmoothing = latencySmoothing;
+    }
+
+    // Consecutive failed requests or probes after which a region is taken out of the ranking.
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+    }
+
+    // How long a failed region stays out of the ranking before it is tried again.
+    public long getUnavailableMillis() {
+        return unavailableMillis;
+    }
+
+    public void setUnavailableMillis(long unavailableMillis) {
+        if (unavailableMillis < 0) {
+            throw new IllegalArgumentException("unavailableMillis must not be negative");
+        }
+        this.unavailableMillis = unavailableMillis;
+    }
+
+    // A read that takes longer than this counts as a failure of its region and is sent to
+    // the next one. Zero waits for as long as the store does.
+    public long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+        if (requestTimeoutMillis < 0) {
+            throw new IllegalArgumentException("requestTimeoutMillis must not be negative");
+        }
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    // Whether reads carry the session token of the writes and reads before them, so that a
+    // region is only read once it has caught up with them. Turn it off for clients that
+    // don't use Session consistency.
+    public boolean getSessionConsistency() {
+        return sessionConsistency;
+    }
+
+    public void setSessionConsistency(boolean sessionConsistency) {
+        this.sessionConsistency = sessionConsistency;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.region;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.microsoft.azure.cosmosdb.sample.telemetry.HistogramSummary;
+import com.microsoft.azure.cosmosdb.sample.telemetry.LogLinearHistogram;
+
+// What RegionRouter knows about one region: the latency of the requests and probes sent to
+// it, how they ended, and whether it is currently taken out of the ranking.
+public class RegionStats {
+    private final String name;
+    private final boolean writeRegion;
+    private final int order;
+    private final LogLinearHistogram latencyMillis = new LogLinearHistogram(0.01);
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder sessionRetries = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+    private double smoothedLatencyMillis = Double.NaN;
+    private int consecutiveFailures;
+    private long unavailableUntilNanos;
+    private boolean unavailable;
+
+    RegionStats(String name, boolean writeRegion, int order) {
+        this.name = name;
+        this.writeRegion = writeRegion;
+        this.order = order;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isWriteRegion() {
+        return writeRegion;
+    }
+
+    // The position of the region in the list the router was built with.
+    public int getOrder() {
+        return order;
+    }
+
+    // Moving average of request and probe latency; NaN until the region has answered once.
+    public synchronized double getSmoothedLatencyMillis() {
+        return smoothedLatencyMillis;
+    }
+
+    // Latency of the requests routed to the region, probes excluded.
+    public HistogramSummary getLatencyMillis() {
+        return latencyMillis.summarize();
+    }
+
+    public long getRequestCount() {
+        return latencyMillis.getCount();
+    }
+
+    // Failed requests and probes, the ones that were sent on to another region included.
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    // Session reads the region turned away because it had not caught up with their token.
+    public long getSessionRetryCount() {
+        return sessionRetries.sum();
+    }
+
+    // Reads that failed here and were sent on to the next region.
+    public long getFailoverCount() {
+        return failovers.sum();
+    }
+
+    public long getProbeCount() {
+        return probes.sum();
+    }
+
+    public synchronized boolean isAvailable(long nowNanos) {
+        return !unavailable || nowNanos - unavailableUntilNanos >= 0;
+    }
+
+    synchronized void onSuccess(double millis, double smoothing, boolean probe) {
+        if (probe) {
+            probes.increment();
+        } else {
+            latencyMillis.record(millis);
+        }
+        smoothedLatencyMillis = Double.isNaN(smoothedLatencyMillis) ? millis
+                : smoothedLatencyMillis + smoothing * (millis - smoothedLatencyMillis);
+        consecutiveFailures = 0;
+        unavailable = false;
+    }
+
+    synchronized void onFailure(RegionRoutingOptions options, boolean probe) {
+        if (probe) {
+            probes.increment();
+        }
+        failures.increment();
+        if (++consecutiveFailures >= options.getFailureThreshold()) {
+            unavailable = true;
+            unavailableUntilNanos = System.nanoTime() + options.getUnavailableMillis() * 1_000_000L;
+        }
+    }
+
+    void onSessionRetry() {
+        sessionRetries.increment();
+    }
+
+    void onFailover() {
+        failovers.increment();
+    }
+
+    @Override
+    public String toString() {
+        HistogramSummary latency = getLatencyMillis();
+        return String.format("%-20s %5s %9s %8.1f %8d %8.1f %8.1f %8d %8d %8d", name, writeRegion ? "write" : "read",
+                isAvailable(System.nanoTime()) ? "available" : "down", getSmoothedLatencyMillis(), latency.getCount(),
+                latency.getP50(), latency.getP99(), getFailureCount(), getFailoverCount(), getSessionRetryCount());
+    }
+}
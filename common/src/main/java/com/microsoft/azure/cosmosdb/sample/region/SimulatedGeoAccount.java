@@ -0,0 +1,110 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.region;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.ResourceLinks;
+
+// A stand-in for a geo-replicated account, for trying out RegionRouter without one: every
+// region is a SimulatedRegion over the same DocumentStore (usually an InMemoryDocumentStore)
+// with a latency, replication lag and availability of its own that can be changed while it
+// runs. The first region added is the write region.
+//
+// Replication is only simulated for session consistency. The account remembers when each
+// write returned which session token, and a region serves a session read once the write
+// that produced its token is older than the region's lag. The documents a read returns are
+// always the latest ones.
+public class SimulatedGeoAccount {
+    private final DocumentStore store;
+    private final Map<String, SimulatedRegion> regions = new LinkedHashMap<>();
+    private final Map<String, NavigableMap<Long, String>> writes = new LinkedHashMap<>();
+
+    public SimulatedGeoAccount(DocumentStore store) {
+        this.store = store;
+    }
+
+    public synchronized SimulatedRegion addRegion(String name, long latencyMillis, long replicationLagMillis) {
+        if (regions.containsKey(name)) {
+            throw new IllegalArgumentException("There already is a region named " + name);
+        }
+        SimulatedRegion region = new SimulatedRegion(this, name, regions.isEmpty(), latencyMillis,
+                replicationLagMillis);
+        regions.put(name, region);
+        return region;
+    }
+
+    public synchronized SimulatedRegion getRegion(String name) {
+        return regions.get(name);
+    }
+
+    public synchronized String getWriteRegion() {
+        return regions.isEmpty() ? null : regions.keySet().iterator().next();
+    }
+
+    // In the order they were added, ready to pass to RegionRouter.
+    public synchronized Map<String, SimulatedRegion> getRegions() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(regions));
+    }
+
+    DocumentStore getStore() {
+        return store;
+    }
+
+    synchronized void onWrite(String collectionLink, String sessionToken) {
+        if (sessionToken == null) {
+            return;
+        }
+        long nowNanos = System.nanoTime();
+        NavigableMap<Long, String> log = writes.computeIfAbsent(ResourceLinks.normalize(collectionLink),
+                link -> new TreeMap<>());
+        log.put(nowNanos, sessionToken);
+        // Only the latest write older than the longest lag is still needed.
+        long maxLagMillis = 0;
+        for (SimulatedRegion region : regions.values()) {
+            maxLagMillis = Math.max(maxLagMillis, region.getReplicationLagMillis());
+        }
+        Long oldestNeeded = log.floorKey(nowNanos - TimeUnit.MILLISECONDS.toNanos(maxLagMillis));
+        if (oldestNeeded != null) {
+            log.headMap(oldestNeeded, false).clear();
+        }
+    }
+
+    // The session token of the collection as a region replicating with the given lag has
+    // it now, or null if no write has reached it yet.
+    synchronized String replicatedSessionToken(String collectionLink, long replicationLagMillis) {
+        NavigableMap<Long, String> log = writes.get(ResourceLinks.normalize(collectionLink));
+        if (log == null) {
+            return null;
+        }
+        Map.Entry<Long, String> replicated = log.floorEntry(
+                System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(replicationLagMillis));
+        return replicated == null ? null : replicated.getValue();
+    }
+}
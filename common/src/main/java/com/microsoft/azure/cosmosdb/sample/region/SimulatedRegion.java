@@ -0,0 +1,191 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.region;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.cosmosdb.ChangeFeedOptions;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.ResourceLinks;
+import com.microsoft.azure.cosmosdb.sample.store.SessionTokens;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+
+import rx.Observable;
+import rx.functions.Func0;
+
+// One region of a SimulatedGeoAccount. Every request waits latencyMillis before it reaches
+// the account's store. While the region is unavailable requests fail with a 503, writes
+// anywhere but in the write region fail with a 403, and session reads of a token the
+// region hasn't replicated yet fail with a 404 and substatus 1002, as the service does.
+public class SimulatedRegion implements DocumentStore {
+    private static final String SUB_STATUS_HEADER = "x-ms-substatus";
+
+    private final SimulatedGeoAccount account;
+    private final String name;
+    private final boolean writeRegion;
+    private volatile long latencyMillis;
+    private volatile long replicationLagMillis;
+    private volatile boolean available = true;
+
+    SimulatedRegion(SimulatedGeoAccount account, String name, boolean writeRegion, long latencyMillis,
+            long replicationLagMillis) {
+        this.account = account;
+        this.name = name;
+        this.writeRegion = writeRegion;
+        this.latencyMillis = latencyMillis;
+        this.replicationLagMillis = replicationLagMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isWriteRegion() {
+        return writeRegion;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        if (latencyMillis < 0) {
+            throw new IllegalArgumentException("latencyMillis must not be negative");
+        }
+        this.latencyMillis = latencyMillis;
+    }
+
+    // The write region never lags.
+    public long getReplicationLagMillis() {
+        return writeRegion ? 0 : replicationLagMillis;
+    }
+
+    public void setReplicationLagMillis(long replicationLagMillis) {
+        if (replicationLagMillis < 0) {
+            throw new IllegalArgumentException("replicationLagMillis must not be negative");
+        }
+        this.replicationLagMillis = replicationLagMillis;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> createDocument(String collectionLink, Document document,
+            RequestOptions options) {
+        return write(() -> account.getStore().createDocument(collectionLink, document, options)
+                .doOnNext(response -> account.onWrite(collectionLink, response.getSessionToken())));
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> upsertDocument(String collectionLink, Document document,
+            RequestOptions options) {
+        return write(() -> account.getStore().upsertDocument(collectionLink, document, options)
+                .doOnNext(response -> account.onWrite(collectionLink, response.getSessionToken())));
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions options) {
+        return read(ResourceLinks.collectionOf(documentLink), options == null ? null : options.getSessionToken(),
+                () -> account.getStore().readDocument(documentLink, options));
+    }
+
+    @Override
+    public Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions options) {
+        return read(collectionLink, options == null ? null : options.getSessionToken(),
+                () -> account.getStore().queryDocuments(collectionLink, querySpec, options));
+    }
+
+    @Override
+    public Observable<FeedPage<Document>> readChangeFeed(String collectionLink, ChangeFeedOptions options) {
+        return read(collectionLink, null, () -> account.getStore().readChangeFeed(collectionLink, options));
+    }
+
+    @Override
+    public Observable<List<String>> readPartitionKeyRangeIds(String collectionLink) {
+        return read(collectionLink, null, () -> account.getStore().readPartitionKeyRangeIds(collectionLink));
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> createStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions options) {
+        return write(() -> account.getStore().createStoredProcedure(collectionLink, storedProcedure, options));
+    }
+
+    @Override
+    public Observable<StoreResponse<String>> executeStoredProcedure(String storedProcedureLink,
+            RequestOptions options, Object[] procedureParams) {
+        String collectionLink = ResourceLinks.collectionOf(storedProcedureLink);
+        return write(() -> account.getStore().executeStoredProcedure(storedProcedureLink, options, procedureParams)
+                        .doOnNext(response -> account.onWrite(collectionLink, response.getSessionToken())));
+    }
+
+    private <T> Observable<T> write(Func0<Observable<T>> request) {
+        return afterLatency(() -> {
+            if (!writeRegion) {
+                return Observable.error(new DocumentClientException(403,
+                        "Writes are not allowed in the read region " + name));
+            }
+            return request.call();
+        });
+    }
+
+    private <T> Observable<T> read(String collectionLink, String sessionToken, Func0<Observable<T>> request) {
+        return afterLatency(() -> {
+            if (!writeRegion && sessionToken != null && !SessionTokens.covers(
+                    account.replicatedSessionToken(collectionLink, replicationLagMillis), sessionToken)) {
+                return Observable.error(new DocumentClientException(404,
+                        new com.microsoft.azure.cosmosdb.Error("NotFound",
+                                "The read session is not available in region " + name),
+                        Collections.singletonMap(SUB_STATUS_HEADER, "1002")));
+            }
+            return request.call();
+        });
+    }
+
+    private <T> Observable<T> afterLatency(Func0<Observable<T>> request) {
+        Observable<T> response = Observable.defer(() -> {
+            if (!available) {
+                return Observable.error(new DocumentClientException(503, "Region " + name + " is unavailable"));
+            }
+            return request.call();
+        });
+        long latency = latencyMillis;
+        return latency <= 0 ? response : response.delaySubscription(latency, TimeUnit.MILLISECONDS);
+    }
+}
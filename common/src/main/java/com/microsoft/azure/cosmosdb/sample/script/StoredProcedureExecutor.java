@@ -0,0 +1,233 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.script;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import com.microsoft.azure.cosmosdb.PartitionKey;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+import rx.subjects.AsyncSubject;
+
+// Runs stored procedure executions concurrently while keeping the executions of each
+// partition key in order. A script runs in a transaction scoped to one partition key, so
+// executions on the same key are queued and sent one at a time in the order they were
+// subscribed to, and executions on different keys run in parallel, up to maxConcurrency
+// at once. Keys with waiting executions take turns, so one busy key does not hold the
+// others back. Executions without a partition key (on an unpartitioned collection) share
+// one queue.
+//
+// Throttled executions are not retried here; run the executor over a
+// RateLimitedDocumentStore for that.
+public class StoredProcedureExecutor {
+    private static final String NO_PARTITION_KEY = "";
+
+    private final DocumentStore store;
+    private final int maxConcurrency;
+    private final Map<String, PartitionQueue> partitions = new HashMap<>();
+    private final ArrayDeque<PartitionQueue> ready = new ArrayDeque<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final DoubleAdder requestCharge = new DoubleAdder();
+    private int running;
+    private int queued;
+    private int maxQueued;
+
+    public StoredProcedureExecutor(DocumentStore store, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.store = store;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Observable<StoreResponse<String>> execute(String storedProcedureLink, PartitionKey partitionKey,
+            Object[] procedureParams) {
+        RequestOptions options = new RequestOptions();
+        options.setPartitionKey(partitionKey);
+        return execute(storedProcedureLink, options, procedureParams);
+    }
+
+    // The execution is queued when subscribed to; unsubscribing before it has been sent
+    // takes it out of the queue.
+    public Observable<StoreResponse<String>> execute(String storedProcedureLink, RequestOptions options,
+            Object[] procedureParams) {
+        return Observable.defer(() -> {
+            PartitionKey partitionKey = options == null ? null : options.getPartitionKey();
+            Execution execution = new Execution(storedProcedureLink, options, procedureParams,
+                    partitionKey == null ? NO_PARTITION_KEY : partitionKey.toString());
+            enqueue(execution);
+            return execution.result.doOnUnsubscribe(() -> cancel(execution));
+        });
+    }
+
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public double getRequestCharge() {
+        return requestCharge.sum();
+    }
+
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    // Executions waiting for their partition key's turn or for a free slot.
+    public synchronized int getQueuedCount() {
+        return queued;
+    }
+
+    public synchronized int getMaxQueuedCount() {
+        return maxQueued;
+    }
+
+    private void enqueue(Execution execution) {
+        synchronized (this) {
+            PartitionQueue partition = partitions.get(execution.partitionKey);
+            if (partition == null) {
+                partition = new PartitionQueue(execution.partitionKey);
+                partitions.put(execution.partitionKey, partition);
+            }
+            partition.executions.add(execution);
+            queued++;
+            maxQueued = Math.max(maxQueued, queued);
+            if (!partition.active && !partition.ready) {
+                partition.ready = true;
+                ready.add(partition);
+            }
+        }
+        drain();
+    }
+
+    private synchronized void cancel(Execution execution) {
+        if (!execution.started) {
+            PartitionQueue partition = partitions.get(execution.partitionKey);
+            if (partition != null && partition.executions.remove(execution)) {
+                queued--;
+            }
+        }
+    }
+
+    // Starts as many queued executions as there are free slots, each from the next key in
+    // turn.
+    private void drain() {
+        while (true) {
+            Execution next = null;
+            synchronized (this) {
+                while (next == null && running < maxConcurrency && !ready.isEmpty()) {
+                    PartitionQueue partition = ready.poll();
+                    partition.ready = false;
+                    next = partition.executions.poll();
+                    if (next == null) {
+                        partitions.remove(partition.partitionKey);
+                    } else {
+                        queued--;
+                        partition.active = true;
+                        running++;
+                    }
+                }
+                if (next == null) {
+                    return;
+                }
+                next.started = true;
+            }
+            start(next);
+        }
+    }
+
+    // Sent from an I/O thread: a store may answer on the calling thread, and a long queue
+    // would otherwise run on the stack of whoever finished the execution before it.
+    private void start(Execution execution) {
+        store.executeStoredProcedure(execution.storedProcedureLink, execution.options, execution.procedureParams)
+                .subscribeOn(Schedulers.io())
+                .subscribe(response -> {
+                    executed.incrementAndGet();
+                    requestCharge.add(response.getRequestCharge());
+                    execution.result.onNext(response);
+                }, error -> {
+                    failed.incrementAndGet();
+                    complete(execution);
+                    execution.result.onError(error);
+                }, () -> {
+                    complete(execution);
+                    execution.result.onCompleted();
+                });
+    }
+
+    // The key's next execution may go once this one has finished, whatever its outcome.
+    private void complete(Execution execution) {
+        synchronized (this) {
+            running--;
+            PartitionQueue partition = partitions.get(execution.partitionKey);
+            partition.active = false;
+            if (partition.executions.isEmpty()) {
+                partitions.remove(execution.partitionKey);
+            } else {
+                partition.ready = true;
+                ready.add(partition);
+            }
+        }
+        drain();
+    }
+
+    private static final class PartitionQueue {
+        private final String partitionKey;
+        private final ArrayDeque<Execution> executions = new ArrayDeque<>();
+        private boolean active;
+        private boolean ready;
+
+        PartitionQueue(String partitionKey) {
+            this.partitionKey = partitionKey;
+        }
+    }
+
+    private static final class Execution {
+        private final String storedProcedureLink;
+        private final RequestOptions options;
+        private final Object[] procedureParams;
+        private final String partitionKey;
+        private final AsyncSubject<StoreResponse<String>> result = AsyncSubject.create();
+        private boolean started;
+
+        Execution(String storedProcedureLink, RequestOptions options, Object[] procedureParams,
+                String partitionKey) {
+            this.storedProcedureLink = storedProcedureLink;
+            this.options = options;
+            this.procedureParams = procedureParams;
+            this.partitionKey = partitionKey;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.script;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.sample.store.AccountStore;
+import com.microsoft.azure.cosmosdb.sample.store.ResourceLinks;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+
+// Registers stored procedures without uploading a script the collection already has. The
+// first registration of a script in the process reads the stored one and only replaces it
+// if the SHA-256 of its body differs; after that the hash and link are remembered, so
+// registering the same body again is answered from memory and a changed body is uploaded
+// straight away. Concurrent registrations of the same body share one request.
+//
+// Scripts changed or deleted by other clients are not noticed; call forget to read the
+// stored one again on the next registration.
+public class StoredProcedureRegistry {
+    private final AccountStore account;
+    private final ConcurrentMap<String, Registration> registrations = new ConcurrentHashMap<>();
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+
+    public StoredProcedureRegistry(AccountStore account) {
+        this.account = account;
+    }
+
+    // Emits the link to execute the script by.
+    public Observable<String> register(String collectionLink, StoredProcedure storedProcedure) {
+        return Observable.defer(() -> {
+            String key = linkOf(collectionLink, storedProcedure.getId());
+            String hash = hashOf(storedProcedure.getBody());
+            Registration registration = registrations.compute(key, (k, existing) -> {
+                if (existing != null && existing.hash.equals(hash)) {
+                    unchanged.incrementAndGet();
+                    return existing;
+                }
+                return new Registration(hash, upload(collectionLink, storedProcedure, hash, existing != null));
+            });
+            return registration.link.doOnError(e -> registrations.remove(key, registration));
+        });
+    }
+
+    // The link of a script registered through this registry, or null.
+    public String getLink(String collectionLink, String storedProcedureId) {
+        Registration registration = registrations.get(linkOf(collectionLink, storedProcedureId));
+        return registration == null ? null : registration.resolvedLink;
+    }
+
+    // Deletes the script; one that does not exist is already deleted.
+    public Observable<String> delete(String collectionLink, String storedProcedureId) {
+        String link = linkOf(collectionLink, storedProcedureId);
+        return Observable.defer(() -> {
+            registrations.remove(link);
+            return account.deleteStoredProcedure(link, null)
+                    .map(response -> link)
+                    .onErrorResumeNext(e -> {
+                        DocumentClientException clientException = Throttling.findClientException(e);
+                        return clientException != null && clientException.getStatusCode() == 404
+                                ? Observable.just(link) : Observable.error(e);
+                    });
+        });
+    }
+
+    public void forget(String collectionLink, String storedProcedureId) {
+        registrations.remove(linkOf(collectionLink, storedProcedureId));
+    }
+
+    // Registrations that uploaded the script.
+    public long getUploadCount() {
+        return uploads.get();
+    }
+
+    // Registrations that found the script already there, in the collection or in memory.
+    public long getUnchangedCount() {
+        return unchanged.get();
+    }
+
+    private Observable<String> upload(String collectionLink, StoredProcedure storedProcedure, String hash,
+            boolean changed) {
+        Observable<StoredProcedure> existing = changed ? Observable.<StoredProcedure>empty()
+                : account.readStoredProcedure(linkOf(collectionLink, storedProcedure.getId()), null)
+                        .map(StoreResponse::getResource)
+                        .filter(stored -> hash.equals(hashOf(stored.getBody())))
+                        .onErrorResumeNext(e -> {
+                            DocumentClientException clientException = Throttling.findClientException(e);
+                            return clientException != null && clientException.getStatusCode() == 404
+                                    ? Observable.<StoredProcedure>empty() : Observable.error(e);
+                        });
+        Observable<StoredProcedure> uploaded = account.upsertStoredProcedure(collectionLink, storedProcedure, null)
+                .map(StoreResponse::getResource)
+                .doOnNext(stored -> uploads.incrementAndGet());
+        String key = linkOf(collectionLink, storedProcedure.getId());
+        return existing.doOnNext(stored -> unchanged.incrementAndGet())
+                .switchIfEmpty(uploaded)
+                .map(stored -> stored.getSelfLink() == null ? key : stored.getSelfLink())
+                .doOnNext(link -> {
+                    Registration registration = registrations.get(key);
+                    if (registration != null && registration.hash.equals(hash)) {
+                        registration.resolvedLink = link;
+                    }
+                })
+                .cache();
+    }
+
+    private static String linkOf(String collectionLink, String storedProcedureId) {
+        return ResourceLinks.normalize(collectionLink) + "/sprocs/" + storedProcedureId;
+    }
+
+    static String hashOf(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((body == null ? "" : body).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class Registration {
+        private final String hash;
+        private final Observable<String> link;
+        private volatile String resolvedLink;
+
+        Registration(String hash, Observable<String> link) {
+            this.hash = hash;
+            this.link = link;
+        }
+    }
+}
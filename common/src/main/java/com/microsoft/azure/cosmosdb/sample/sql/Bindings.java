@@ -0,0 +1,57 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.sql;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+// The values of the FROM and JOIN variables for one row, plus the query parameters.
+public class Bindings {
+    private final Map<String, JsonNode> variables = new HashMap<>();
+    private final Map<String, JsonNode> parameters;
+
+    public Bindings(Map<String, JsonNode> parameters) {
+        this.parameters = parameters;
+    }
+
+    public JsonNode get(String alias) {
+        JsonNode value = variables.get(alias);
+        return value == null ? MissingNode.getInstance() : value;
+    }
+
+    public void put(String alias, JsonNode value) {
+        variables.put(alias, value);
+    }
+
+    public void remove(String alias) {
+        variables.remove(alias);
+    }
+
+    public JsonNode getParameter(String name) {
+        JsonNode value = parameters.get(name);
+        return value == null ? MissingNode.getInstance() : value;
+    }
+}
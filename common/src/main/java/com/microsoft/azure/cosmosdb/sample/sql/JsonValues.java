@@ -0,0 +1,81 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.sql;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public final class JsonValues {
+    private JsonValues() {
+    }
+
+    // Orders two values of the same primitive type; null when the comparison is undefined
+    // (either side missing, different types, or objects/arrays).
+    public static Integer compare(JsonNode left, JsonNode right) {
+        if (left == null || right == null || left.isMissingNode() || right.isMissingNode()) {
+            return null;
+        }
+        if (left.isNumber() && right.isNumber()) {
+            return Double.compare(left.doubleValue(), right.doubleValue());
+        }
+        if (left.isTextual() && right.isTextual()) {
+            return Integer.signum(left.textValue().compareTo(right.textValue()));
+        }
+        if (left.isBoolean() && right.isBoolean()) {
+            return Boolean.compare(left.booleanValue(), right.booleanValue());
+        }
+        if (left.isNull() && right.isNull()) {
+            return 0;
+        }
+        return null;
+    }
+
+    // Total order across types for ORDER BY: undefined, null, booleans, numbers, strings.
+    public static int compareForSort(JsonNode left, JsonNode right) {
+        int leftRank = typeRank(left);
+        int rightRank = typeRank(right);
+        if (leftRank != rightRank) {
+            return Integer.compare(leftRank, rightRank);
+        }
+        Integer order = compare(left, right);
+        return order == null ? 0 : order;
+    }
+
+    private static int typeRank(JsonNode value) {
+        if (value == null || value.isMissingNode()) {
+            return 0;
+        }
+        if (value.isNull()) {
+            return 1;
+        }
+        if (value.isBoolean()) {
+            return 2;
+        }
+        if (value.isNumber()) {
+            return 3;
+        }
+        if (value.isTextual()) {
+            return 4;
+        }
+        return 5;
+    }
+}
@@ -0,0 +1,443 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.sql;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+// Expressions of the supported SQL subset. Evaluation follows Cosmos DB semantics: a
+// missing property is undefined (MissingNode), comparisons between different types are
+// undefined, and only a boolean true lets a row through a WHERE clause.
+public abstract class SqlExpression {
+
+    public abstract JsonNode evaluate(Bindings bindings);
+
+    public static boolean isTrue(JsonNode value) {
+        return value != null && value.isBoolean() && value.booleanValue();
+    }
+
+    static JsonNode bool(boolean value) {
+        return BooleanNode.valueOf(value);
+    }
+
+    public static final class Literal extends SqlExpression {
+        private final JsonNode value;
+
+        public Literal(JsonNode value) {
+            this.value = value;
+        }
+
+        public JsonNode getValue() {
+            return value;
+        }
+
+        @Override
+        public JsonNode evaluate(Bindings bindings) {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value.toString();
+        }
+    }
+
+    public static final class Parameter extends SqlExpression {
+        private final String name;
+
+        public Parameter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public JsonNode evaluate(Bindings bindings) {
+            return bindings.getParameter(name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    // alias.a.b[0] - the alias is the FROM or JOIN variable the path starts at.
+    public static final class PropertyPath extends SqlExpression {
+        private final String alias;
+        private final List<String> segments;
+
+        public PropertyPath(String alias, List<String> segments) {
+            this.alias = alias;
+            this.segments = Collections.unmodifiableList(segments);
+        }
+
+        public String getAlias() {
+            return alias;
+        }
+
+        public List<String> getSegments() {
+            return segments;
+        }
+
+        @Override
+        public JsonNode evaluate(Bindings bindings) {
+            JsonNode current = bindings.get(alias);
+            for (String segment : segments) {
+                if (current == null || current.isMissingNode()) {
+                    break;
+                }
+                current = current.isArray() && isIndex(segment) ? current.path(Integer.parseInt(segment))
+                        : current.path(segment);
+            }
+            return current == null ? MissingNode.getInstance() : current;
+        }
+
+        private static boolean isIndex(String segment) {
+            for (int i = 0; i < segment.length(); i++) {
+                if (!Character.isDigit(segment.charAt(i))) {
+                    return false;
+                }
+            }
+            return !segment.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(alias);
+            for (String segment : segments) {
+                text.append('.').append(segment);
+            }
+            return text.toString();
+        }
+    }
+
+    public enum Operator {
+        EQUAL("="), NOT_EQUAL("!="), LESS("<"), LESS_OR_EQUAL("<="), GREATER(">"), GREATER_OR_EQUAL(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        static Operator fromSymbol(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static final class Comparison extends SqlExpression {
+        private final Operator operator;
+        private final SqlExpression left;
+        private final SqlExpression right;
+
+        public Comparison(Operator operator, SqlExpression left, SqlExpression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        public SqlExpression getLeft() {
+            return left;
+        }
+
+        public SqlExpression getRight() {
+            return right;
+        }
+
+        @Override
+        public JsonNode evaluate(Bindings bindings) {
+            Integer order = JsonValues.compare(left.evaluate(bindings), right.evaluate(bindings));
+            if (order == null) {
+                return MissingNode.getInstance();
+            }
+            switch (operator) {
+            case EQUAL:
+                return bool(order == 0);
+            case NOT_EQUAL:
+                return bool(order != 0);
+            case LESS:
+                return bool(order < 0);
+            case LESS_OR_EQUAL:
+                return bool(order <= 0);
+            case GREATER:
+                return bool(order > 0);
+            default:
+                return bool(order >= 0);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return left + " " + operator.getSymbol() + " " + right;
+        }
+    }
+
+    public static final class And extends SqlExpression {
+        private final SqlExpression left;
+        private final SqlExpression right;
+
+        public And(SqlExpression left, SqlExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public SqlExpression getLeft() {
+            return left;
+        }
+
+        public SqlExpression getRight() {
+            return right;
+        }
+
+        @Override
+        public JsonNode evaluate(Bindings bindings) {
+            JsonNode first = left.evaluate(bindings);
+            if (first.isBoolean() && !first.booleanValue()) {
+                return first;
+            }
+            JsonNode second = right.evaluate(bindings);
+            if (second.isBoolean() && !second.booleanValue()) {
+                return second;
+            }
+            return isTrue(first) && isTrue(second) ? bool(true) : MissingNode.getInstance();
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " AND " + right + ")";
+        }
+    }
+
+    public static final class Or extends SqlExpression {
+        private final SqlExpression left;
+        private final SqlExpression right;
+
+        public Or(SqlExpression left, SqlExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public SqlExpression getLeft() {
+            return left;
+        }
+
+        public SqlExpression getRight() {
+            return right;
+        }
+
+        @Override
+        public JsonNode evaluate(Bindings bindings) {
+            JsonNode first = left.evaluate(bindings);
+            if (isTrue(first)) {
+                return first;
+            }
+            JsonNode second = right.evaluate(bindings);
+            if (isTrue(second)) {
+                return second;
+            }
+            return first.isBoolean() && second.isBoolean() ? bool(false) : MissingNode.getInstance();
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " OR " + right + ")";
+        }
+    }
+
+    public static final class Not extends SqlExpression {
+        private final SqlExpression operand;
+
+        public Not(SqlExpression operand) {
+            this.operand = operand;
+        }
+
+        public SqlExpression getOperand() {
+            return operand;
+        }
+
+        @Override
+        public JsonNode evaluate(Bindings bindings) {
+            JsonNode value = operand.evaluate(bindings);
+            return value.isBoolean() ? bool(!value.booleanValue()) : MissingNode.getInstance();
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + operand;
+        }
+    }
+
+    public static final class In extends SqlExpression {
+        private final SqlExpression operand;
+        private final List<SqlExpression> candidates;
+
+        public In(SqlExpression operand, List<SqlExpression> candidates) {
+            this.operand = operand;
+            this.candidates = Collections.unmodifiableList(candidates);
+        }
+
+        public SqlExpression getOperand() {
+            return operand;
+        }
+
+        public List<SqlExpression> getCandidates() {
+            return candidates;
+        }
+
+        @Override
+        public JsonNode evaluate(Bindings bindings) {
+            JsonNode value = operand.evaluate(bindings);
+            if (value.isMissingNode()) {
+                return value;
+            }
+            for (SqlExpression candidate : candidates) {
+                Integer order = JsonValues.compare(value, candidate.evaluate(bindings));
+                if (order != null && order == 0) {
+                    return bool(true);
+                }
+            }
+            return bool(false);
+        }
+
+        @Override
+        public String toString() {
+            return operand + " IN " + candidates;
+        }
+    }
+
+    public static final class FunctionCall extends SqlExpression {
+        private final String name;
+        private final List<SqlExpression> arguments;
+
+        public FunctionCall(String name, List<SqlExpression> arguments) {
+            this.name = name.toUpperCase(Locale.ROOT);
+            this.arguments = Collections.unmodifiableList(arguments);
+            int expected = expectedArguments(this.name);
+            if (expected < 0) {
+                throw new SqlSyntaxException("Unsupported function " + name);
+            }
+            if (expected != arguments.size()) {
+                throw new SqlSyntaxException(name + " takes " + expected + " argument(s)");
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<SqlExpression> getArguments() {
+            return arguments;
+        }
+
+        private static int expectedArguments(String name) {
+            switch (name) {
+            case "IS_DEFINED":
+            case "LOWER":
+            case "UPPER":
+            case "ARRAY_LENGTH":
+                return 1;
+            case "ARRAY_CONTAINS":
+            case "CONTAINS":
+            case "STARTSWITH":
+            case "ENDSWITH":
+                return 2;
+            default:
+                return -1;
+            }
+        }
+
+        @Override
+        public JsonNode evaluate(Bindings bindings) {
+            JsonNode first = arguments.get(0).evaluate(bindings);
+            switch (name) {
+            case "IS_DEFINED":
+                return bool(!first.isMissingNode());
+            case "LOWER":
+                return first.isTextual() ? TextNode.valueOf(first.textValue().toLowerCase(Locale.ROOT))
+                        : MissingNode.getInstance();
+            case "UPPER":
+                return first.isTextual() ? TextNode.valueOf(first.textValue().toUpperCase(Locale.ROOT))
+                        : MissingNode.getInstance();
+            case "ARRAY_LENGTH":
+                return first.isArray() ? IntNode.valueOf(first.size()) : MissingNode.getInstance();
+            case "ARRAY_CONTAINS": {
+                if (!first.isArray()) {
+                    return MissingNode.getInstance();
+                }
+                JsonNode wanted = arguments.get(1).evaluate(bindings);
+                for (JsonNode element : first) {
+                    Integer order = JsonValues.compare(element, wanted);
+                    if (order != null && order == 0) {
+                        return bool(true);
+                    }
+                }
+                return bool(false);
+            }
+            default: {
+                JsonNode second = arguments.get(1).evaluate(bindings);
+                if (!first.isTextual() || !second.isTextual()) {
+                    return MissingNode.getInstance();
+                }
+                String text = first.textValue();
+                String part = second.textValue();
+                if (name.equals("CONTAINS")) {
+                    return bool(text.contains(part));
+                }
+                return bool(name.equals("STARTSWITH") ? text.startsWith(part) : text.endsWith(part));
+            }
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(name).append('(');
+            for (int i = 0; i < arguments.size(); i++) {
+                text.append(i == 0 ? "" : ", ").append(arguments.get(i));
+            }
+            return text.append(')').toString();
+        }
+    }
+}
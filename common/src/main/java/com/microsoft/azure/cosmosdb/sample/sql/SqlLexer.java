@@ -0,0 +1,127 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class SqlLexer {
+    enum Type { IDENTIFIER, NUMBER, STRING, PARAMETER, SYMBOL, END }
+
+    static class Token {
+        final Type type;
+        final String text;
+        final int position;
+
+        Token(Type type, String text, int position) {
+            this.type = type;
+            this.text = text;
+            this.position = position;
+        }
+
+        boolean isKeyword(String keyword) {
+            return type == Type.IDENTIFIER && text.equalsIgnoreCase(keyword);
+        }
+
+        boolean isSymbol(String symbol) {
+            return type == Type.SYMBOL && text.equals(symbol);
+        }
+
+        @Override
+        public String toString() {
+            return type == Type.END ? "end of query" : "'" + text + "'";
+        }
+    }
+
+    static List<Token> tokenize(String queryText) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int length = queryText.length();
+        while (i < length) {
+            char c = queryText.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(queryText.charAt(i)) || queryText.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(new Token(Type.IDENTIFIER, queryText.substring(start, i), start));
+            } else if (c == '@') {
+                int start = i++;
+                while (i < length && (Character.isLetterOrDigit(queryText.charAt(i)) || queryText.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(new Token(Type.PARAMETER, queryText.substring(start, i), start));
+            } else if (Character.isDigit(c) || (c == '-' && i + 1 < length && Character.isDigit(queryText.charAt(i + 1))
+                    && !endsOperand(tokens))) {
+                int start = i++;
+                while (i < length && (Character.isDigit(queryText.charAt(i)) || queryText.charAt(i) == '.'
+                        || queryText.charAt(i) == 'e' || queryText.charAt(i) == 'E'
+                        || ((queryText.charAt(i) == '-' || queryText.charAt(i) == '+')
+                                && (queryText.charAt(i - 1) == 'e' || queryText.charAt(i - 1) == 'E')))) {
+                    i++;
+                }
+                tokens.add(new Token(Type.NUMBER, queryText.substring(start, i), start));
+            } else if (c == '\'' || c == '"') {
+                int start = i++;
+                StringBuilder value = new StringBuilder();
+                while (i < length && queryText.charAt(i) != c) {
+                    if (queryText.charAt(i) == '\\' && i + 1 < length) {
+                        i++;
+                    }
+                    value.append(queryText.charAt(i++));
+                }
+                if (i >= length) {
+                    throw new SqlSyntaxException("Unterminated string literal at position " + start);
+                }
+                i++;
+                tokens.add(new Token(Type.STRING, value.toString(), start));
+            } else {
+                String two = i + 1 < length ? queryText.substring(i, i + 2) : "";
+                if (two.equals("!=") || two.equals("<>") || two.equals("<=") || two.equals(">=")) {
+                    tokens.add(new Token(Type.SYMBOL, two.equals("<>") ? "!=" : two, i));
+                    i += 2;
+                } else if ("=<>(),.[]*".indexOf(c) >= 0) {
+                    tokens.add(new Token(Type.SYMBOL, String.valueOf(c), i));
+                    i++;
+                } else {
+                    throw new SqlSyntaxException("Unexpected character '" + c + "' at position " + i);
+                }
+            }
+        }
+        tokens.add(new Token(Type.END, "", length));
+        return tokens;
+    }
+
+    // A '-' after an operand is subtraction, not the sign of a number.
+    private static boolean endsOperand(List<Token> tokens) {
+        if (tokens.isEmpty()) {
+            return false;
+        }
+        Token last = tokens.get(tokens.size() - 1);
+        return last.type == Type.NUMBER || last.type == Type.STRING || last.type == Type.PARAMETER
+                || last.isSymbol(")") || last.isSymbol("]")
+                || (last.type == Type.IDENTIFIER && !SqlParser.isReserved(last.text));
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlLexer.Token;
+
+class SqlParser {
+    private static final Set<String> RESERVED = new HashSet<>(Arrays.asList("SELECT", "TOP", "FROM", "AS", "JOIN",
+            "IN", "WHERE", "AND", "OR", "NOT", "ORDER", "BY", "ASC", "DESC", "TRUE", "FALSE", "NULL", "VALUE"));
+
+    private final List<Token> tokens;
+    private int position;
+    private int unnamedItems;
+
+    SqlParser(String queryText) {
+        this.tokens = SqlLexer.tokenize(queryText);
+    }
+
+    static boolean isReserved(String word) {
+        return RESERVED.contains(word.toUpperCase(Locale.ROOT));
+    }
+
+    SqlQuery parseQuery() {
+        expectKeyword("SELECT");
+        Integer top = null;
+        if (acceptKeyword("TOP")) {
+            top = Integer.valueOf(expect(SqlLexer.Type.NUMBER).text);
+        }
+        if (peek().isKeyword("VALUE")) {
+            throw error("SELECT VALUE is not supported");
+        }
+
+        List<SqlQuery.SelectItem> selectItems = null;
+        if (!acceptSymbol("*")) {
+            selectItems = new ArrayList<>();
+            do {
+                selectItems.add(parseSelectItem());
+            } while (acceptSymbol(","));
+        }
+
+        expectKeyword("FROM");
+        String collectionName = expectIdentifier();
+        acceptKeyword("AS");
+        String rootAlias = collectionName;
+        if (peek().type == SqlLexer.Type.IDENTIFIER && !isReserved(peek().text)) {
+            rootAlias = expectIdentifier();
+        }
+
+        List<SqlQuery.Join> joins = new ArrayList<>();
+        while (acceptKeyword("JOIN")) {
+            String alias = expectIdentifier();
+            expectKeyword("IN");
+            joins.add(new SqlQuery.Join(alias, parsePath(expectIdentifier())));
+        }
+
+        SqlExpression where = null;
+        if (acceptKeyword("WHERE")) {
+            where = parseOr();
+        }
+
+        List<SqlQuery.OrderByItem> orderBy = new ArrayList<>();
+        if (acceptKeyword("ORDER")) {
+            expectKeyword("BY");
+            do {
+                SqlExpression expression = parseOperand();
+                boolean descending = acceptKeyword("DESC");
+                if (!descending) {
+                    acceptKeyword("ASC");
+                }
+                orderBy.add(new SqlQuery.OrderByItem(expression, descending));
+            } while (acceptSymbol(","));
+        }
+
+        if (peek().type != SqlLexer.Type.END) {
+            throw error("Unexpected " + peek());
+        }
+        return new SqlQuery(top, selectItems, collectionName, rootAlias, joins, where, orderBy);
+    }
+
+    private SqlQuery.SelectItem parseSelectItem() {
+        SqlExpression expression = parseOperand();
+        String name;
+        if (acceptKeyword("AS")) {
+            name = expectIdentifier();
+        } else if (expression instanceof SqlExpression.PropertyPath
+                && !((SqlExpression.PropertyPath) expression).getSegments().isEmpty()) {
+            List<String> segments = ((SqlExpression.PropertyPath) expression).getSegments();
+            name = segments.get(segments.size() - 1);
+        } else {
+            name = "$" + (++unnamedItems);
+        }
+        return new SqlQuery.SelectItem(expression, name);
+    }
+
+    private SqlExpression parseOr() {
+        SqlExpression left = parseAnd();
+        while (acceptKeyword("OR")) {
+            left = new SqlExpression.Or(left, parseAnd());
+        }
+        return left;
+    }
+
+    private SqlExpression parseAnd() {
+        SqlExpression left = parseNot();
+        while (acceptKeyword("AND")) {
+            left = new SqlExpression.And(left, parseNot());
+        }
+        return left;
+    }
+
+    private SqlExpression parseNot() {
+        if (acceptKeyword("NOT")) {
+            return new SqlExpression.Not(parseNot());
+        }
+        return parseComparison();
+    }
+
+    private SqlExpression parseComparison() {
+        SqlExpression left = parseOperand();
+        Token next = peek();
+        if (next.type == SqlLexer.Type.SYMBOL) {
+            SqlExpression.Operator operator = SqlExpression.Operator.fromSymbol(next.text);
+            if (operator != null) {
+                position++;
+                return new SqlExpression.Comparison(operator, left, parseOperand());
+            }
+        }
+        boolean negated = false;
+        if (next.isKeyword("NOT") && tokens.get(position + 1).isKeyword("IN")) {
+            position++;
+            negated = true;
+        }
+        if (acceptKeyword("IN")) {
+            expectSymbol("(");
+            List<SqlExpression> candidates = new ArrayList<>();
+            do {
+                candidates.add(parseOperand());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+            SqlExpression in = new SqlExpression.In(left, candidates);
+            return negated ? new SqlExpression.Not(in) : in;
+        }
+        return left;
+    }
+
+    private SqlExpression parseOperand() {
+        Token token = peek();
+        switch (token.type) {
+        case NUMBER:
+            position++;
+            return new SqlExpression.Literal(parseNumber(token.text));
+        case STRING:
+            position++;
+            return new SqlExpression.Literal(TextNode.valueOf(token.text));
+        case PARAMETER:
+            position++;
+            return new SqlExpression.Parameter(token.text);
+        case SYMBOL:
+            if (acceptSymbol("(")) {
+                SqlExpression inner = parseOr();
+                expectSymbol(")");
+                return inner;
+            }
+            throw error("Unexpected " + token);
+        case IDENTIFIER:
+            position++;
+            if (token.isKeyword("TRUE") || token.isKeyword("FALSE")) {
+                return new SqlExpression.Literal(BooleanNode.valueOf(token.isKeyword("TRUE")));
+            }
+            if (token.isKeyword("NULL")) {
+                return new SqlExpression.Literal(NullNode.getInstance());
+            }
+            if (isReserved(token.text)) {
+                throw error("Unexpected " + token);
+            }
+            if (acceptSymbol("(")) {
+                List<SqlExpression> arguments = new ArrayList<>();
+                if (!acceptSymbol(")")) {
+                    do {
+                        arguments.add(parseOr());
+                    } while (acceptSymbol(","));
+                    expectSymbol(")");
+                }
+                return new SqlExpression.FunctionCall(token.text, arguments);
+            }
+            return parsePath(token.text);
+        default:
+            throw error("Unexpected " + token);
+        }
+    }
+
+    private SqlExpression.PropertyPath parsePath(String alias) {
+        List<String> segments = new ArrayList<>();
+        while (true) {
+            if (acceptSymbol(".")) {
+                // Property names may be keywords, e.g. r.order.
+                segments.add(expect(SqlLexer.Type.IDENTIFIER).text);
+            } else if (acceptSymbol("[")) {
+                Token index = peek();
+                if (index.type != SqlLexer.Type.NUMBER && index.type != SqlLexer.Type.STRING) {
+                    throw error("Expected an array index or property name but found " + index);
+                }
+                position++;
+                segments.add(index.text);
+                expectSymbol("]");
+            } else {
+                return new SqlExpression.PropertyPath(alias, segments);
+            }
+        }
+    }
+
+    private static com.fasterxml.jackson.databind.JsonNode parseNumber(String text) {
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            try {
+                return LongNode.valueOf(Long.parseLong(text));
+            } catch (NumberFormatException e) {
+                // Too large for a long; fall through to double.
+            }
+        }
+        return DoubleNode.valueOf(Double.parseDouble(text));
+    }
+
+    private Token peek() {
+        return tokens.get(position);
+    }
+
+    private Token expect(SqlLexer.Type type) {
+        Token token = peek();
+        if (token.type != type) {
+            throw error("Expected " + type.name().toLowerCase(Locale.ROOT) + " but found " + token);
+        }
+        position++;
+        return token;
+    }
+
+    private String expectIdentifier() {
+        Token token = expect(SqlLexer.Type.IDENTIFIER);
+        if (isReserved(token.text)) {
+            throw error("Expected an identifier but found " + token);
+        }
+        return token.text;
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw error("Expected " + keyword + " but found " + peek());
+        }
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (peek().isKeyword(keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw error("Expected '" + symbol + "' but found " + peek());
+        }
+    }
+
+    private boolean acceptSymbol(String symbol) {
+        if (peek().isSymbol(symbol)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private SqlSyntaxException error(String message) {
+        return new SqlSyntaxException(message + " at position " + peek().position);
+    }
+}
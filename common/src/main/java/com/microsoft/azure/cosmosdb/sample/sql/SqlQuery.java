@@ -0,0 +1,318 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// A parsed query of the subset the samples use:
+//   SELECT [TOP n] * | expr [AS name], ... FROM collection [alias]
+//   [JOIN alias IN path ...] [WHERE condition] [ORDER BY expr [ASC|DESC], ...]
+public class SqlQuery {
+    private final Integer top;
+    private final List<SelectItem> selectItems;
+    private final String collectionName;
+    private final String rootAlias;
+    private final List<Join> joins;
+    private final SqlExpression where;
+    private final List<OrderByItem> orderBy;
+    private final List<List<SqlExpression>> filtersByJoin;
+
+    SqlQuery(Integer top, List<SelectItem> selectItems, String collectionName, String rootAlias, List<Join> joins,
+            SqlExpression where, List<OrderByItem> orderBy) {
+        this.top = top;
+        this.selectItems = selectItems == null ? null : Collections.unmodifiableList(selectItems);
+        this.collectionName = collectionName;
+        this.rootAlias = rootAlias;
+        this.joins = Collections.unmodifiableList(joins);
+        this.where = where;
+        this.orderBy = Collections.unmodifiableList(orderBy);
+        this.filtersByJoin = splitFilters(where, rootAlias, joins);
+    }
+
+    // Splits the WHERE clause into its AND-ed conditions and files each under the number of
+    // JOINs that must be bound before it can be evaluated, so a condition on the root or an
+    // outer JOIN alias prunes the combinations before the inner JOINs are expanded.
+    private static List<List<SqlExpression>> splitFilters(SqlExpression where, String rootAlias, List<Join> joins) {
+        List<List<SqlExpression>> filters = new ArrayList<>();
+        for (int i = 0; i <= joins.size(); i++) {
+            filters.add(new ArrayList<>());
+        }
+        List<SqlExpression> conditions = new ArrayList<>();
+        if (where != null) {
+            addConditions(where, conditions);
+        }
+        for (SqlExpression condition : conditions) {
+            Set<String> aliases = new HashSet<>();
+            addAliases(condition, aliases);
+            int level = 0;
+            for (String alias : aliases) {
+                int joinLevel = joins.size();
+                if (alias.equals(rootAlias)) {
+                    joinLevel = 0;
+                } else {
+                    for (int i = 0; i < joins.size(); i++) {
+                        if (joins.get(i).getAlias().equals(alias)) {
+                            joinLevel = i + 1;
+                        }
+                    }
+                }
+                level = Math.max(level, joinLevel);
+            }
+            filters.get(level).add(condition);
+        }
+        return filters;
+    }
+
+    private static void addConditions(SqlExpression expression, List<SqlExpression> output) {
+        if (expression instanceof SqlExpression.And) {
+            addConditions(((SqlExpression.And) expression).getLeft(), output);
+            addConditions(((SqlExpression.And) expression).getRight(), output);
+        } else {
+            output.add(expression);
+        }
+    }
+
+    private static void addAliases(SqlExpression expression, Set<String> output) {
+        if (expression instanceof SqlExpression.PropertyPath) {
+            output.add(((SqlExpression.PropertyPath) expression).getAlias());
+        } else if (expression instanceof SqlExpression.Comparison) {
+            addAliases(((SqlExpression.Comparison) expression).getLeft(), output);
+            addAliases(((SqlExpression.Comparison) expression).getRight(), output);
+        } else if (expression instanceof SqlExpression.And) {
+            addAliases(((SqlExpression.And) expression).getLeft(), output);
+            addAliases(((SqlExpression.And) expression).getRight(), output);
+        } else if (expression instanceof SqlExpression.Or) {
+            addAliases(((SqlExpression.Or) expression).getLeft(), output);
+            addAliases(((SqlExpression.Or) expression).getRight(), output);
+        } else if (expression instanceof SqlExpression.Not) {
+            addAliases(((SqlExpression.Not) expression).getOperand(), output);
+        } else if (expression instanceof SqlExpression.In) {
+            addAliases(((SqlExpression.In) expression).getOperand(), output);
+            for (SqlExpression candidate : ((SqlExpression.In) expression).getCandidates()) {
+                addAliases(candidate, output);
+            }
+        } else if (expression instanceof SqlExpression.FunctionCall) {
+            for (SqlExpression argument : ((SqlExpression.FunctionCall) expression).getArguments()) {
+                addAliases(argument, output);
+            }
+        }
+    }
+
+    public static SqlQuery parse(String queryText) {
+        return new SqlParser(queryText).parseQuery();
+    }
+
+    public Integer getTop() {
+        return top;
+    }
+
+    public boolean isSelectAll() {
+        return selectItems == null;
+    }
+
+    // Null for SELECT *.
+    public List<SelectItem> getSelectItems() {
+        return selectItems;
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    public String getRootAlias() {
+        return rootAlias;
+    }
+
+    public List<Join> getJoins() {
+        return joins;
+    }
+
+    public SqlExpression getWhere() {
+        return where;
+    }
+
+    public List<OrderByItem> getOrderBy() {
+        return orderBy;
+    }
+
+    // The AND-ed WHERE conditions checked once the root and the first joinCount JOINs are
+    // bound, i.e. before the remaining JOINs are expanded.
+    public List<SqlExpression> getFilters(int joinCount) {
+        return Collections.unmodifiableList(filtersByJoin.get(joinCount));
+    }
+
+    // Adds the result rows produced by one document to output and returns how many
+    // candidate rows (combinations of JOIN elements, up to the JOIN at which a condition
+    // ruled them out) were considered.
+    public int evaluate(JsonNode document, Map<String, JsonNode> parameters, List<Row> output) {
+        Bindings bindings = new Bindings(parameters);
+        bindings.put(rootAlias, document);
+        return expand(0, bindings, output);
+    }
+
+    private int expand(int joinIndex, Bindings bindings, List<Row> output) {
+        for (SqlExpression filter : filtersByJoin.get(joinIndex)) {
+            if (!SqlExpression.isTrue(filter.evaluate(bindings))) {
+                return 1;
+            }
+        }
+        if (joinIndex == joins.size()) {
+            output.add(project(bindings));
+            return 1;
+        }
+        Join join = joins.get(joinIndex);
+        JsonNode elements = join.getSource().evaluate(bindings);
+        if (!elements.isArray()) {
+            return 0;
+        }
+        int considered = 0;
+        for (JsonNode element : elements) {
+            bindings.put(join.getAlias(), element);
+            considered += expand(joinIndex + 1, bindings, output);
+        }
+        bindings.remove(join.getAlias());
+        return considered;
+    }
+
+    private Row project(Bindings bindings) {
+        JsonNode value;
+        if (selectItems == null) {
+            if (joins.isEmpty()) {
+                value = bindings.get(rootAlias);
+            } else {
+                ObjectNode tuple = JsonNodeFactory.instance.objectNode();
+                tuple.set(rootAlias, bindings.get(rootAlias));
+                for (Join join : joins) {
+                    tuple.set(join.getAlias(), bindings.get(join.getAlias()));
+                }
+                value = tuple;
+            }
+        } else {
+            ObjectNode projection = JsonNodeFactory.instance.objectNode();
+            for (SelectItem item : selectItems) {
+                JsonNode itemValue = item.getExpression().evaluate(bindings);
+                if (!itemValue.isMissingNode()) {
+                    projection.set(item.getName(), itemValue);
+                }
+            }
+            value = projection;
+        }
+
+        JsonNode[] sortKeys = null;
+        if (!orderBy.isEmpty()) {
+            sortKeys = new JsonNode[orderBy.size()];
+            for (int i = 0; i < sortKeys.length; i++) {
+                sortKeys[i] = orderBy.get(i).getExpression().evaluate(bindings);
+            }
+        }
+        return new Row(value, sortKeys);
+    }
+
+    public int compareRows(Row left, Row right) {
+        for (int i = 0; i < orderBy.size(); i++) {
+            int order = JsonValues.compareForSort(left.sortKeys[i], right.sortKeys[i]);
+            if (order != 0) {
+                return orderBy.get(i).isDescending() ? -order : order;
+            }
+        }
+        return 0;
+    }
+
+    public static final class SelectItem {
+        private final SqlExpression expression;
+        private final String name;
+
+        SelectItem(SqlExpression expression, String name) {
+            this.expression = expression;
+            this.name = name;
+        }
+
+        public SqlExpression getExpression() {
+            return expression;
+        }
+
+        // The property name the value is returned under.
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static final class Join {
+        private final String alias;
+        private final SqlExpression.PropertyPath source;
+
+        Join(String alias, SqlExpression.PropertyPath source) {
+            this.alias = alias;
+            this.source = source;
+        }
+
+        public String getAlias() {
+            return alias;
+        }
+
+        public SqlExpression.PropertyPath getSource() {
+            return source;
+        }
+    }
+
+    public static final class OrderByItem {
+        private final SqlExpression expression;
+        private final boolean descending;
+
+        OrderByItem(SqlExpression expression, boolean descending) {
+            this.expression = expression;
+            this.descending = descending;
+        }
+
+        public SqlExpression getExpression() {
+            return expression;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+    }
+
+    public static final class Row {
+        private final JsonNode value;
+        private final JsonNode[] sortKeys;
+
+        Row(JsonNode value, JsonNode[] sortKeys) {
+            this.value = value;
+            this.sortKeys = sortKeys;
+        }
+
+        public JsonNode getValue() {
+            return value;
+        }
+    }
+}
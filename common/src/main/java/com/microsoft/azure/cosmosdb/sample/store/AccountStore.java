@@ -0,0 +1,55 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import com.microsoft.azure.cosmosdb.Database;
+import com.microsoft.azure.cosmosdb.DocumentCollection;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+
+import rx.Observable;
+
+// A DocumentStore that can also provision what the documents live in, which is everything
+// the exercise managers need from an account. Deleting a database or collection that does
+// not exist fails with a 404 DocumentClientException, creating one that does with a 409.
+// So does reading or deleting a stored procedure that does not exist.
+public interface AccountStore extends DocumentStore {
+
+    Observable<StoreResponse<Database>> createDatabase(Database database, RequestOptions options);
+
+    Observable<StoreResponse<Database>> deleteDatabase(String databaseLink, RequestOptions options);
+
+    Observable<StoreResponse<DocumentCollection>> createCollection(String databaseLink,
+            DocumentCollection collection, RequestOptions options);
+
+    Observable<StoreResponse<DocumentCollection>> deleteCollection(String collectionLink, RequestOptions options);
+
+    Observable<StoreResponse<StoredProcedure>> readStoredProcedure(String storedProcedureLink,
+            RequestOptions options);
+
+    Observable<StoreResponse<StoredProcedure>> upsertStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions options);
+
+    Observable<StoreResponse<StoredProcedure>> deleteStoredProcedure(String storedProcedureLink,
+            RequestOptions options);
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.util.List;
+
+import com.microsoft.azure.cosmosdb.ChangeFeedOptions;
+import com.microsoft.azure.cosmosdb.Database;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentCollection;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.FeedResponse;
+import com.microsoft.azure.cosmosdb.PartitionKeyRange;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.ResourceResponse;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.rx.AsyncDocumentClient;
+
+import rx.Observable;
+
+public class AsyncClientDocumentStore implements AccountStore {
+    private final AsyncDocumentClient client;
+
+    public AsyncClientDocumentStore(AsyncDocumentClient client) {
+        this.client = client;
+    }
+
+    public AsyncDocumentClient getClient() {
+        return client;
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> createDocument(String collectionLink, Document document,
+            RequestOptions options) {
+        return client.createDocument(collectionLink, document, options, false)
+                .map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> upsertDocument(String collectionLink, Document document,
+            RequestOptions options) {
+        return client.upsertDocument(collectionLink, document, options, false)
+                .map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions options) {
+        return client.readDocument(documentLink, options).map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions options) {
+        return client.queryDocuments(collectionLink, querySpec, options).map(FeedPage::fromFeedResponse);
+    }
+
+    @Override
+    public Observable<FeedPage<Document>> readChangeFeed(String collectionLink, ChangeFeedOptions options) {
+        return client.queryDocumentChangeFeed(collectionLink, options).map(FeedPage::fromFeedResponse);
+    }
+
+    @Override
+    public Observable<List<String>> readPartitionKeyRangeIds(String collectionLink) {
+        return client.readPartitionKeyRanges(collectionLink, null)
+                .concatMapIterable(FeedResponse::getResults)
+                .map(PartitionKeyRange::getId)
+                .toList();
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> createStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions options) {
+        return client.createStoredProcedure(collectionLink, storedProcedure, options)
+                .map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> readStoredProcedure(String storedProcedureLink,
+            RequestOptions options) {
+        return client.readStoredProcedure(storedProcedureLink, options)
+                .map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> upsertStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions options) {
+        return client.upsertStoredProcedure(collectionLink, storedProcedure, options)
+                .map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> deleteStoredProcedure(String storedProcedureLink,
+            RequestOptions options) {
+        return client.deleteStoredProcedure(storedProcedureLink, options).map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<StoreResponse<Database>> createDatabase(Database database, RequestOptions options) {
+        return client.createDatabase(database, options).map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<StoreResponse<Database>> deleteDatabase(String databaseLink, RequestOptions options) {
+        return client.deleteDatabase(databaseLink, options).map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<StoreResponse<DocumentCollection>> createCollection(String databaseLink,
+            DocumentCollection collection, RequestOptions options) {
+        return client.createCollection(databaseLink, collection, options).map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<StoreResponse<DocumentCollection>> deleteCollection(String collectionLink,
+            RequestOptions options) {
+        return client.deleteCollection(collectionLink, options).map(AsyncClientDocumentStore::toStoreResponse);
+    }
+
+    @Override
+    public Observable<StoreResponse<String>> executeStoredProcedure(String storedProcedureLink,
+            RequestOptions options, Object[] procedureParams) {
+        return client.executeStoredProcedure(storedProcedureLink, options, procedureParams)
+                .map(response -> new StoreResponse<>(response.getResponseAsString(), response.getRequestCharge(),
+                        response.getSessionToken(), response.getActivityId()));
+    }
+
+    static <T extends com.microsoft.azure.cosmosdb.Resource> StoreResponse<T> toStoreResponse(
+            ResourceResponse<T> response) {
+        return new StoreResponse<>(response.getResource(), response.getRequestCharge(),
+                response.getSessionToken(), response.getActivityId());
+    }
+}
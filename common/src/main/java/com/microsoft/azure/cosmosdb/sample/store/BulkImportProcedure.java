@@ -0,0 +1,53 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+
+// The in-memory twin of JS/BulkImport.js: creates the documents of a JSON array in order
+// and returns how many were created before the script ran out of execution budget.
+public class BulkImportProcedure implements StoredProcedureHandler {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Override
+    public Object execute(ScriptContext context, Object[] procedureParams) throws IOException, DocumentClientException {
+        if (procedureParams == null || procedureParams.length == 0 || procedureParams[0] == null) {
+            throw new IllegalArgumentException("The array is undefined or null.");
+        }
+        JsonNode documents = mapper.readTree(procedureParams[0].toString());
+
+        int count = 0;
+        for (Iterator<JsonNode> it = documents.elements(); it.hasNext(); count++) {
+            if (!context.createDocument(new Document(it.next().toString()))) {
+                break;
+            }
+        }
+        return count;
+    }
+}
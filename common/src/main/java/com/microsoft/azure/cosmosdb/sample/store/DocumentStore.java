@@ -0,0 +1,70 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.util.List;
+
+import com.microsoft.azure.cosmosdb.ChangeFeedOptions;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+
+import rx.Observable;
+
+// The document operations the samples issue, so the same code can run against
+// a live account (AsyncClientDocumentStore) or in-process (InMemoryDocumentStore).
+public interface DocumentStore {
+
+    Observable<StoreResponse<Document>> createDocument(String collectionLink, Document document,
+            RequestOptions options);
+
+    // Creates the document, or replaces the one with the same id.
+    Observable<StoreResponse<Document>> upsertDocument(String collectionLink, Document document,
+            RequestOptions options);
+
+    // Fails with a 404 DocumentClientException if the document does not exist.
+    Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions options);
+
+    // Emits the pages of the query in order, starting after options.getRequestContinuation().
+    Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions options);
+
+    // Emits the latest version of each document created or replaced after the options'
+    // request continuation (or from the start point the options name), a page at a time,
+    // ending with the first empty page. Unlike a query's, every page carries a continuation
+    // token, the last one included: it is where the next read resumes.
+    Observable<FeedPage<Document>> readChangeFeed(String collectionLink, ChangeFeedOptions options);
+
+    // The ids of the collection's partition key ranges (its physical partitions). A query
+    // whose options name one with setPartitionKeyRangeIdInternal only runs against that range.
+    Observable<List<String>> readPartitionKeyRangeIds(String collectionLink);
+
+    Observable<StoreResponse<StoredProcedure>> createStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions options);
+
+    // The resource of the response is the script's response body as a string.
+    Observable<StoreResponse<String>> executeStoredProcedure(String storedProcedureLink,
+            RequestOptions options, Object[] procedureParams);
+}
@@ -0,0 +1,92 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.microsoft.azure.cosmosdb.FeedResponse;
+import com.microsoft.azure.cosmosdb.Resource;
+
+// One page of a feed (query, read feed or change feed) as returned by a DocumentStore.
+public class FeedPage<T> {
+    private final List<T> results;
+    private final double requestCharge;
+    private final String responseContinuation;
+    private final String sessionToken;
+    private final String activityId;
+    private final Map<String, String> responseHeaders;
+
+    public FeedPage(List<T> results, double requestCharge, String responseContinuation, String sessionToken,
+            String activityId, Map<String, String> responseHeaders) {
+        this.results = results;
+        this.requestCharge = requestCharge;
+        this.responseContinuation = responseContinuation;
+        this.sessionToken = sessionToken;
+        this.activityId = activityId;
+        this.responseHeaders = responseHeaders == null ? Collections.<String, String>emptyMap() : responseHeaders;
+    }
+
+    public static <T extends Resource> FeedPage<T> fromFeedResponse(FeedResponse<T> response) {
+        return new FeedPage<>(response.getResults(), response.getRequestCharge(),
+                response.getResponseContinuation(), response.getSessionToken(), response.getActivityId(),
+                response.getResponseHeaders());
+    }
+
+    // The same page with every result mapped, e.g. by a projection.
+    public <R> FeedPage<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = new ArrayList<>(results.size());
+        for (T result : results) {
+            mapped.add(mapper.apply(result));
+        }
+        return new FeedPage<>(mapped, requestCharge, responseContinuation, sessionToken, activityId, responseHeaders);
+    }
+
+    public List<T> getResults() {
+        return results;
+    }
+
+    public double getRequestCharge() {
+        return requestCharge;
+    }
+
+    // The token to pass as the request continuation to resume after this page; null on the last page.
+    public String getResponseContinuation() {
+        return responseContinuation;
+    }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    public String getActivityId() {
+        return activityId;
+    }
+
+    public Map<String, String> getResponseHeaders() {
+        return responseHeaders;
+    }
+}
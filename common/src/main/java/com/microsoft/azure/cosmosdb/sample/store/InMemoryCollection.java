@@ -0,0 +1,271 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.IndexingMode;
+import com.microsoft.azure.cosmosdb.IndexingPolicy;
+import com.microsoft.azure.cosmosdb.sample.index.DocumentIndex;
+import com.microsoft.azure.cosmosdb.sample.index.IndexingPolicyRules;
+
+// The documents of one in-memory collection, parsed once on write and kept in id order so
+// scans are deterministic and can be resumed from an id. Every write advances the
+// collection's log sequence number, which is what its session token reports. The latest
+// version of each document is also kept in log sequence number order for the change feed.
+//
+// The collection's indexing policy decides which documents queries can see: with automatic
+// indexing every document is indexed unless written with IndexingDirective.Exclude, with
+// manual indexing only those written with IndexingDirective.Include are. Lazy indexing is
+// treated like consistent indexing, as if the index always caught up straight away. The
+// indexed documents are also kept in a DocumentIndex, which queries use to find their
+// candidates instead of scanning; changing the policy rebuilds it.
+public class InMemoryCollection {
+    static final ObjectMapper mapper = new ObjectMapper();
+    private static final IndexingPolicyRules DEFAULT_RULES = IndexingPolicyRules.of(new IndexingPolicy());
+
+    private final ConcurrentNavigableMap<String, ObjectNode> documents = new ConcurrentSkipListMap<>();
+    private final AtomicLong logSequenceNumber = new AtomicLong();
+    private final ConcurrentNavigableMap<Long, ObjectNode> changes = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> changedAt = new HashMap<>();
+    private final Set<String> unindexed = ConcurrentHashMap.newKeySet();
+    private volatile IndexingPolicy indexingPolicy = new IndexingPolicy();
+    private volatile IndexingPolicyRules indexingRules = DEFAULT_RULES;
+    private volatile DocumentIndex index = new DocumentIndex(DEFAULT_RULES);
+
+    public IndexingPolicy getIndexingPolicy() {
+        return indexingPolicy;
+    }
+
+    public IndexingPolicyRules getIndexingRules() {
+        return indexingRules;
+    }
+
+    public DocumentIndex getIndex() {
+        return index;
+    }
+
+    // Documents already written keep whether they were indexed. The index is rebuilt for
+    // the new policy; it is published before it is filled, so writes that race with the
+    // rebuild are not lost.
+    public void setIndexingPolicy(IndexingPolicy indexingPolicy) {
+        IndexingPolicyRules rules = IndexingPolicyRules.of(indexingPolicy);
+        this.indexingPolicy = indexingPolicy;
+        this.indexingRules = rules;
+        this.index = new DocumentIndex(rules);
+        for (String id : documents.keySet()) {
+            reindex(id);
+        }
+    }
+
+    // Brings the index in line with the stored version of a document. It is checked under
+    // the index's lock, so racing writes to the same id leave the index with the version
+    // that won, and redone if the index was replaced in the meantime.
+    private void reindex(String id) {
+        DocumentIndex current;
+        do {
+            current = index;
+            synchronized (current) {
+                ObjectNode stored = documents.get(id);
+                if (stored != null && !unindexed.contains(id)) {
+                    current.add(stored);
+                } else {
+                    current.remove(id);
+                }
+            }
+        } while (current != index);
+    }
+
+    // Whether a document written without an indexing directive is indexed.
+    public boolean isIndexedByDefault() {
+        return indexingRules.isAutomatic() && indexingRules.getIndexingMode() != IndexingMode.None;
+    }
+
+    // Returns false if a document with the same id already exists.
+    public boolean insert(ObjectNode document) {
+        return insert(document, isIndexedByDefault());
+    }
+
+    // An unindexed document is marked before it is stored, so no query sees it in between.
+    public boolean insert(ObjectNode document, boolean indexed) {
+        String id = document.path("id").asText();
+        boolean marked = !indexed && unindexed.add(id);
+        if (documents.putIfAbsent(id, document) != null) {
+            if (marked) {
+                unindexed.remove(id);
+            }
+            return false;
+        }
+        if (indexed) {
+            reindex(id);
+        }
+        recordChange(id, document);
+        return true;
+    }
+
+    public void upsert(ObjectNode document) {
+        upsert(document, isIndexedByDefault());
+    }
+
+    public void upsert(ObjectNode document, boolean indexed) {
+        String id = document.path("id").asText();
+        documents.put(id, document);
+        setIndexed(id, indexed);
+        reindex(id);
+        recordChange(id, document);
+    }
+
+    public boolean isIndexed(JsonNode document) {
+        return !unindexed.contains(document.path("id").asText());
+    }
+
+    private void setIndexed(String id, boolean indexed) {
+        if (indexed) {
+            unindexed.remove(id);
+        } else {
+            unindexed.add(id);
+        }
+    }
+
+    // The share of the document's values the indexing policy keeps index terms for, which
+    // is what the index maintenance part of a write is charged on.
+    public double indexedFraction(JsonNode document) {
+        int[] counts = new int[2];
+        countValues(document, new ArrayList<String>(), counts);
+        return counts[1] == 0 ? 0 : (double) counts[0] / counts[1];
+    }
+
+    private void countValues(JsonNode node, List<String> path, int[] counts) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                path.add(field.getKey());
+                countValues(field.getValue(), path, counts);
+                path.remove(path.size() - 1);
+            }
+        } else if (node.isArray()) {
+            path.add("[]");
+            for (JsonNode element : node) {
+                countValues(element, path, counts);
+            }
+            path.remove(path.size() - 1);
+        } else {
+            counts[1]++;
+            if (indexingRules.isIndexed(path)) {
+                counts[0]++;
+            }
+        }
+    }
+
+    public ObjectNode get(String id) {
+        return documents.get(id);
+    }
+
+    public ObjectNode remove(String id) {
+        ObjectNode removed = documents.remove(id);
+        if (removed != null) {
+            unindexed.remove(id);
+            reindex(id);
+            recordChange(id, null);
+        }
+        return removed;
+    }
+
+    // Like the service's change feed, only the latest version of a document is kept, and a
+    // deleted document drops out of it.
+    // The sequence number is only published once the change is in place, so a reader that
+    // has seen it will also find the change.
+    private synchronized void recordChange(String id, ObjectNode document) {
+        long sequenceNumber = logSequenceNumber.get() + 1;
+        if (document != null) {
+            changes.put(sequenceNumber, document);
+        }
+        Long previous = document == null ? changedAt.remove(id) : changedAt.put(id, sequenceNumber);
+        if (previous != null) {
+            changes.remove(previous);
+        }
+        logSequenceNumber.set(sequenceNumber);
+    }
+
+    // The documents changed after the given log sequence number, in the order they changed.
+    public NavigableMap<Long, ObjectNode> changesAfter(long sequenceNumber) {
+        return changes.tailMap(sequenceNumber, false);
+    }
+
+    public long getLogSequenceNumber() {
+        return logSequenceNumber.get();
+    }
+
+    // A single partition key range, so the token has the service's "<range>:<lsn>" form.
+    public String getSessionToken() {
+        return "0:" + logSequenceNumber.get();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    // The documents from the given id onwards (inclusive), or all of them for a null id.
+    public NavigableMap<String, ObjectNode> documentsFrom(String id) {
+        return id == null ? documents : documents.tailMap(id, true);
+    }
+
+    // Parses a document for storage, assigning an id if it has none.
+    static ObjectNode toNode(Document document) {
+        try {
+            JsonNode node = mapper.readTree(document.toJson());
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("A document must be a JSON object");
+            }
+            ObjectNode object = (ObjectNode) node;
+            if (!object.hasNonNull("id")) {
+                object.put("id", UUID.randomUUID().toString());
+            }
+            return object;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Document toDocument(JsonNode node) {
+        return new Document(node.toString());
+    }
+}
@@ -0,0 +1,764 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.ChangeFeedOptions;
+import com.microsoft.azure.cosmosdb.ConsistencyLevel;
+import com.microsoft.azure.cosmosdb.Database;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.DocumentCollection;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.IndexingDirective;
+import com.microsoft.azure.cosmosdb.IndexingMode;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.sample.index.IndexRequirement;
+import com.microsoft.azure.cosmosdb.sample.index.IndexingPolicyRules;
+import com.microsoft.azure.cosmosdb.sample.partition.PartitionKeyHash;
+import com.microsoft.azure.cosmosdb.sample.sql.QueryParameters;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlSyntaxException;
+
+import rx.Observable;
+
+// An in-process stand-in for a Cosmos DB account. It keeps documents in memory, charges a
+// synthetic RU cost per request and throttles (429 with a retry-after hint) once the
+// provisioned throughput for the current one-second window has been used up.
+//
+// Databases and collections can be created and deleted like on the service, and a
+// collection honours the indexing policy it was created with; see InMemoryCollection. A
+// collection that is used without having been created is created on first use with the
+// default policy, so offline tools can skip provisioning. Database and collection
+// operations are free and never throttled.
+public class InMemoryDocumentStore implements AccountStore {
+    // Roughly what the service charges to write 1KB with the default indexing policy: the
+    // write itself plus keeping an index term for every value.
+    static final double WRITE_CHARGE_PER_KB = 5.0;
+    static final double INDEX_CHARGE_PER_KB = 3.0;
+    // Fixed overhead of a script execution on top of the writes it performs.
+    static final double SCRIPT_BASE_CHARGE = 2.0;
+    // A point read of up to 1KB costs 1 RU.
+    static final double READ_CHARGE_PER_KB = 1.0;
+    // Roughly what the service charges per query page, per index lookup, per document
+    // loaded, per row produced by a join and per KB returned. A filter the index serves only
+    // loads the documents its lookups return; without one every document of the collection
+    // is loaded, which is what makes unindexed filters cost more than indexed ones.
+    static final double QUERY_PAGE_CHARGE = 2.3;
+    static final double QUERY_LOOKUP_CHARGE = 0.1;
+    static final double QUERY_SCAN_CHARGE = 0.01;
+    static final double QUERY_ROW_CHARGE = 0.02;
+    static final double QUERY_OUTPUT_CHARGE_PER_KB = 0.3;
+    // A change feed page is charged like reading the documents it returns.
+    static final double CHANGE_FEED_PAGE_CHARGE = 1.0;
+    // Reads at Strong or BoundedStaleness consistency are served by two replicas and cost
+    // twice as much as reads at the weaker levels.
+    static final double QUORUM_READ_CHARGE_FACTOR = 2.0;
+    static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_CACHED_QUERIES = 1000;
+
+    private final ConcurrentMap<String, Database> databases = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, InMemoryCollection> collections = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SqlQuery> parsedQueries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, StoredProcedure> storedProcedures = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, StoredProcedureHandler> storedProcedureHandlers = new ConcurrentHashMap<>();
+    private final double provisionedThroughput;
+    private final long latencyMillis;
+
+    private long windowStartNanos = System.nanoTime();
+    private double windowCharge;
+    private volatile double scriptChargeLimit = 1000;
+    private volatile int partitionCount = 1;
+    private volatile String partitionKeyPath = "/id";
+    private volatile ConsistencyLevel consistencyLevel = ConsistencyLevel.Session;
+
+    // Unthrottled, zero latency.
+    public InMemoryDocumentStore() {
+        this(0, 0);
+    }
+
+    // provisionedThroughput is in RU/s; zero or less disables throttling.
+    public InMemoryDocumentStore(double provisionedThroughput, long latencyMillis) {
+        this.provisionedThroughput = provisionedThroughput;
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> createDocument(String collectionLink, Document document,
+            RequestOptions options) {
+        return writeDocument(collectionLink, document, options, false);
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> upsertDocument(String collectionLink, Document document,
+            RequestOptions options) {
+        return writeDocument(collectionLink, document, options, true);
+    }
+
+    private Observable<StoreResponse<Document>> writeDocument(String collectionLink, Document document,
+            RequestOptions options, boolean upsert) {
+        return Observable.defer(() -> {
+            InMemoryCollection collection = getCollection(collectionLink);
+            ObjectNode stored = InMemoryCollection.toNode(document);
+            IndexingDirective directive = options == null ? null : options.getIndexingDirective();
+            boolean indexed = collection.getIndexingRules().getIndexingMode() != IndexingMode.None
+                    && (directive == IndexingDirective.Include
+                            || (directive != IndexingDirective.Exclude && collection.isIndexedByDefault()));
+            double charge = writeCharge(stored.toString(), indexed ? collection.indexedFraction(stored) : 0);
+            long retryAfterMillis = reserve(charge);
+            if (retryAfterMillis > 0) {
+                return Observable.error(Throttling.newThrottledException(retryAfterMillis));
+            }
+
+            if (upsert) {
+                collection.upsert(stored, indexed);
+            } else if (!collection.insert(stored, indexed)) {
+                return Observable.error(new DocumentClientException(409,
+                        "Resource with specified id or name already exists."));
+            }
+            return respond(InMemoryCollection.toDocument(stored), charge, collection.getSessionToken());
+        });
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions options) {
+        return Observable.defer(() -> {
+            String link = ResourceLinks.normalize(documentLink);
+            int docs = link.lastIndexOf("/docs/");
+            if (docs < 0) {
+                return Observable.error(new DocumentClientException(400, "Not a document link: " + documentLink));
+            }
+            double chargeFactor;
+            try {
+                chargeFactor = readChargeFactor(options == null ? null : options.getConsistencyLevel());
+            } catch (IllegalArgumentException e) {
+                return Observable.error(new DocumentClientException(400, e));
+            }
+            InMemoryCollection collection = getCollection(link.substring(0, docs));
+            ObjectNode document = collection.get(link.substring(docs + "/docs/".length()));
+            if (document == null) {
+                long retryAfterMillis = reserve(READ_CHARGE_PER_KB * chargeFactor);
+                if (retryAfterMillis > 0) {
+                    return Observable.error(Throttling.newThrottledException(retryAfterMillis));
+                }
+                return Observable.error(new DocumentClientException(404, "Resource Not Found: " + documentLink));
+            }
+            String json = document.toString();
+            double charge = READ_CHARGE_PER_KB * chargeFactor
+                    * Math.max(1, Math.ceil(json.getBytes(StandardCharsets.UTF_8).length / 1024.0));
+            long retryAfterMillis = reserve(charge);
+            if (retryAfterMillis > 0) {
+                return Observable.error(Throttling.newThrottledException(retryAfterMillis));
+            }
+            return respond(new Document(json), charge, collection.getSessionToken());
+        });
+    }
+
+    // Evaluates the subset of the query grammar understood by SqlQuery: projections, TOP,
+    // JOIN ... IN, WHERE with comparisons, logical operators, IN and the common built-in
+    // functions, and ORDER BY. Each page is a separate request, so the whole query is not
+    // evaluated up front and a throttled page can be retried on its own.
+    //
+    // Like the service, a query only sees indexed documents, and one that filters or sorts
+    // on a path the indexing policy does not cover fails with a 400 unless the options
+    // allow a scan. A collection with indexing mode None can only be queried with a scan,
+    // which then sees every document.
+    @Override
+    public Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions options) {
+        return queryDocuments(collectionLink, querySpec, options, null);
+    }
+
+    private Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions options, ConsistencyLevel requestConsistencyLevel) {
+        return Observable.defer(() -> {
+            SqlQuery query;
+            double chargeFactor;
+            Map<String, JsonNode> parameters;
+            try {
+                query = parse(querySpec.getQueryText());
+                parameters = QueryParameters.of(querySpec);
+            } catch (SqlSyntaxException | IOException e) {
+                return Observable.error(new DocumentClientException(400, e));
+            }
+            try {
+                chargeFactor = readChargeFactor(requestConsistencyLevel);
+            } catch (IllegalArgumentException e) {
+                return Observable.error(new DocumentClientException(400, e));
+            }
+            int pageSize = options == null || options.getMaxItemCount() == null || options.getMaxItemCount() <= 0
+                    ? DEFAULT_PAGE_SIZE : options.getMaxItemCount();
+            String continuation = options == null ? null : options.getRequestContinuation();
+            Predicate<JsonNode> range = null;
+            if (options != null && options.getPartitionKeyRangeIdInternal() != null) {
+                try {
+                    range = partitionKeyRange(Integer.parseInt(options.getPartitionKeyRangeIdInternal()));
+                } catch (IllegalArgumentException e) {
+                    return Observable.error(new DocumentClientException(400, e));
+                }
+            }
+            InMemoryCollection collection = getCollection(collectionLink);
+            boolean scan = options != null && Boolean.TRUE.equals(options.getEnableScanInQuery());
+            String unserved = unservedReason(collection.getIndexingRules(), query, parameters);
+            if (unserved != null && !scan) {
+                return Observable.error(new DocumentClientException(400, "An invalid query has been specified "
+                        + "with filters against path(s) excluded from indexing (" + unserved + "). Consider "
+                        + "adding allow scan header in the request."));
+            }
+            if (collection.getIndexingRules().getIndexingMode() != IndexingMode.None) {
+                Predicate<JsonNode> indexed = collection::isIndexed;
+                range = range == null ? indexed : range.and(indexed);
+            }
+            boolean populateQueryMetrics = options != null && options.getPopulateQueryMetrics();
+            return pages(collection, query, parameters, pageSize, continuation, range, populateQueryMetrics,
+                    chargeFactor);
+        });
+    }
+
+    private static String unservedReason(IndexingPolicyRules rules, SqlQuery query, Map<String, JsonNode> parameters) {
+        if (rules.getIndexingMode() == IndexingMode.None) {
+            return "the collection's indexing mode is None";
+        }
+        for (IndexRequirement requirement : IndexRequirement.of(query, parameters)) {
+            String reason = rules.unservedReason(requirement);
+            if (reason != null) {
+                return reason;
+            }
+        }
+        return null;
+    }
+
+    // The next page is only evaluated once the previous one has been consumed, so callers
+    // that take a single page (first()) only pay for that page. Query metrics are reported
+    // like the service reports them, except that the size of the retrieved documents is not
+    // measured.
+    private Observable<FeedPage<Document>> pages(InMemoryCollection collection, SqlQuery query,
+            Map<String, JsonNode> parameters, int pageSize, String continuation, Predicate<JsonNode> range,
+            boolean populateQueryMetrics, double chargeFactor) {
+        return Observable.defer(() -> {
+            long startNanos = System.nanoTime();
+            InMemoryQueryPage page;
+            try {
+                page = InMemoryQueryPage.execute(collection, query, parameters, pageSize, continuation, range);
+            } catch (IllegalArgumentException e) {
+                return Observable.error(new DocumentClientException(400, e));
+            }
+
+            List<Document> results = new ArrayList<>(page.results.size());
+            long outputBytes = 0;
+            for (JsonNode result : page.results) {
+                String json = result.toString();
+                outputBytes += json.getBytes(StandardCharsets.UTF_8).length;
+                results.add(new Document(json));
+            }
+            double charge = queryCharge(page, outputBytes) * chargeFactor;
+            long retryAfterMillis = reserve(charge);
+            if (retryAfterMillis > 0) {
+                return Observable.error(Throttling.newThrottledException(retryAfterMillis));
+            }
+
+            Map<String, String> headers = null;
+            if (populateQueryMetrics) {
+                ServerQueryMetrics metrics = new ServerQueryMetrics(page.documentsScanned, 0, results.size(),
+                        outputBytes, page.documentsMatched, (System.nanoTime() - startNanos) / 1e6,
+                        page.indexLookupNanos / 1e6, 0);
+                headers = Collections.singletonMap(ServerQueryMetrics.HEADER, metrics.toHeaderValue());
+            }
+            Observable<FeedPage<Document>> current = respond(new FeedPage<>(Collections.unmodifiableList(results),
+                    charge, page.continuation, collection.getSessionToken(), UUID.randomUUID().toString(), headers),
+                    charge)
+                    .map(StoreResponse::getResource);
+            if (page.continuation == null) {
+                return current;
+            }
+            return current.concatWith(pages(collection, query, parameters, pageSize, page.continuation, range,
+                    populateQueryMetrics, chargeFactor));
+        });
+    }
+
+    // Continuation tokens are log sequence numbers. Without one the feed starts at the
+    // beginning if asked to, otherwise at the current end of the collection; a start time
+    // is not supported.
+    @Override
+    public Observable<FeedPage<Document>> readChangeFeed(String collectionLink, ChangeFeedOptions options) {
+        return Observable.defer(() -> {
+            InMemoryCollection collection = getCollection(collectionLink);
+            long after;
+            Predicate<JsonNode> range = null;
+            try {
+                if (options.getStartDateTime() != null) {
+                    throw new IllegalArgumentException("The in-memory change feed cannot start at a point in time");
+                }
+                if (options.getRequestContinuation() != null) {
+                    after = Long.parseLong(options.getRequestContinuation());
+                } else {
+                    after = options.isStartFromBeginning() ? 0 : collection.getLogSequenceNumber();
+                }
+                if (options.getPartitionKeyRangeId() != null) {
+                    range = partitionKeyRange(Integer.parseInt(options.getPartitionKeyRangeId()));
+                }
+            } catch (IllegalArgumentException e) {
+                return Observable.error(new DocumentClientException(400, e));
+            }
+            int pageSize = options.getMaxItemCount() == null || options.getMaxItemCount() <= 0
+                    ? DEFAULT_PAGE_SIZE : options.getMaxItemCount();
+            return changes(collection, after, pageSize, range);
+        });
+    }
+
+    private Observable<FeedPage<Document>> changes(InMemoryCollection collection, long after, int pageSize,
+            Predicate<JsonNode> range) {
+        return Observable.defer(() -> {
+            // Changes outside the range are skipped over, so the next read starts after them.
+            long end = collection.getLogSequenceNumber();
+            long last = after;
+            List<Document> results = new ArrayList<>();
+            long outputBytes = 0;
+            for (Map.Entry<Long, ObjectNode> change : collection.changesAfter(after).entrySet()) {
+                if (change.getKey() > end || results.size() == pageSize) {
+                    break;
+                }
+                last = change.getKey();
+                if (range == null || range.test(change.getValue())) {
+                    String json = change.getValue().toString();
+                    outputBytes += json.getBytes(StandardCharsets.UTF_8).length;
+                    results.add(new Document(json));
+                }
+            }
+            if (results.size() < pageSize) {
+                last = Math.max(last, end);
+            }
+            double charge = CHANGE_FEED_PAGE_CHARGE + READ_CHARGE_PER_KB * Math.ceil(outputBytes / 1024.0);
+            long retryAfterMillis = reserve(charge);
+            if (retryAfterMillis > 0) {
+                return Observable.error(Throttling.newThrottledException(retryAfterMillis));
+            }
+
+            Observable<FeedPage<Document>> current = respond(new FeedPage<>(Collections.unmodifiableList(results),
+                    charge, String.valueOf(last), collection.getSessionToken(), UUID.randomUUID().toString(), null),
+                    charge)
+                    .map(StoreResponse::getResource);
+            if (results.isEmpty()) {
+                return current;
+            }
+            return current.concatWith(changes(collection, last, pageSize, range));
+        });
+    }
+
+    @Override
+    public Observable<List<String>> readPartitionKeyRangeIds(String collectionLink) {
+        return Observable.fromCallable(() -> {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < partitionCount; i++) {
+                ids.add(String.valueOf(i));
+            }
+            return ids;
+        });
+    }
+
+    private Predicate<JsonNode> partitionKeyRange(int rangeId) {
+        int count = partitionCount;
+        String path = partitionKeyPath;
+        if (rangeId < 0 || rangeId >= count) {
+            throw new IllegalArgumentException("Unknown partition key range " + rangeId);
+        }
+        return document -> PartitionKeyHash.partitionOf(PartitionKeyHash.valueOf(document, path), count) == rangeId;
+    }
+
+    // Parsed queries are kept by text; the cache is simply dropped if an application builds
+    // queries with inlined literals instead of parameters.
+    private SqlQuery parse(String queryText) {
+        SqlQuery query = parsedQueries.get(queryText);
+        if (query == null) {
+            query = SqlQuery.parse(queryText);
+            if (parsedQueries.size() >= MAX_CACHED_QUERIES) {
+                parsedQueries.clear();
+            }
+            parsedQueries.put(queryText, query);
+        }
+        return query;
+    }
+
+    static double queryCharge(InMemoryQueryPage page, long outputBytes) {
+        return QUERY_PAGE_CHARGE + QUERY_LOOKUP_CHARGE * page.plan.getLookupCount()
+                + QUERY_SCAN_CHARGE * page.documentsScanned + QUERY_ROW_CHARGE * page.candidateRows
+                + QUERY_OUTPUT_CHARGE_PER_KB * outputBytes / 1024.0;
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> createStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions options) {
+        return Observable.defer(() -> {
+            StoredProcedure stored = new StoredProcedure(storedProcedure.toJson());
+            String link = ResourceLinks.normalize(collectionLink) + "/sprocs/" + stored.getId();
+            stored.set("_self", link);
+            if (storedProcedures.putIfAbsent(link, stored) != null) {
+                return Observable.error(conflict());
+            }
+            return respond(stored, SCRIPT_BASE_CHARGE);
+        });
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> readStoredProcedure(String storedProcedureLink,
+            RequestOptions options) {
+        return Observable.defer(() -> {
+            StoredProcedure stored = storedProcedures.get(ResourceLinks.normalize(storedProcedureLink));
+            if (stored == null) {
+                return Observable.error(notFound(storedProcedureLink));
+            }
+            return respond(new StoredProcedure(stored.toJson()), READ_CHARGE_PER_KB);
+        });
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> upsertStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions options) {
+        return Observable.defer(() -> {
+            StoredProcedure stored = new StoredProcedure(storedProcedure.toJson());
+            String link = ResourceLinks.normalize(collectionLink) + "/sprocs/" + stored.getId();
+            stored.set("_self", link);
+            storedProcedures.put(link, stored);
+            return respond(stored, SCRIPT_BASE_CHARGE);
+        });
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> deleteStoredProcedure(String storedProcedureLink,
+            RequestOptions options) {
+        return Observable.defer(() -> {
+            StoredProcedure removed = storedProcedures.remove(ResourceLinks.normalize(storedProcedureLink));
+            if (removed == null) {
+                return Observable.error(notFound(storedProcedureLink));
+            }
+            return respond(removed, 0);
+        });
+    }
+
+    @Override
+    public Observable<StoreResponse<Database>> createDatabase(Database database, RequestOptions options) {
+        return Observable.defer(() -> {
+            Database stored = new Database(database.toJson());
+            String link = "dbs/" + stored.getId();
+            stored.set("_self", link);
+            if (databases.putIfAbsent(link, stored) != null) {
+                return Observable.error(conflict());
+            }
+            return respond(stored, 0);
+        });
+    }
+
+    // Takes the database's collections and scripts with it.
+    @Override
+    public Observable<StoreResponse<Database>> deleteDatabase(String databaseLink, RequestOptions options) {
+        return Observable.defer(() -> {
+            String link = ResourceLinks.normalize(databaseLink);
+            Database removed = databases.remove(link);
+            if (removed == null) {
+                return Observable.error(notFound(databaseLink));
+            }
+            collections.keySet().removeIf(collectionLink -> collectionLink.startsWith(link + "/"));
+            storedProcedures.keySet().removeIf(storedProcedureLink -> storedProcedureLink.startsWith(link + "/"));
+            return respond(removed, 0);
+        });
+    }
+
+    @Override
+    public Observable<StoreResponse<DocumentCollection>> createCollection(String databaseLink,
+            DocumentCollection collection, RequestOptions options) {
+        return Observable.defer(() -> {
+            String database = ResourceLinks.normalize(databaseLink);
+            if (!databases.containsKey(database)) {
+                return Observable.error(notFound(databaseLink));
+            }
+            DocumentCollection stored = new DocumentCollection(collection.toJson());
+            String link = database + "/colls/" + stored.getId();
+            stored.set("_self", link);
+            InMemoryCollection created = new InMemoryCollection();
+            if (collection.getIndexingPolicy() != null) {
+                created.setIndexingPolicy(collection.getIndexingPolicy());
+            }
+            if (collections.putIfAbsent(link, created) != null) {
+                return Observable.error(conflict());
+            }
+            return respond(stored, 0);
+        });
+    }
+
+    @Override
+    public Observable<StoreResponse<DocumentCollection>> deleteCollection(String collectionLink,
+            RequestOptions options) {
+        return Observable.defer(() -> {
+            String link = ResourceLinks.normalize(collectionLink);
+            InMemoryCollection removed = collections.remove(link);
+            if (removed == null) {
+                return Observable.error(notFound(collectionLink));
+            }
+            storedProcedures.keySet().removeIf(storedProcedureLink -> storedProcedureLink.startsWith(link + "/"));
+            DocumentCollection deleted = new DocumentCollection();
+            deleted.setId(link.substring(link.lastIndexOf('/') + 1));
+            deleted.setIndexingPolicy(removed.getIndexingPolicy());
+            return respond(deleted, 0);
+        });
+    }
+
+    private static DocumentClientException notFound(String link) {
+        return new DocumentClientException(404, "Resource Not Found: " + link);
+    }
+
+    private static DocumentClientException conflict() {
+        return new DocumentClientException(409, "Resource with specified id or name already exists.");
+    }
+
+    @Override
+    public Observable<StoreResponse<String>> executeStoredProcedure(String storedProcedureLink,
+            RequestOptions options, Object[] procedureParams) {
+        return Observable.defer(() -> {
+            String link = ResourceLinks.normalize(storedProcedureLink);
+            StoredProcedure storedProcedure = storedProcedures.get(link);
+            if (storedProcedure == null) {
+                return Observable.error(new DocumentClientException(404,
+                        "Resource Not Found: " + storedProcedureLink));
+            }
+            StoredProcedureHandler handler = storedProcedureHandlers.get(storedProcedure.getId());
+            if (handler == null) {
+                return Observable.error(new DocumentClientException(400,
+                        "No in-memory handler is registered for stored procedure " + storedProcedure.getId()));
+            }
+            long retryAfterMillis = reserve(SCRIPT_BASE_CHARGE);
+            if (retryAfterMillis > 0) {
+                return Observable.error(Throttling.newThrottledException(retryAfterMillis));
+            }
+
+            InMemoryCollection collection = getCollection(ResourceLinks.collectionOf(link));
+            ScriptContext context = new ScriptContext(collection, scriptChargeLimit);
+            Object body;
+            try {
+                body = handler.execute(context, procedureParams);
+            } catch (Exception e) {
+                context.rollback();
+                return Observable.error(e instanceof DocumentClientException ? e
+                        : new DocumentClientException(400, e));
+            }
+            consume(context.getRequestCharge());
+            return respond(body == null ? "" : body.toString(), SCRIPT_BASE_CHARGE + context.getRequestCharge(),
+                    collection.getSessionToken());
+        });
+    }
+
+    // Lets executeStoredProcedure run a Java stand-in for the script with the given id.
+    public void registerStoredProcedureHandler(String storedProcedureId, StoredProcedureHandler handler) {
+        storedProcedureHandlers.put(storedProcedureId, handler);
+    }
+
+    // The RU a single script execution may spend before its requests stop being accepted,
+    // standing in for the service's execution-time bound.
+    public void setScriptChargeLimit(double scriptChargeLimit) {
+        this.scriptChargeLimit = scriptChargeLimit;
+    }
+
+    // Splits every collection into this many partition key ranges by the hash of the
+    // partition key, so cross-partition queries can be run one range at a time.
+    public void setPartitionCount(int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount must be at least 1");
+        }
+        this.partitionCount = partitionCount;
+    }
+
+    public void setPartitionKeyPath(String partitionKeyPath) {
+        this.partitionKeyPath = partitionKeyPath;
+    }
+
+    // The account's default consistency level, which reads use unless they ask for a weaker
+    // one. Reads can't ask for a stronger one.
+    public ConsistencyLevel getConsistencyLevel() {
+        return consistencyLevel;
+    }
+
+    public void setConsistencyLevel(ConsistencyLevel consistencyLevel) {
+        this.consistencyLevel = Objects.requireNonNull(consistencyLevel, "consistencyLevel");
+    }
+
+    // A view of this store whose reads and queries run at the given consistency level, like
+    // a client built with that level. Everything else goes to this store unchanged.
+    public DocumentStore withConsistencyLevel(ConsistencyLevel level) {
+        Objects.requireNonNull(level, "level");
+        InMemoryDocumentStore store = this;
+        return new DocumentStore() {
+            @Override
+            public Observable<StoreResponse<Document>> createDocument(String collectionLink, Document document,
+                    RequestOptions options) {
+                return store.createDocument(collectionLink, document, options);
+            }
+
+            @Override
+            public Observable<StoreResponse<Document>> upsertDocument(String collectionLink, Document document,
+                    RequestOptions options) {
+                return store.upsertDocument(collectionLink, document, options);
+            }
+
+            @Override
+            public Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions options) {
+                if (options != null && options.getConsistencyLevel() != null) {
+                    return store.readDocument(documentLink, options);
+                }
+                RequestOptions read = options == null ? new RequestOptions() : copyOf(options);
+                read.setConsistencyLevel(level);
+                return store.readDocument(documentLink, read);
+            }
+
+            @Override
+            public Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+                    FeedOptions options) {
+                return store.queryDocuments(collectionLink, querySpec, options, level);
+            }
+
+            @Override
+            public Observable<FeedPage<Document>> readChangeFeed(String collectionLink, ChangeFeedOptions options) {
+                return store.readChangeFeed(collectionLink, options);
+            }
+
+            @Override
+            public Observable<List<String>> readPartitionKeyRangeIds(String collectionLink) {
+                return store.readPartitionKeyRangeIds(collectionLink);
+            }
+
+            @Override
+            public Observable<StoreResponse<StoredProcedure>> createStoredProcedure(String collectionLink,
+                    StoredProcedure storedProcedure, RequestOptions options) {
+                return store.createStoredProcedure(collectionLink, storedProcedure, options);
+            }
+
+            @Override
+            public Observable<StoreResponse<String>> executeStoredProcedure(String storedProcedureLink,
+                    RequestOptions options, Object[] procedureParams) {
+                return store.executeStoredProcedure(storedProcedureLink, options, procedureParams);
+            }
+        };
+    }
+
+    // What a read at the requested level (null for the account's) costs relative to a read
+    // at a weak one.
+    private double readChargeFactor(ConsistencyLevel requested) {
+        ConsistencyLevel account = consistencyLevel;
+        ConsistencyLevel level = requested == null ? account : requested;
+        if (strengthOf(level) > strengthOf(account)) {
+            throw new IllegalArgumentException("Consistency level " + level
+                    + " is stronger than the account's " + account);
+        }
+        return level == ConsistencyLevel.Strong || level == ConsistencyLevel.BoundedStaleness
+                ? QUORUM_READ_CHARGE_FACTOR : 1;
+    }
+
+    private static int strengthOf(ConsistencyLevel level) {
+        switch (level) {
+        case Strong:
+            return 4;
+        case BoundedStaleness:
+            return 3;
+        case Session:
+            return 2;
+        case ConsistentPrefix:
+            return 1;
+        default:
+            return 0;
+        }
+    }
+
+    private static RequestOptions copyOf(RequestOptions options) {
+        RequestOptions copy = new RequestOptions();
+        copy.setPartitionKey(options.getPartitionKey());
+        copy.setAccessCondition(options.getAccessCondition());
+        copy.setSessionToken(options.getSessionToken());
+        return copy;
+    }
+
+    public int getDocumentCount(String collectionLink) {
+        return getCollection(collectionLink).size();
+    }
+
+    protected InMemoryCollection getCollection(String collectionLink) {
+        return collections.computeIfAbsent(ResourceLinks.normalize(collectionLink), link -> new InMemoryCollection());
+    }
+
+    protected <T> Observable<StoreResponse<T>> respond(T resource, double charge) {
+        return respond(resource, charge, null);
+    }
+
+    protected <T> Observable<StoreResponse<T>> respond(T resource, double charge, String sessionToken) {
+        StoreResponse<T> response = new StoreResponse<>(resource, charge, sessionToken, UUID.randomUUID().toString());
+        if (latencyMillis <= 0) {
+            return Observable.just(response);
+        }
+        return Observable.just(response).delay(latencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Charges against the current one-second window. Returns 0 when the request fits,
+    // otherwise how long the caller should wait before the window resets.
+    protected synchronized long reserve(double charge) {
+        if (provisionedThroughput <= 0) {
+            return 0;
+        }
+        long elapsedNanos = System.nanoTime() - windowStartNanos;
+        if (elapsedNanos >= TimeUnit.SECONDS.toNanos(1)) {
+            windowStartNanos += elapsedNanos;
+            windowCharge = 0;
+            elapsedNanos = 0;
+        }
+        if (windowCharge > 0 && windowCharge + charge > provisionedThroughput) {
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis(TimeUnit.SECONDS.toNanos(1) - elapsedNanos));
+        }
+        windowCharge += charge;
+        return 0;
+    }
+
+    // Charges work that has already happened, e.g. the writes of a script, without throttling it.
+    protected synchronized void consume(double charge) {
+        windowCharge += charge;
+    }
+
+    // The index part of the charge shrinks with the share of values the policy indexes, and
+    // disappears for a document that is not indexed at all.
+    static double writeCharge(String json, double indexedFraction) {
+        int bytes = json.getBytes(StandardCharsets.UTF_8).length;
+        double chargePerKb = WRITE_CHARGE_PER_KB - INDEX_CHARGE_PER_KB * (1 - indexedFraction);
+        return chargePerKb * Math.max(1, Math.ceil(bytes / 1024.0));
+    }
+}
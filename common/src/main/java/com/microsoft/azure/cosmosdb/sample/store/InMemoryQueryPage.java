@@ -0,0 +1,206 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.sample.index.DocumentIndex;
+import com.microsoft.azure.cosmosdb.sample.index.IndexPlan;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+
+// Evaluates one page of a query against an InMemoryCollection.
+//
+// The WHERE clause is first planned against the collection's DocumentIndex; when the plan
+// has lookups only the documents they return are loaded, otherwise every document is.
+// Queries without ORDER BY are evaluated lazily, in id order for a scan and in index
+// ordinal order for a lookup; their continuation token records the document to resume
+// at (for a lookup, its ordinal and the index generation), how many of its rows were
+// already returned and how many rows the query has returned in total (for TOP). Ordered
+// queries are evaluated in full and paged by offset. A page that looked documents up in
+// the index is evaluated again if the index was compacted in the meantime.
+// The optional predicate narrows what a query sees (and pays for), e.g. to one partition
+// key range or to the documents the collection indexes.
+class InMemoryQueryPage {
+    private static final String UNORDERED = "r";
+    private static final String INDEXED = "i";
+    private static final String ORDERED = "o";
+
+    final List<JsonNode> results = new ArrayList<>();
+    String continuation;
+    int documentsScanned;
+    int documentsMatched;
+    int candidateRows;
+    long indexLookupNanos;
+    IndexPlan plan;
+
+    private final List<SqlQuery.Row> rows = new ArrayList<>();
+    private String resumeKey;
+    private int skipRows;
+    private long returned;
+
+    static InMemoryQueryPage execute(InMemoryCollection collection, SqlQuery query, Map<String, JsonNode> parameters,
+            int pageSize, String continuation, Predicate<JsonNode> range) {
+        DocumentIndex index = collection.getIndex();
+        InMemoryQueryPage page;
+        int generation;
+        do {
+            page = new InMemoryQueryPage();
+            generation = index.getGeneration();
+            page.plan = IndexPlan.of(query, parameters, index.getRules());
+            if (query.getOrderBy().isEmpty()) {
+                page.executeUnordered(collection, index, query, parameters, pageSize, continuation, range);
+            } else {
+                page.executeOrdered(collection, index, query, parameters, pageSize, continuation, range);
+            }
+        } while (!page.plan.isScan() && index.getGeneration() != generation);
+        return page;
+    }
+
+    private void executeUnordered(InMemoryCollection collection, DocumentIndex index, SqlQuery query,
+            Map<String, JsonNode> parameters, int pageSize, String continuation, Predicate<JsonNode> range) {
+        String kind = plan.isScan() ? UNORDERED : INDEXED;
+        if (continuation != null) {
+            String[] parts = continuation.split(":", 4);
+            if (parts.length != 4 || !parts[0].equals(kind)) {
+                throw new IllegalArgumentException("Invalid continuation token " + continuation);
+            }
+            returned = Long.parseLong(parts[1]);
+            skipRows = Integer.parseInt(parts[2]);
+            resumeKey = parts[3];
+        }
+        long limit = query.getTop() == null ? Long.MAX_VALUE : query.getTop();
+
+        if (plan.isScan()) {
+            for (Map.Entry<String, ObjectNode> entry : collection.documentsFrom(resumeKey).entrySet()) {
+                if ((range == null || range.test(entry.getValue()))
+                        && !addRows(kind, entry.getKey(), entry.getValue(), query, parameters, pageSize, limit)) {
+                    return;
+                }
+            }
+            return;
+        }
+        int generation = index.getGeneration();
+        BitSet candidates = candidates(index);
+        int from = 0;
+        if (resumeKey != null) {
+            String[] position = resumeKey.split("\\.", 2);
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Invalid continuation token " + continuation);
+            }
+            int ordinal = index.resumeOrdinal(Integer.parseInt(position[0]), Integer.parseInt(position[1]));
+            from = ordinal >= 0 ? ordinal : -ordinal - 1;
+            resumeKey = ordinal >= 0 ? generation + "." + ordinal : null;
+        }
+        for (int ordinal = candidates.nextSetBit(from); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+            ObjectNode document = index.document(ordinal);
+            if (document != null && (range == null || range.test(document))
+                    && !addRows(kind, generation + "." + ordinal, document, query, parameters, pageSize, limit)) {
+                return;
+            }
+        }
+    }
+
+    // Returns false once the page is full, with the continuation pointing at the first row
+    // that did not fit.
+    private boolean addRows(String kind, String key, JsonNode document, SqlQuery query,
+            Map<String, JsonNode> parameters, int pageSize, long limit) {
+        rows.clear();
+        documentsScanned++;
+        candidateRows += query.evaluate(document, parameters, rows);
+        if (!rows.isEmpty()) {
+            documentsMatched++;
+        }
+        int start = key.equals(resumeKey) ? skipRows : 0;
+        for (int i = start; i < rows.size(); i++) {
+            if (results.size() == pageSize || returned + results.size() == limit) {
+                if (returned + results.size() < limit) {
+                    this.continuation = kind + ":" + (returned + results.size()) + ":" + i + ":" + key;
+                }
+                return false;
+            }
+            results.add(rows.get(i).getValue());
+        }
+        return true;
+    }
+
+    private void executeOrdered(InMemoryCollection collection, DocumentIndex index, SqlQuery query,
+            Map<String, JsonNode> parameters, int pageSize, String continuation, Predicate<JsonNode> range) {
+        int offset = 0;
+        if (continuation != null) {
+            if (!continuation.startsWith(ORDERED + ":")) {
+                throw new IllegalArgumentException("Invalid continuation token " + continuation);
+            }
+            offset = Integer.parseInt(continuation.substring(2));
+        }
+
+        List<SqlQuery.Row> rows = new ArrayList<>();
+        if (plan.isScan()) {
+            for (ObjectNode document : collection.documentsFrom(null).values()) {
+                if (range == null || range.test(document)) {
+                    evaluate(document, query, parameters, rows);
+                }
+            }
+        } else {
+            BitSet candidates = candidates(index);
+            for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+                ObjectNode document = index.document(ordinal);
+                if (document != null && (range == null || range.test(document))) {
+                    evaluate(document, query, parameters, rows);
+                }
+            }
+        }
+        rows.sort(query::compareRows);
+        int total = query.getTop() == null ? rows.size() : Math.min(rows.size(), query.getTop());
+
+        int end = Math.min(total, offset + pageSize);
+        for (int i = offset; i < end; i++) {
+            results.add(rows.get(i).getValue());
+        }
+        if (end < total) {
+            this.continuation = ORDERED + ":" + end;
+        }
+    }
+
+    private void evaluate(ObjectNode document, SqlQuery query, Map<String, JsonNode> parameters,
+            List<SqlQuery.Row> rows) {
+        int before = rows.size();
+        documentsScanned++;
+        candidateRows += query.evaluate(document, parameters, rows);
+        if (rows.size() > before) {
+            documentsMatched++;
+        }
+    }
+
+    private BitSet candidates(DocumentIndex index) {
+        long start = System.nanoTime();
+        BitSet candidates = plan.candidates(index);
+        indexLookupNanos = System.nanoTime() - start;
+        return candidates;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+public final class ResourceLinks {
+    private ResourceLinks() {
+    }
+
+    // "/dbs/a/colls/b", "dbs/a/colls/b/" and "dbs/a/colls/b" all name the same collection.
+    public static String normalize(String link) {
+        int start = 0;
+        int end = link.length();
+        while (start < end && link.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && link.charAt(end - 1) == '/') {
+            end--;
+        }
+        return link.substring(start, end);
+    }
+
+    // The collection a stored procedure (or other child resource) link belongs to.
+    public static String collectionOf(String link) {
+        String normalized = normalize(link);
+        int colls = normalized.indexOf("/colls/");
+        if (colls < 0) {
+            throw new IllegalArgumentException("Not a collection or collection child link: " + link);
+        }
+        int end = normalized.indexOf('/', colls + "/colls/".length());
+        return end < 0 ? normalized : normalized.substring(0, end);
+    }
+}
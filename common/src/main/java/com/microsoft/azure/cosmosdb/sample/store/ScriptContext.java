@@ -0,0 +1,98 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+
+// What getContext().getCollection() offers a script, for StoredProcedureHandler. The
+// service stops accepting new requests from a script once it nears its execution bound;
+// here that bound is an RU budget, after which createDocument returns false exactly like
+// the isAccepted flag in JavaScript. Writes are rolled back if the script throws.
+public class ScriptContext {
+    private final InMemoryCollection collection;
+    private final double chargeLimit;
+    private final List<String> createdIds = new ArrayList<>();
+    private double requestCharge;
+
+    ScriptContext(InMemoryCollection collection, double chargeLimit) {
+        this.collection = collection;
+        this.chargeLimit = chargeLimit;
+    }
+
+    public boolean createDocument(Document document) throws DocumentClientException {
+        ObjectNode stored = InMemoryCollection.toNode(document);
+        boolean indexed = collection.isIndexedByDefault();
+        double charge = InMemoryDocumentStore.writeCharge(stored.toString(),
+                indexed ? collection.indexedFraction(stored) : 0);
+        if (requestCharge + charge > chargeLimit) {
+            return false;
+        }
+
+        if (!collection.insert(stored, indexed)) {
+            throw new DocumentClientException(409, "Resource with specified id or name already exists.");
+        }
+        createdIds.add(stored.get("id").asText());
+        requestCharge += charge;
+        return true;
+    }
+
+    // Returns the first page of the query, or null if the script is out of budget (the
+    // isAccepted == false case of collection.queryDocuments).
+    public List<Document> queryDocuments(String queryText) {
+        InMemoryQueryPage page = InMemoryQueryPage.execute(collection, SqlQuery.parse(queryText),
+                Collections.emptyMap(), InMemoryDocumentStore.DEFAULT_PAGE_SIZE, null, null);
+        List<Document> results = new ArrayList<>(page.results.size());
+        long outputBytes = 0;
+        for (JsonNode result : page.results) {
+            String json = result.toString();
+            outputBytes += json.getBytes(StandardCharsets.UTF_8).length;
+            results.add(new Document(json));
+        }
+        double charge = InMemoryDocumentStore.queryCharge(page, outputBytes);
+        if (requestCharge + charge > chargeLimit) {
+            return null;
+        }
+        requestCharge += charge;
+        return results;
+    }
+
+    public double getRequestCharge() {
+        return requestCharge;
+    }
+
+    void rollback() {
+        for (String id : createdIds) {
+            collection.remove(id);
+        }
+        createdIds.clear();
+    }
+}
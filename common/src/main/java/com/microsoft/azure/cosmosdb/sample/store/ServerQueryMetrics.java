@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// The query metrics the service returns for a page when FeedOptions.setPopulateQueryMetrics
+// is on, parsed from the x-ms-documentdb-query-metrics response header
+// ("retrievedDocumentCount=12;outputDocumentCount=3;..."). Times are in milliseconds. The
+// in-memory store fills in the same header, so the numbers read the same for both.
+public class ServerQueryMetrics {
+    public static final String HEADER = "x-ms-documentdb-query-metrics";
+
+    private static final String RETRIEVED_DOCUMENT_COUNT = "retrievedDocumentCount";
+    private static final String RETRIEVED_DOCUMENT_SIZE = "retrievedDocumentSize";
+    private static final String OUTPUT_DOCUMENT_COUNT = "outputDocumentCount";
+    private static final String OUTPUT_DOCUMENT_SIZE = "outputDocumentSize";
+    private static final String INDEX_HIT_DOCUMENT_COUNT = "indexHitDocumentCount";
+    private static final String INDEX_HIT_RATIO = "indexUtilizationRatio";
+    private static final String TOTAL_EXECUTION_TIME = "totalExecutionTimeInMs";
+    private static final String INDEX_LOOKUP_TIME = "indexLookupTimeInMs";
+    private static final String DOCUMENT_LOAD_TIME = "documentLoadTimeInMs";
+
+    private final long retrievedDocumentCount;
+    private final long retrievedDocumentSize;
+    private final long outputDocumentCount;
+    private final long outputDocumentSize;
+    private final long indexHitDocumentCount;
+    private final double totalExecutionTimeMillis;
+    private final double indexLookupTimeMillis;
+    private final double documentLoadTimeMillis;
+
+    public ServerQueryMetrics(long retrievedDocumentCount, long retrievedDocumentSize, long outputDocumentCount,
+            long outputDocumentSize, long indexHitDocumentCount, double totalExecutionTimeMillis,
+            double indexLookupTimeMillis, double documentLoadTimeMillis) {
+        this.retrievedDocumentCount = retrievedDocumentCount;
+        this.retrievedDocumentSize = retrievedDocumentSize;
+        this.outputDocumentCount = outputDocumentCount;
+        this.outputDocumentSize = outputDocumentSize;
+        this.indexHitDocumentCount = indexHitDocumentCount;
+        this.totalExecutionTimeMillis = totalExecutionTimeMillis;
+        this.indexLookupTimeMillis = indexLookupTimeMillis;
+        this.documentLoadTimeMillis = documentLoadTimeMillis;
+    }
+
+    // Null when the page carries no query metrics.
+    public static ServerQueryMetrics fromHeaders(Map<String, String> headers) {
+        String value = headers == null ? null : headers.get(HEADER);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (String field : value.split(";")) {
+            int equals = field.indexOf('=');
+            if (equals > 0) {
+                fields.put(field.substring(0, equals).trim(), field.substring(equals + 1).trim());
+            }
+        }
+        long retrieved = (long) number(fields, RETRIEVED_DOCUMENT_COUNT);
+        // Some service versions only report the ratio.
+        long indexHits = fields.containsKey(INDEX_HIT_DOCUMENT_COUNT) ? (long) number(fields, INDEX_HIT_DOCUMENT_COUNT)
+                : Math.round(number(fields, INDEX_HIT_RATIO) * retrieved);
+        return new ServerQueryMetrics(retrieved,
+                (long) number(fields, RETRIEVED_DOCUMENT_SIZE), (long) number(fields, OUTPUT_DOCUMENT_COUNT),
+                (long) number(fields, OUTPUT_DOCUMENT_SIZE), indexHits,
+                number(fields, TOTAL_EXECUTION_TIME), number(fields, INDEX_LOOKUP_TIME),
+                number(fields, DOCUMENT_LOAD_TIME));
+    }
+
+    private static double number(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public String toHeaderValue() {
+        return String.format(Locale.ROOT, "%s=%d;%s=%d;%s=%d;%s=%d;%s=%d;%s=%.2f;%s=%.2f;%s=%.2f;%s=%.2f",
+                RETRIEVED_DOCUMENT_COUNT, retrievedDocumentCount, RETRIEVED_DOCUMENT_SIZE, retrievedDocumentSize,
+                OUTPUT_DOCUMENT_COUNT, outputDocumentCount, OUTPUT_DOCUMENT_SIZE, outputDocumentSize,
+                INDEX_HIT_DOCUMENT_COUNT, indexHitDocumentCount, INDEX_HIT_RATIO, getIndexHitRatio(),
+                TOTAL_EXECUTION_TIME, totalExecutionTimeMillis, INDEX_LOOKUP_TIME, indexLookupTimeMillis, DOCUMENT_LOAD_TIME, documentLoadTimeMillis);
+    }
+
+    public ServerQueryMetrics plus(ServerQueryMetrics other) {
+        return new ServerQueryMetrics(retrievedDocumentCount + other.retrievedDocumentCount,
+                retrievedDocumentSize + other.retrievedDocumentSize, outputDocumentCount + other.outputDocumentCount,
+                outputDocumentSize + other.outputDocumentSize, indexHitDocumentCount + other.indexHitDocumentCount,
+                totalExecutionTimeMillis + other.totalExecutionTimeMillis,
+                indexLookupTimeMillis + other.indexLookupTimeMillis,
+                documentLoadTimeMillis + other.documentLoadTimeMillis);
+    }
+
+    // Documents the query engine loaded to evaluate the page.
+    public long getRetrievedDocumentCount() {
+        return retrievedDocumentCount;
+    }
+
+    public long getRetrievedDocumentSize() {
+        return retrievedDocumentSize;
+    }
+
+    public long getOutputDocumentCount() {
+        return outputDocumentCount;
+    }
+
+    public long getOutputDocumentSize() {
+        return outputDocumentSize;
+    }
+
+    // Retrieved documents that matched the filter; the rest were loaded for nothing.
+    public long getIndexHitDocumentCount() {
+        return indexHitDocumentCount;
+    }
+
+    public double getIndexHitRatio() {
+        return retrievedDocumentCount == 0 ? 1 : (double) indexHitDocumentCount / retrievedDocumentCount;
+    }
+
+    public double getTotalExecutionTimeMillis() {
+        return totalExecutionTimeMillis;
+    }
+
+    public double getIndexLookupTimeMillis() {
+        return indexLookupTimeMillis;
+    }
+
+    public double getDocumentLoadTimeMillis() {
+        return documentLoadTimeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d retrieved (%d bytes), %d output (%d bytes), index hit ratio %.2f, %.2f ms",
+                retrievedDocumentCount, retrievedDocumentSize, outputDocumentCount, outputDocumentSize,
+                getIndexHitRatio(), totalExecutionTimeMillis);
+    }
+}
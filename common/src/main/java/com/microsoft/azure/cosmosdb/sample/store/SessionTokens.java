@@ -0,0 +1,130 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+
+// Session tokens as the service hands them out: comma separated "<range>:<lsn>" entries, one
+// per partition key range, where the lsn may also be a vector
+// "<version>#<global lsn>#<region>=<lsn>...". A session read is served by a replica that has
+// caught up with every range of the token it carries. Entries are compared by their global
+// lsn; anything else in them is passed through untouched.
+public final class SessionTokens {
+    private SessionTokens() {
+    }
+
+    // The token that covers both: for every range the entry with the higher lsn.
+    public static String merge(String first, String second) {
+        if (first == null || first.isEmpty()) {
+            return second;
+        }
+        if (second == null || second.isEmpty() || first.equals(second)) {
+            return first;
+        }
+        Map<String, String> merged = parse(first);
+        for (Map.Entry<String, String> entry : parse(second).entrySet()) {
+            merged.merge(entry.getKey(), entry.getValue(),
+                    (current, candidate) -> lsnOf(candidate) > lsnOf(current) ? candidate : current);
+        }
+        StringBuilder token = new StringBuilder();
+        for (String entry : merged.values()) {
+            if (token.length() > 0) {
+                token.append(',');
+            }
+            token.append(entry);
+        }
+        return token.toString();
+    }
+
+    // Whether a replica at the available token can serve a session read that requires the
+    // other one. Any token covers a null one.
+    public static boolean covers(String available, String required) {
+        if (required == null || required.isEmpty()) {
+            return true;
+        }
+        if (available == null || available.isEmpty()) {
+            return false;
+        }
+        Map<String, String> availableEntries = parse(available);
+        for (Map.Entry<String, String> entry : parse(required).entrySet()) {
+            String availableEntry = availableEntries.get(entry.getKey());
+            if (availableEntry == null || lsnOf(availableEntry) < lsnOf(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The options a read needs to carry the session token: the caller's own if they have
+    // none to add or already name a token, otherwise a copy with the token set. The caller's
+    // options are never modified.
+    public static RequestOptions withSessionToken(RequestOptions options, String sessionToken) {
+        if (sessionToken == null || (options != null && options.getSessionToken() != null)) {
+            return options;
+        }
+        RequestOptions read = new RequestOptions();
+        if (options != null) {
+            read.setPartitionKey(options.getPartitionKey());
+            read.setConsistencyLevel(options.getConsistencyLevel());
+            read.setAccessCondition(options.getAccessCondition());
+        }
+        read.setSessionToken(sessionToken);
+        return read;
+    }
+
+    public static FeedOptions withSessionToken(FeedOptions options, String sessionToken) {
+        if (sessionToken == null || (options != null && options.getSessionToken() != null)) {
+            return options;
+        }
+        FeedOptions read = options == null ? new FeedOptions() : new FeedOptions(options);
+        read.setSessionToken(sessionToken);
+        return read;
+    }
+
+    // Keyed by range id; each value is the whole "<range>:<lsn>" entry.
+    private static Map<String, String> parse(String token) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (String entry : token.split(",")) {
+            entry = entry.trim();
+            if (!entry.isEmpty()) {
+                int colon = entry.indexOf(':');
+                entries.put(colon < 0 ? "" : entry.substring(0, colon), entry);
+            }
+        }
+        return entries;
+    }
+
+    private static long lsnOf(String entry) {
+        String lsn = entry.substring(entry.indexOf(':') + 1);
+        String[] parts = lsn.split("#");
+        try {
+            return Long.parseLong(parts.length > 1 ? parts[1] : parts[0]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
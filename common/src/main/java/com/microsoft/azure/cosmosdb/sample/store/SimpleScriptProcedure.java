@@ -0,0 +1,45 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.util.List;
+
+import com.microsoft.azure.cosmosdb.Document;
+
+// The in-memory twin of JS/SimpleScript.js: returns the prefix parameter followed by the
+// first document of the collection as JSON.
+public class SimpleScriptProcedure implements StoredProcedureHandler {
+    @Override
+    public Object execute(ScriptContext context, Object[] procedureParams) {
+        Object prefix = procedureParams == null || procedureParams.length == 0 ? null : procedureParams[0];
+        List<Document> feed = context.queryDocuments("SELECT * FROM root r");
+        if (feed == null) {
+            throw new IllegalStateException(
+                    "The query wasn't accepted by the server. Try again/use continuation token between API and script.");
+        }
+        if (feed.isEmpty()) {
+            return "no docs found";
+        }
+        return String.valueOf(prefix) + feed.get(0).toJson();
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+// The parts of a service response the samples care about. ResourceResponse cannot be
+// constructed outside the SDK, so DocumentStore implementations return this instead.
+public class StoreResponse<T> {
+    private final T resource;
+    private final double requestCharge;
+    private final String sessionToken;
+    private final String activityId;
+
+    public StoreResponse(T resource, double requestCharge, String sessionToken, String activityId) {
+        this.resource = resource;
+        this.requestCharge = requestCharge;
+        this.sessionToken = sessionToken;
+        this.activityId = activityId;
+    }
+
+    public T getResource() {
+        return resource;
+    }
+
+    public double getRequestCharge() {
+        return requestCharge;
+    }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    public String getActivityId() {
+        return activityId;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.util.Collections;
+
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+
+public final class Throttling {
+    public static final int TOO_MANY_REQUESTS = 429;
+    // Header the service uses to tell clients how long to back off after a 429.
+    public static final String RETRY_AFTER_HEADER = "x-ms-retry-after-ms";
+
+    private Throttling() {
+    }
+
+    public static boolean isThrottled(Throwable error) {
+        DocumentClientException clientException = findClientException(error);
+        return clientException != null && clientException.getStatusCode() == TOO_MANY_REQUESTS;
+    }
+
+    // Returns the server's retry-after hint, or defaultMillis when the response carried none.
+    public static long getRetryAfterInMillis(Throwable error, long defaultMillis) {
+        DocumentClientException clientException = findClientException(error);
+        if (clientException == null || clientException.getRetryAfterInMilliseconds() <= 0) {
+            return defaultMillis;
+        }
+        return clientException.getRetryAfterInMilliseconds();
+    }
+
+    public static DocumentClientException newThrottledException(long retryAfterMillis) {
+        com.microsoft.azure.cosmosdb.Error error = new com.microsoft.azure.cosmosdb.Error(
+                "TooManyRequests", "Request rate is large");
+        return new DocumentClientException(TOO_MANY_REQUESTS, error,
+                Collections.singletonMap(RETRY_AFTER_HEADER, String.valueOf(retryAfterMillis)));
+    }
+
+    // The SDK sometimes surfaces DocumentClientException as the cause of a wrapper exception.
+    public static DocumentClientException findClientException(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof DocumentClientException) {
+                return (DocumentClientException) current;
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return null;
+    }
+}
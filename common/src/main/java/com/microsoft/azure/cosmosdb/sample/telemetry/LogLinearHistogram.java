@@ -0,0 +1,133 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+// A lock-free histogram in the style of HdrHistogram. Values are stored as multiples of
+// the resolution; the first 128 multiples get a bucket each and every power of two above
+// that is split into 64 linear buckets, so any recorded value is reported within 1.6%.
+// Recording is a few atomic increments and never allocates.
+public class LogLinearHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+    private final double resolution;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    // resolution is the smallest difference worth telling apart, e.g. 0.01 for request units.
+    public LogLinearHistogram(double resolution) {
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("resolution must be positive");
+        }
+        this.resolution = resolution;
+    }
+
+    public void record(double value) {
+        long units = Math.max(0, Math.round(value / resolution));
+        counts.incrementAndGet(indexOf(units));
+        count.increment();
+        sum.add(value);
+        min.accumulateAndGet(units, Math::min);
+        max.accumulateAndGet(units, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    // The value below which the given percentage (0-100) of recorded values fall.
+    public double getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        if (percentile >= 100) {
+            return max.get() * resolution;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                long lowest = lowestValueOf(i);
+                long middle = lowest + (widthOf(i) - 1) / 2;
+                return Math.max(min.get(), Math.min(max.get(), middle)) * resolution;
+            }
+        }
+        return max.get() * resolution;
+    }
+
+    public HistogramSummary summarize() {
+        long total = getCount();
+        if (total == 0) {
+            return new HistogramSummary(0, 0, 0, 0, 0, 0, 0);
+        }
+        return new HistogramSummary(total, getSum(), min.get() * resolution, max.get() * resolution,
+                getValueAtPercentile(50), getValueAtPercentile(95), getValueAtPercentile(99));
+    }
+
+    static int indexOf(long units) {
+        if (units < SUB_BUCKET_COUNT) {
+            return (int) units;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(units);
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_HALF
+                + (int) (units >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    static long lowestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int exponent = SUB_BUCKET_BITS + offset / SUB_BUCKET_HALF;
+        long subBucket = offset % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return subBucket << (exponent - SUB_BUCKET_BITS + 1);
+    }
+
+    static long widthOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return 1;
+        }
+        int exponent = SUB_BUCKET_BITS + (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF;
+        return 1L << (exponent - SUB_BUCKET_BITS + 1);
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.telemetry;
+
+// Per-query distributions for one logical query (an operation name plus a query shape).
+// One sample is recorded per complete execution of the query, however many pages it took.
+public class QueryShapeStats {
+    private final String operation;
+    private final String shape;
+    private final LogLinearHistogram requestCharge = new LogLinearHistogram(0.01);
+    private final LogLinearHistogram latencyMillis = new LogLinearHistogram(0.01);
+    private final LogLinearHistogram pages = new LogLinearHistogram(1);
+    private final LogLinearHistogram documents = new LogLinearHistogram(1);
+    private final LogLinearHistogram bytes = new LogLinearHistogram(1);
+
+    QueryShapeStats(String operation, String shape) {
+        this.operation = operation;
+        this.shape = shape;
+    }
+
+    public void record(double requestCharge, double latencyMillis, long pages, long documents, long bytes) {
+        this.requestCharge.record(requestCharge);
+        this.latencyMillis.record(latencyMillis);
+        this.pages.record(pages);
+        this.documents.record(documents);
+        this.bytes.record(bytes);
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    public LogLinearHistogram getRequestCharge() {
+        return requestCharge;
+    }
+
+    public LogLinearHistogram getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public LogLinearHistogram getPages() {
+        return pages;
+    }
+
+    public LogLinearHistogram getDocuments() {
+        return documents;
+    }
+
+    public LogLinearHistogram getBytes() {
+        return bytes;
+    }
+}
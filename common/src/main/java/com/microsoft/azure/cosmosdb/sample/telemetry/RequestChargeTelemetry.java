@@ -0,0 +1,191 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.telemetry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.Resource;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+
+import rx.Observable;
+
+// Collects request charge, latency, page, document and byte counts per logical query and
+// exports them as JSON or in the Prometheus text format. Queries are keyed by the calling
+// operation (e.g. QueryWithSingleJoin) and the normalized query text.
+public class RequestChargeTelemetry {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final ConcurrentMap<String, QueryShapeStats> stats = new ConcurrentHashMap<>();
+
+    public QueryShapeStats getStats(String operation, String queryText) {
+        String shape = QueryShapes.normalize(queryText);
+        return stats.computeIfAbsent(operation + '\n' + shape, key -> new QueryShapeStats(operation, shape));
+    }
+
+    public Collection<QueryShapeStats> getAllStats() {
+        List<QueryShapeStats> all = new ArrayList<>(stats.values());
+        all.sort(Comparator.comparing(QueryShapeStats::getOperation).thenComparing(QueryShapeStats::getShape));
+        return all;
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    // Wraps a query so that one sample is recorded when it completes (or fails), measuring
+    // from subscription to termination.
+    public <T extends Resource> Observable.Transformer<FeedPage<T>, FeedPage<T>> instrument(String operation,
+            String queryText) {
+        QueryShapeStats shapeStats = getStats(operation, queryText);
+        return pages -> Observable.defer(() -> {
+            long startNanos = System.nanoTime();
+            AtomicLong pageCount = new AtomicLong();
+            AtomicLong documentCount = new AtomicLong();
+            AtomicLong byteCount = new AtomicLong();
+            DoubleAdder requestCharge = new DoubleAdder();
+            return pages
+                    .doOnNext(page -> {
+                        pageCount.incrementAndGet();
+                        documentCount.addAndGet(page.getResults().size());
+                        requestCharge.add(page.getRequestCharge());
+                        long pageBytes = 0;
+                        for (T resource : page.getResults()) {
+                            pageBytes += utf8Length(resource.toJson());
+                        }
+                        byteCount.addAndGet(pageBytes);
+                    })
+                    .doOnTerminate(() -> shapeStats.record(requestCharge.sum(),
+                            (System.nanoTime() - startNanos) / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                            pageCount.get(), documentCount.get(), byteCount.get()));
+        });
+    }
+
+    public String toJson() {
+        ArrayNode queries = mapper.createArrayNode();
+        for (QueryShapeStats shapeStats : getAllStats()) {
+            ObjectNode query = queries.addObject();
+            query.put("operation", shapeStats.getOperation());
+            query.put("shape", shapeStats.getShape());
+            query.put("executions", shapeStats.getRequestCharge().getCount());
+            query.set("requestCharge", toJson(shapeStats.getRequestCharge().summarize()));
+            query.set("latencyMillis", toJson(shapeStats.getLatencyMillis().summarize()));
+            query.set("pages", toJson(shapeStats.getPages().summarize()));
+            query.set("documents", toJson(shapeStats.getDocuments().summarize()));
+            query.set("bytes", toJson(shapeStats.getBytes().summarize()));
+        }
+        ObjectNode root = mapper.createObjectNode();
+        root.set("queries", queries);
+        try {
+            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        appendSummary(text, "cosmosdb_query_request_charge", "Request units charged per query execution",
+                QueryShapeStats::getRequestCharge);
+        appendSummary(text, "cosmosdb_query_latency_milliseconds", "Wall time per query execution",
+                QueryShapeStats::getLatencyMillis);
+        appendSummary(text, "cosmosdb_query_pages", "Pages returned per query execution",
+                QueryShapeStats::getPages);
+        appendSummary(text, "cosmosdb_query_documents", "Documents returned per query execution",
+                QueryShapeStats::getDocuments);
+        appendSummary(text, "cosmosdb_query_bytes", "Serialized document bytes returned per query execution",
+                QueryShapeStats::getBytes);
+        return text.toString();
+    }
+
+    private interface HistogramSelector {
+        LogLinearHistogram select(QueryShapeStats stats);
+    }
+
+    private void appendSummary(StringBuilder text, String name, String help, HistogramSelector selector) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" summary\n");
+        for (QueryShapeStats shapeStats : getAllStats()) {
+            HistogramSummary summary = selector.select(shapeStats).summarize();
+            String labels = "operation=\"" + escapeLabel(shapeStats.getOperation()) + "\",shape=\""
+                    + escapeLabel(shapeStats.getShape()) + "\"";
+            appendSample(text, name, labels + ",quantile=\"0.5\"", summary.getP50());
+            appendSample(text, name, labels + ",quantile=\"0.95\"", summary.getP95());
+            appendSample(text, name, labels + ",quantile=\"0.99\"", summary.getP99());
+            appendSample(text, name + "_sum", labels, summary.getSum());
+            text.append(name).append("_count{").append(labels).append("} ").append(summary.getCount()).append('\n');
+        }
+    }
+
+    private static void appendSample(StringBuilder text, String name, String labels, double value) {
+        text.append(name).append('{').append(labels).append("} ")
+                .append(String.format(Locale.ROOT, "%.2f", value)).append('\n');
+    }
+
+    private static ObjectNode toJson(HistogramSummary summary) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("count", summary.getCount());
+        node.put("total", summary.getSum());
+        node.put("mean", summary.getMean());
+        node.put("min", summary.getMin());
+        node.put("max", summary.getMax());
+        node.put("p50", summary.getP50());
+        node.put("p95", summary.getP95());
+        node.put("p99", summary.getP99());
+        return node;
+    }
+
+    static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    static long utf8Length(CharSequence text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
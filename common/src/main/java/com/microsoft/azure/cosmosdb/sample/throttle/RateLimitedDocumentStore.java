@@ -0,0 +1,206 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.throttle;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.microsoft.azure.cosmosdb.ChangeFeedOptions;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+// A DocumentStore that sends every request through one RequestUnitRateLimiter, so all the
+// code sharing it (queries, writes, script executions, each bulk job) stays under the
+// collection's throughput together instead of each backing off on its own. Each request
+// reserves the charge learned for its operation type, settles the actual charge when the
+// response arrives, and on a 429 pauses the whole limiter for the retry-after interval
+// before it is retried. Queries are fetched a page at a time, each page a request of its own.
+public class RateLimitedDocumentStore implements DocumentStore {
+    private final DocumentStore store;
+    private final RateLimiterOptions options;
+    private final RequestUnitRateLimiter limiter;
+    private final RequestChargeEstimator estimator;
+    private final RequestPriority priority;
+
+    public RateLimitedDocumentStore(DocumentStore store) {
+        this(store, new RateLimiterOptions());
+    }
+
+    public RateLimitedDocumentStore(DocumentStore store, RateLimiterOptions options) {
+        this(store, options, new RequestUnitRateLimiter(options), new RequestChargeEstimator(), null);
+    }
+
+    private RateLimitedDocumentStore(DocumentStore store, RateLimiterOptions options,
+            RequestUnitRateLimiter limiter, RequestChargeEstimator estimator, RequestPriority priority) {
+        this.store = store;
+        this.options = options;
+        this.limiter = limiter;
+        this.estimator = estimator;
+        this.priority = priority;
+    }
+
+    // A view sharing this store's limiter that sends every request at the given priority,
+    // e.g. withPriority(RequestPriority.BACKGROUND) for a bulk loader.
+    public RateLimitedDocumentStore withPriority(RequestPriority priority) {
+        return new RateLimitedDocumentStore(store, options, limiter, estimator, priority);
+    }
+
+    // A view sharing this store's limiter that sends its requests to another store of the same
+    // collections, e.g. a client set up with another consistency level.
+    public RateLimitedDocumentStore over(DocumentStore other) {
+        return new RateLimitedDocumentStore(other, options, limiter, estimator, priority);
+    }
+
+    public RequestUnitRateLimiter getLimiter() {
+        return limiter;
+    }
+
+    public RequestChargeEstimator getEstimator() {
+        return estimator;
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> createDocument(String collectionLink, Document document,
+            RequestOptions requestOptions) {
+        return execute(OperationType.WRITE, () -> store.createDocument(collectionLink, document, requestOptions),
+                StoreResponse::getRequestCharge);
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> upsertDocument(String collectionLink, Document document,
+            RequestOptions requestOptions) {
+        return execute(OperationType.WRITE, () -> store.upsertDocument(collectionLink, document, requestOptions),
+                StoreResponse::getRequestCharge);
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions requestOptions) {
+        return execute(OperationType.READ, () -> store.readDocument(documentLink, requestOptions),
+                StoreResponse::getRequestCharge);
+    }
+
+    @Override
+    public Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions feedOptions) {
+        return pages(collectionLink, querySpec, feedOptions,
+                feedOptions == null ? null : feedOptions.getRequestContinuation());
+    }
+
+    private Observable<FeedPage<Document>> pages(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions feedOptions, String continuation) {
+        // first() unsubscribes once the page arrives, so the next page is only fetched
+        // after it has been granted throughput of its own.
+        return execute(OperationType.QUERY,
+                () -> store.queryDocuments(collectionLink, querySpec, withContinuation(feedOptions, continuation))
+                        .first(),
+                FeedPage::getRequestCharge)
+                .concatMap(page -> page.getResponseContinuation() == null ? Observable.just(page)
+                        : Observable.just(page).concatWith(
+                                pages(collectionLink, querySpec, feedOptions, page.getResponseContinuation())));
+    }
+
+    @Override
+    public Observable<FeedPage<Document>> readChangeFeed(String collectionLink, ChangeFeedOptions options) {
+        return execute(OperationType.READ, () -> store.readChangeFeed(collectionLink, options).first(),
+                FeedPage::getRequestCharge)
+                .concatMap(page -> page.getResults().isEmpty() ? Observable.just(page)
+                        : Observable.just(page).concatWith(
+                                readChangeFeed(collectionLink, resumedAt(options, page.getResponseContinuation()))));
+    }
+
+    private static ChangeFeedOptions resumedAt(ChangeFeedOptions options, String continuation) {
+        ChangeFeedOptions resumed = new ChangeFeedOptions(options);
+        resumed.setRequestContinuation(continuation);
+        return resumed;
+    }
+
+    // Metadata reads don't consume the collection's throughput.
+    @Override
+    public Observable<List<String>> readPartitionKeyRangeIds(String collectionLink) {
+        return store.readPartitionKeyRangeIds(collectionLink);
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> createStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions requestOptions) {
+        return execute(OperationType.WRITE,
+                () -> store.createStoredProcedure(collectionLink, storedProcedure, requestOptions),
+                StoreResponse::getRequestCharge);
+    }
+
+    @Override
+    public Observable<StoreResponse<String>> executeStoredProcedure(String storedProcedureLink,
+            RequestOptions requestOptions, Object[] procedureParams) {
+        return execute(OperationType.EXECUTE_SCRIPT,
+                () -> store.executeStoredProcedure(storedProcedureLink, requestOptions, procedureParams),
+                StoreResponse::getRequestCharge);
+    }
+
+    private <T> Observable<T> execute(OperationType operationType, Func0<Observable<T>> request,
+            Func1<T, Double> requestChargeOf) {
+        RequestPriority requestPriority = priority != null ? priority : options.getPriority(operationType);
+        AtomicInteger retries = new AtomicInteger();
+        return Observable.defer(() -> {
+            double estimate = estimator.getEstimate(operationType);
+            return limiter.acquire(estimate, requestPriority)
+                    .concatMap(reserved -> request.call()
+                            .doOnNext(response -> {
+                                double actual = requestChargeOf.call(response);
+                                estimator.record(operationType, actual);
+                                limiter.settle(reserved, actual);
+                            })
+                            .doOnError(error -> {
+                                if (Throttling.isThrottled(error)) {
+                                    limiter.onThrottled(Throttling.getRetryAfterInMillis(error,
+                                            options.getDefaultRetryAfterMillis()));
+                                } else {
+                                    // Failed requests are charged little; give the reservation back.
+                                    limiter.settle(reserved, 0);
+                                }
+                            }));
+        }).retryWhen(errors -> errors.flatMap(error -> {
+            // The limiter itself holds the retry back until the retry-after interval is over.
+            if (!Throttling.isThrottled(error) || retries.incrementAndGet() > options.getMaxThrottleRetries()) {
+                return Observable.error(error);
+            }
+            return Observable.just(error);
+        }));
+    }
+
+    private static FeedOptions withContinuation(FeedOptions feedOptions, String continuation) {
+        FeedOptions page = feedOptions == null ? new FeedOptions() : new FeedOptions(feedOptions);
+        page.setRequestContinuation(continuation);
+        return page;
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.throttle;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public class RateLimiterOptions {
+    private double provisionedThroughput;
+    private double targetUtilization = 0.9;
+    private double burstSeconds = 1;
+    private int maxThrottleRetries = 9;
+    private long defaultRetryAfterMillis = 100;
+    private final Map<OperationType, RequestPriority> priorities = new EnumMap<>(OperationType.class);
+
+    public RateLimiterOptions() {
+        priorities.put(OperationType.READ, RequestPriority.INTERACTIVE);
+        priorities.put(OperationType.QUERY, RequestPriority.INTERACTIVE);
+        priorities.put(OperationType.WRITE, RequestPriority.NORMAL);
+        priorities.put(OperationType.EXECUTE_SCRIPT, RequestPriority.NORMAL);
+    }
+
+    // Reads PROVISIONED_THROUGHPUT and TARGET_UTILIZATION the way ClientSettings reads its
+    // overrides: a system property, else an environment variable of the same name. Without
+    // PROVISIONED_THROUGHPUT requests are not capped, only held back after a 429.
+    public static RateLimiterOptions fromEnvironment() {
+        RateLimiterOptions options = new RateLimiterOptions();
+        String provisionedThroughput = setting("PROVISIONED_THROUGHPUT");
+        if (provisionedThroughput != null) {
+            options.setProvisionedThroughput(Double.parseDouble(provisionedThroughput));
+        }
+        String targetUtilization = setting("TARGET_UTILIZATION");
+        if (targetUtilization != null) {
+            options.setTargetUtilization(Double.parseDouble(targetUtilization));
+        }
+        return options;
+    }
+
+    private static String setting(String name) {
+        String value = System.getProperty(name, System.getenv(name));
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    // RU/s provisioned for the collection (or the share of it this process may use). 0, the
+    // default, sets no client-side cap: requests only wait out the retry-after of a 429.
+    public double getProvisionedThroughput() {
+        return provisionedThroughput;
+    }
+
+    public void setProvisionedThroughput(double provisionedThroughput) {
+        if (provisionedThroughput < 0) {
+            throw new IllegalArgumentException("provisionedThroughput must not be negative");
+        }
+        this.provisionedThroughput = provisionedThroughput;
+    }
+
+    // The fraction of the provisioned throughput to aim for. Staying a little below it
+    // leaves room for estimates that turn out low and for other clients.
+    public double getTargetUtilization() {
+        return targetUtilization;
+    }
+
+    public void setTargetUtilization(double targetUtilization) {
+        if (targetUtilization <= 0 || targetUtilization > 1) {
+            throw new IllegalArgumentException("targetUtilization must be in (0, 1]");
+        }
+        this.targetUtilization = targetUtilization;
+    }
+
+    // How many seconds of unused throughput may accumulate for a burst. The service
+    // budgets per second, so more than 1 mostly buys throttles.
+    public double getBurstSeconds() {
+        return burstSeconds;
+    }
+
+    public void setBurstSeconds(double burstSeconds) {
+        if (burstSeconds <= 0) {
+            throw new IllegalArgumentException("burstSeconds must be positive");
+        }
+        this.burstSeconds = burstSeconds;
+    }
+
+    public int getMaxThrottleRetries() {
+        return maxThrottleRetries;
+    }
+
+    public void setMaxThrottleRetries(int maxThrottleRetries) {
+        if (maxThrottleRetries < 0) {
+            throw new IllegalArgumentException("maxThrottleRetries must not be negative");
+        }
+        this.maxThrottleRetries = maxThrottleRetries;
+    }
+
+    // Pause used when a 429 arrives without a retry-after hint.
+    public long getDefaultRetryAfterMillis() {
+        return defaultRetryAfterMillis;
+    }
+
+    public void setDefaultRetryAfterMillis(long defaultRetryAfterMillis) {
+        if (defaultRetryAfterMillis < 0) {
+            throw new IllegalArgumentException("defaultRetryAfterMillis must not be negative");
+        }
+        this.defaultRetryAfterMillis = defaultRetryAfterMillis;
+    }
+
+    // Reads and queries are interactive and writes normal by default; pass a store from
+    // RateLimitedDocumentStore.withPriority to run a bulk job in the background.
+    public RequestPriority getPriority(OperationType operationType) {
+        return priorities.get(operationType);
+    }
+
+    public void setPriority(OperationType operationType, RequestPriority priority) {
+        if (priority == null) {
+            throw new IllegalArgumentException("priority is required");
+        }
+        priorities.put(operationType, priority);
+    }
+}
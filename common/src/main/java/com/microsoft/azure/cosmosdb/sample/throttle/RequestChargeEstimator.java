@@ -0,0 +1,53 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.throttle;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Predicts what the next request of each type will charge from what the previous ones
+// did (an exponentially weighted moving average of getRequestCharge()), so throughput can
+// be reserved before a request is sent rather than accounted for after it.
+public class RequestChargeEstimator {
+    private static final double WEIGHT = 0.2;
+
+    private final Map<OperationType, Double> estimates = new EnumMap<>(OperationType.class);
+
+    public RequestChargeEstimator() {
+        // Starting points until the first responses arrive: a 1KB read, a small query
+        // page, a 1KB write with default indexing and a short script.
+        estimates.put(OperationType.READ, 1.0);
+        estimates.put(OperationType.QUERY, 3.0);
+        estimates.put(OperationType.WRITE, 6.0);
+        estimates.put(OperationType.EXECUTE_SCRIPT, 10.0);
+    }
+
+    public synchronized double getEstimate(OperationType operationType) {
+        return estimates.get(operationType);
+    }
+
+    public synchronized void record(OperationType operationType, double requestCharge) {
+        double estimate = estimates.get(operationType);
+        estimates.put(operationType, estimate + WEIGHT * (requestCharge - estimate));
+    }
+}
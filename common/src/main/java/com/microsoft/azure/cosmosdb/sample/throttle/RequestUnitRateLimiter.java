@@ -0,0 +1,209 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.throttle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+import rx.subjects.AsyncSubject;
+
+// A token bucket measured in RU. Throughput refills at the current rate up to one burst,
+// a request waits until the bucket holds its estimated charge, and once its response
+// arrives the difference between the estimate and the actual charge is settled, which may
+// leave the bucket in debt. Waiting requests are let through highest priority first, then
+// in arrival order; a request larger than a whole burst goes through once the bucket is full.
+//
+// The rate adapts the way TCP congestion control does: each 429 pauses the bucket for the
+// retry-after interval and cuts the rate by a fifth, and every throttle-free second wins
+// back a twentieth of the target. A limiter that's the only client of a collection settles
+// just under its target; one sharing it with others settles at the share it can actually get.
+// Without a provisioned throughput there is no bucket, and requests only wait out 429 pauses.
+public class RequestUnitRateLimiter {
+    private static final double DECREASE_FACTOR = 0.8;
+    private static final double INCREASE_PER_SECOND = 0.05;
+    private static final double MINIMUM_RATE_FRACTION = 0.1;
+
+    private final double targetRate;
+    private final double burstSeconds;
+    private final Scheduler.Worker worker = Schedulers.computation().createWorker();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+
+    private double rate;
+    private double tokens;
+    private long refilledNanos = System.nanoTime();
+    private long pausedUntilNanos = refilledNanos;
+    private long lastThrottleNanos = refilledNanos;
+    private long nextDrainNanos = Long.MAX_VALUE;
+    private long sequence;
+    private long throttleCount;
+
+    public RequestUnitRateLimiter(RateLimiterOptions options) {
+        this.targetRate = options.getProvisionedThroughput() * options.getTargetUtilization();
+        this.burstSeconds = options.getBurstSeconds();
+        this.rate = targetRate;
+        this.tokens = getCapacity();
+    }
+
+    // Emits the reserved charge once the request may be sent. Unsubscribing before then
+    // gives up its place in the queue.
+    public Observable<Double> acquire(double requestCharge, RequestPriority priority) {
+        return Observable.defer(() -> {
+            AsyncSubject<Double> granted = AsyncSubject.create();
+            Waiter waiter;
+            synchronized (this) {
+                waiter = new Waiter(requestCharge, priority, sequence++, granted);
+                waiters.add(waiter);
+            }
+            drain();
+            return granted.doOnUnsubscribe(() -> {
+                synchronized (this) {
+                    waiters.remove(waiter);
+                }
+            });
+        });
+    }
+
+    // Settles a request whose response has arrived: the bucket is charged the difference
+    // between what was reserved and what the request actually cost.
+    public void settle(double reserved, double actual) {
+        synchronized (this) {
+            refill(System.nanoTime());
+            tokens = Math.min(getCapacity(), tokens + reserved - actual);
+        }
+        drain();
+    }
+
+    // A request was throttled anyway: nothing is sent until the retry-after interval has
+    // passed, and the rate backs off.
+    public void onThrottled(long retryAfterMillis) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            throttleCount++;
+            lastThrottleNanos = now;
+            pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+            tokens = Math.min(tokens, 0);
+            rate = Math.max(targetRate * MINIMUM_RATE_FRACTION, rate * DECREASE_FACTOR);
+        }
+        drain();
+    }
+
+    // The RU/s currently let through.
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public synchronized double getAvailable() {
+        refill(System.nanoTime());
+        return tokens;
+    }
+
+    public synchronized int getWaitingCount() {
+        return waiters.size();
+    }
+
+    public synchronized long getThrottleCount() {
+        return throttleCount;
+    }
+
+    private double getCapacity() {
+        return targetRate * burstSeconds;
+    }
+
+    private void refill(long now) {
+        if (now > refilledNanos) {
+            double seconds = (now - refilledNanos) / 1e9;
+            if (now > pausedUntilNanos) {
+                double refilling = (now - Math.max(refilledNanos, pausedUntilNanos)) / 1e9;
+                tokens = Math.min(getCapacity(), tokens + refilling * rate);
+            }
+            if (now - lastThrottleNanos > TimeUnit.SECONDS.toNanos(1)) {
+                rate = Math.min(targetRate, rate + targetRate * INCREASE_PER_SECOND * seconds);
+            }
+            refilledNanos = now;
+        }
+    }
+
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            long wakeAt = Long.MAX_VALUE;
+            if (now < pausedUntilNanos) {
+                wakeAt = waiters.isEmpty() ? wakeAt : pausedUntilNanos;
+            } else {
+                while (!waiters.isEmpty()) {
+                    Waiter head = waiters.peek();
+                    if (targetRate > 0) {
+                        double needed = Math.min(head.requestCharge, getCapacity());
+                        if (tokens < needed) {
+                            wakeAt = now + (long) ((needed - tokens) / rate * 1e9);
+                            break;
+                        }
+                        tokens -= head.requestCharge;
+                    }
+                    granted.add(waiters.poll());
+                }
+            }
+            if (wakeAt != Long.MAX_VALUE && wakeAt < nextDrainNanos) {
+                nextDrainNanos = wakeAt;
+                worker.schedule(() -> {
+                    synchronized (this) {
+                        nextDrainNanos = Long.MAX_VALUE;
+                    }
+                    drain();
+                }, Math.max(1, wakeAt - now), TimeUnit.NANOSECONDS);
+            }
+        }
+        for (Waiter waiter : granted) {
+            waiter.granted.onNext(waiter.requestCharge);
+            waiter.granted.onCompleted();
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        final double requestCharge;
+        final RequestPriority priority;
+        final long sequence;
+        final AsyncSubject<Double> granted;
+
+        Waiter(double requestCharge, RequestPriority priority, long sequence, AsyncSubject<Double> granted) {
+            this.requestCharge = requestCharge;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.granted = granted;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int order = priority.compareTo(other.priority);
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AdaptiveBatchSizerTest {
+
+    @Test
+    public void growsAtMostTwofoldWhileUnderTheTargetCharge() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer();
+        sizer.setInitialBatchSize(25);
+        sizer.setTargetRequestCharge(500);
+
+        sizer.onBatchCompleted(25, 25, 25 * 1000, 25);
+
+        assertEquals(50, sizer.getBatchSize());
+    }
+
+    @Test
+    public void settlesNearTheTargetCharge() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer();
+        sizer.setTargetRequestCharge(500);
+
+        for (int i = 0; i < 20; i++) {
+            int sent = sizer.getBatchSize();
+            sizer.onBatchCompleted(sent, sent, sent * 1000L, sent * 10.0);
+        }
+
+        assertEquals(50, sizer.getBatchSize());
+    }
+
+    @Test
+    public void shrinksToWhatAPartialBatchGotThrough() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer();
+        sizer.setInitialBatchSize(100);
+
+        sizer.onBatchCompleted(100, 30, 100 * 1000, 30);
+
+        assertEquals(30, sizer.getBatchSize());
+    }
+
+    @Test
+    public void halvesWhenNothingWasAcknowledged() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer();
+        sizer.setInitialBatchSize(40);
+
+        sizer.onBatchCompleted(40, 0, 40 * 1000, 0);
+
+        assertEquals(20, sizer.getBatchSize());
+    }
+
+    @Test
+    public void keepsTheBatchUnderThePayloadLimit() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer();
+        sizer.setInitialBatchSize(100);
+        sizer.setMaxBatchBytes(1024 * 1024);
+
+        sizer.onBatchCompleted(100, 100, 100 * 100 * 1024, 100);
+
+        assertEquals(10, sizer.getBatchSize());
+    }
+
+    @Test
+    public void staysWithinTheConfiguredBounds() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer();
+        sizer.setMinBatchSize(5);
+        sizer.setMaxBatchSize(60);
+        sizer.setInitialBatchSize(8);
+
+        sizer.onBatchCompleted(8, 0, 8 * 1000, 0);
+        assertEquals(5, sizer.getBatchSize());
+
+        for (int i = 0; i < 10; i++) {
+            int sent = sizer.getBatchSize();
+            sizer.onBatchCompleted(sent, sent, sent * 1000L, sent * 0.1);
+        }
+        assertEquals(60, sizer.getBatchSize());
+    }
+}
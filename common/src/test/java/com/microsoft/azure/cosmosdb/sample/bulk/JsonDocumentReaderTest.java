@@ -0,0 +1,89 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.microsoft.azure.cosmosdb.Document;
+
+public class JsonDocumentReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsTheObjectsOfATopLevelArray() throws IOException {
+        Path file = write("[{\"id\":\"family1\",\"children\":[{\"name\":\"a\"}]},\n{\"id\":\"family2\"}]");
+
+        try (JsonDocumentReader reader = new JsonDocumentReader(file)) {
+            Document first = reader.nextDocument();
+            assertEquals("family1", first.getId());
+            assertEquals("{\"id\":\"family1\",\"children\":[{\"name\":\"a\"}]}", first.toJson());
+            assertEquals("family2", reader.nextNode().path("id").asText());
+            assertNull(reader.nextDocument());
+            assertEquals(2, reader.getDocumentCount());
+        }
+    }
+
+    @Test
+    public void readsOneObjectAfterAnotherAfterAByteOrderMark() throws IOException {
+        Path file = write("\ufeff{\"id\":\"family1\"}\n{\"id\":\"family2\"}\n");
+
+        try (JsonDocumentReader reader = new JsonDocumentReader(file)) {
+            assertEquals("family1", reader.nextNode().path("id").asText());
+            assertEquals("family2", reader.nextDocument().getId());
+            assertNull(reader.nextNode());
+        }
+    }
+
+    @Test
+    public void readsNoDocumentsFromAnEmptyFile() throws IOException {
+        try (JsonDocumentReader reader = new JsonDocumentReader(write(""))) {
+            assertNull(reader.nextDocument());
+            assertEquals(0, reader.getDocumentCount());
+        }
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void rejectsAnArrayElementThatIsNotAnObject() throws IOException {
+        try (JsonDocumentReader reader = new JsonDocumentReader(write("[{\"id\":\"family1\"}, 5]"))) {
+            reader.nextDocument();
+            reader.nextDocument();
+        }
+    }
+
+    private Path write(String json) throws IOException {
+        return Files.write(folder.newFile().toPath(), json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFileInputStreamTest {
+    private static final int WINDOW_BYTES = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] content;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[3 * WINDOW_BYTES + 5];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (200 + i);
+        }
+        file = write("data.bin", content);
+    }
+
+    @Test
+    public void readsSingleBytesAcrossWindows() throws IOException {
+        try (MappedFileInputStream in = new MappedFileInputStream(file, WINDOW_BYTES)) {
+            for (byte expected : content) {
+                assertEquals(expected & 0xFF, in.read());
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void stopsEachBulkReadAtTheEndOfAWindow() throws IOException {
+        try (MappedFileInputStream in = new MappedFileInputStream(file, WINDOW_BYTES)) {
+            byte[] buffer = new byte[100];
+            assertEquals(3, in.read(buffer, 0, 3));
+            assertEquals(WINDOW_BYTES - 3, in.available());
+            assertEquals(WINDOW_BYTES - 3, in.read(buffer, 3, 97));
+            assertEquals(WINDOW_BYTES, in.read(buffer, WINDOW_BYTES, 92));
+            assertEquals(WINDOW_BYTES, in.read(buffer, 2 * WINDOW_BYTES, 84));
+            assertEquals(5, in.read(buffer, 3 * WINDOW_BYTES, 76));
+            assertEquals(-1, in.read(buffer, 0, 100));
+            assertEquals(0, in.read(buffer, 0, 0));
+        }
+    }
+
+    @Test
+    public void readsAFileThatEndsOnAWindowBoundary() throws IOException {
+        byte[] exact = new byte[2 * WINDOW_BYTES];
+        exact[WINDOW_BYTES - 1] = 1;
+        exact[WINDOW_BYTES] = 2;
+
+        assertArrayEquals(exact, readAll(write("exact.bin", exact), WINDOW_BYTES));
+    }
+
+    @Test
+    public void readsTheWholeFileWhateverTheWindowSize() throws IOException {
+        for (int windowBytes : new int[] { 1, 2, 7, WINDOW_BYTES, content.length - 1, content.length, 1024 }) {
+            assertArrayEquals("window " + windowBytes, content, readAll(file, windowBytes));
+        }
+    }
+
+    @Test
+    public void readsNothingFromAnEmptyFile() throws IOException {
+        try (MappedFileInputStream in = new MappedFileInputStream(write("empty.bin", new byte[0]), WINDOW_BYTES)) {
+            assertEquals(0, in.available());
+            assertEquals(-1, in.read());
+            assertEquals(-1, in.read(new byte[4], 0, 4));
+        }
+    }
+
+    private Path write(String name, byte[] bytes) throws IOException {
+        return Files.write(folder.getRoot().toPath().resolve(name), bytes);
+    }
+
+    private static byte[] readAll(Path file, long windowBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MappedFileInputStream in = new MappedFileInputStream(file, windowBytes)) {
+            byte[] buffer = new byte[5];
+            for (int count; (count = in.read(buffer, 0, buffer.length)) >= 0;) {
+                out.write(buffer, 0, count);
+            }
+        }
+        return out.toByteArray();
+    }
+}
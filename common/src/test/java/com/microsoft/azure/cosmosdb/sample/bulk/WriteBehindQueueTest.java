@@ -0,0 +1,178 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.RecordingDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+public class WriteBehindQueueTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+
+    @Test
+    public void coalescesWritesToAQueuedDocument() throws InterruptedException {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        WriteBehindOptions options = new WriteBehindOptions();
+        options.setMaxDelayMillis(60000);
+
+        try (WriteBehindQueue queue = new WriteBehindQueue(store, options)) {
+            for (int version = 0; version < 5; version++) {
+                queue.upsert(COLLECTION_LINK, new Document("{\"id\":\"family1\",\"version\":" + version + "}"), null);
+            }
+            queue.flush();
+
+            assertEquals(4, queue.getMetrics().getCoalescedCount());
+            assertEquals(1, queue.getMetrics().getWrittenCount());
+        }
+        Document stored = store.readDocument(COLLECTION_LINK + "/docs/family1", null).toBlocking().single()
+                .getResource();
+        assertEquals(4, stored.getInt("version").intValue());
+    }
+
+    @Test
+    public void sendsASecondCreateOfAQueuedDocumentSoItFailsWithAConflict() throws InterruptedException {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        WriteBehindOptions options = new WriteBehindOptions();
+        options.setMaxDelayMillis(60000);
+
+        TestSubscriber<StoreResponse<Document>> first = new TestSubscriber<>();
+        TestSubscriber<StoreResponse<Document>> second = new TestSubscriber<>();
+        try (WriteBehindQueue queue = new WriteBehindQueue(store, options)) {
+            queue.create(COLLECTION_LINK, new Document("{\"id\":\"family1\",\"version\":0}"), null)
+                    .subscribe(first);
+            queue.create(COLLECTION_LINK, new Document("{\"id\":\"family1\",\"version\":1}"), null)
+                    .subscribe(second);
+            queue.flush();
+
+            assertEquals(0, queue.getMetrics().getCoalescedCount());
+        }
+        first.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        second.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        first.assertNoErrors();
+        assertEquals(1, second.getOnErrorEvents().size());
+        DocumentClientException conflict = Throttling.findClientException(second.getOnErrorEvents().get(0));
+        assertNotNull(conflict);
+        assertEquals(409, conflict.getStatusCode());
+    }
+
+    @Test
+    public void sendsUpsertsWithDifferentOptionsSeparatelyAndInOrder() throws InterruptedException {
+        RecordingDocumentStore store = new RecordingDocumentStore(new InMemoryDocumentStore());
+        WriteBehindOptions options = new WriteBehindOptions();
+        options.setMaxDelayMillis(60000);
+        RequestOptions firstOptions = new RequestOptions();
+        firstOptions.setPreTriggerInclude(Collections.singletonList("stampVersion"));
+        RequestOptions secondOptions = new RequestOptions();
+        secondOptions.setPreTriggerInclude(Arrays.asList("stampVersion", "audit"));
+
+        try (WriteBehindQueue queue = new WriteBehindQueue(store, options)) {
+            Observable<StoreResponse<Document>> first = queue.upsert(COLLECTION_LINK,
+                    new Document("{\"id\":\"family1\",\"version\":0}"), firstOptions);
+            queue.upsert(COLLECTION_LINK, new Document("{\"id\":\"family1\",\"version\":1}"), secondOptions);
+            queue.flush();
+
+            assertEquals(0, first.toBlocking().single().getResource().getInt("version").intValue());
+            assertEquals(0, queue.getMetrics().getCoalescedCount());
+            assertEquals(2, queue.getMetrics().getWrittenCount());
+        }
+        assertEquals(2, store.getRequestOptions().size());
+        assertSame(firstOptions, store.getRequestOptions().get(0));
+        assertSame(secondOptions, store.getRequestOptions().get(1));
+    }
+
+    @Test
+    public void measuresBatchesInEncodedBytes() throws InterruptedException {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        WriteBehindOptions options = new WriteBehindOptions();
+        options.setMaxDelayMillis(60000);
+        options.setMaxBatchBytes(300);
+        char[] accents = new char[100];
+        Arrays.fill(accents, '\u00e9');
+        String name = new String(accents);
+
+        try (WriteBehindQueue queue = new WriteBehindQueue(store, options)) {
+            // About 125 characters each, but 225 bytes as UTF-8: they don't fit in one batch.
+            for (int i = 0; i < 2; i++) {
+                queue.create(COLLECTION_LINK,
+                        new Document("{\"id\":\"family" + i + "\",\"name\":\"" + name + "\"}"), null);
+            }
+            queue.flush();
+
+            assertEquals(2, queue.getMetrics().getBatchCount());
+        }
+    }
+
+    @Test
+    public void writesOutTheQueueOnClose() throws InterruptedException {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        WriteBehindOptions options = new WriteBehindOptions();
+        options.setMaxDelayMillis(60000);
+        options.setMaxBatchSize(4);
+
+        try (WriteBehindQueue queue = new WriteBehindQueue(store, options)) {
+            for (int i = 0; i < 10; i++) {
+                queue.create(COLLECTION_LINK, new Document("{\"id\":\"family" + i + "\"}"), null);
+            }
+        }
+
+        for (int i = 0; i < 10; i++) {
+            store.readDocument(COLLECTION_LINK + "/docs/family" + i, null).toBlocking().single();
+        }
+    }
+
+    @Test
+    public void keepsTheInterruptWhenCloseIsInterrupted() throws InterruptedException {
+        InMemoryDocumentStore store = new InMemoryDocumentStore(0, 200);
+        WriteBehindQueue queue = new WriteBehindQueue(store);
+        queue.create(COLLECTION_LINK, new Document("{\"id\":\"family1\"}"), null);
+
+        Thread.currentThread().interrupt();
+        queue.close();
+
+        assertTrue(Thread.interrupted());
+        // The queued write is still sent.
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.getMetrics().getWrittenCount() == 0 && System.nanoTime() < deadlineNanos) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(1, queue.getMetrics().getWrittenCount());
+    }
+}
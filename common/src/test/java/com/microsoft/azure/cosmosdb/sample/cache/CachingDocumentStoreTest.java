@@ -0,0 +1,96 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.RecordingDocumentStore;
+
+public class CachingDocumentStoreTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+    private static final SqlQuerySpec QUERY = new SqlQuerySpec("SELECT * FROM c");
+
+    private RecordingDocumentStore recorder;
+    private CachingDocumentStore store;
+
+    @Before
+    public void setUp() {
+        InMemoryDocumentStore account = new InMemoryDocumentStore();
+        for (int i = 0; i < 10; i++) {
+            account.createDocument(COLLECTION_LINK, new Document("{\"id\":\"family" + i + "\"}"), null)
+                    .toBlocking().single();
+        }
+        recorder = new RecordingDocumentStore(account);
+        store = new CachingDocumentStore(recorder);
+    }
+
+    @Test
+    public void servesARepeatedQueryFromTheCache() {
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(4);
+
+        List<FeedPage<Document>> first = store.queryDocuments(COLLECTION_LINK, QUERY, options).toList()
+                .toBlocking().single();
+        List<FeedPage<Document>> second = store.queryDocuments(COLLECTION_LINK, QUERY, options).toList()
+                .toBlocking().single();
+
+        assertEquals(first.size(), second.size());
+        assertEquals(1, recorder.getFeedOptions().size());
+        assertEquals(first.size(), store.getHitCount());
+    }
+
+    @Test
+    public void resumesAfterTheCachedPagesWithTheCallersOptions() {
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(4);
+        options.setEnableScanInQuery(true);
+        options.setPopulateQueryMetrics(true);
+        options.setSessionToken("0:10");
+
+        // Only the first page is fetched and cached.
+        store.queryDocuments(COLLECTION_LINK, QUERY, options).take(1).toBlocking().single();
+        List<FeedPage<Document>> pages = store.queryDocuments(COLLECTION_LINK, QUERY, options).toList()
+                .toBlocking().single();
+
+        assertEquals(3, pages.size());
+        assertEquals(2, recorder.getFeedOptions().size());
+        FeedOptions resumed = recorder.getFeedOptions().get(1);
+        assertNotNull(resumed.getRequestContinuation());
+        assertEquals("0:10", resumed.getSessionToken());
+        assertTrue(resumed.getPopulateQueryMetrics());
+        assertTrue(resumed.getEnableScanInQuery());
+        assertEquals(Integer.valueOf(4), resumed.getMaxItemCount());
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.changefeed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+
+public class ChangeFeedProcessorTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InMemoryDocumentStore store;
+    private FileLeaseStore leaseStore;
+    private ChangeFeedProcessorOptions options;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new InMemoryDocumentStore();
+        for (int i = 0; i < 5; i++) {
+            store.createDocument(COLLECTION_LINK, new Document("{\"id\":\"family" + i + "\"}"), null)
+                    .toBlocking().single();
+        }
+        leaseStore = new FileLeaseStore(folder.getRoot().toPath());
+        options = new ChangeFeedProcessorOptions();
+        options.setInstanceName("test");
+        options.setStartFromBeginning(true);
+        options.setFeedPollDelayMillis(50);
+    }
+
+    @Test
+    public void checkpointsTheBatchInHandBeforeStopping() throws Exception {
+        CountDownLatch handling = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicReference<String> handledContinuation = new AtomicReference<>();
+        ChangeFeedProcessor processor = new ChangeFeedProcessor(store, COLLECTION_LINK, leaseStore, options,
+                batch -> {
+                    handling.countDown();
+                    finish.await();
+                    handledContinuation.set(batch.getContinuation());
+                });
+        processor.start();
+        assertTrue(handling.await(5, TimeUnit.SECONDS));
+
+        Thread stopping = new Thread(() -> {
+            try {
+                processor.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stopping.start();
+        // stop() is now waiting for the batch being handled.
+        Thread.sleep(200);
+        finish.countDown();
+        stopping.join(10000);
+
+        List<Lease> leases = leaseStore.list();
+        assertEquals(1, leases.size());
+        assertNotNull(handledContinuation.get());
+        assertEquals(handledContinuation.get(), leases.get(0).getContinuation());
+        assertNull(leases.get(0).getOwner());
+    }
+
+    @Test
+    public void resumesAfterTheHandledChangesWhenRestarted() throws Exception {
+        CountDownLatch handled = new CountDownLatch(1);
+        ChangeFeedProcessor first = new ChangeFeedProcessor(store, COLLECTION_LINK, leaseStore, options,
+                batch -> handled.countDown());
+        first.start();
+        assertTrue(handled.await(5, TimeUnit.SECONDS));
+        first.stop();
+        assertEquals(5, first.getDocumentCount());
+
+        store.createDocument(COLLECTION_LINK, new Document("{\"id\":\"family5\"}"), null).toBlocking().single();
+        CountDownLatch resumed = new CountDownLatch(1);
+        ChangeFeedProcessor second = new ChangeFeedProcessor(store, COLLECTION_LINK, leaseStore, options,
+                batch -> resumed.countDown());
+        second.start();
+        assertTrue(resumed.await(5, TimeUnit.SECONDS));
+        second.stop();
+
+        assertEquals(1, second.getDocumentCount());
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.Document;
+
+public class CompactDocumentTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String FAMILY = "{\"id\":\"AndersenFamily\",\"lastName\":\"Andersen\","
+            + "\"parents\":[{\"firstName\":\"Thomas\"},{\"firstName\":\"Mary Kay\"}],"
+            + "\"children\":[{\"firstName\":\"Henriette Thaulow\",\"gender\":\"female\",\"grade\":5,"
+            + "\"pets\":[{\"givenName\":\"Fluffy\"}]}],"
+            + "\"address\":{\"state\":\"WA\",\"county\":\"King\",\"city\":\"Seattle\"},\"isRegistered\":true}";
+
+    private FieldDictionary dictionary;
+
+    @Before
+    public void setUp() {
+        dictionary = new FieldDictionary();
+    }
+
+    @Test
+    public void roundTripsEveryKindOfValue() throws IOException {
+        ObjectNode json = parse("{\"id\":\"\\u00e9t\\u00e9 \\ud83d\\ude00\",\"empty\":\"\",\"none\":null,"
+                + "\"yes\":true,\"no\":false,\"zero\":0,\"negative\":-42,\"long\":-9223372036854775808,"
+                + "\"double\":-1.5e-7,\"huge\":123456789012345678901234567890,"
+                + "\"nested\":{\"list\":[1,\"two\",[3],{},[]]},\"emptyObject\":{},\"emptyArray\":[]}");
+
+        CompactDocument document = CompactDocument.encode(json, dictionary);
+
+        assertEquals(json, document.toJson());
+        assertEquals("\u00e9t\u00e9 \ud83d\ude00", document.getId());
+    }
+
+    @Test
+    public void keepsNumbersBeyondLongAndDoubleExactly() throws IOException {
+        ObjectMapper exact = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        ObjectNode json = (ObjectNode) exact.readTree("{\"price\":0.10000000000000000000001}");
+
+        assertEquals(json, CompactDocument.encode(json, dictionary).toJson());
+    }
+
+    @Test
+    public void roundTripsThroughBytesAndDocuments() throws IOException {
+        CompactDocument document = CompactDocument.encode(new Document(FAMILY), dictionary);
+
+        CompactDocument copy = CompactDocument.fromBytes(document.toBytes(), dictionary);
+
+        assertEquals(document, copy);
+        assertEquals(document.hashCode(), copy.hashCode());
+        assertEquals(parse(FAMILY), copy.toJson());
+        assertEquals(parse(FAMILY), parse(copy.toDocument().toJson()));
+        assertTrue(document.getEncodedSize() < FAMILY.length());
+    }
+
+    @Test
+    public void readsSingleFieldsByPath() throws IOException {
+        CompactDocument document = CompactDocument.encode(parse(FAMILY), dictionary);
+
+        assertEquals("Seattle", document.getString("address", "city"));
+        assertEquals(parse("{\"state\":\"WA\",\"county\":\"King\",\"city\":\"Seattle\"}"), document.get("address"));
+        assertEquals(true, document.get("isRegistered").booleanValue());
+        assertEquals(2, document.get("parents").size());
+        assertNull(document.getString("isRegistered"));
+        assertNull(document.get("address", "zip"));
+        assertNull(document.get("lastName", "first"));
+        assertNull(document.get("missing"));
+    }
+
+    @Test
+    public void writesNamesInFullOnceTheDictionaryIsFull() throws IOException {
+        FieldDictionary small = new FieldDictionary(2);
+
+        CompactDocument document = CompactDocument.encode(parse(FAMILY), small);
+
+        assertEquals(2, small.size());
+        assertEquals(parse(FAMILY), document.toJson());
+        assertEquals("WA", document.getString("address", "state"));
+        assertEquals(-1, small.find("address"));
+    }
+
+    @Test
+    public void sharesFieldNumbersBetweenDocuments() throws IOException {
+        CompactDocument first = CompactDocument.encode(parse("{\"id\":\"a\",\"grade\":1}"), dictionary);
+        CompactDocument second = CompactDocument.encode(parse("{\"grade\":1,\"id\":\"a\"}"), dictionary);
+
+        assertEquals(2, dictionary.size());
+        assertEquals(first.getEncodedSize(), second.getEncodedSize());
+        assertNotEquals(first, second);
+        assertEquals("a", second.getId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBytesThatAreNotAnEncodedDocument() {
+        CompactDocument.fromBytes(new byte[] { 5, 0 }, dictionary);
+    }
+
+    private static ObjectNode parse(String json) throws IOException {
+        return (ObjectNode) mapper.readTree(json);
+    }
+}
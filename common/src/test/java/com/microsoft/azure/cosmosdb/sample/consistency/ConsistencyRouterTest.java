@@ -0,0 +1,99 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.consistency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.cosmosdb.ConsistencyLevel;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.RecordingDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.throttle.OperationType;
+import com.microsoft.azure.cosmosdb.sample.throttle.RateLimitedDocumentStore;
+
+public class ConsistencyRouterTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+    private static final SqlQuerySpec QUERY = new SqlQuerySpec("SELECT * FROM c");
+
+    private InMemoryDocumentStore account;
+    private RecordingDocumentStore recorder;
+    private ConsistencyRouter router;
+
+    @Before
+    public void setUp() {
+        account = new InMemoryDocumentStore();
+        account.setConsistencyLevel(ConsistencyLevel.Strong);
+        recorder = new RecordingDocumentStore(account);
+        // The stack the samples use: every level's store under one rate limiter.
+        RateLimitedDocumentStore store = new RateLimitedDocumentStore(recorder);
+        router = new ConsistencyRouter(store,
+                level -> store.over(new RecordingDocumentStore(account.withConsistencyLevel(level))));
+    }
+
+    @Test
+    public void sendsTheScopesSessionTokenThroughTheRateLimiter() {
+        router.forOperation("CreateDocument", "alice")
+                .createDocument(COLLECTION_LINK, new Document("{\"id\":\"family1\"}"), null).toBlocking().single();
+        String token = router.getSessionTokens().get("alice", COLLECTION_LINK);
+        assertNotNull(token);
+
+        router.forOperation("OutputResults", "alice").queryDocuments(COLLECTION_LINK, QUERY, new FeedOptions())
+                .toBlocking().last();
+        router.forOperation("OutputResults", "bob").queryDocuments(COLLECTION_LINK, QUERY, new FeedOptions())
+                .toBlocking().last();
+
+        List<FeedOptions> sent = recorder.getFeedOptions();
+        assertEquals(2, sent.size());
+        assertEquals(token, sent.get(0).getSessionToken());
+        assertNull(sent.get(1).getSessionToken());
+    }
+
+    @Test
+    public void readsAtThePolicysLevelWithoutASessionToken() {
+        for (int i = 0; i < 5; i++) {
+            router.forOperation("CreateDocument", "alice").createDocument(COLLECTION_LINK,
+                    new Document("{\"id\":\"family" + i + "\"}"), null).toBlocking().single();
+        }
+        router.getPolicy().setLevel("QueryWithRangeOperator", ConsistencyLevel.Eventual);
+
+        double strongCharge = router.forOperation("QueryWithTwoFilters", "alice")
+                .queryDocuments(COLLECTION_LINK, QUERY, null).toBlocking().single().getRequestCharge();
+        double eventualCharge = router.forOperation("QueryWithRangeOperator", "alice")
+                .queryDocuments(COLLECTION_LINK, QUERY, null).toBlocking().single().getRequestCharge();
+
+        assertEquals(strongCharge / 2, eventualCharge, 0.01);
+        assertEquals(1, recorder.getFeedOptions().size());
+        assertEquals(1, router.getMetrics().getRequestCharge(ConsistencyLevel.Eventual, OperationType.QUERY)
+                .getCount());
+        assertEquals(1, router.getMetrics().getRequestCharge(null, OperationType.QUERY).getCount());
+    }
+}
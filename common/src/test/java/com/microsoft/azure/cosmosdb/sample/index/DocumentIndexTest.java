@@ -0,0 +1,186 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.cosmosdb.IndexingPolicy;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlQuery;
+
+public class DocumentIndexTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private DocumentIndex index;
+
+    @Before
+    public void setUp() {
+        index = new DocumentIndex(IndexingPolicyRules.of(new IndexingPolicy()));
+    }
+
+    @Test
+    public void returnsOnlyTheCurrentVersionOfAReplacedDocument() {
+        index.add(family("family1", 5));
+        index.add(family("family1", 7));
+
+        assertEquals(Collections.emptyList(), versions("SELECT * FROM f WHERE f.version = 5"));
+        assertEquals(Collections.singletonList(7), versions("SELECT * FROM f WHERE f.version = 7"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void returnsNothingForARemovedDocument() {
+        index.add(family("family1", 5));
+        index.add(family("family2", 5));
+
+        index.remove("family1");
+
+        assertEquals(Collections.singletonList(5), versions("SELECT * FROM f WHERE f.version = 5"));
+        assertEquals(Collections.emptyList(), versions("SELECT * FROM f WHERE f.id = 'family1'"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void looksUpNumberAndStringRanges() {
+        for (int i = 0; i < 10; i++) {
+            index.add(family("family" + i, i));
+        }
+
+        assertEquals(Arrays.asList(4, 5, 6), versions("SELECT * FROM f WHERE f.version > 3 AND f.version <= 6"));
+        assertEquals(Arrays.asList(0, 1, 8, 9), versions("SELECT * FROM f WHERE f.version < 2 OR f.version >= 8"));
+        assertEquals(Arrays.asList(7, 8, 9), versions("SELECT * FROM f WHERE f.id >= 'family7'"));
+        assertEquals(Collections.singletonList(3), versions("SELECT * FROM f WHERE STARTSWITH(f.id, 'family3')"));
+    }
+
+    @Test
+    public void compactsInsteadOfGrowingWhenMostOrdinalsAreReplaced() {
+        for (int round = 0; round < 1000; round++) {
+            for (int i = 0; i < 10; i++) {
+                index.add(family("family" + i, round));
+            }
+        }
+
+        assertTrue(index.getGeneration() > 0);
+        assertNull(index.document(64));
+        assertEquals(10, versions("SELECT * FROM f WHERE f.version = 999").size());
+        assertEquals(Collections.emptyList(), versions("SELECT * FROM f WHERE f.version < 999"));
+        assertTrue(index.numbersAt(Collections.singletonList("version")).size() < 64 + 256);
+    }
+
+    @Test
+    public void mapsOrdinalsOfThePreviousGenerationToTheirNewOrdinals() {
+        index.add(family("family1", 0));
+        index.add(family("family2", 0));
+        for (int i = 0; i < 62; i++) {
+            index.add(family("family3", i));
+        }
+        // The ordinals are full; this compacts family1, family2 and family3 to 0, 1 and 2.
+        index.add(family("family4", 0));
+
+        assertEquals(1, index.getGeneration());
+        assertEquals(1, index.resumeOrdinal(0, 1));
+        assertEquals(2, index.resumeOrdinal(0, 63));
+        assertEquals(-2 - 1, index.resumeOrdinal(0, 2));
+        assertEquals(-3 - 1, index.resumeOrdinal(0, 64));
+        assertEquals(5, index.resumeOrdinal(1, 5));
+        assertEquals(61, index.document(2).path("version").asInt());
+        assertEquals("family4", index.document(3).path("id").asText());
+    }
+
+    @Test
+    public void refusesToResumeFromBeforeThePreviousCompaction() {
+        for (int i = 0; i < 200; i++) {
+            index.add(family("family1", i));
+        }
+        assertTrue(index.getGeneration() >= 2);
+
+        try {
+            index.resumeOrdinal(0, 10);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void findsValuesOnBothSidesOfAMergeAndDropsRemovedOnes() {
+        NumberTerms terms = new NumberTerms();
+        BitSet live = new BitSet();
+        // 700 values in a scattered order: two merges into the sorted front, then a pending tail.
+        for (int i = 0; i < 700; i++) {
+            live.set(i);
+            terms.add((i * 337) % 700, i, live);
+        }
+
+        BitSet output = new BitSet();
+        assertEquals(100, terms.collect(100, true, 200, false, output));
+        for (int ordinal = output.nextSetBit(0); ordinal >= 0; ordinal = output.nextSetBit(ordinal + 1)) {
+            int value = (ordinal * 337) % 700;
+            assertTrue(value >= 100 && value < 200);
+        }
+        assertEquals(1, terms.collect(699, true, 699, true, new BitSet()));
+        assertEquals(0, terms.collect(699, false, 1000, true, new BitSet()));
+
+        live.clear(0, 350);
+        for (int i = 700; i < 1000; i++) {
+            live.set(i);
+            terms.add(i, i, live);
+        }
+        assertTrue(terms.size() < 1000);
+        BitSet remaining = new BitSet();
+        terms.collect(0, true, 1000, true, remaining);
+        remaining.and(live);
+        assertEquals(650, remaining.cardinality());
+    }
+
+    private List<Integer> versions(String queryText) {
+        IndexPlan plan = IndexPlan.of(SqlQuery.parse(queryText), Collections.emptyMap(), index.getRules());
+        assertTrue(!plan.isScan());
+        BitSet candidates = plan.candidates(index);
+        List<Integer> versions = new ArrayList<>();
+        for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+            versions.add(index.document(ordinal).path("version").asInt());
+        }
+        Collections.sort(versions);
+        return versions;
+    }
+
+    private static ObjectNode family(String id, int version) {
+        ObjectNode document = mapper.createObjectNode();
+        document.put("id", id);
+        document.put("version", version);
+        return document;
+    }
+}
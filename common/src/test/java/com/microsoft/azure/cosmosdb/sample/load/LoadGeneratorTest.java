@@ -0,0 +1,134 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+
+public class LoadGeneratorTest {
+    private LoadOptions options;
+
+    @Before
+    public void setUp() {
+        options = new LoadOptions();
+        options.setTargetOperationsPerSecond(200);
+        options.setDurationSeconds(1);
+        options.setWarmupSeconds(0);
+    }
+
+    @Test
+    public void schedulesTheTargetRateSplitByWeight() throws InterruptedException {
+        LoadReport first = runMix();
+        LoadReport second = runMix();
+
+        assertEquals(200, first.getScheduledCount());
+        assertEquals(200, first.getSuccessCount());
+        long reads = first.getOperations().get(0).getSuccessCount();
+        assertEquals(150, reads, 30);
+        // The same seed picks the same sequence of operations.
+        assertEquals(reads, second.getOperations().get(0).getSuccessCount());
+        // (3 * 2 RU + 1 * 10 RU) / 4 at 200 operations per second.
+        assertEquals(800, first.getRequiredRequestUnitsPerSecond(), 0.001);
+    }
+
+    @Test
+    public void measuresLatencyFromWhenTheOperationWasDue() throws InterruptedException {
+        options.setTargetOperationsPerSecond(100);
+        options.setMaxOutstandingOperations(1);
+        LoadGenerator generator = new LoadGenerator(options);
+        generator.addOperation("slow", 1, () -> Observable.just(1.0).delay(20, TimeUnit.MILLISECONDS));
+
+        LoadReport report = generator.run();
+
+        // One at a time, each takes 20 ms where the schedule allows 10 ms, so the queue grows.
+        LoadOperationStats slow = report.getOperations().get(0);
+        assertEquals(100, slow.getSuccessCount());
+        assertTrue(report.getLateCount() > 50);
+        assertTrue(slow.getServiceMillis().getP99() < 200);
+        assertTrue(slow.getLatencyMillis().getP99() > 5 * slow.getServiceMillis().getP99());
+    }
+
+    @Test
+    public void leavesOperationsDuringTheWarmupOutOfTheReport() throws InterruptedException {
+        options.setTargetOperationsPerSecond(50);
+        options.setWarmupSeconds(1);
+        AtomicInteger sent = new AtomicInteger();
+        LoadGenerator generator = new LoadGenerator(options);
+        generator.addOperation("read", 1, () -> Observable.fromCallable(() -> {
+            sent.incrementAndGet();
+            return 1.0;
+        }));
+
+        LoadReport report = generator.run();
+
+        assertEquals(100, sent.get());
+        assertEquals(50, report.getScheduledCount());
+        assertEquals(50, report.getSuccessCount());
+        assertEquals(1.0, report.getMeasuredSeconds(), 0);
+    }
+
+    @Test
+    public void countsThrottledOperationsWithoutRetryingThem() throws InterruptedException {
+        AtomicInteger sent = new AtomicInteger();
+        LoadGenerator generator = new LoadGenerator(options);
+        generator.addOperation("write", 1, () -> Observable.defer(() -> {
+            sent.incrementAndGet();
+            return Observable.error(Throttling.newThrottledException(10));
+        }));
+
+        LoadReport report = generator.run();
+
+        LoadOperationStats write = report.getOperations().get(0);
+        assertEquals(200, sent.get());
+        assertEquals(200, write.getThrottledCount());
+        assertEquals(200, write.getErrorCount());
+        assertEquals(0, report.getSuccessCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnOperationWithoutWeight() {
+        new LoadGenerator(options).addOperation("read", 0, () -> Observable.just(1.0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refusesToRunWithoutOperations() throws InterruptedException {
+        new LoadGenerator(options).run();
+    }
+
+    private LoadReport runMix() throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(options);
+        generator.addOperation("read", 3, () -> Observable.just(2.0));
+        generator.addOperation("write", 1, () -> Observable.just(10.0));
+        return generator.run();
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.partition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+public class PartitionKeyHashTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void matchesTheReferenceMurmur3Vectors() {
+        assertEquals(0, PartitionKeyHash.murmur3(new byte[0], 0));
+        assertEquals(0x514E28B7, PartitionKeyHash.murmur3(new byte[0], 1));
+        assertEquals(0x514E28B7, PartitionKeyHash.murmur3(new byte[] { 0 }, 0));
+        assertEquals(0x2362F9DE, PartitionKeyHash.murmur3(new byte[4], 0));
+        assertEquals(0x72661CF4, PartitionKeyHash.murmur3(new byte[] { 0x21 }, 0));
+        assertEquals(0xA0F7B07A, PartitionKeyHash.murmur3(new byte[] { 0x21, 0x43 }, 0));
+        assertEquals(0x7E4A8634, PartitionKeyHash.murmur3(new byte[] { 0x21, 0x43, 0x65 }, 0));
+        assertEquals(0xF55B516B, PartitionKeyHash.murmur3(new byte[] { 0x21, 0x43, 0x65, (byte) 0x87 }, 0));
+        assertEquals(0x24884CBA,
+                PartitionKeyHash.murmur3("Hello, world!".getBytes(StandardCharsets.US_ASCII), 0x9747b28c));
+    }
+
+    // The expected hashes are the ones the SDK's version 1 effective partition key is built from.
+    @Test
+    public void hashesValuesLikeTheService() throws IOException {
+        assertEquals(0x3CCCB0FF, hash("\"\""));
+        assertEquals(0x5C292C8B, hash("\"a\""));
+        assertEquals(0x1163D272, hash("\"family1\""));
+        assertEquals(0x2E06572E, hash("\"WA\""));
+        assertEquals(0x02D3081B, hash("\"\\u00e9t\\u00e9\""));
+        assertEquals(0x1EDA80A6, hash("0"));
+        assertEquals(0xE1655A93, hash("1"));
+        assertEquals(0xE1655A93, hash("1.0"));
+        assertEquals(0xC00103A2, hash("-1.5"));
+        assertEquals(0x18DFB1A7, hash("1e20"));
+        assertEquals(0x5E2A8076, hash("true"));
+        assertEquals(0x6C27D09F, hash("false"));
+        assertEquals(0xE45AD1AB, hash("null"));
+        assertEquals(0x514E28B7, PartitionKeyHash.hash(MissingNode.getInstance()));
+    }
+
+    @Test
+    public void hashesOnlyTheFirst100CharactersOfAString() throws IOException {
+        String hundred = new String(new char[100]).replace('\0', 'x');
+
+        assertEquals(0x722A3263, hash("\"" + hundred + "yyy\""));
+        assertEquals(hash("\"" + hundred + "\""), hash("\"" + hundred + "zzzzz\""));
+    }
+
+    @Test
+    public void readsTheValueAtANestedKeyPath() throws IOException {
+        JsonNode document = mapper.readTree("{\"id\":\"family1\",\"Address\":{\"State\":\"WA\"}}");
+
+        assertEquals("WA", PartitionKeyHash.valueOf(document, "/Address/State").asText());
+        assertTrue(PartitionKeyHash.valueOf(document, "/Address/City").isMissingNode());
+        assertTrue(PartitionKeyHash.valueOf(document, "/id/first").isMissingNode());
+    }
+
+    @Test
+    public void splitsTheHashRangeEvenlyBetweenPartitions() {
+        int[] counts = new int[4];
+        for (int i = 0; i < 40000; i++) {
+            counts[PartitionKeyHash.partitionOf(mapper.getNodeFactory().textNode("family" + i), 4)]++;
+        }
+        for (int count : counts) {
+            assertEquals(10000, count, 500);
+        }
+        assertEquals(0, PartitionKeyHash.partitionOf(mapper.getNodeFactory().textNode("a"), 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFewerThanOnePartition() {
+        PartitionKeyHash.partitionOf(MissingNode.getInstance(), 0);
+    }
+
+    private static int hash(String json) throws IOException {
+        return PartitionKeyHash.hash(mapper.readTree(json));
+    }
+}
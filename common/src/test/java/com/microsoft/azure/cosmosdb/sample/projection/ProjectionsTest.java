@@ -0,0 +1,168 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.projection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+
+public class ProjectionsTest {
+    private static final String FAMILY = "{\"id\":\"AndersenFamily\",\"lastName\":\"Andersen\","
+            + "\"parents\":[{\"firstName\":\"Thomas\"},{\"firstName\":\"Mary Kay\"}],"
+            + "\"address\":{\"state\":\"WA\",\"county\":\"King\",\"city\":\"Seattle\"},"
+            + "\"members\":4,\"visits\":10000000000,\"rating\":4.5,\"isRegistered\":true,\"notes\":null}";
+
+    private Document document;
+
+    @Before
+    public void setUp() {
+        document = new Document(FAMILY);
+    }
+
+    @Test
+    public void bindsTheWholeDocumentIgnoringUndeclaredProperties() {
+        Family family = Projections.as(Family.class).project(document);
+
+        assertEquals("AndersenFamily", family.id);
+        assertEquals("Andersen", family.lastName);
+        assertEquals("Seattle", family.address.city);
+        assertEquals(4, family.members);
+    }
+
+    @Test
+    public void bindsGenericTypesThroughATypeReference() {
+        Map<String, Object> family = Projections.as(new TypeReference<Map<String, Object>>() { })
+                .project(document);
+
+        assertEquals("Andersen", family.get("lastName"));
+        assertEquals(Collections.singletonMap("firstName", "Thomas"), ((List<?>) family.get("parents")).get(0));
+    }
+
+    @Test
+    public void readsScalarFieldsByPath() {
+        assertEquals("Seattle", Projections.field(String.class, "address", "city").project(document));
+        assertEquals(Integer.valueOf(4), Projections.field(Integer.class, "members").project(document));
+        assertEquals(Long.valueOf(10000000000L), Projections.field(long.class, "visits").project(document));
+        assertEquals(Double.valueOf(4.5), Projections.field(Double.class, "rating").project(document));
+        assertEquals(Double.valueOf(4), Projections.field(double.class, "members").project(document));
+        assertEquals(Boolean.TRUE, Projections.field(Boolean.class, "isRegistered").project(document));
+        assertEquals("Andersen", Projections.field(Object.class, "lastName").project(document));
+    }
+
+    @Test
+    public void bindsStructuredAndConvertedFields() {
+        Address address = Projections.field(Address.class, "address").project(document);
+        assertEquals("WA", address.state);
+
+        assertEquals("4", Projections.field(String.class, "members").project(document));
+        assertEquals(Arrays.asList(Collections.singletonMap("firstName", "Thomas"),
+                Collections.singletonMap("firstName", "Mary Kay")),
+                Projections.field(List.class, "parents").project(document));
+    }
+
+    @Test
+    public void returnsNullForMissingAndNullFields() {
+        assertNull(Projections.field(String.class, "nickname").project(document));
+        assertNull(Projections.field(String.class, "notes").project(document));
+        assertNull(Projections.field(String.class, "address", "zip").project(document));
+        // Paths only follow objects, not arrays or values.
+        assertNull(Projections.field(String.class, "parents", "firstName").project(document));
+        assertNull(Projections.field(String.class, "lastName", "length").project(document));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIntegersOutOfRangeInsteadOfTruncatingThem() {
+        Projections.field(Integer.class, "visits").project(document);
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void failsWhenAValueCannotBeBound() {
+        Projections.field(Address.class, "lastName").project(document);
+    }
+
+    @Test
+    public void leavesTheDocumentUnchanged() {
+        Projections.as(Family.class).project(document);
+        Projections.field(Address.class, "address").project(document);
+
+        assertEquals(new Document(FAMILY).toJson(), document.toJson());
+    }
+
+    @Test
+    public void lazyDocumentsBindOncePerType() {
+        LazyDocument lazy = Projections.lazy().project(document);
+
+        assertSame(document, lazy.getDocument());
+        assertEquals("AndersenFamily", lazy.getId());
+        assertEquals("King", lazy.get(String.class, "address", "county"));
+
+        Family family = lazy.as(Family.class);
+        assertSame(family, lazy.as(Family.class));
+        assertEquals("Andersen", lazy.as(Map.class).get("lastName"));
+        Family again = lazy.as(Family.class);
+        assertNotSame(family, again);
+        assertEquals("Andersen", again.lastName);
+    }
+
+    @Test
+    public void mapsPagesKeepingTheirMetadata() {
+        FeedPage<Document> page = new FeedPage<>(Arrays.asList(document, new Document("{\"id\":\"WakefieldFamily\"}")),
+                2.5, "next", "0:1", "activity", Collections.singletonMap("x-ms-item-count", "2"));
+
+        FeedPage<String> ids = page.map(Projections.field(String.class, "id")::project);
+
+        assertEquals(Arrays.asList("AndersenFamily", "WakefieldFamily"), ids.getResults());
+        assertEquals(2.5, ids.getRequestCharge(), 0);
+        assertEquals("next", ids.getResponseContinuation());
+        assertEquals("0:1", ids.getSessionToken());
+        assertEquals("activity", ids.getActivityId());
+        assertTrue(ids.getResponseHeaders().containsKey("x-ms-item-count"));
+    }
+
+    public static class Family {
+        public String id;
+        public String lastName;
+        public Address address;
+        public int members;
+    }
+
+    public static class Address {
+        public String state;
+        public String city;
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.RecordingDocumentStore;
+
+import rx.observers.TestSubscriber;
+
+public class ParallelQueryExecutorTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+    private static final int DOCUMENTS = 200;
+
+    private RecordingDocumentStore recorder;
+    private ParallelQueryOptions options;
+
+    @Before
+    public void setUp() {
+        InMemoryDocumentStore account = new InMemoryDocumentStore();
+        account.setPartitionCount(4);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            // Ranks run against the ids, so every partition holds a spread of them.
+            account.createDocument(COLLECTION_LINK,
+                    new Document("{\"id\":\"family" + i + "\",\"rank\":" + ((i * 37) % DOCUMENTS) + "}"), null)
+                    .toBlocking().single();
+        }
+        recorder = new RecordingDocumentStore(account);
+        options = new ParallelQueryOptions();
+        options.setMaxItemCount(10);
+    }
+
+    @Test
+    public void mergesThePartitionsIntoOrder() {
+        List<Document> results = new ParallelQueryExecutor(recorder)
+                .query(COLLECTION_LINK, "SELECT * FROM c ORDER BY c.rank DESC", options, new ParallelQueryMetrics())
+                .toList().toBlocking().single();
+
+        assertEquals(DOCUMENTS, results.size());
+        for (int i = 0; i < DOCUMENTS; i++) {
+            assertEquals(DOCUMENTS - 1 - i, results.get(i).getInt("rank").intValue());
+        }
+    }
+
+    @Test
+    public void appliesTopToTheMergedResult() {
+        ParallelQueryMetrics metrics = new ParallelQueryMetrics();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Document> results;
+        try {
+            results = new ParallelQueryExecutor(recorder, pool)
+                    .query(COLLECTION_LINK, "SELECT TOP 5 * FROM c ORDER BY c.rank", options, metrics)
+                    .toList().toBlocking().single();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(5, results.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, results.get(i).getInt("rank").intValue());
+        }
+        assertEquals(4, metrics.getPartitions().size());
+    }
+
+    @Test
+    public void readsNoFurtherAheadThanTheBufferAllows() throws InterruptedException {
+        options.setMaxItemCount(1);
+        options.setMaxBufferedItemCount(4);
+        TestSubscriber<Document> subscriber = new TestSubscriber<>(1);
+
+        new ParallelQueryExecutor(recorder)
+                .query(COLLECTION_LINK, "SELECT * FROM c ORDER BY c.rank", options, new ParallelQueryMetrics())
+                .subscribe(subscriber);
+        subscriber.awaitValueCount(1, 5, TimeUnit.SECONDS);
+        Thread.sleep(300);
+        subscriber.unsubscribe();
+
+        // A few pages per partition (its page buffer, the page being unpacked and the
+        // document at the head of the merge), not the 128 documents a blocking iterator asks for.
+        assertTrue(recorder.getFeedOptions().size() + " pages fetched", recorder.getFeedOptions().size() <= 24);
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.cosmosdb.Database;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentCollection;
+import com.microsoft.azure.cosmosdb.ExcludedPath;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.IndexingPolicy;
+import com.microsoft.azure.cosmosdb.sample.sql.SqlSyntaxException;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.RecordingDocumentStore;
+
+import rx.observers.TestSubscriber;
+
+public class QueryExplainerTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+
+    private InMemoryDocumentStore account;
+    private RecordingDocumentStore recorder;
+    private QueryExplainer explainer;
+
+    @Before
+    public void setUp() {
+        account = new InMemoryDocumentStore();
+        recorder = new RecordingDocumentStore(account);
+        explainer = new QueryExplainer(recorder);
+    }
+
+    @Test
+    public void comparesTheEstimateWithWhatTheQueryDid() {
+        createFamilies(20);
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(2);
+
+        QueryExplanation explanation = explain("SELECT * FROM f WHERE f.grade >= 15", options);
+
+        assertTrue(explanation.isIndexServed());
+        assertFalse(explanation.getIndexPlan().isScan());
+        assertEquals(20, explanation.getSampleSize());
+        assertEquals(5, explanation.getEstimatedRetrievedDocumentCount());
+        assertEquals(5, explanation.getEstimatedOutputDocumentCount());
+        assertEquals(3, explanation.getPages().size());
+        assertEquals(5, explanation.getOutputDocumentCount());
+        assertEquals(3, explanation.getPages().get(2).getNumber());
+        assertTrue(explanation.getQueryMetrics().getRetrievedDocumentCount() >= 5);
+        assertTrue(explanation.getRequestCharge() > 0);
+        assertNull(explanation.getError());
+    }
+
+    @Test
+    public void scalesTheSampleUpToTheCollectionAndCapsItAtTop() {
+        createFamilies(20);
+        explainer.setSampleSize(10);
+        explainer.setCollectionDocumentCount(200);
+
+        QueryExplanation all = explain("SELECT * FROM f WHERE f.grade >= 0", null);
+        QueryExplanation top = explain("SELECT TOP 7 * FROM f WHERE f.grade >= 0", null);
+
+        assertEquals(10, all.getSampleSize());
+        assertEquals(200, all.getEstimatedRetrievedDocumentCount());
+        assertEquals(200, all.getEstimatedOutputDocumentCount());
+        assertEquals(20, all.getOutputDocumentCount());
+        assertEquals(7, top.getEstimatedOutputDocumentCount());
+    }
+
+    @Test
+    public void reportsAFilterOnAnExcludedPathAndTheServicesRejection() {
+        IndexingPolicy indexingPolicy = new IndexingPolicy();
+        ExcludedPath excluded = new ExcludedPath();
+        excluded.setPath("/lastName/?");
+        indexingPolicy.setExcludedPaths(Collections.singletonList(excluded));
+        Database database = new Database();
+        database.setId("db");
+        account.createDatabase(database, null).toBlocking().single();
+        DocumentCollection collection = new DocumentCollection();
+        collection.setId("families");
+        collection.setIndexingPolicy(indexingPolicy);
+        account.createCollection("dbs/db", collection, null).toBlocking().single();
+        createFamilies(3);
+        explainer.setIndexingPolicy(indexingPolicy);
+
+        QueryExplanation explanation = explain("SELECT * FROM f WHERE f.lastName = 'Andersen'", null);
+
+        assertFalse(explanation.isIndexServed());
+        assertTrue(explanation.getIndexPlan().isScan());
+        assertEquals(3, explanation.getEstimatedRetrievedDocumentCount());
+        assertNotNull(explanation.getError());
+        assertTrue(explanation.getPages().isEmpty());
+    }
+
+    @Test
+    public void turnsQueryMetricsOnWithoutChangingTheCallersOptions() {
+        createFamilies(3);
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(10);
+
+        explain("SELECT * FROM f", options);
+
+        List<FeedOptions> sent = recorder.getFeedOptions();
+        assertTrue(sent.get(sent.size() - 1).getPopulateQueryMetrics());
+        assertEquals(Integer.valueOf(10), sent.get(sent.size() - 1).getMaxItemCount());
+        assertFalse(options.getPopulateQueryMetrics());
+    }
+
+    @Test
+    public void failsForAQueryOutsideTheParsedSubset() {
+        TestSubscriber<QueryExplanation> subscriber = new TestSubscriber<>();
+
+        explainer.explain(COLLECTION_LINK, "SELECT * FROM f WHERE REGEXMATCH(f.lastName, 'A')", null)
+                .subscribe(subscriber);
+
+        subscriber.assertError(SqlSyntaxException.class);
+    }
+
+    private QueryExplanation explain(String queryText, FeedOptions options) {
+        return explainer.explain(COLLECTION_LINK, queryText, options).toBlocking().single();
+    }
+
+    private void createFamilies(int count) {
+        for (int i = 0; i < count; i++) {
+            account.createDocument(COLLECTION_LINK,
+                    new Document("{\"id\":\"family" + i + "\",\"lastName\":\"Andersen\",\"grade\":" + i + "}"), null)
+                    .toBlocking().single();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.PartitionKey;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.RecordingDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+
+public class StreamingQueryExecutorTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+    private static final String ID_QUERY = "SELECT * FROM c WHERE c.id = 'family3'";
+    private static final SqlQuerySpec ALL_QUERY = new SqlQuerySpec("SELECT * FROM c");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InMemoryDocumentStore account;
+    private RecordingDocumentStore recorder;
+    private StreamingQueryOptions options;
+
+    @Before
+    public void setUp() {
+        account = new InMemoryDocumentStore();
+        for (int i = 0; i < 10; i++) {
+            account.createDocument(COLLECTION_LINK, new Document("{\"id\":\"family" + i + "\"}"), null)
+                    .toBlocking().single();
+        }
+        recorder = new RecordingDocumentStore(account);
+        options = new StreamingQueryOptions();
+        options.setMaxItemCount(4);
+    }
+
+    @Test
+    public void runsAnIdLookupAsAQueryUnlessPointReadsAreEnabled() {
+        List<Document> results = results(new StreamingQueryExecutor(recorder), ID_QUERY);
+
+        assertEquals(1, results.size());
+        assertEquals(1, recorder.getFeedOptions().size());
+        assertEquals(0, recorder.getRequestOptions().size());
+    }
+
+    @Test
+    public void answersAnIdLookupWithAPointReadWhenEnabled() {
+        options.setEnablePointReads(true);
+
+        List<Document> results = results(new StreamingQueryExecutor(recorder), ID_QUERY);
+
+        assertEquals(1, results.size());
+        assertEquals("family3", results.get(0).getId());
+        assertEquals(0, recorder.getFeedOptions().size());
+        assertEquals(1, recorder.getRequestOptions().size());
+    }
+
+    @Test
+    public void fallsBackToTheQueryWithTheCallersOptionsWhenTheReadIsRejected() {
+        RecordingDocumentStore rejectingReads = new RecordingDocumentStore(account) {
+            @Override
+            public Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions options) {
+                return Observable.error(new DocumentClientException(400, "Partition key missing"));
+            }
+        };
+        options.setEnablePointReads(true);
+        options.setPartitionKey(new PartitionKey("family3"));
+        options.setPartitionKeyPath("/id");
+
+        List<Document> results = results(new StreamingQueryExecutor(rejectingReads), ID_QUERY);
+
+        assertEquals(1, results.size());
+        assertEquals(1, rejectingReads.getFeedOptions().size());
+        assertEquals(Integer.valueOf(4), rejectingReads.getFeedOptions().get(0).getMaxItemCount());
+        assertEquals(new PartitionKey("family3").toString(),
+                rejectingReads.getFeedOptions().get(0).getPartitionKey().toString());
+    }
+
+    @Test
+    public void onlyFetchesThePagesTheSubscriberAsksFor() {
+        options.setMaxItemCount(1);
+        options.setMaxBufferedPages(1);
+
+        FeedPage<Document> first = new StreamingQueryExecutor(recorder).queryPages(COLLECTION_LINK, ALL_QUERY, options)
+                .toBlocking().first();
+
+        assertEquals(1, first.getResults().size());
+        assertTrue(recorder.getFeedOptions().size() <= 3);
+    }
+
+    @Test
+    public void resumesAfterThePageAContinuationTokenCameWith() {
+        StreamingQueryExecutor executor = new StreamingQueryExecutor(recorder);
+        FeedPage<Document> first = executor.queryPages(COLLECTION_LINK, ALL_QUERY, options).toBlocking().first();
+        assertNotNull(first.getResponseContinuation());
+
+        options.setRequestContinuation(first.getResponseContinuation());
+        List<String> ids = ids(first.getResults());
+        ids.addAll(ids(executor.queryPages(COLLECTION_LINK, ALL_QUERY, options)
+                .concatMapIterable(FeedPage::getResults).toList().toBlocking().single()));
+
+        assertEquals(10, ids.size());
+        assertEquals(10, ids.stream().distinct().count());
+    }
+
+    @Test
+    public void retriesAThrottledPageOnItsOwn() {
+        AtomicInteger queries = new AtomicInteger();
+        RecordingDocumentStore throttlingSecondPage = new RecordingDocumentStore(account) {
+            @Override
+            public Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+                    FeedOptions options) {
+                if (queries.incrementAndGet() == 2) {
+                    return Observable.error(Throttling.newThrottledException(1));
+                }
+                return super.queryDocuments(collectionLink, querySpec, options);
+            }
+        };
+
+        List<Document> results = new StreamingQueryExecutor(throttlingSecondPage)
+                .queryPages(COLLECTION_LINK, ALL_QUERY, options)
+                .concatMapIterable(FeedPage::getResults).toList().toBlocking().single();
+
+        assertEquals(10, results.size());
+        // Three pages, the second sent twice; the retry resumes from the first page's token.
+        assertEquals(3, throttlingSecondPage.getFeedOptions().size());
+        assertEquals(4, queries.get());
+    }
+
+    @Test
+    public void resumesFromTheCheckpointOfTheLastHandledPage() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("scan.continuation");
+        FileContinuationCheckpoint checkpoint = new FileContinuationCheckpoint(file);
+        StreamingQueryExecutor executor = new StreamingQueryExecutor(recorder);
+        List<String> handled = new ArrayList<>();
+
+        try {
+            executor.queryPages(COLLECTION_LINK, ALL_QUERY, options, checkpoint, page -> {
+                if (!handled.isEmpty()) {
+                    throw new IOException("handler failed");
+                }
+                handled.addAll(ids(page.getResults()));
+            }).toBlocking().last();
+        } catch (RuntimeException expected) {
+        }
+        assertEquals(4, handled.size());
+        assertNotNull(checkpoint.load());
+
+        executor.queryPages(COLLECTION_LINK, ALL_QUERY, options, checkpoint,
+                page -> handled.addAll(ids(page.getResults()))).toBlocking().last();
+
+        assertEquals(10, handled.size());
+        assertEquals(10, handled.stream().distinct().count());
+        assertFalse(file.toFile().exists());
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        List<String> ids = new ArrayList<>();
+        for (Document document : documents) {
+            ids.add(document.getId());
+        }
+        return ids;
+    }
+
+    private List<Document> results(StreamingQueryExecutor executor, String queryText) {
+        return executor.queryPages(COLLECTION_LINK, queryText, options)
+                .concatMapIterable(FeedPage::getResults)
+                .toList().toBlocking().single();
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+
+public class RegionRouterTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+    private static final String WRITE_REGION = "West US";
+    private static final String READ_REGION = "East US";
+
+    private SimulatedGeoAccount account;
+    private RegionRouter router;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        account = new SimulatedGeoAccount(new InMemoryDocumentStore());
+        account.addRegion(WRITE_REGION, 20, 0);
+        account.addRegion(READ_REGION, 0, 0);
+
+        // The read region is the closer one, so reads go there first once both are probed.
+        Map<String, SimulatedRegion> regions = new LinkedHashMap<>();
+        regions.put(READ_REGION, account.getRegion(READ_REGION));
+        regions.put(WRITE_REGION, account.getRegion(WRITE_REGION));
+        RegionRoutingOptions options = new RegionRoutingOptions();
+        options.setProbeCollectionLink(COLLECTION_LINK);
+        options.setProbeIntervalMillis(60000);
+        options.setFailureThreshold(2);
+        router = new RegionRouter(WRITE_REGION, regions, options);
+        router.start();
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((router.getStats(READ_REGION).getProbeCount() == 0 || router.getStats(WRITE_REGION).getProbeCount() == 0)
+                && System.nanoTime() < deadlineNanos) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        router.createDocument(COLLECTION_LINK, new Document("{\"id\":\"family1\"}"), null).toBlocking().single();
+    }
+
+    @After
+    public void tearDown() {
+        router.close();
+    }
+
+    @Test
+    public void ranksRegionsByMeasuredLatency() {
+        assertEquals(Arrays.asList(READ_REGION, WRITE_REGION), router.getPreferredRegions());
+    }
+
+    @Test
+    public void failsOverToTheNextRegionWhenARegionIsDown() {
+        account.getRegion(READ_REGION).setAvailable(false);
+
+        StoreResponse<Document> response = readFamily();
+
+        assertEquals("family1", response.getResource().getId());
+        assertEquals(1, router.getStats(READ_REGION).getFailureCount());
+        assertEquals(1, router.getStats(READ_REGION).getFailoverCount());
+    }
+
+    @Test
+    public void takesARegionOutOfTheRankingAfterRepeatedFailures() {
+        account.getRegion(READ_REGION).setAvailable(false);
+
+        readFamily();
+        readFamily();
+
+        assertFalse(router.getStats(READ_REGION).isAvailable(System.nanoTime()));
+        assertEquals(Arrays.asList(WRITE_REGION, READ_REGION), router.getPreferredRegions());
+        readFamily();
+        assertEquals(2, router.getStats(READ_REGION).getFailureCount());
+    }
+
+    @Test
+    public void retriesASessionReadWhereTheWriteHasReplicated() {
+        account.getRegion(READ_REGION).setReplicationLagMillis(60000);
+        router.createDocument(COLLECTION_LINK, new Document("{\"id\":\"family2\"}"), null).toBlocking().single();
+
+        StoreResponse<Document> response = router.readDocument(COLLECTION_LINK + "/docs/family2", null)
+                .toBlocking().single();
+
+        assertEquals("family2", response.getResource().getId());
+        assertEquals(1, router.getStats(READ_REGION).getSessionRetryCount());
+        assertEquals(0, router.getStats(READ_REGION).getFailureCount());
+    }
+
+    private StoreResponse<Document> readFamily() {
+        return router.readDocument(COLLECTION_LINK + "/docs/family1", null).toBlocking().single();
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+public class SqlParserTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private JsonNode family;
+
+    @Before
+    public void setUp() throws IOException {
+        family = mapper.readTree("{\"id\":\"family1\",\"lastName\":\"Andersen\",\"age\":5,"
+                + "\"children\":[{\"name\":\"Henriette\",\"grade\":5,\"pets\":[{\"name\":\"Fluffy\"}]},"
+                + "{\"name\":\"Jesper\",\"grade\":2,\"pets\":[]}]}");
+    }
+
+    @Test
+    public void treatsComparisonsWithAMissingPropertyAsUndefined() {
+        assertEquals(0, matches("SELECT * FROM f WHERE f.missing = 1"));
+        assertEquals(0, matches("SELECT * FROM f WHERE NOT (f.missing = 1)"));
+        assertEquals(0, matches("SELECT * FROM f WHERE f.missing != 1"));
+    }
+
+    @Test
+    public void combinesUndefinedWithAndOrNotLikeThreeValuedLogic() {
+        // undefined OR true is true, undefined OR false is undefined.
+        assertEquals(1, matches("SELECT * FROM f WHERE f.missing = 1 OR f.age = 5"));
+        assertEquals(0, matches("SELECT * FROM f WHERE f.missing = 1 OR f.age = 6"));
+        assertEquals(0, matches("SELECT * FROM f WHERE NOT (f.missing = 1 OR f.age = 6)"));
+        // undefined AND false is false, undefined AND true is undefined.
+        assertEquals(1, matches("SELECT * FROM f WHERE NOT (f.missing = 1 AND f.age = 6)"));
+        assertEquals(0, matches("SELECT * FROM f WHERE f.missing = 1 AND f.age = 5"));
+        assertEquals(0, matches("SELECT * FROM f WHERE NOT (f.missing = 1 AND f.age = 5)"));
+    }
+
+    @Test
+    public void treatsComparisonsBetweenTypesAsUndefined() {
+        assertEquals(0, matches("SELECT * FROM f WHERE f.age = '5'"));
+        assertEquals(0, matches("SELECT * FROM f WHERE f.age != '5'"));
+        assertEquals(0, matches("SELECT * FROM f WHERE f.age > 'A'"));
+        assertEquals(0, matches("SELECT * FROM f WHERE f.lastName < 10"));
+        assertEquals(0, matches("SELECT * FROM f WHERE f.age IN ('5', true)"));
+        assertEquals(1, matches("SELECT * FROM f WHERE f.age IN ('5', 5)"));
+        assertEquals(0, matches("SELECT * FROM f WHERE f.children = 5"));
+    }
+
+    @Test
+    public void ordersDifferentTypesByTypeForSorting() throws IOException {
+        List<JsonNode> values = new ArrayList<>();
+        for (String json : new String[] { "\"a\"", "3", "true", "null", "1" }) {
+            values.add(mapper.readTree(json));
+        }
+        values.add(MissingNode.getInstance());
+
+        values.sort(JsonValues::compareForSort);
+
+        assertEquals("[, null, true, 1, 3, \"a\"]", values.toString());
+    }
+
+    @Test
+    public void bindsEachJoinedElementInTurn() {
+        SqlQuery query = SqlQuery.parse(
+                "SELECT c.name AS child, p.name AS pet FROM f JOIN c IN f.children JOIN p IN c.pets WHERE f.age = 5");
+
+        List<SqlQuery.Row> rows = new ArrayList<>();
+        query.evaluate(family, Collections.emptyMap(), rows);
+
+        assertEquals(1, rows.size());
+        assertEquals("{\"child\":\"Henriette\",\"pet\":\"Fluffy\"}", rows.get(0).getValue().toString());
+    }
+
+    @Test
+    public void filtersOnAJoinAliasOnceThatAliasIsBound() {
+        SqlQuery query = SqlQuery.parse("SELECT * FROM f JOIN c IN f.children WHERE f.age = 5 AND c.grade > 3");
+
+        assertEquals("[f.age = 5]", query.getFilters(0).toString());
+        assertEquals("[c.grade > 3]", query.getFilters(1).toString());
+        List<SqlQuery.Row> rows = new ArrayList<>();
+        assertEquals(2, query.evaluate(family, Collections.emptyMap(), rows));
+        assertEquals(1, rows.size());
+        assertEquals("Henriette", rows.get(0).getValue().path("c").path("name").asText());
+        assertEquals("family1", rows.get(0).getValue().path("f").path("id").asText());
+    }
+
+    @Test
+    public void skipsAJoinOverAValueThatIsNotAnArray() {
+        assertEquals(0, matches("SELECT * FROM f JOIN c IN f.lastName"));
+        assertEquals(0, matches("SELECT * FROM f JOIN c IN f.missing"));
+    }
+
+    @Test
+    public void rejectsUnsupportedFunctionsWhenParsing() {
+        assertSyntaxError("SELECT * FROM f WHERE REGEXMATCH(f.lastName, 'A.*')", "Unsupported function");
+        assertSyntaxError("SELECT * FROM f WHERE STARTSWITH(f.lastName)", "takes 2 argument(s)");
+    }
+
+    @Test
+    public void reportsWhereTheSyntaxErrorIs() {
+        assertSyntaxError("SELECT * FROM f WHERE", "at position");
+        assertSyntaxError("SELECT * FROM f WHERE f.age = 5 ORDER f.age", "at position");
+    }
+
+    @Test
+    public void evaluatesParameters() throws IOException {
+        SqlQuery query = SqlQuery.parse("SELECT * FROM f WHERE f.lastName = @lastName");
+        List<SqlQuery.Row> rows = new ArrayList<>();
+
+        query.evaluate(family, Collections.singletonMap("@lastName", mapper.readTree("\"Andersen\"")), rows);
+        assertEquals(1, rows.size());
+        rows.clear();
+        query.evaluate(family, Collections.emptyMap(), rows);
+        assertEquals(0, rows.size());
+    }
+
+    private int matches(String queryText) {
+        List<SqlQuery.Row> rows = new ArrayList<>();
+        SqlQuery.parse(queryText).evaluate(family, Collections.emptyMap(), rows);
+        return rows.size();
+    }
+
+    private static void assertSyntaxError(String queryText, String expectedMessage) {
+        try {
+            SqlQuery.parse(queryText);
+            fail("expected SqlSyntaxException for " + queryText);
+        } catch (SqlSyntaxException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+}
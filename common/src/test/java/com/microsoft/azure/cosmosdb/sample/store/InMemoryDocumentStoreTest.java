@@ -0,0 +1,196 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.cosmosdb.Database;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.DocumentCollection;
+import com.microsoft.azure.cosmosdb.ExcludedPath;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.IndexingPolicy;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+
+import rx.observers.TestSubscriber;
+
+public class InMemoryDocumentStoreTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+
+    private InMemoryDocumentStore store;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryDocumentStore();
+    }
+
+    @Test
+    public void rejectsAFilterOnAnExcludedPathUnlessScansAreAllowed() {
+        Database database = new Database();
+        database.setId("db");
+        store.createDatabase(database, null).toBlocking().single();
+        DocumentCollection collection = new DocumentCollection();
+        collection.setId("families");
+        IndexingPolicy indexingPolicy = new IndexingPolicy();
+        ExcludedPath excluded = new ExcludedPath();
+        excluded.setPath("/lastName/?");
+        indexingPolicy.setExcludedPaths(Collections.singletonList(excluded));
+        collection.setIndexingPolicy(indexingPolicy);
+        store.createCollection("dbs/db", collection, null).toBlocking().single();
+        store.createDocument(COLLECTION_LINK, new Document("{\"id\":\"family1\",\"lastName\":\"Andersen\"}"), null)
+                .toBlocking().single();
+        SqlQuerySpec query = new SqlQuerySpec("SELECT * FROM f WHERE f.lastName = 'Andersen'");
+
+        TestSubscriber<FeedPage<Document>> rejected = new TestSubscriber<>();
+        store.queryDocuments(COLLECTION_LINK, query, null).subscribe(rejected);
+        rejected.awaitTerminalEvent();
+        assertEquals(1, rejected.getOnErrorEvents().size());
+        DocumentClientException error = Throttling.findClientException(rejected.getOnErrorEvents().get(0));
+        assertNotNull(error);
+        assertEquals(400, error.getStatusCode());
+
+        FeedOptions options = new FeedOptions();
+        options.setEnableScanInQuery(true);
+        assertEquals(Collections.singletonList("family1"), ids(query("SELECT * FROM f WHERE f.lastName = 'Andersen'",
+                options)));
+    }
+
+    @Test
+    public void pagesAnIndexedQueryThroughItsContinuations() {
+        createFamilies(10);
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(3);
+
+        List<FeedPage<Document>> pages = store
+                .queryDocuments(COLLECTION_LINK, new SqlQuerySpec("SELECT * FROM f WHERE f.rank >= 0"), options)
+                .toList().toBlocking().single();
+
+        assertEquals(4, pages.size());
+        assertTrue(pages.get(0).getResponseContinuation().startsWith("i:"));
+        List<String> ids = new ArrayList<>();
+        for (FeedPage<Document> page : pages) {
+            ids.addAll(ids(page.getResults()));
+        }
+        assertEquals(familyIds(0, 10), ids);
+    }
+
+    @Test
+    public void resumesAnIndexedQueryAfterTheIndexIsCompacted() {
+        createFamilies(10);
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(3);
+        SqlQuerySpec query = new SqlQuerySpec("SELECT * FROM f WHERE f.rank >= 0");
+        FeedPage<Document> first = store.queryDocuments(COLLECTION_LINK, query, options).toBlocking().first();
+        assertEquals(familyIds(0, 3), ids(first.getResults()));
+
+        // Enough replacements to fill the index's ordinals and have it renumber them.
+        for (int i = 0; i < 100; i++) {
+            store.upsertDocument(COLLECTION_LINK, family(i % 2 == 0 ? 3 : 9), null).toBlocking().single();
+        }
+        FeedOptions resumed = new FeedOptions();
+        resumed.setMaxItemCount(100);
+        resumed.setRequestContinuation(first.getResponseContinuation());
+        List<String> rest = ids(query(query.getQueryText(), resumed));
+
+        Collections.sort(rest);
+        assertEquals(familyIds(3, 10), rest);
+    }
+
+    @Test
+    public void resumesInTheMiddleOfTheRowsOfOneDocument() {
+        store.createDocument(COLLECTION_LINK, new Document("{\"id\":\"family1\",\"children\":[{\"name\":\"a\"},"
+                + "{\"name\":\"b\"},{\"name\":\"c\"},{\"name\":\"d\"},{\"name\":\"e\"}]}"), null)
+                .toBlocking().single();
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(2);
+
+        List<FeedPage<Document>> pages = store.queryDocuments(COLLECTION_LINK,
+                new SqlQuerySpec("SELECT c.name FROM f JOIN c IN f.children"), options).toList().toBlocking().single();
+
+        assertEquals(3, pages.size());
+        List<String> names = new ArrayList<>();
+        for (FeedPage<Document> page : pages) {
+            for (Document document : page.getResults()) {
+                names.add(document.getString("name"));
+            }
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), names);
+    }
+
+    @Test
+    public void pagesAnOrderedQueryInOrderAndStopsAtTop() {
+        createFamilies(10);
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(4);
+
+        List<String> ids = ids(query("SELECT TOP 7 * FROM f WHERE f.rank >= 0 ORDER BY f.rank DESC", options));
+
+        assertEquals(Arrays.asList("family9", "family8", "family7", "family6", "family5", "family4", "family3"), ids);
+    }
+
+    private void createFamilies(int count) {
+        for (int i = 0; i < count; i++) {
+            store.createDocument(COLLECTION_LINK, family(i), null).toBlocking().single();
+        }
+    }
+
+    private static Document family(int rank) {
+        return new Document("{\"id\":\"family" + rank + "\",\"rank\":" + rank + "}");
+    }
+
+    private List<Document> query(String queryText, FeedOptions options) {
+        List<Document> documents = new ArrayList<>();
+        for (FeedPage<Document> page : store.queryDocuments(COLLECTION_LINK, new SqlQuerySpec(queryText), options)
+                .toBlocking().toIterable()) {
+            documents.addAll(page.getResults());
+        }
+        return documents;
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        List<String> ids = new ArrayList<>();
+        for (Document document : documents) {
+            ids.add(document.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> familyIds(int from, int to) {
+        List<String> ids = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            ids.add("family" + i);
+        }
+        return ids;
+    }
+}
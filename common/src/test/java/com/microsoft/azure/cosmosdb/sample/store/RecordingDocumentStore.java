@@ -0,0 +1,109 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.store;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.microsoft.azure.cosmosdb.ChangeFeedOptions;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.RequestOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+
+import rx.Observable;
+
+// Passes every request on to another store and keeps the options each one arrived with, so
+// tests can check what the decorators above it send.
+public class RecordingDocumentStore implements DocumentStore {
+    private final DocumentStore store;
+    private final List<FeedOptions> feedOptions = new CopyOnWriteArrayList<>();
+    private final List<RequestOptions> requestOptions = new CopyOnWriteArrayList<>();
+
+    public RecordingDocumentStore(DocumentStore store) {
+        this.store = store;
+    }
+
+    // The options of every query request, a page each, in the order they were sent.
+    public List<FeedOptions> getFeedOptions() {
+        return feedOptions;
+    }
+
+    // The options of every document and script request, in the order they were sent.
+    public List<RequestOptions> getRequestOptions() {
+        return requestOptions;
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> createDocument(String collectionLink, Document document,
+            RequestOptions options) {
+        requestOptions.add(options == null ? new RequestOptions() : options);
+        return store.createDocument(collectionLink, document, options);
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> upsertDocument(String collectionLink, Document document,
+            RequestOptions options) {
+        requestOptions.add(options == null ? new RequestOptions() : options);
+        return store.upsertDocument(collectionLink, document, options);
+    }
+
+    @Override
+    public Observable<StoreResponse<Document>> readDocument(String documentLink, RequestOptions options) {
+        requestOptions.add(options == null ? new RequestOptions() : options);
+        return store.readDocument(documentLink, options);
+    }
+
+    @Override
+    public Observable<FeedPage<Document>> queryDocuments(String collectionLink, SqlQuerySpec querySpec,
+            FeedOptions options) {
+        return Observable.defer(() -> {
+            feedOptions.add(options == null ? new FeedOptions() : options);
+            return store.queryDocuments(collectionLink, querySpec, options);
+        });
+    }
+
+    @Override
+    public Observable<FeedPage<Document>> readChangeFeed(String collectionLink, ChangeFeedOptions options) {
+        return store.readChangeFeed(collectionLink, options);
+    }
+
+    @Override
+    public Observable<List<String>> readPartitionKeyRangeIds(String collectionLink) {
+        return store.readPartitionKeyRangeIds(collectionLink);
+    }
+
+    @Override
+    public Observable<StoreResponse<StoredProcedure>> createStoredProcedure(String collectionLink,
+            StoredProcedure storedProcedure, RequestOptions options) {
+        return store.createStoredProcedure(collectionLink, storedProcedure, options);
+    }
+
+    @Override
+    public Observable<StoreResponse<String>> executeStoredProcedure(String storedProcedureLink,
+            RequestOptions options, Object[] procedureParams) {
+        requestOptions.add(options == null ? new RequestOptions() : options);
+        return store.executeStoredProcedure(storedProcedureLink, options, procedureParams);
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LogLinearHistogramTest {
+
+    @Test
+    public void givesEachOfTheFirst128UnitsABucket() {
+        for (long units = 0; units < 128; units++) {
+            assertEquals(units, LogLinearHistogram.indexOf(units));
+            assertEquals(units, LogLinearHistogram.lowestValueOf((int) units));
+            assertEquals(1, LogLinearHistogram.widthOf((int) units));
+        }
+        assertEquals(128, LogLinearHistogram.indexOf(128));
+        assertEquals(128, LogLinearHistogram.indexOf(129));
+        assertEquals(2, LogLinearHistogram.widthOf(128));
+        assertEquals(191, LogLinearHistogram.indexOf(255));
+        assertEquals(192, LogLinearHistogram.indexOf(256));
+        assertEquals(4, LogLinearHistogram.widthOf(192));
+    }
+
+    @Test
+    public void placesEveryValueInTheBucketThatCoversIt() {
+        for (int exponent = 7; exponent < 63; exponent++) {
+            long base = 1L << exponent;
+            for (long units : new long[] { base, base + 1, base + base / 3, 2 * base - 1 }) {
+                int index = LogLinearHistogram.indexOf(units);
+                long lowest = LogLinearHistogram.lowestValueOf(index);
+                long width = LogLinearHistogram.widthOf(index);
+                assertTrue(units + " below bucket " + index, units >= lowest);
+                assertTrue(units + " above bucket " + index, units - lowest < width);
+                assertTrue(width * 64 <= lowest);
+            }
+        }
+        assertEquals(LogLinearHistogram.indexOf(Long.MAX_VALUE) + 1, 128 + 56 * 64);
+    }
+
+    @Test
+    public void reportsPercentilesWithinThePromisedPrecision() {
+        LogLinearHistogram histogram = new LogLinearHistogram(0.01);
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i * 1.5);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(7500, histogram.getValueAtPercentile(50), 7500 * 0.016);
+        assertEquals(14250, histogram.getValueAtPercentile(95), 14250 * 0.016);
+        assertEquals(14850, histogram.getValueAtPercentile(99), 14850 * 0.016);
+        assertEquals(15000, histogram.getValueAtPercentile(100), 0.001);
+        assertEquals(1.5, histogram.getValueAtPercentile(0), 0.001);
+    }
+
+    @Test
+    public void summarizesCountSumAndExtremes() {
+        LogLinearHistogram histogram = new LogLinearHistogram(1);
+        histogram.record(3);
+        histogram.record(5);
+        histogram.record(-2);
+
+        HistogramSummary summary = histogram.summarize();
+
+        assertEquals(3, summary.getCount());
+        assertEquals(6, summary.getSum(), 0);
+        assertEquals(2, summary.getMean(), 0);
+        assertEquals(0, summary.getMin(), 0);
+        assertEquals(5, summary.getMax(), 0);
+        assertEquals(3, summary.getP50(), 0);
+    }
+
+    @Test
+    public void summarizesAnEmptyHistogramAsZeros() {
+        HistogramSummary summary = new LogLinearHistogram(1).summarize();
+
+        assertEquals(0, summary.getCount());
+        assertEquals(0, summary.getMean(), 0);
+        assertEquals(0, summary.getP99(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANonPositiveResolution() {
+        new LogLinearHistogram(0);
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+
+public class RequestChargeTelemetryTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+
+    private InMemoryDocumentStore store;
+    private RequestChargeTelemetry telemetry;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryDocumentStore();
+        for (int i = 0; i < 10; i++) {
+            store.createDocument(COLLECTION_LINK, new Document("{\"id\":\"family" + i + "\",\"grade\":" + i + "}"),
+                    null).toBlocking().single();
+        }
+        telemetry = new RequestChargeTelemetry();
+    }
+
+    @Test
+    public void recordsOneSamplePerExecutionUnderTheQueryShape() {
+        run("SELECT * FROM f WHERE f.grade > 5");
+        run("SELECT * FROM f WHERE f.grade > 8");
+
+        assertEquals(1, telemetry.getAllStats().size());
+        QueryShapeStats stats = telemetry.getStats("Grades", "SELECT * FROM f WHERE f.grade > 1");
+        assertEquals("SELECT * FROM f WHERE f.grade > ?", stats.getShape());
+        assertEquals(2, stats.getRequestCharge().getCount());
+        assertEquals(4 + 1, stats.getDocuments().getSum(), 0);
+        assertEquals(2 + 1, stats.getPages().getSum(), 0);
+        assertTrue(stats.getRequestCharge().getSum() > 0);
+    }
+
+    @Test
+    public void exportsEveryHistogramAsJson() throws IOException {
+        run("SELECT * FROM f WHERE f.grade > 5");
+
+        JsonNode query = new ObjectMapper().readTree(telemetry.toJson()).path("queries").path(0);
+
+        assertEquals("Grades", query.path("operation").asText());
+        assertEquals(1, query.path("executions").asLong());
+        assertEquals(4, query.path("documents").path("total").asDouble(), 0);
+        assertEquals(2, query.path("pages").path("max").asDouble(), 0);
+        for (String histogram : new String[] { "requestCharge", "latencyMillis", "bytes" }) {
+            assertTrue(histogram, query.path(histogram).has("p99"));
+        }
+    }
+
+    @Test
+    public void exportsQuantilesInThePrometheusTextFormat() {
+        run("SELECT * FROM f WHERE f.id = \"family1\"");
+
+        String text = telemetry.toPrometheusText();
+
+        String labels = "operation=\"Grades\",shape=\"SELECT * FROM f WHERE f.id = ?\"";
+        assertTrue(text, text.contains("# TYPE cosmosdb_query_documents summary\n"));
+        assertTrue(text, text.contains("cosmosdb_query_documents{" + labels + ",quantile=\"0.99\"} 1.00\n"));
+        assertTrue(text, text.contains("cosmosdb_query_documents_count{" + labels + "} 1\n"));
+    }
+
+    @Test
+    public void escapesLabelsAndCountsUtf8Bytes() {
+        assertEquals("a\\\"b\\\\c\\nd", RequestChargeTelemetry.escapeLabel("a\"b\\c\nd"));
+        assertEquals(1 + 2 + 3 + 4, RequestChargeTelemetry.utf8Length("a\u00e9\u20ac\ud83d\ude00"));
+    }
+
+    private void run(String queryText) {
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(3);
+        store.queryDocuments(COLLECTION_LINK, new SqlQuerySpec(queryText), options)
+                .compose(telemetry.<Document>instrument("Grades", queryText))
+                .toList().toBlocking().single();
+    }
+}
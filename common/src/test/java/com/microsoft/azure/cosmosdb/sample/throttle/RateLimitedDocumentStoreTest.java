@@ -0,0 +1,94 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.throttle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.RecordingDocumentStore;
+
+public class RateLimitedDocumentStoreTest {
+    private static final String COLLECTION_LINK = "dbs/db/colls/families";
+
+    private RecordingDocumentStore recorder;
+    private RateLimitedDocumentStore store;
+
+    @Before
+    public void setUp() {
+        InMemoryDocumentStore account = new InMemoryDocumentStore();
+        for (int i = 0; i < 10; i++) {
+            account.createDocument(COLLECTION_LINK, new Document("{\"id\":\"family" + i + "\",\"rank\":" + i + "}"),
+                    null).toBlocking().single();
+        }
+        recorder = new RecordingDocumentStore(account);
+        store = new RateLimitedDocumentStore(recorder);
+    }
+
+    @Test
+    public void sendsEveryPageWithTheCallersOptions() {
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(3);
+        options.setEnableCrossPartitionQuery(true);
+        options.setEnableScanInQuery(true);
+        options.setPopulateQueryMetrics(true);
+        options.setSessionToken("0:10");
+
+        List<FeedPage<Document>> pages = store.queryDocuments(COLLECTION_LINK,
+                new SqlQuerySpec("SELECT * FROM c WHERE c.rank >= 0"), options).toList().toBlocking().single();
+
+        assertEquals(4, pages.size());
+        assertEquals(4, recorder.getFeedOptions().size());
+        for (FeedOptions sent : recorder.getFeedOptions()) {
+            assertEquals("0:10", sent.getSessionToken());
+            assertTrue(sent.getPopulateQueryMetrics());
+            assertTrue(sent.getEnableScanInQuery());
+            assertEquals(Integer.valueOf(3), sent.getMaxItemCount());
+        }
+    }
+
+    @Test
+    public void resumesEachPageAtThePreviousContinuation() {
+        FeedOptions options = new FeedOptions();
+        options.setMaxItemCount(4);
+
+        List<FeedPage<Document>> pages = store.queryDocuments(COLLECTION_LINK,
+                new SqlQuerySpec("SELECT * FROM c"), options).toList().toBlocking().single();
+
+        List<FeedOptions> sent = recorder.getFeedOptions();
+        assertEquals(null, sent.get(0).getRequestContinuation());
+        for (int i = 1; i < sent.size(); i++) {
+            assertEquals(pages.get(i - 1).getResponseContinuation(), sent.get(i).getRequestContinuation());
+        }
+        assertEquals(null, options.getRequestContinuation());
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample.throttle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+
+public class RequestUnitRateLimiterTest {
+
+    @Test
+    public void capsNothingWithoutAProvisionedThroughput() {
+        RequestUnitRateLimiter limiter = new RequestUnitRateLimiter(new RateLimiterOptions());
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Double.valueOf(1000), limiter.acquire(1000, RequestPriority.NORMAL).toBlocking().single());
+        }
+        assertEquals(0, limiter.getWaitingCount());
+    }
+
+    @Test
+    public void holdsRequestsForTheRetryAfterOfAThrottleWithoutACap() {
+        RequestUnitRateLimiter limiter = new RequestUnitRateLimiter(new RateLimiterOptions());
+        limiter.onThrottled(200);
+
+        TestSubscriber<Double> subscriber = new TestSubscriber<>();
+        limiter.acquire(10, RequestPriority.INTERACTIVE).subscribe(subscriber);
+
+        subscriber.assertNoValues();
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        subscriber.assertValue(10.0);
+    }
+
+    @Test
+    public void holdsRequestsBeyondTheBurstOfAProvisionedThroughput() {
+        RateLimiterOptions options = new RateLimiterOptions();
+        options.setProvisionedThroughput(100);
+        options.setTargetUtilization(1);
+        RequestUnitRateLimiter limiter = new RequestUnitRateLimiter(options);
+
+        limiter.acquire(100, RequestPriority.NORMAL).toBlocking().single();
+        TestSubscriber<Double> subscriber = new TestSubscriber<>();
+        limiter.acquire(50, RequestPriority.NORMAL).subscribe(subscriber);
+
+        assertEquals(1, limiter.getWaitingCount());
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        subscriber.assertValue(50.0);
+        assertTrue(limiter.getAvailable() < 50);
+    }
+}
@@ -25,12 +25,11 @@ package com.microsoft.azure.cosmosdb.sample;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 import javax.swing.text.DocumentFilter;
 
-import com.microsoft.azure.cosmosdb.ConnectionPolicy;
 import com.microsoft.azure.cosmosdb.ConsistencyLevel;
 import com.microsoft.azure.cosmosdb.Database;
 import com.microsoft.azure.cosmosdb.Document;
@@ -38,20 +37,26 @@ import com.microsoft.azure.cosmosdb.DocumentClientException;
 import com.microsoft.azure.cosmosdb.DocumentCollection;
 import com.microsoft.azure.cosmosdb.ExcludedPath;
 import com.microsoft.azure.cosmosdb.FeedOptions;
-import com.microsoft.azure.cosmosdb.FeedResponse;
 import com.microsoft.azure.cosmosdb.IncludedPath;
 import com.microsoft.azure.cosmosdb.IndexingDirective;
 import com.microsoft.azure.cosmosdb.IndexingMode;
 import com.microsoft.azure.cosmosdb.IndexingPolicy;
 import com.microsoft.azure.cosmosdb.RequestOptions;
-import com.microsoft.azure.cosmosdb.ResourceResponse;
-import com.microsoft.azure.cosmosdb.SqlParameter;
-import com.microsoft.azure.cosmosdb.SqlParameterCollection;
 import com.microsoft.azure.cosmosdb.SqlQuerySpec;
-import com.microsoft.azure.cosmosdb.rx.AsyncDocumentClient;
+import com.microsoft.azure.cosmosdb.sample.bulk.WriteBehindQueue;
+import com.microsoft.azure.cosmosdb.sample.client.AccountStores;
+import com.microsoft.azure.cosmosdb.sample.consistency.ConsistencyRouter;
+import com.microsoft.azure.cosmosdb.sample.provision.ProvisioningPipeline;
+import com.microsoft.azure.cosmosdb.sample.store.AccountStore;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+import com.microsoft.azure.cosmosdb.sample.throttle.RateLimitedDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.throttle.RateLimiterOptions;
 import rx.Observable;
 
-public class IndexManager {
+public class IndexManager implements AutoCloseable {
     // CosmosDB will, by default, create a HASH index for every numeric and string field
     // This default index policy is best for;
     // - Equality queries against strings
@@ -65,26 +70,42 @@ public class IndexManager {
     // 3. Use lazy (instead of consistent) indexing
     // 4. Exclude specified paths from document index
 
-    public static AsyncDocumentClient client;
+    private final AccountStore account;
+    private final RateLimitedDocumentStore store;
+    private final DocumentStore documents;
+    private final WriteBehindQueue writes;
+    private final List<DocumentStore> levelAccounts = new CopyOnWriteArrayList<>();
     private static final String databaseName = "IndexManagement";
     public String databaseUri = "dbs/" + databaseName;
-    final CountDownLatch successfulCompletionLatch = new CountDownLatch(1);
     private FeedOptions queryOptions = new FeedOptions();
 
     public IndexManager(){   
-        client = new AsyncDocumentClient.Builder()
-        .withServiceEndpoint(AccountSettings.HOST)
-        .withMasterKey(AccountSettings.MASTER_KEY)
-        .withConnectionPolicy(ConnectionPolicy.GetDefault())
-        .withConsistencyLevel(ConsistencyLevel.Session)
-        .build();
-
-        cleanUpGeneratedDatabases();
-        
-        Database createdDatabase = new Database();
-        createdDatabase.setId(databaseName);
-        createdDatabase = client.createDatabase(createdDatabase, null).toBlocking().single().getResource();
-        
+        // ACCOUNT_HOST=inmemory runs the exercises against a local stand-in that honours
+        // the same indexing policies; see AccountStores.
+        account = AccountStores.fromEnvironment(AccountSettings.HOST, AccountSettings.MASTER_KEY);
+        // Documents and queries go through a limiter that keeps under the collection's
+        // throughput and retries 429s after the interval the service asks for.
+        store = new RateLimitedDocumentStore(account, RateLimiterOptions.fromEnvironment());
+        // Each exercise queries for the document it has just created, so documents and
+        // queries carry the session token of this sample's own writes: the queries see them
+        // without waiting on every other writer sharing the client.
+        documents = new ConsistencyRouter(store, level ->
+                store.over(accountAt(level)))
+                .forOperation("IndexManager", databaseName);
+        // Creates are queued and sent in batches, a few at a time, so a burst of them doesn't
+        // turn into a burst of requests; see WriteBehindOptions for the flush thresholds.
+        writes = new WriteBehindQueue(documents);
+
+        Database databaseDefinition = new Database();
+        databaseDefinition.setId(databaseName);
+
+        // Each stage completes on the service's response, so the exercises can use the
+        // database as soon as the constructor returns.
+        ProvisioningPipeline pipeline = new ProvisioningPipeline();
+        pipeline.addStage("clean up", this::cleanUpGeneratedDatabases);
+        pipeline.addStage("database", () -> account.createDatabase(databaseDefinition, null), "clean up");
+        System.out.println(pipeline.run().toBlocking().single());
+
         queryOptions.setMaxItemCount(500);
         queryOptions.setEnableCrossPartitionQuery(true);   
     }
@@ -113,7 +134,6 @@ public class IndexManager {
         String collectionUri = CreateCollection("UseManualIndexing", indexingPolicy);
         
         //Create a document with default indexing
-        TimeUnit.SECONDS.sleep(3);
         String doc1JsonString = "{'id':'doc3','order':'003','contact':'phone'}";
         CreateDocument(collectionUri, doc1JsonString, null);
 
@@ -133,10 +153,12 @@ public class IndexManager {
         */ 
         String collectionUri = CreateCollection("UseLazyIndexing", indexingPolicy);
 
-        TimeUnit.SECONDS.sleep(3);
         String doc1JsonString = "{'id':'doc5','order':'005','contact':'text'}";
         CreateDocument(collectionUri, doc1JsonString, null);
 
+        // A lazy index is brought up to date in the background after the write returns, so
+        // the document may not be found straight away; wait up to 10 seconds for it.
+        WaitForIndexing(collectionUri, "SELECT * FROM root r WHERE r.contact='text'", 10);
         OutputResults(collectionUri, "SELECT * FROM root r WHERE r.contact='text'");
     }
 
@@ -149,7 +171,6 @@ public class IndexManager {
         */ 
         
         String collectionUri = CreateCollection("ExcludePathsFromIndex", indexingPolicy);
-        TimeUnit.SECONDS.sleep(5);
         String doc1JsonString = "{'id':'doc6','order':'006','contact':'text','searchable':'value1','nonsearchable':'value2'}";
         CreateDocument(collectionUri, doc1JsonString, null);
 
@@ -158,52 +179,86 @@ public class IndexManager {
     }
 
     private void OutputResults(String collectionLink, String queryText) throws InterruptedException{
-        TimeUnit.SECONDS.sleep(2);
-        Observable<FeedResponse<Document>> queryObservable = client.queryDocuments(collectionLink,
-        queryText, queryOptions);
+        // Send the queued creates first, so the query sees the documents.
+        writes.flush();
+        Observable<FeedPage<Document>> queryObservable = documents.queryDocuments(collectionLink,
+        new SqlQuerySpec(queryText), queryOptions);
 
         String callingMethodName = Thread.currentThread().getStackTrace()[2].getMethodName();
         
-        queryObservable.subscribe(queryResultPage -> {
+        queryObservable.toBlocking().forEach(queryResultPage -> {
             System.out.println(callingMethodName + ": Got a page of query result with " + 
             queryResultPage.getResults().size() + " document(s)" + " and request charge of \u001B[46m \u001B[30m " + 
             queryResultPage.getRequestCharge() + " \u001B[0m \u001B[40m");
         });
     }
-    private void cleanUpGeneratedDatabases() {
+    private void WaitForIndexing(String collectionLink, String queryText, long timeoutSeconds) throws InterruptedException{
+        // Re-run the query until it finds a document or the time is up. Each attempt is
+        // charged like any other query, so poll sparingly.
+        writes.flush();
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (CountResults(collectionLink, queryText) == 0 && System.nanoTime() < deadlineNanos) {
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+    }
+    private int CountResults(String collectionLink, String queryText){
+        return documents.queryDocuments(collectionLink, new SqlQuerySpec(queryText), queryOptions)
+                .map(queryResultPage -> queryResultPage.getResults().size())
+                .reduce(0, Integer::sum)
+                .toBlocking().single();
+    }
+    private Observable<?> cleanUpGeneratedDatabases() {
 
         String[] allDatabaseIds = { databaseName };
 
-        for (String id : allDatabaseIds) {
-            try {
-                List<FeedResponse<Database>> feedResponsePages = client
-                        .queryDatabases(new SqlQuerySpec("SELECT * FROM root r WHERE r.id=@id",
-                                new SqlParameterCollection(new SqlParameter("@id", id))), null)
-                        .toList().toBlocking().single();
-
-                if (!feedResponsePages.get(0).getResults().isEmpty()) {
-                    Database res = feedResponsePages.get(0).getResults().get(0);
-                    client.deleteDatabase("dbs/" + res.getId(), null).toBlocking().single();
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        // Delete by link rather than looking the database up with a query first; a
+        // database that doesn't exist is already cleaned up.
+        return Observable.from(allDatabaseIds)
+                .flatMap(id -> account.deleteDatabase("dbs/" + id, null)
+                        .map(response -> id)
+                        .onErrorResumeNext(e -> {
+                            DocumentClientException clientException = Throttling.findClientException(e);
+                            return clientException != null && clientException.getStatusCode() == 404
+                                    ? Observable.just(id) : Observable.error(e);
+                        }));
     }
     private void CreateDocument(String collectionUri, String jsonString, RequestOptions documentRequestOptions) throws InterruptedException{
         //Create a new document.  
         Document document = new Document(jsonString);
         
-        Observable<ResourceResponse<Document>> createDocumentObservable = 
-        client.createDocument(collectionUri, document, documentRequestOptions, false);
+        // Blocks only while the write-behind queue is full; the document is written with the
+        // next batch, and OutputResults flushes the queue before querying.
+        Observable<StoreResponse<Document>> createDocumentObservable = 
+        writes.create(collectionUri, document, documentRequestOptions);
 
-        createDocumentObservable.single() // We know there is only single result
-        .subscribe(documentResourceResponse -> {
-            System.out.println(documentResourceResponse.getActivityId() + " has been created.");
-        }, error -> {
-            System.err.println(
-                    "an error occurred while creating the document: actual cause: " + error.getMessage());
-        });
+        createDocumentObservable.subscribe(
+                documentResourceResponse -> System.out.println(
+                        documentResourceResponse.getActivityId() + " has been created."),
+                error -> System.err.println(
+                        "an error occurred while creating the document: actual cause: " + error.getMessage()));
+    }
+
+    // Sends the queued writes and hands the clients back to the pool, closing any no other
+    // manager is using.
+    @Override
+    public void close(){
+        writes.close();
+        for (DocumentStore levelAccount : levelAccounts) {
+            AccountStores.release(levelAccount);
+        }
+        AccountStores.release(account);
+    }
+
+    private DocumentStore accountAt(ConsistencyLevel level){
+        DocumentStore levelAccount = AccountStores.fromEnvironment(AccountSettings.HOST, AccountSettings.MASTER_KEY, level);
+        levelAccounts.add(levelAccount);
+        return levelAccount;
+    }
+
+    public void OutputWriteMetrics(){
+        // Writes accepted, coalesced and written, batches by what flushed them, and the
+        // queue depth, queue wait, flush latency and producer blocking percentiles.
+        System.out.println(writes.getMetrics());
     }
     private String CreateCollection(String collectionName, IndexingPolicy indexingPolicy) throws InterruptedException{
  
@@ -215,15 +270,15 @@ public class IndexManager {
             collectionDefinition.setIndexingPolicy(indexingPolicy);
         }
         
-        client.createCollection(databaseUri, collectionDefinition, null).subscribe(collectionResourceResponse -> {
-            System.out.println(collectionDefinition.getId() + " has been created with indexing policy " + collectionDefinition.getIndexingPolicy().getIndexingMode());            
-            successfulCompletionLatch.countDown();
-        }, error -> {
+        // Returns once the service has responded; a fresh wait for every collection, where
+        // a shared latch would only hold up the first.
+        try {
+            account.createCollection(databaseUri, collectionDefinition, null).toBlocking().single();
+            System.out.println(collectionDefinition.getId() + " has been created with indexing policy " + collectionDefinition.getIndexingPolicy().getIndexingMode());
+        } catch (RuntimeException error) {
             System.err.println(
                     "an error occurred while creating the collection: actual cause: " + error.getMessage());
-        });
-
-        successfulCompletionLatch.await();
+        }
 
         return collectionUri;
     }
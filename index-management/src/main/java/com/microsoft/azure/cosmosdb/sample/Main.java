@@ -41,6 +41,8 @@ public class Main {
 
         }catch(Exception ex){
             System.out.println("An error occurred.");
+        }finally{
+            indexManager.close();
         }  
     }
 }
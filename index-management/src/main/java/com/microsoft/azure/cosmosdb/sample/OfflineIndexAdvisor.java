@@ -0,0 +1,75 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.cosmosdb.sample.bulk.JsonDocumentFiles;
+import com.microsoft.azure.cosmosdb.sample.index.IndexingAdvice;
+import com.microsoft.azure.cosmosdb.sample.index.IndexingPolicyAdvisor;
+import com.microsoft.azure.cosmosdb.sample.index.IndexingWorkload;
+
+public class OfflineIndexAdvisor {
+    /*
+     * Compares indexing policies for a recorded workload without an account: the queries
+     * and their execution counts come from the workload file, and the documents in the
+     * sample directory stand in for the collection.
+     *
+     * @param args [sample directory] [workload file] [documents written] [collection size] [allow lazy]
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "../workshop-documents/Sample Data/customer_data");
+        Path workloadFile = Paths.get(args.length > 1 ? args[1] : "src/main/resources/workload.txt");
+        long writes = args.length > 2 ? Long.parseLong(args[2]) : 10000;
+        long collectionSize = args.length > 3 ? Long.parseLong(args[3]) : 1000000;
+        boolean allowLazy = args.length > 4 && Boolean.parseBoolean(args[4]);
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<JsonNode> samples = JsonDocumentFiles.fromDirectory(directory)
+                .map(document -> {
+                    try {
+                        return mapper.readTree(document.toJson());
+                    } catch (Exception e) {
+                        throw new IllegalArgumentException(e);
+                    }
+                })
+                .toList().toBlocking().single();
+
+        IndexingWorkload workload = IndexingWorkload.fromFile(workloadFile);
+        workload.setWriteCount(writes);
+
+        IndexingPolicyAdvisor advisor = new IndexingPolicyAdvisor();
+        advisor.setCollectionDocumentCount(collectionSize);
+        advisor.setAllowLazyIndexing(allowLazy);
+        advisor.addWorkloadCandidates(workload, samples);
+
+        IndexingAdvice advice = advisor.evaluate(workload, samples);
+        System.out.println(samples.size() + " sample document(s), " + workload.getQueries().size()
+                + " query(s), " + writes + " write(s), " + collectionSize + " document(s) in the collection");
+        System.out.println(advice);
+    }
+}
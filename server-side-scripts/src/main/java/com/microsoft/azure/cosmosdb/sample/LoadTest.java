@@ -0,0 +1,118 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import com.microsoft.azure.cosmosdb.Database;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
+import com.microsoft.azure.cosmosdb.DocumentCollection;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.sample.bulk.BulkLoadResult;
+import com.microsoft.azure.cosmosdb.sample.bulk.BulkLoader;
+import com.microsoft.azure.cosmosdb.sample.client.AccountStores;
+import com.microsoft.azure.cosmosdb.sample.load.FamilyDocumentGenerator;
+import com.microsoft.azure.cosmosdb.sample.load.FamilyWorkload;
+import com.microsoft.azure.cosmosdb.sample.load.LoadGenerator;
+import com.microsoft.azure.cosmosdb.sample.load.LoadOptions;
+import com.microsoft.azure.cosmosdb.sample.load.LoadReport;
+import com.microsoft.azure.cosmosdb.sample.script.StoredProcedureRegistry;
+import com.microsoft.azure.cosmosdb.sample.store.AccountStore;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+
+import rx.Observable;
+
+public class LoadTest {
+    private static final String databaseName = "LoadTest";
+    private static final String collectionName = "families";
+    private static final String simpleScriptFile = "src/main/resources/JS/SimpleScript.js";
+
+    /*
+     * Puts a sustained, open-loop load on a collection of synthetic family documents: the
+     * exercises' queries, document creates and SimpleScript executions in the given mix, at
+     * the given rate. Prints latency percentiles and RU per operation type, and the RU/s the
+     * rate needs. The collection (LoadTest/families) is created if it does not exist and
+     * seeded with the given number of documents first. Runs against ACCOUNT_HOST, which may
+     * be "inmemory" (size it with EMULATOR_THROUGHPUT and EMULATOR_LATENCY_MS).
+     *
+     * @param args [ops/sec] [duration s] [mix, e.g. one-filter=30,create=20,script=5] [seed documents] [max outstanding]
+     */
+    public static void main(String[] args) throws Exception {
+        double operationsPerSecond = args.length > 0 ? Double.parseDouble(args[0]) : 100;
+        long durationSeconds = args.length > 1 ? Long.parseLong(args[1]) : 60;
+        String mix = args.length > 2 ? args[2]
+                : "one-filter=25,two-filters=15,range=10,single-join=10,double-join=5,create=30,script=5";
+        int seedDocuments = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int maxOutstanding = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+
+        AccountStore account = AccountStores.fromEnvironment(AccountSettings.HOST, AccountSettings.MASTER_KEY);
+        String collectionLink = "/dbs/" + databaseName + "/colls/" + collectionName;
+        Database database = new Database();
+        database.setId(databaseName);
+        DocumentCollection collection = new DocumentCollection();
+        collection.setId(collectionName);
+        ignoreConflict(account.createDatabase(database, null)).toBlocking().lastOrDefault(null);
+        ignoreConflict(account.createCollection("/dbs/" + databaseName, collection, null))
+                .toBlocking().lastOrDefault(null);
+
+        StoredProcedure script = new StoredProcedure();
+        script.setId("SimpleScript");
+        script.setBody(new String(Files.readAllBytes(Paths.get(simpleScriptFile)), StandardCharsets.UTF_8));
+        String scriptLink = new StoredProcedureRegistry(account).register(collectionLink, script).toBlocking().single();
+
+        FamilyDocumentGenerator generator = new FamilyDocumentGenerator(System.nanoTime());
+        if (seedDocuments > 0) {
+            BulkLoadResult seeded = new BulkLoader(account)
+                    .load(collectionLink, Observable.range(0, seedDocuments).map(i -> generator.next()))
+                    .toBlocking().single();
+            System.out.println("Seeded: " + seeded);
+        }
+
+        LoadOptions options = new LoadOptions();
+        options.setTargetOperationsPerSecond(operationsPerSecond);
+        options.setDurationSeconds(durationSeconds);
+        options.setMaxOutstandingOperations(maxOutstanding);
+        LoadGenerator loadGenerator = new LoadGenerator(options);
+        FamilyWorkload workload = new FamilyWorkload(account, collectionLink, generator);
+        for (String entry : mix.split(",")) {
+            String[] nameAndWeight = entry.trim().split("=");
+            double weight = nameAndWeight.length > 1 ? Double.parseDouble(nameAndWeight[1]) : 1;
+            loadGenerator.addOperation(nameAndWeight[0], weight, workload.operation(nameAndWeight[0], scriptLink));
+        }
+
+        LoadReport report = loadGenerator.run();
+        System.out.println(report);
+        AccountStores.release(account);
+        System.exit(0);
+    }
+
+    private static Observable<?> ignoreConflict(Observable<?> request) {
+        return request.onErrorResumeNext(e -> {
+            DocumentClientException clientException = Throttling.findClientException(e);
+            return clientException != null && clientException.getStatusCode() == 409
+                    ? Observable.empty() : Observable.error(e);
+        });
+    }
+}
@@ -28,18 +28,36 @@ import java.io.PrintStream;
 public class Main {
     /*
      * 
-     * @param args
+     * @param args [exercise: RunSimpleScript, BulkLoadSampleData, BulkImportSampleData,
+     *             ProvisionSampleEnvironment or RunSimpleScriptConcurrently]
      */
     public static void main(String[] args) throws InterruptedException {   
         ScriptManager scriptManager = new ScriptManager();
+        String exercise = args.length > 0 ? args[0] : "RunSimpleScript";
         
         try{
-            //Add ScriptManager call here
-            scriptManager.RunSimpleScript();
+            switch (exercise) {
+            case "BulkLoadSampleData":
+                scriptManager.BulkLoadSampleData(32);
+                break;
+            case "BulkImportSampleData":
+                scriptManager.BulkImportSampleData();
+                break;
+            case "ProvisionSampleEnvironment":
+                scriptManager.ProvisionSampleEnvironment(32);
+                break;
+            case "RunSimpleScriptConcurrently":
+                scriptManager.RunSimpleScriptConcurrently(1000, 16, 32);
+                break;
+            default:
+                scriptManager.RunSimpleScript();
+            }
 
         }catch(Exception ex){
             System.out.println("An error occurred. \n" + ex.getMessage() + "\n ");
             ex.printStackTrace(System.out);
+        }finally{
+            scriptManager.close();
         }  
     }
 }
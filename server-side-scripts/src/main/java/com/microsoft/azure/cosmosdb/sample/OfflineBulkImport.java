@@ -0,0 +1,73 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.cosmosdb.sample;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.StoredProcedure;
+import com.microsoft.azure.cosmosdb.sample.bulk.BulkLoadResult;
+import com.microsoft.azure.cosmosdb.sample.bulk.JsonDocumentFiles;
+import com.microsoft.azure.cosmosdb.sample.bulk.StoredProcedureBulkImporter;
+import com.microsoft.azure.cosmosdb.sample.store.BulkImportProcedure;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+
+import rx.Observable;
+
+public class OfflineBulkImport {
+    /*
+     * Runs the stored procedure import path without an account. The in-process store runs
+     * BulkImportProcedure in place of JS/BulkImport.js and cuts each execution short once it
+     * has spent the given RU, the way the service does when a script nears its time limit.
+     *
+     * @param args [directory or file] [copies] [RU per script execution] [provisioned RU/s]
+     */
+    public static void main(String[] args) {
+        Path source = Paths.get(args.length > 0 ? args[0] : "src/main/resources/Data");
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        double scriptChargeLimit = args.length > 2 ? Double.parseDouble(args[2]) : 400;
+        double provisionedThroughput = args.length > 3 ? Double.parseDouble(args[3]) : 10000;
+
+        String collectionLink = "/dbs/ServerSideScripts/colls/jsexamples";
+        InMemoryDocumentStore store = new InMemoryDocumentStore(provisionedThroughput, 0);
+        store.setScriptChargeLimit(scriptChargeLimit);
+        store.registerStoredProcedureHandler("BulkImport", new BulkImportProcedure());
+
+        StoredProcedure storedProcedure = new StoredProcedure();
+        storedProcedure.setId("BulkImport");
+        store.createStoredProcedure(collectionLink, storedProcedure, null).toBlocking().single();
+
+        Observable<Document> documents = Observable.range(0, copies)
+                .concatMap(copy -> JsonDocumentFiles.fromPath(source)
+                        .doOnNext(document -> document.setId(UUID.randomUUID().toString())));
+
+        StoredProcedureBulkImporter importer = new StoredProcedureBulkImporter(store);
+        BulkLoadResult result = importer.importDocuments(collectionLink + "/sprocs/BulkImport", documents, null)
+                .toBlocking().single();
+        System.out.println(result + ", final batch size " + importer.getBatchSizer().getBatchSize());
+        System.out.println(store.getDocumentCount(collectionLink) + " document(s) in " + collectionLink);
+    }
+}
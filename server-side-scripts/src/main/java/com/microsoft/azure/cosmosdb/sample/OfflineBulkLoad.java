@@ -0,0 +1,70 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.cosmosdb.sample;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.sample.bulk.BulkLoadOptions;
+import com.microsoft.azure.cosmosdb.sample.bulk.BulkLoadResult;
+import com.microsoft.azure.cosmosdb.sample.bulk.BulkLoader;
+import com.microsoft.azure.cosmosdb.sample.bulk.JsonDocumentFiles;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+
+import rx.Observable;
+
+public class OfflineBulkLoad {
+    /*
+     * Benchmarks the bulk loader without an account by loading a directory of JSON documents
+     * (or a JSON array or NDJSON file, streamed a document at a time) into an in-process
+     * store that charges and throttles like a provisioned collection.
+     *
+     * @param args [directory or file] [copies] [maxConcurrency] [provisioned RU/s] [latency ms]
+     */
+    public static void main(String[] args) {
+        Path source = Paths.get(args.length > 0 ? args[0] : "src/main/resources/Data");
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int maxConcurrency = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        double provisionedThroughput = args.length > 3 ? Double.parseDouble(args[3]) : 10000;
+        long latencyMillis = args.length > 4 ? Long.parseLong(args[4]) : 5;
+
+        String collectionLink = "/dbs/ServerSideScripts/colls/jsexamples";
+        InMemoryDocumentStore store = new InMemoryDocumentStore(provisionedThroughput, latencyMillis);
+
+        BulkLoadOptions options = new BulkLoadOptions();
+        options.setMaxConcurrency(maxConcurrency);
+        BulkLoader loader = new BulkLoader(store, options);
+
+        // Each pass over the source re-issues the same documents under fresh ids.
+        Observable<Document> documents = Observable.range(0, copies)
+                .concatMap(copy -> JsonDocumentFiles.fromPath(source)
+                        .doOnNext(document -> document.setId(UUID.randomUUID().toString())));
+
+        BulkLoadResult result = loader.load(collectionLink, documents).toBlocking().single();
+        System.out.println(result);
+        System.out.println(store.getDocumentCount(collectionLink) + " document(s) in " + collectionLink);
+    }
+}
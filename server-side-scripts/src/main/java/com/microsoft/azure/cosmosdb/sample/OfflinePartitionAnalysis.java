@@ -0,0 +1,72 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.cosmosdb.sample.bulk.JsonDocumentFiles;
+import com.microsoft.azure.cosmosdb.sample.partition.PartitionKeyAnalyzer;
+import com.microsoft.azure.cosmosdb.sample.partition.PartitionKeyReport;
+import com.microsoft.azure.cosmosdb.sample.partition.RequestLog;
+
+public class OfflinePartitionAnalysis {
+    /*
+     * Compares candidate partition keys for the family documents without an account. The
+     * documents are hash-partitioned on each key in turn and the request log replayed
+     * against them; the best candidate is printed first.
+     *
+     * @param args [directory] [request log] [physical partitions] [provisioned RU/s] [key paths, comma separated]
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "src/main/resources/Data");
+        Path requestLogFile = Paths.get(args.length > 1 ? args[1] : "src/main/resources/request-log.tsv");
+        int partitions = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        double provisionedThroughput = args.length > 3 ? Double.parseDouble(args[3]) : 400;
+        List<String> candidates = Arrays.asList(
+                (args.length > 4 ? args[4] : "/id,/FamilyId,/LastName,/Address/State").split(","));
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<JsonNode> documents = JsonDocumentFiles.fromDirectory(directory)
+                .map(document -> {
+                    try {
+                        return mapper.readTree(document.toJson());
+                    } catch (Exception e) {
+                        throw new IllegalArgumentException(e);
+                    }
+                })
+                .toList().toBlocking().single();
+
+        PartitionKeyAnalyzer analyzer = new PartitionKeyAnalyzer();
+        analyzer.setPhysicalPartitionCount(partitions);
+        analyzer.setProvisionedThroughput(provisionedThroughput);
+        for (PartitionKeyReport report : analyzer.analyze(candidates, documents, RequestLog.fromFile(requestLogFile))) {
+            System.out.println(report);
+            System.out.println();
+        }
+    }
+}
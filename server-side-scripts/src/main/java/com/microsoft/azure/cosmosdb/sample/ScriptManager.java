@@ -22,76 +22,101 @@
  */
 package com.microsoft.azure.cosmosdb.sample;
 
-import java.util.List;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-import com.microsoft.azure.cosmosdb.ConnectionPolicy;
-import com.microsoft.azure.cosmosdb.ConsistencyLevel;
+import java.util.ArrayList;
+import java.util.List;
+
 import com.microsoft.azure.cosmosdb.Database;
 import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.DocumentClientException;
 import com.microsoft.azure.cosmosdb.DocumentCollection;
 import com.microsoft.azure.cosmosdb.FeedOptions;
-import com.microsoft.azure.cosmosdb.FeedResponse;
-import com.microsoft.azure.cosmosdb.ResourceResponse;
-import com.microsoft.azure.cosmosdb.SqlParameter;
-import com.microsoft.azure.cosmosdb.SqlParameterCollection;
-import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.PartitionKey;
 import com.microsoft.azure.cosmosdb.StoredProcedure;
-import com.microsoft.azure.cosmosdb.rx.AsyncDocumentClient;
+import com.microsoft.azure.cosmosdb.sample.client.AccountStores;
+import com.microsoft.azure.cosmosdb.sample.bulk.BulkLoadOptions;
+import com.microsoft.azure.cosmosdb.sample.bulk.BulkLoadResult;
+import com.microsoft.azure.cosmosdb.sample.bulk.BulkLoader;
+import com.microsoft.azure.cosmosdb.sample.bulk.JsonDocumentFiles;
+import com.microsoft.azure.cosmosdb.sample.bulk.StoredProcedureBulkImporter;
+import com.microsoft.azure.cosmosdb.sample.provision.ProvisioningPipeline;
+import com.microsoft.azure.cosmosdb.sample.provision.ProvisioningReport;
+import com.microsoft.azure.cosmosdb.sample.script.StoredProcedureExecutor;
+import com.microsoft.azure.cosmosdb.sample.script.StoredProcedureRegistry;
+import com.microsoft.azure.cosmosdb.sample.store.AccountStore;
+import com.microsoft.azure.cosmosdb.sample.store.StoreResponse;
+import com.microsoft.azure.cosmosdb.sample.store.Throttling;
+import com.microsoft.azure.cosmosdb.sample.throttle.RateLimitedDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.throttle.RateLimiterOptions;
+import com.microsoft.azure.cosmosdb.sample.throttle.RequestPriority;
 
 import org.apache.commons.io.FilenameUtils;
 
 import rx.Observable;
 
-public class ScriptManager {
+public class ScriptManager implements AutoCloseable {
 
-    public static AsyncDocumentClient client;
+    private final AccountStore account;
+    private final RateLimitedDocumentStore store;
+    private final StoredProcedureRegistry registry;
     
     // Assign a variable for your database & collection 
     private static final String databaseName = "ServerSideScripts";
     private static final String collectionName = "jsexamples";
 
+    private static final String sampleDataDirectory = "src/main/resources/Data";
+    private static final String bulkImportScriptFile = "src/main/resources/JS/BulkImport.js";
+    private static final String simpleScriptFile = "src/main/resources/JS/SimpleScript.js";
+
     private String collectionLink;
-    final CountDownLatch successfulCompletionLatch = new CountDownLatch(1);
     
     public ScriptManager() throws InterruptedException{
-        client = new AsyncDocumentClient.Builder()
-        .withServiceEndpoint(AccountSettings.HOST)
-        .withMasterKey(AccountSettings.MASTER_KEY)
-        .withConnectionPolicy(ConnectionPolicy.GetDefault())
-        .withConsistencyLevel(ConsistencyLevel.Session)
-        .build();
-
-        cleanUpGeneratedDatabases();
+        // A real account, or with ACCOUNT_HOST=inmemory a local one that runs the scripts
+        // as Java stand-ins; see AccountStores.
+        account = AccountStores.fromEnvironment(AccountSettings.HOST, AccountSettings.MASTER_KEY);
+        // Script executions and bulk writes share one limiter sized to the collection's
+        // throughput; the bulk paths run at background priority.
+        store = new RateLimitedDocumentStore(account, RateLimiterOptions.fromEnvironment());
+        // Scripts are only uploaded when the collection doesn't already have the same body.
+        registry = new StoredProcedureRegistry(account);
 
         collectionLink = String.format("/dbs/%s/colls/%s", databaseName, collectionName);
         
-        Database createdDatabase = new Database();
-        createdDatabase.setId(databaseName);
-        createdDatabase = client.createDatabase(createdDatabase, null).toBlocking().single().getResource(); 
-        TimeUnit.SECONDS.sleep(3);
+        Database databaseDefinition = new Database();
+        databaseDefinition.setId(databaseName);
    
         //Create a new collection
         DocumentCollection collectionDefinition = new DocumentCollection();
         collectionDefinition.setId(collectionName);
         
-        Observable<ResourceResponse<DocumentCollection>> createCollectionObservable = 
-        client.createCollection("/dbs/" + databaseName, collectionDefinition, null);
-
-        createCollectionObservable.single() // We know there is only single result
-        .subscribe(collectionResourceResponse -> {           
-            successfulCompletionLatch.countDown();
-        }, error -> {
-            System.err.println(
-                    "an error occurred while creating the collection: actual cause: " + error.getMessage());
-        });
-
-        successfulCompletionLatch.await();
+        // Each stage starts on the response of the one before it instead of after a sleep.
+        ProvisioningPipeline pipeline = new ProvisioningPipeline();
+        pipeline.addStage("clean up", this::cleanUpGeneratedDatabases);
+        pipeline.addStage("database", () -> account.createDatabase(databaseDefinition, null), "clean up");
+        pipeline.addStage("collection",
+                () -> account.createCollection("/dbs/" + databaseName, collectionDefinition, null), "database");
+        System.out.println(pipeline.run().toBlocking().single());
+    }
+
+    public ProvisioningReport ProvisionSampleEnvironment(int maxConcurrency) {
+        // Register the bulk import script and seed the collection with Data/*.json at the
+        // same time; neither needs the other, only the collection the constructor created.
+        BulkLoadOptions options = new BulkLoadOptions();
+        options.setMaxConcurrency(maxConcurrency);
+        BulkLoader loader = new BulkLoader(store.withPriority(RequestPriority.BACKGROUND), options);
+
+        ProvisioningPipeline pipeline = new ProvisioningPipeline();
+        pipeline.addStage("bulk import script", () -> Observable.fromCallable(() -> readScript(bulkImportScriptFile))
+                .flatMap(storedProcedure -> registry.register(collectionLink, storedProcedure)));
+        pipeline.addStage("sample data", () -> loader.loadDirectory(collectionLink, Paths.get(sampleDataDirectory)));
+
+        ProvisioningReport report = pipeline.run().toBlocking().single();
+        System.out.println("ProvisionSampleEnvironment:" + System.lineSeparator() + report);
+        return report;
     }
 
     public void RunSimpleScript() throws IOException, InterruptedException{
@@ -104,36 +129,91 @@ public class ScriptManager {
             //Add step 2 code here.
         
         // 3. Run the script. Pass "Hello, " as parameter. 
-        TimeUnit.SECONDS.sleep(1);
+        //    Wait on each response (toBlocking().single()) so the script runs only after
+        //    steps 1 and 2 have completed.
         // The script will take the 1st document and echo: Hello, <document as json>.
 
             //Add step 3 code here.
     }
+
+    public void BulkLoadSampleData(int maxConcurrency) {
+        // Seed the collection with the family documents in Data/*.json, keeping at most
+        // maxConcurrency writes in flight and backing off whenever the service throttles.
+        BulkLoadOptions options = new BulkLoadOptions();
+        options.setMaxConcurrency(maxConcurrency);
+        BulkLoader loader = new BulkLoader(store.withPriority(RequestPriority.BACKGROUND), options);
+
+        BulkLoadResult result = loader.loadDirectory(collectionLink, Paths.get(sampleDataDirectory))
+                .toBlocking().single();
+        System.out.println("BulkLoadSampleData: " + result);
+    }
+
+    public void BulkImportSampleData() throws IOException {
+        // Register the bulk import script, then send Data/*.json to it in batches. Batch
+        // sizes adapt to the RU and payload size of each call, and whenever the script
+        // stops early the importer resumes from the first document it did not create.
+        // Registering again after ProvisionSampleEnvironment costs nothing.
+        String sprocLink = registry.register(collectionLink, readScript(bulkImportScriptFile)).toBlocking().single();
+
+        StoredProcedureBulkImporter importer = new StoredProcedureBulkImporter(store.withPriority(RequestPriority.BACKGROUND));
+        BulkLoadResult result = importer.importDocuments(sprocLink,
+                JsonDocumentFiles.fromDirectory(Paths.get(sampleDataDirectory)), null).toBlocking().single();
+        System.out.println("BulkImportSampleData: " + result + ", final batch size "
+                + importer.getBatchSizer().getBatchSize());
+    }
+    
+    public void RunSimpleScriptConcurrently(int executions, int partitionKeyCount, int maxConcurrency) throws IOException {
+        // Run the script many times at once, spread over partitionKeyCount partition keys.
+        // Executions on one key are sent one after another in order; different keys run in
+        // parallel, up to maxConcurrency executions at a time.
+        String sprocLink = registry.register(collectionLink, readScript(simpleScriptFile)).toBlocking().single();
+        StoredProcedureExecutor executor = new StoredProcedureExecutor(store, maxConcurrency);
+
+        List<Observable<StoreResponse<String>>> calls = new ArrayList<>(executions);
+        for (int i = 0; i < executions; i++) {
+            calls.add(executor.execute(sprocLink, new PartitionKey("key" + (i % partitionKeyCount)),
+                    new Object[] { "Hello, " }));
+        }
+        long startNanos = System.nanoTime();
+        Observable.merge(calls, executions).toBlocking().lastOrDefault(null);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.println(String.format("RunSimpleScriptConcurrently: %d execution(s) in %.2f s (%.0f/s), %d failed, "
+                + "%.2f RU, at most %d queued", executor.getExecutedCount(), seconds, executor.getExecutedCount() / seconds,
+                executor.getFailedCount(), executor.getRequestCharge(), executor.getMaxQueuedCount()));
+    }
     
-    private void cleanUpGeneratedDatabases() {
+    // Hands the client back to the pool, closing it if no other manager is using it.
+    @Override
+    public void close(){
+        AccountStores.release(account);
+    }
+
+    private StoredProcedure readScript(String scriptFile) throws IOException {
+        StoredProcedure storedProcedure = new StoredProcedure();
+        storedProcedure.setId(FilenameUtils.getBaseName(scriptFile));
+        storedProcedure.setBody(new String(Files.readAllBytes(Paths.get(scriptFile)), StandardCharsets.UTF_8));
+        return storedProcedure;
+    }
+
+    private Observable<?> cleanUpGeneratedDatabases() {
         
         String[] allDatabaseIds = { databaseName };
 
-        for (String id : allDatabaseIds) {
-            try {
-                List<FeedResponse<Database>> feedResponsePages = client
-                        .queryDatabases(new SqlQuerySpec("SELECT * FROM root r WHERE r.id=@id",
-                                new SqlParameterCollection(new SqlParameter("@id", id))), null)
-                        .toList().toBlocking().single();
-
-                if (!feedResponsePages.get(0).getResults().isEmpty()) {
-                    Database res = feedResponsePages.get(0).getResults().get(0);
-                    client.deleteDatabase("dbs/" + res.getId(), null).toBlocking().single();
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        // Delete by link rather than looking the database up with a query first; a
+        // database that doesn't exist is already cleaned up.
+        return Observable.from(allDatabaseIds)
+                .flatMap(id -> account.deleteDatabase("dbs/" + id, null)
+                        .map(response -> id)
+                        .onErrorResumeNext(e -> {
+                            DocumentClientException clientException = Throttling.findClientException(e);
+                            return clientException != null && clientException.getStatusCode() == 404
+                                    ? Observable.just(id) : Observable.error(e);
+                        }));
     }
-    private void TryDeleteStoredProcedure(String sprocLink, String storedProcedureName){
-        Observable<ResourceResponse<StoredProcedure>> sprocObservable = client.deleteStoredProcedure(sprocLink, null);
-        sprocObservable.subscribe(spResultPage -> {
-            System.out.println("stored procedure deleted.");
-        });
+    private void TryDeleteStoredProcedure(String storedProcedureName){
+        // Wait for the delete, so a script registered right after is not deleted by it. A
+        // script that doesn't exist is already deleted.
+        registry.delete(collectionLink, storedProcedureName).toBlocking().single();
+        System.out.println("stored procedure deleted.");
     }
 }
\ No newline at end of file
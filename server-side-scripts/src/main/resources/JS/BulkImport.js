@@ -0,0 +1,49 @@
+// Copyright (c) Microsoft Corporation.  All rights reserved.
+
+/**
+* This is run as stored procedure and does the following:
+* - create the documents of the array passed in, one at a time and in order,
+* - stop as soon as the server no longer accepts requests from the script (it is about to
+*   reach its execution bound) and set the response to the number of documents created.
+* The caller resends the documents from that index onwards in its next call.
+*
+* @param {Object[]|String} docs - The documents to create, as an array or a JSON array string.
+*/
+function bulkImport(docs) {
+    var collection = getContext().getCollection();
+    var collectionLink = collection.getSelfLink();
+
+    // The number of documents created so far.
+    var count = 0;
+
+    if (typeof docs === "string") docs = JSON.parse(docs);
+    if (!docs) throw new Error("The array is undefined or null.");
+
+    var docsLength = docs.length;
+    if (docsLength == 0) {
+        getContext().getResponse().setBody(0);
+        return;
+    }
+
+    tryCreate(docs[count], callback);
+
+    function tryCreate(doc, callback) {
+        var isAccepted = collection.createDocument(collectionLink, doc, callback);
+
+        // If the request was not accepted the script is about to time out; report how far
+        // it got so the caller can resume from there.
+        if (!isAccepted) getContext().getResponse().setBody(count);
+    }
+
+    function callback(err, doc, options) {
+        if (err) throw err;
+
+        count++;
+
+        if (count >= docsLength) {
+            getContext().getResponse().setBody(count);
+        } else {
+            tryCreate(docs[count], callback);
+        }
+    }
+}
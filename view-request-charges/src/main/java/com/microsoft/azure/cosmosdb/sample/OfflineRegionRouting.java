@@ -0,0 +1,114 @@
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2018 Microsoft Corporation
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.cosmosdb.sample;
+
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.cosmosdb.Document;
+import com.microsoft.azure.cosmosdb.FeedOptions;
+import com.microsoft.azure.cosmosdb.SqlParameter;
+import com.microsoft.azure.cosmosdb.SqlParameterCollection;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.load.FamilyDocumentGenerator;
+import com.microsoft.azure.cosmosdb.sample.region.RegionRouter;
+import com.microsoft.azure.cosmosdb.sample.region.RegionRoutingOptions;
+import com.microsoft.azure.cosmosdb.sample.region.SimulatedGeoAccount;
+import com.microsoft.azure.cosmosdb.sample.region.SimulatedRegion;
+import com.microsoft.azure.cosmosdb.sample.store.InMemoryDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.telemetry.LogLinearHistogram;
+
+public class OfflineRegionRouting {
+    /*
+     * Routes a read-heavy workload across the regions of a simulated geo-replicated account
+     * with RegionRouter: a family document is created in the write region, then read back by
+     * id and by query from whichever region is fastest and has caught up with the write.
+     * Halfway through, the given region goes down until the end of the run. Prints the
+     * region ranking before and after, read latency and every region's statistics.
+     *
+     * @param args [regions as name=latency ms/replication lag ms, write region first] [duration s] [reads per write] [region to take down]
+     */
+    public static void main(String[] args) throws Exception {
+        String regionList = args.length > 0 ? args[0] : "West US=70/0,East US=2/40,North Europe=90/150";
+        long durationSeconds = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        int readsPerWrite = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String outageRegion = args.length > 3 ? args[3] : "East US";
+
+        String collectionLink = "/dbs/ViewRequestCharges/colls/families";
+        SimulatedGeoAccount account = new SimulatedGeoAccount(new InMemoryDocumentStore());
+        for (String region : regionList.split(",")) {
+            String[] nameAndTimes = region.split("=");
+            String[] times = nameAndTimes[1].split("/");
+            account.addRegion(nameAndTimes[0].trim(), Long.parseLong(times[0].trim()),
+                    times.length > 1 ? Long.parseLong(times[1].trim()) : 0);
+        }
+
+        RegionRoutingOptions options = new RegionRoutingOptions();
+        options.setProbeCollectionLink(collectionLink);
+        options.setProbeIntervalMillis(1000);
+        options.setRequestTimeoutMillis(1000);
+        try (RegionRouter router = new RegionRouter(account.getWriteRegion(), account.getRegions(), options)) {
+            System.out.println("Regions as configured: " + router.getPreferredRegions());
+            router.start();
+            TimeUnit.SECONDS.sleep(1);
+            System.out.println("Regions after probing: " + router.getPreferredRegions());
+
+            FamilyDocumentGenerator generator = new FamilyDocumentGenerator(1);
+            FeedOptions feedOptions = new FeedOptions();
+            feedOptions.setEnableCrossPartitionQuery(true);
+            LogLinearHistogram readMillis = new LogLinearHistogram(0.01);
+            long startNanos = System.nanoTime();
+            long endNanos = startNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+            boolean outage = false;
+            long writes = 0;
+            while (System.nanoTime() < endNanos) {
+                if (!outage && System.nanoTime() - startNanos > (endNanos - startNanos) / 2) {
+                    SimulatedRegion region = account.getRegion(outageRegion);
+                    if (region != null) {
+                        System.out.println("Taking " + outageRegion + " down");
+                        region.setAvailable(false);
+                    }
+                    outage = true;
+                }
+                Document created = router.createDocument(collectionLink, generator.next(), null)
+                        .toBlocking().single().getResource();
+                writes++;
+                for (int read = 0; read < readsPerWrite; read++) {
+                    long readStartNanos = System.nanoTime();
+                    if (read % 2 == 0) {
+                        router.readDocument(collectionLink + "/docs/" + created.getId(), null).toBlocking().single();
+                    } else {
+                        SqlQuerySpec query = new SqlQuerySpec("SELECT * FROM c WHERE c.id = @id",
+                                new SqlParameterCollection(new SqlParameter("@id", created.getId())));
+                        router.queryDocuments(collectionLink, query, feedOptions).toBlocking().last();
+                    }
+                    readMillis.record((System.nanoTime() - readStartNanos) / 1e6);
+                }
+            }
+
+            System.out.println("Regions at the end: " + router.getPreferredRegions());
+            System.out.printf("%d write(s), %d read(s): read p50 %.1f ms, p99 %.1f ms%n", writes,
+                    readMillis.getCount(), readMillis.getValueAtPercentile(50), readMillis.getValueAtPercentile(99));
+            System.out.print(router);
+        }
+    }
+}
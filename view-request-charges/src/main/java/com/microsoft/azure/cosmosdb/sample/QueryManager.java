@@ -23,36 +23,76 @@
 package com.microsoft.azure.cosmosdb.sample;
 
 import java.io.IOException;
-import com.microsoft.azure.cosmosdb.ConnectionPolicy;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
 import com.microsoft.azure.cosmosdb.ConsistencyLevel;
 import com.microsoft.azure.cosmosdb.Document;
-import com.microsoft.azure.cosmosdb.FeedOptions;
-import com.microsoft.azure.cosmosdb.FeedResponse;
-import com.microsoft.azure.cosmosdb.rx.AsyncDocumentClient;
+import com.microsoft.azure.cosmosdb.SqlQuerySpec;
+import com.microsoft.azure.cosmosdb.sample.cache.CachingDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.cache.QueryCacheOptions;
+import com.microsoft.azure.cosmosdb.sample.changefeed.ChangeFeedProcessor;
+import com.microsoft.azure.cosmosdb.sample.changefeed.ChangeFeedProcessorOptions;
+import com.microsoft.azure.cosmosdb.sample.changefeed.FileLeaseStore;
+import com.microsoft.azure.cosmosdb.sample.client.AccountStores;
+import com.microsoft.azure.cosmosdb.sample.consistency.ConsistencyRouter;
+import com.microsoft.azure.cosmosdb.sample.projection.Projections;
+import com.microsoft.azure.cosmosdb.sample.query.FileContinuationCheckpoint;
+import com.microsoft.azure.cosmosdb.sample.query.ParallelQueryExecutor;
+import com.microsoft.azure.cosmosdb.sample.query.ParallelQueryMetrics;
+import com.microsoft.azure.cosmosdb.sample.query.ParallelQueryOptions;
+import com.microsoft.azure.cosmosdb.sample.query.QueryExplainer;
+import com.microsoft.azure.cosmosdb.sample.query.StreamingQueryExecutor;
+import com.microsoft.azure.cosmosdb.sample.query.StreamingQueryOptions;
+import com.microsoft.azure.cosmosdb.sample.store.AccountStore;
+import com.microsoft.azure.cosmosdb.sample.store.DocumentStore;
+import com.microsoft.azure.cosmosdb.sample.store.FeedPage;
+import com.microsoft.azure.cosmosdb.sample.telemetry.RequestChargeTelemetry;
+import com.microsoft.azure.cosmosdb.sample.throttle.RateLimitedDocumentStore;
+import com.microsoft.azure.cosmosdb.sample.throttle.RateLimiterOptions;
 import rx.Observable;
 
-public class QueryManager {
+public class QueryManager implements AutoCloseable {
 
-    public static AsyncDocumentClient client;
+    private final AccountStore account;
     
     // Assign a variable for your database & collection 
     private static final String databaseId = "<databaseId>";
     private static final String collectionId = "<collectionId>";
     private String collectionLink;
-    private FeedOptions queryOptions = new FeedOptions();
+    private StreamingQueryOptions queryOptions = new StreamingQueryOptions();
+    private StreamingQueryExecutor queryExecutor;
+    private RequestChargeTelemetry telemetry = new RequestChargeTelemetry();
+    private CachingDocumentStore queryCache;
+    private RateLimitedDocumentStore store;
+    private ConsistencyRouter consistency;
+    private final List<DocumentStore> levelAccounts = new CopyOnWriteArrayList<>();
 
     public QueryManager(){
-        client = new AsyncDocumentClient.Builder()
-        .withServiceEndpoint(AccountSettings.HOST)
-        .withMasterKey(AccountSettings.MASTER_KEY)
-        .withConnectionPolicy(ConnectionPolicy.GetDefault())
-        .withConsistencyLevel(ConsistencyLevel.Session)
-        .build();
+        // One client per account and connection settings is shared by every manager in the
+        // process; see ClientSettings.fromEnvironment for the tuning overrides, and
+        // AccountStores for running against an in-memory account instead.
+        account = AccountStores.fromEnvironment(AccountSettings.HOST, AccountSettings.MASTER_KEY);
 
         collectionLink = String.format("/dbs/%s/colls/%s", databaseId, collectionId);
         
         queryOptions.setMaxItemCount(500);
         queryOptions.setEnableCrossPartitionQuery(true);   
+        queryOptions.setMaxBufferedPages(2);
+        // Every query page waits for its share of the collection's throughput (see
+        // RateLimiterOptions.fromEnvironment) instead of running into 429s.
+        store = new RateLimitedDocumentStore(account, RateLimiterOptions.fromEnvironment());
+        queryExecutor = new StreamingQueryExecutor(store);
+        // Queries set to a consistency level of their own read through a client (or in-memory
+        // view) at that level, under the same throughput limit. The range query tolerates
+        // slightly stale results, so it reads at Eventual. That costs the same RU as Session,
+        // the client's default, and only saves RU (about half) on an account at Strong or
+        // BoundedStaleness; at Session it just drops the session token wait.
+        consistency = new ConsistencyRouter(store, level ->
+                store.over(accountAt(level)));
+        SetConsistency("QueryWithRangeOperator", ConsistencyLevel.Eventual);
     }
 
     public void QueryWithOneFilter() throws IOException{
@@ -86,16 +126,126 @@ public class QueryManager {
         OutputResults(queryText);
     }
 
-    private void OutputResults(String queryText){
-        Observable<FeedResponse<Document>> queryObservable = client.queryDocuments(collectionLink,
-        queryText, queryOptions);
+    public void ScanWithCheckpoint(String queryText, String checkpointFile){
+        // Scan the whole result set, saving the continuation token to checkpointFile after
+        // every page. Running it again after a failure resumes from the last saved page.
+        queryExecutor.queryPages(collectionLink, new SqlQuerySpec(queryText), queryOptions,
+                new FileContinuationCheckpoint(Paths.get(checkpointFile)),
+                queryResultPage -> OutputPage("ScanWithCheckpoint", queryResultPage))
+        .toBlocking().subscribe();
+    }
+
+    public void QueryInParallel(String queryText, int maxDegreeOfParallelism, int maxBufferedItemCount){
+        // Query every partition key range at once, up to maxDegreeOfParallelism requests at a
+        // time. ORDER BY results are merged back into order as they arrive; the metrics show
+        // which partition the merge spent the most time waiting for.
+        ParallelQueryOptions parallelOptions = new ParallelQueryOptions();
+        parallelOptions.setMaxDegreeOfParallelism(maxDegreeOfParallelism);
+        parallelOptions.setMaxBufferedItemCount(maxBufferedItemCount);
+        parallelOptions.setMaxItemCount(queryOptions.getMaxItemCount());
+        ParallelQueryMetrics metrics = new ParallelQueryMetrics();
+
+        long documentCount = new ParallelQueryExecutor(queryCache != null ? queryCache : store)
+                .query(collectionLink, queryText, parallelOptions, metrics)
+                .count().toBlocking().single();
+        System.out.println("QueryInParallel: Got " + documentCount + " document(s)");
+        System.out.println(metrics);
+    }
+
+    public void QueryField(String queryText, String... path){
+        // Print one value of each result, read straight off the result instead of binding the
+        // whole document; Projections.as(type) binds results to a POJO of your own instead.
+        queryExecutor.queryPages(collectionLink, queryText, queryOptions, Projections.field(Object.class, path))
+        .toBlocking().subscribe(queryResultPage -> System.out.println("QueryField: Got a page of "
+                + String.join(".", path) + " values " + queryResultPage.getResults() + " and request charge of "
+                + queryResultPage.getRequestCharge()));
+    }
+
+    public void ExplainQuery(String queryText){
+        // Print the parsed query, which of its filters the indexing policy serves, how many
+        // documents it should load and return (from a sample of the collection) against how
+        // many it did, and the RU and server query metrics of every page. Pass the
+        // collection's indexing policy to the explainer if it is not the default one.
+        System.out.println(new QueryExplainer(store).explain(collectionLink, queryText, queryOptions.toFeedOptions())
+                .toBlocking().single());
+    }
+
+    public void ProcessChangeFeed(String leaseDirectory, long durationSeconds) throws Exception{
+        // Follow the collection's changes instead of re-running full queries. Checkpoints are
+        // kept in leaseDirectory, so the next run only sees what changed since this one; run
+        // several copies against the same directory to split the partitions between them.
+        ChangeFeedProcessorOptions processorOptions = new ChangeFeedProcessorOptions();
+        processorOptions.setStartFromBeginning(true);
+        ChangeFeedProcessor processor = new ChangeFeedProcessor(store, collectionLink,
+                new FileLeaseStore(Paths.get(leaseDirectory)), processorOptions,
+                batch -> System.out.println("ProcessChangeFeed: Got " + batch.getDocuments().size()
+                        + " changed document(s) from partition key range " + batch.getPartitionKeyRangeId()
+                        + " for a request charge of " + batch.getRequestCharge()));
+        processor.start();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        processor.stop();
+        System.out.println("ProcessChangeFeed: " + processor.getDocumentCount() + " change(s) for "
+                + processor.getRequestCharge() + " RU");
+    }
+
+    public void SetConsistency(String methodName, ConsistencyLevel level){
+        // Run the named query method's queries at the given level, or at the client's level
+        // again for null. The level may not be stronger than the account's.
+        consistency.getPolicy().setLevel(methodName, level);
+    }
 
+    private void OutputResults(String queryText){
         String callingMethodName = Thread.currentThread().getStackTrace()[2].getMethodName();
+        StreamingQueryExecutor executor = consistency.getPolicy().hasLevel(callingMethodName)
+                ? new StreamingQueryExecutor(consistency.forOperation(callingMethodName, null)) : queryExecutor;
+
+        // Pages are pulled as they are printed, with at most two fetched ahead. Each run is
+        // recorded against its calling method and query shape; see OutputTelemetry.
+        Observable<FeedPage<Document>> queryObservable = executor.queryPages(collectionLink,
+        queryText, queryOptions).compose(telemetry.instrument(callingMethodName, queryText));
         
-        queryObservable.subscribe(queryResultPage -> {
-            System.out.println(callingMethodName + ": Got a page of query result with " + 
-            queryResultPage.getResults().size() + " document(s)" + " and request charge of \u001B[46m \u001B[30m " + 
-            queryResultPage.getRequestCharge() + " \u001B[0m \u001B[40m");
-        });
+        queryObservable.toBlocking().subscribe(queryResultPage -> OutputPage(callingMethodName, queryResultPage));
+    }
+
+    public void EnableQueryCache(long maxBytes, long timeToLiveMillis){
+        // Serve repeated queries from memory. Cached pages are preferred by RU per byte, so
+        // the expensive range and multi-filter results are the last to be evicted.
+        QueryCacheOptions cacheOptions = new QueryCacheOptions();
+        cacheOptions.setMaxBytes(maxBytes);
+        cacheOptions.setTimeToLiveMillis(timeToLiveMillis);
+        queryCache = new CachingDocumentStore(store, cacheOptions);
+        queryExecutor = new StreamingQueryExecutor(queryCache);
+    }
+
+    public void OutputTelemetry(boolean prometheusFormat){
+        // RU, latency, pages, documents and bytes per query execution: p50/p95/p99 and totals.
+        System.out.println(prometheusFormat ? telemetry.toPrometheusText() : telemetry.toJson());
+        if (queryCache != null) {
+            System.out.println("Query cache: " + queryCache.getHitCount() + " hits, " + queryCache.getMissCount()
+                    + " misses, " + queryCache.getSavedRequestCharge() + " RU saved");
+        }
+        System.out.println("Queries by consistency level:");
+        System.out.println(consistency.getMetrics());
+    }
+
+    // Hands the clients back to the pool, closing any no other manager is using.
+    @Override
+    public void close(){
+        for (DocumentStore levelAccount : levelAccounts) {
+            AccountStores.release(levelAccount);
+        }
+        AccountStores.release(account);
+    }
+
+    private DocumentStore accountAt(ConsistencyLevel level){
+        DocumentStore levelAccount = AccountStores.fromEnvironment(AccountSettings.HOST, AccountSettings.MASTER_KEY, level);
+        levelAccounts.add(levelAccount);
+        return levelAccount;
+    }
+
+    private void OutputPage(String callingMethodName, FeedPage<Document> queryResultPage){
+        System.out.println(callingMethodName + ": Got a page of query result with " + 
+        queryResultPage.getResults().size() + " document(s)" + " and request charge of \u001B[46m \u001B[30m " + 
+        queryResultPage.getRequestCharge() + " \u001B[0m \u001B[40m");
     }
 }
\ No newline at end of file